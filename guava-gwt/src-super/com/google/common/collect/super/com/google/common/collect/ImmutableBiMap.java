@@ -62,6 +62,18 @@ public abstract class ImmutableBiMap<K, V> extends ForwardingImmutableMap<K, V>
     return new Builder<K, V>();
   }
 
+  /**
+   * Not supported. Use {@link #builder}, which also rejects duplicate values,
+   * instead. This method exists only to hide {@link
+   * ImmutableMap#streamingBuilder} from consumers of {@code ImmutableBiMap}.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Use {@link #builder}.
+   */
+  @Deprecated public static <K, V> Builder<K, V> streamingBuilder() {
+    throw new UnsupportedOperationException();
+  }
+
   public static final class Builder<K, V> extends ImmutableMap.Builder<K, V> {
 
     public Builder() {}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import java.util.Map;
+
+/**
+ * GWT emulation of {@link ImmutableEnumMap}.  The type parameter {@code K} is
+ * not bounded by {@code Enum<K>} to avoid code-size bloat.
+ *
+ * @author Louis Wasserman
+ */
+final class ImmutableEnumMap<K, V> extends ForwardingImmutableMap<K, V> {
+  ImmutableEnumMap(Map<K, ? extends V> delegate) {
+    super(delegate);
+  }
+}
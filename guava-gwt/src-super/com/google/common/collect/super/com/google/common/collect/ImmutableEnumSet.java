@@ -16,6 +16,8 @@
 
 package com.google.common.collect;
 
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.Set;
 
 /**
@@ -28,4 +30,9 @@ final class ImmutableEnumSet<E> extends ForwardingImmutableSet<E> {
   public ImmutableEnumSet(Set<E> delegate) {
     super(delegate);
   }
+
+  @SuppressWarnings({"unchecked", "rawtypes"}) // the elements are enums
+  EnumSet<?> toEnumSet() {
+    return EnumSet.copyOf((Collection) this);
+  }
 }
@@ -16,13 +16,16 @@
 
 package com.google.common.collect;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Iterables.getOnlyElement;
 
 import java.io.Serializable;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 
@@ -80,6 +83,10 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
     return new Builder<K, V>();
   }
 
+  public static <K, V> Builder<K, V> streamingBuilder() {
+    return new StreamingBuilder<K, V>();
+  }
+
   static <K, V> Entry<K, V> entryOf(K key, V value) {
     return Maps.immutableEntry(checkNotNull(key), checkNotNull(value));
   }
@@ -137,6 +144,21 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
     }
   }
 
+  private static final class StreamingBuilder<K, V> extends Builder<K, V> {
+    final Set<K> keys = new HashSet<K>();
+
+    @Override public Builder<K, V> put(K key, V value) {
+      checkArgument(!keys.contains(checkNotNull(key)), "duplicate key: %s", key);
+      super.put(key, value);
+      keys.add(key);
+      return this;
+    }
+
+    @Override public Builder<K, V> put(Entry<? extends K, ? extends V> entry) {
+      return put(entry.getKey(), entry.getValue());
+    }
+  }
+
   public static <K, V> ImmutableMap<K, V> copyOf(
       Map<? extends K, ? extends V> map) {
     if ((map instanceof ImmutableMap) && !(map instanceof ImmutableSortedMap)) {
@@ -172,6 +172,11 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E> implements
     return new Builder<E>();
   }
 
+  // The emulated builder's memory use doesn't matter, so it needn't stream.
+  public static <E> Builder<E> streamingBuilder() {
+    return new Builder<E>();
+  }
+
   public static class Builder<E> extends ImmutableCollection.Builder<E> {
     // accessed directly by ImmutableSortedSet
     final ArrayList<E> contents = Lists.newArrayList();
@@ -41,12 +41,17 @@ public abstract class ImmutableSortedSet<E>
 
   // In the non-emulated source, this is in ImmutableSortedSetFauxverideShim,
   // which overrides ImmutableSet & which ImmutableSortedSet extends.
-  // It is necessary here because otherwise the builder() method
+  // It is necessary here because otherwise the builder() methods
   // would be inherited from the emulated ImmutableSet.
   @Deprecated public static <E> ImmutableSortedSet.Builder<E> builder() {
     throw new UnsupportedOperationException();
   }
 
+  @Deprecated
+  public static <E> ImmutableSortedSet.Builder<E> streamingBuilder() {
+    throw new UnsupportedOperationException();
+  }
+
   // TODO: Can we find a way to remove this @SuppressWarnings even for eclipse?
   @SuppressWarnings("unchecked")
   private static final Comparator NATURAL_ORDER = Ordering.natural();
@@ -994,8 +994,9 @@ public final class Iterables {
    * <p>Callers must ensure that the source {@code iterables} are in
    * non-descending order as this method does not sort its input.
    *
-   * <p>For any equivalent elements across all {@code iterables}, it is
-   * undefined which element is returned first.
+   * <p>The merge is stable: equivalent elements are returned in the order of
+   * the iterables they come from, earlier iterables first, and elements of a
+   * single iterable keep their relative order.
    *
    * @since 11.0
    */
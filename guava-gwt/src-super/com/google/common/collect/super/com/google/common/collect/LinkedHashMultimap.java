@@ -224,6 +224,14 @@ public final class LinkedHashMultimap<K, V> extends AbstractSetMultimap<K, V> {
 
   private static final int MAX_VALUE_SET_TABLE_SIZE = Ints.MAX_POWER_OF_TWO;
 
+  /**
+   * The most values a value set holds without a hash table of its own. Most
+   * keys have only a few values, which are found faster by comparing the
+   * cached hash codes of the set's entries than by hashing into a table, so
+   * that a small set costs no more than its entries and its header.
+   */
+  private static final int MAX_UNHASHED_VALUES = 4;
+
   @VisibleForTesting transient int valueSetCapacity = DEFAULT_VALUE_SET_CAPACITY;
   private transient ValueEntry<K, V> multimapHeaderEntry;
 
@@ -314,7 +322,7 @@ public final class LinkedHashMultimap<K, V> extends AbstractSetMultimap<K, V> {
      */
 
     private final K key;
-    private ValueEntry<K, V>[] hashTable;
+    @Nullable private ValueEntry<K, V>[] hashTable; // null until needed
     private int size = 0;
     private int modCount = 0;
 
@@ -327,6 +335,12 @@ public final class LinkedHashMultimap<K, V> extends AbstractSetMultimap<K, V> {
       this.key = key;
       this.firstEntry = this;
       this.lastEntry = this;
+      if (expectedValues > MAX_UNHASHED_VALUES) {
+        this.hashTable = newHashTable(expectedValues);
+      }
+    }
+
+    private ValueEntry<K, V>[] newHashTable(int expectedValues) {
       // Round expected values up to a power of 2 to get the table size.
       int tableSize = Integer.highestOneBit(Math.max(expectedValues, 2) - 1) << 1;
       if (tableSize < 0) {
@@ -335,7 +349,61 @@ public final class LinkedHashMultimap<K, V> extends AbstractSetMultimap<K, V> {
 
       @SuppressWarnings("unchecked")
       ValueEntry<K, V>[] hashTable = new ValueEntry[tableSize];
-      this.hashTable = hashTable;
+      return hashTable;
+    }
+
+    /**
+     * Returns the first entry in the hash table row for {@code hash}, or, if
+     * this set has no hash table, its last entry.
+     */
+    @Nullable private ValueEntry<K, V> rowHead(int hash) {
+      if (hashTable == null) {
+        return (lastEntry == this) ? null : (ValueEntry<K, V>) lastEntry;
+      }
+      return hashTable[Hashing.smear(hash) & (hashTable.length - 1)];
+    }
+
+    /**
+     * Returns the entry after {@code entry} in its hash table row, or, if this
+     * set has no hash table, the entry before it in the set.
+     */
+    @Nullable private ValueEntry<K, V> nextInRow(ValueEntry<K, V> entry) {
+      if (hashTable == null) {
+        ValueSetLink<K, V> predecessor = entry.getPredecessorInValueSet();
+        return (predecessor == this) ? null : (ValueEntry<K, V>) predecessor;
+      }
+      return entry.nextInValueSetHashRow;
+    }
+
+    @Nullable private ValueEntry<K, V> findEntry(@Nullable Object o, int hash) {
+      for (ValueEntry<K, V> entry = rowHead(hash); entry != null;
+          entry = nextInRow(entry)) {
+        if (hash == entry.valueHash && Objects.equal(o, entry.getValue())) {
+          return entry;
+        }
+      }
+      return null;
+    }
+
+    private void removeEntry(ValueEntry<K, V> toRemove) {
+      if (hashTable != null) {
+        int row = Hashing.smear(toRemove.valueHash) & (hashTable.length - 1);
+        ValueEntry<K, V> prev = null;
+        for (ValueEntry<K, V> entry = hashTable[row]; entry != toRemove;
+             entry = entry.nextInValueSetHashRow) {
+          prev = entry;
+        }
+        if (prev == null) {
+          // first entry in the row
+          hashTable[row] = toRemove.nextInValueSetHashRow;
+        } else {
+          prev.nextInValueSetHashRow = toRemove.nextInValueSetHashRow;
+        }
+      }
+      deleteFromValueSet(toRemove);
+      deleteFromMultimap(toRemove);
+      size--;
+      modCount++;
     }
 
     @Override
@@ -393,26 +461,8 @@ public final class LinkedHashMultimap<K, V> extends AbstractSetMultimap<K, V> {
         public void remove() {
           checkForComodification();
           Iterators.checkRemove(toRemove != null);
-          Object o = toRemove.getValue();
-          int hash = (o == null) ? 0 : o.hashCode();
-          int row = Hashing.smear(hash) & (hashTable.length - 1);
-          ValueEntry<K, V> prev = null;
-          for (ValueEntry<K, V> entry = hashTable[row]; entry != null;
-               prev = entry, entry = entry.nextInValueSetHashRow) {
-            if (entry == toRemove) {
-              if (prev == null) {
-                // first entry in row
-                hashTable[row] = entry.nextInValueSetHashRow;
-              } else {
-                prev.nextInValueSetHashRow = entry.nextInValueSetHashRow;
-              }
-              deleteFromValueSet(toRemove);
-              deleteFromMultimap(toRemove);
-              size--;
-              expectedModCount = ++modCount;
-              break;
-            }
-          }
+          removeEntry(toRemove);
+          expectedModCount = modCount;
           toRemove = null;
         }
       };
@@ -426,43 +476,34 @@ public final class LinkedHashMultimap<K, V> extends AbstractSetMultimap<K, V> {
     @Override
     public boolean contains(@Nullable Object o) {
       int hash = (o == null) ? 0 : o.hashCode();
-      int row = Hashing.smear(hash) & (hashTable.length - 1);
-
-      for (ValueEntry<K, V> entry = hashTable[row]; entry != null;
-          entry = entry.nextInValueSetHashRow) {
-        if (hash == entry.valueHash && Objects.equal(o, entry.getValue())) {
-          return true;
-        }
-      }
-      return false;
+      return findEntry(o, hash) != null;
     }
 
     /**
-     * The threshold above which the hash table should be rebuilt.
+     * The threshold above which the hash table should be built or rebuilt.
      */
     @VisibleForTesting int threshold() {
-      return hashTable.length; // load factor of 1.0
+      // load factor of 1.0
+      return (hashTable == null) ? MAX_UNHASHED_VALUES : hashTable.length;
     }
 
     @Override
     public boolean add(@Nullable V value) {
       int hash = (value == null) ? 0 : value.hashCode();
-      int row = Hashing.smear(hash) & (hashTable.length - 1);
-
-      ValueEntry<K, V> rowHead = hashTable[row];
-      for (ValueEntry<K, V> entry = rowHead; entry != null;
-          entry = entry.nextInValueSetHashRow) {
-        if (hash == entry.valueHash && Objects.equal(value, entry.getValue())) {
-          return false;
-        }
+      if (findEntry(value, hash) != null) {
+        return false;
       }
 
-      ValueEntry<K, V> newEntry = new ValueEntry<K, V>(key, value, hash, rowHead);
+      ValueEntry<K, V> newEntry = new ValueEntry<K, V>(key, value, hash, null);
       succeedsInValueSet(lastEntry, newEntry);
       succeedsInValueSet(newEntry, this);
       succeedsInMultimap(multimapHeaderEntry.getPredecessorInMultimap(), newEntry);
       succeedsInMultimap(newEntry, multimapHeaderEntry);
-      hashTable[row] = newEntry;
+      if (hashTable != null) {
+        int row = Hashing.smear(hash) & (hashTable.length - 1);
+        newEntry.nextInValueSetHashRow = hashTable[row];
+        hashTable[row] = newEntry;
+      }
       size++;
       modCount++;
       rehashIfNecessary();
@@ -470,9 +511,11 @@ public final class LinkedHashMultimap<K, V> extends AbstractSetMultimap<K, V> {
     }
 
     private void rehashIfNecessary() {
-      if (size > threshold() && hashTable.length < MAX_VALUE_SET_TABLE_SIZE) {
-        @SuppressWarnings("unchecked")
-        ValueEntry<K, V>[] hashTable = new ValueEntry[this.hashTable.length * 2];
+      if (size > threshold()
+          && (hashTable == null || hashTable.length < MAX_VALUE_SET_TABLE_SIZE)) {
+        ValueEntry<K, V>[] hashTable = (this.hashTable == null)
+            ? newHashTable(size)
+            : newHashTable(this.hashTable.length * 2);
         this.hashTable = hashTable;
         int mask = hashTable.length - 1;
         for (ValueSetLink<K, V> entry = firstEntry;
@@ -488,31 +531,19 @@ public final class LinkedHashMultimap<K, V> extends AbstractSetMultimap<K, V> {
     @Override
     public boolean remove(@Nullable Object o) {
       int hash = (o == null) ? 0 : o.hashCode();
-      int row = Hashing.smear(hash) & (hashTable.length - 1);
-
-      ValueEntry<K, V> prev = null;
-      for (ValueEntry<K, V> entry = hashTable[row]; entry != null;
-           prev = entry, entry = entry.nextInValueSetHashRow) {
-        if (hash == entry.valueHash && Objects.equal(o, entry.getValue())) {
-          if (prev == null) {
-            // first entry in the row
-            hashTable[row] = entry.nextInValueSetHashRow;
-          } else {
-            prev.nextInValueSetHashRow = entry.nextInValueSetHashRow;
-          }
-          deleteFromValueSet(entry);
-          deleteFromMultimap(entry);
-          size--;
-          modCount++;
-          return true;
-        }
+      ValueEntry<K, V> entry = findEntry(o, hash);
+      if (entry == null) {
+        return false;
       }
-      return false;
+      removeEntry(entry);
+      return true;
     }
 
     @Override
     public void clear() {
-      Arrays.fill(hashTable, null);
+      if (hashTable != null) {
+        Arrays.fill(hashTable, null);
+      }
       size = 0;
       for (ValueSetLink<K, V> entry = firstEntry;
            entry != this; entry = entry.getSuccessorInValueSet()) {
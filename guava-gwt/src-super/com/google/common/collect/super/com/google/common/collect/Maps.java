@@ -260,6 +260,40 @@ public final class Maps {
     return new EnumMap<K, V>(map);
   }
 
+  /**
+   * Returns an immutable map with the same entries as {@code map}, whose keys
+   * are constants of a single enum type. The returned map stores its values in
+   * an array indexed by the {@linkplain Enum#ordinal ordinals} of their keys,
+   * so that {@code get} is a single array access and the map holds no entry
+   * objects. Its {@link ImmutableMap#keySet keySet()} is backed by a {@link
+   * java.util.EnumSet}, like the sets of {@link Sets#immutableEnumSet}.
+   *
+   * <p>The iteration order of the returned map follows the enum's iteration
+   * order, not the order of {@code map}.
+   *
+   * @param map the map whose entries the returned map should contain
+   * @return an immutable map containing those entries
+   * @throws NullPointerException if any key or value in {@code map} is null
+   * @since 14.0
+   */
+  @Beta
+  @GwtCompatible(serializable = true)
+  public static <K extends Enum<K>, V> ImmutableMap<K, V> immutableEnumMap(
+      Map<K, ? extends V> map) {
+    if (map instanceof ImmutableEnumMap) {
+      @SuppressWarnings("unchecked") // safe since map is not writable
+      ImmutableEnumMap<K, V> result = (ImmutableEnumMap<K, V>) map;
+      return result;
+    } else if (map.isEmpty()) {
+      return ImmutableMap.of();
+    }
+    EnumMap<K, V> enumMap = new EnumMap<K, V>(map);
+    for (V value : enumMap.values()) {
+      checkNotNull(value);
+    }
+    return new ImmutableEnumMap<K, V>(enumMap);
+  }
+
   /**
    * Creates an {@code IdentityHashMap} instance.
    *
@@ -535,10 +535,59 @@ public final class Sets {
    * as a plain {@link Set}, or immediately invoke {@link #immutableCopy} or
    * {@link #copyInto} and forget the {@code SetView} itself.
    *
+   * <p>If every set backing a view is an {@link ImmutableSet}, or another such
+   * view, the contents of the view can never change. Such a view computes its
+   * contents at most once: the first call to {@link #size} or {@link
+   * #immutableCopy} stores an immutable copy, which later calls and
+   * iterations then use. This keeps deeply nested views of immutable sets from
+   * re-evaluating their backing sets on every traversal.
+   *
    * @since 2.0 (imported from Google Collections Library)
    */
   public abstract static class SetView<E> extends AbstractSet<E> {
-    private SetView() {} // no subclasses but our own
+    /**
+     * Whether every set backing this view is immutable, so that its contents
+     * never change.
+     */
+    private final boolean fixed;
+
+    /** The contents of a fixed view, once computed. */
+    private transient ImmutableSet<E> contents;
+
+    private SetView(Set<?> set1, Set<?> set2) { // no subclasses but our own
+      this.fixed = isFixed(set1) && isFixed(set2);
+    }
+
+    private static boolean isFixed(Set<?> set) {
+      return (set instanceof ImmutableSet)
+          || (set instanceof SetView && ((SetView<?>) set).fixed);
+    }
+
+    @Override public Iterator<E> iterator() {
+      ImmutableSet<E> result = contents;
+      return (result == null) ? lazyIterator() : result.iterator();
+    }
+
+    @Override public int size() {
+      return fixed ? immutableCopy().size() : lazySize();
+    }
+
+    @Override public boolean isEmpty() {
+      ImmutableSet<E> result = contents;
+      return (result == null) ? lazyIsEmpty() : result.isEmpty();
+    }
+
+    /**
+     * Returns an unmodifiable iterator over the elements of this view,
+     * computed from the backing sets.
+     */
+    abstract Iterator<E> lazyIterator();
+
+    /** Returns the size of this view, computed from the backing sets. */
+    abstract int lazySize();
+
+    /** Returns whether this view is empty, computed from the backing sets. */
+    abstract boolean lazyIsEmpty();
 
     /**
      * Returns an immutable copy of the current contents of this set view.
@@ -550,7 +599,22 @@ public final class Sets {
      * Object#equals(Object)}.
      */
     public ImmutableSet<E> immutableCopy() {
-      return ImmutableSet.copyOf(this);
+      ImmutableSet<E> result = contents;
+      if (result == null) {
+        result = copyContents();
+        if (fixed) {
+          contents = result;
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Returns an immutable copy of the contents of this view, in the same
+     * order, computed from the backing sets.
+     */
+    ImmutableSet<E> copyContents() {
+      return ImmutableSet.copyOf(lazyIterator());
     }
 
     /**
@@ -584,9 +648,11 @@ public final class Sets {
    * will generally be smaller than the other, pass it first.
    *
    * <p>Further, note that the current implementation is not suitable for nested
-   * {@code union} views, i.e. the following should be avoided when in a loop:
-   * {@code union = Sets.union(union, anotherSet);}, since iterating over the resulting
-   * set has a cubic complexity to the depth of the nesting.
+   * {@code union} views of mutable sets, i.e. the following should be avoided
+   * when in a loop: {@code union = Sets.union(union, anotherSet);}, since
+   * iterating over the resulting set has a cubic complexity to the depth of the
+   * nesting. Nested views of immutable sets compute their contents only once;
+   * see {@link SetView}.
    */
   public static <E> SetView<E> union(
       final Set<? extends E> set1, final Set<? extends E> set2) {
@@ -595,14 +661,14 @@ public final class Sets {
 
     final Set<? extends E> set2minus1 = difference(set2, set1);
 
-    return new SetView<E>() {
-      @Override public int size() {
+    return new SetView<E>(set1, set2) {
+      @Override int lazySize() {
         return set1.size() + set2minus1.size();
       }
-      @Override public boolean isEmpty() {
+      @Override boolean lazyIsEmpty() {
         return set1.isEmpty() && set2.isEmpty();
       }
-      @Override public Iterator<E> iterator() {
+      @Override Iterator<E> lazyIterator() {
         return Iterators.unmodifiableIterator(
             Iterators.concat(set1.iterator(), set2minus1.iterator()));
       }
@@ -614,7 +680,7 @@ public final class Sets {
         set.addAll(set2);
         return set;
       }
-      @Override public ImmutableSet<E> immutableCopy() {
+      @Override ImmutableSet<E> copyContents() {
         return new ImmutableSet.Builder<E>()
             .addAll(set1).addAll(set2).build();
       }
@@ -630,12 +696,18 @@ public final class Sets {
    * on different equivalence relations (as {@code HashSet}, {@code TreeSet},
    * and the keySet of an {@code IdentityHashMap} all are).
    *
-   * <p><b>Note:</b> The returned view performs slightly better when {@code
-   * set1} is the smaller of the two sets. If you have reason to believe one of
-   * your sets will generally be smaller than the other, pass it first.
-   * Unfortunately, since this method sets the generic type of the returned set
-   * based on the type of the first set passed, this could in rare cases force
-   * you to make a cast, for example: <pre>   {@code
+   * <p><b>Note:</b> The {@code size()} method of the returned view searches
+   * whichever set is smaller for elements of the other, intersects two {@link
+   * EnumSet}s or immutable enum sets bitwise, and merges two {@link
+   * ImmutableSortedSet}s with the same comparator in linear time when that is
+   * cheaper than searching. The {@code isEmpty()} method stops at the first
+   * shared element, and searches the smaller set only when neither set is a
+   * view or a filtered set, whose sizes are costly. Iteration always follows
+   * {@code set1}, so it performs slightly better when {@code set1} is the
+   * smaller of the two sets. Unfortunately, since this method sets the generic
+   * type of the returned set based on the type of the first set passed, passing
+   * the smaller set first could in rare cases force you to make a cast, for
+   * example: <pre>   {@code
    *
    *   Set<Object> aFewBadObjects = ...
    *   Set<String> manyBadStrings = ...
@@ -653,15 +725,26 @@ public final class Sets {
     checkNotNull(set2, "set2");
 
     final Predicate<Object> inSet2 = Predicates.in(set2);
-    return new SetView<E>() {
-      @Override public Iterator<E> iterator() {
+    return new SetView<E>(set1, set2) {
+      @Override Iterator<E> lazyIterator() {
         return Iterators.filter(set1.iterator(), inSet2);
       }
-      @Override public int size() {
-        return Iterators.size(iterator());
+      @Override int lazySize() {
+        return intersectionSize(set1, set2);
       }
-      @Override public boolean isEmpty() {
-        return !iterator().hasNext();
+      @Override boolean lazyIsEmpty() {
+        EnumSet<?> enumSet1 = enumSetCopy(set1);
+        EnumSet<?> enumSet2 = enumSetCopy(set2);
+        if (enumSet1 != null && enumSet2 != null) {
+          enumSet1.retainAll(enumSet2);
+          return enumSet1.isEmpty();
+        }
+        if (hasCheapSize(set1) && hasCheapSize(set2)
+            && set2.size() < set1.size()) {
+          return !Iterators.any(set2.iterator(), Predicates.<Object>in(set1));
+        }
+        // stops at the first shared element, without sizing either set
+        return !lazyIterator().hasNext();
       }
       @Override public boolean contains(Object object) {
         return set1.contains(object) && set2.contains(object);
@@ -670,6 +753,13 @@ public final class Sets {
         return set1.containsAll(collection)
             && set2.containsAll(collection);
       }
+      @Override ImmutableSet<E> copyContents() {
+        ImmutableSet<E> result = enumSetAlgebra(set1, set2, true);
+        if (result == null) {
+          result = sortedSetAlgebra(set1, set2, true);
+        }
+        return (result == null) ? super.copyContents() : result;
+      }
     };
   }
 
@@ -683,6 +773,11 @@ public final class Sets {
    * <p>Results are undefined if {@code set1} and {@code set2} are sets based
    * on different equivalence relations (as {@code HashSet}, {@code TreeSet},
    * and the keySet of an {@code IdentityHashMap} all are).
+   *
+   * <p><b>Note:</b> The {@code size()} method of the returned view counts the
+   * elements shared by the two sets the same way as the {@code size()} of an
+   * {@linkplain #intersection intersection}, searching whichever set is
+   * smaller.
    */
   public static <E> SetView<E> difference(
       final Set<E> set1, final Set<?> set2) {
@@ -690,22 +785,175 @@ public final class Sets {
     checkNotNull(set2, "set2");
 
     final Predicate<Object> notInSet2 = Predicates.not(Predicates.in(set2));
-    return new SetView<E>() {
-      @Override public Iterator<E> iterator() {
+    return new SetView<E>(set1, set2) {
+      @Override Iterator<E> lazyIterator() {
         return Iterators.filter(set1.iterator(), notInSet2);
       }
-      @Override public int size() {
-        return Iterators.size(iterator());
+      @Override int lazySize() {
+        return set1.size() - intersectionSize(set1, set2);
       }
-      @Override public boolean isEmpty() {
+      @Override boolean lazyIsEmpty() {
         return set2.containsAll(set1);
       }
       @Override public boolean contains(Object element) {
         return set1.contains(element) && !set2.contains(element);
       }
+      @Override ImmutableSet<E> copyContents() {
+        ImmutableSet<E> result = enumSetAlgebra(set1, set2, false);
+        if (result == null) {
+          result = sortedSetAlgebra(set1, set2, false);
+        }
+        return (result == null) ? super.copyContents() : result;
+      }
     };
   }
 
+  /**
+   * Returns whether {@code set.size()} is cheap enough to call just to choose
+   * which of two sets to search. It is not for a filtered set, or for a view
+   * whose contents have not been computed, since those count their elements
+   * one by one, and a nested view does so at every level.
+   */
+  private static boolean hasCheapSize(Set<?> set) {
+    if (set instanceof SetView) {
+      return ((SetView<?>) set).contents != null;
+    }
+    return !(set instanceof FilteredCollection);
+  }
+
+  /**
+   * Returns the number of elements shared by two sets with the same notion of
+   * equivalence, by whichever method is cheapest.
+   */
+  private static int intersectionSize(Set<?> set1, Set<?> set2) {
+    EnumSet<?> enumSet1 = enumSetCopy(set1);
+    EnumSet<?> enumSet2 = enumSetCopy(set2);
+    if (enumSet1 != null && enumSet2 != null) {
+      enumSet1.retainAll(enumSet2);
+      return enumSet1.size();
+    }
+    if (preferMerge(set1, set2)) {
+      return mergeSorted((ImmutableSortedSet<?>) set1, set2, true, null);
+    }
+    Set<?> smaller = (set1.size() <= set2.size()) ? set1 : set2;
+    Set<?> larger = (smaller == set1) ? set2 : set1;
+    int count = 0;
+    for (Object element : smaller) {
+      if (larger.contains(element)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns a new {@code EnumSet} with the elements of {@code set}, if it is an
+   * {@code EnumSet} or an immutable enum set, or {@code null} otherwise.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"}) // EnumSet checks the type
+  @Nullable private static EnumSet<?> enumSetCopy(Set<?> set) {
+    if (set instanceof EnumSet) {
+      return EnumSet.copyOf((EnumSet) set);
+    } else if (set instanceof ImmutableEnumSet) {
+      return ((ImmutableEnumSet<?>) set).toEnumSet();
+    }
+    return null;
+  }
+
+  /**
+   * Returns the elements of {@code set1} that are (if {@code shared}) or are
+   * not in {@code set2}, computed bitwise, if both are enum sets, or {@code
+   * null} otherwise. The result has the iteration order of {@code set1}.
+   */
+  // enumSet1 holds the elements of set1
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Nullable private static <E> ImmutableSet<E> enumSetAlgebra(
+      Set<E> set1, Set<?> set2, boolean shared) {
+    EnumSet<?> enumSet1 = enumSetCopy(set1);
+    EnumSet<?> enumSet2 = (enumSet1 == null) ? null : enumSetCopy(set2);
+    if (enumSet2 == null) {
+      return null;
+    }
+    if (shared) {
+      enumSet1.retainAll(enumSet2);
+    } else {
+      enumSet1.removeAll(enumSet2);
+    }
+    return enumSet1.isEmpty()
+        ? ImmutableSet.<E>of()
+        : (ImmutableSet<E>) new ImmutableEnumSet(enumSet1);
+  }
+
+  /**
+   * Returns whether {@code set1} and {@code set2} are {@link
+   * ImmutableSortedSet}s with the same comparator, which are cheaper to
+   * intersect by a linear merge than by searching one for each element of the
+   * other.
+   */
+  private static boolean preferMerge(Set<?> set1, Set<?> set2) {
+    if (!(set1 instanceof ImmutableSortedSet)
+        || !(set2 instanceof ImmutableSortedSet)
+        || !((ImmutableSortedSet<?>) set1).comparator().equals(
+            ((ImmutableSortedSet<?>) set2).comparator())) {
+      return false;
+    }
+    int min = Math.min(set1.size(), set2.size());
+    int max = Math.max(set1.size(), set2.size());
+    // each search takes about log2(max) comparisons
+    long searchCost =
+        (long) min * (Integer.SIZE - Integer.numberOfLeadingZeros(max));
+    return searchCost >= (long) min + max;
+  }
+
+  /**
+   * Returns the elements of {@code set1} that are (if {@code shared}) or are
+   * not in {@code set2}, by a linear merge, if that is the cheapest way to find
+   * them, or {@code null} otherwise. The result is an {@link
+   * ImmutableSortedSet}, so has the iteration order of {@code set1}.
+   */
+  @Nullable private static <E> ImmutableSet<E> sortedSetAlgebra(
+      Set<E> set1, Set<?> set2, boolean shared) {
+    if (!preferMerge(set1, set2)) {
+      return null;
+    }
+    ImmutableSortedSet<E> sortedSet1 = (ImmutableSortedSet<E>) set1;
+    List<E> elements = Lists.newArrayList();
+    mergeSorted(sortedSet1, set2, shared, elements);
+    // already sorted, so building takes linear time
+    return new ImmutableSortedSet.Builder<E>(sortedSet1.comparator())
+        .addAll(elements)
+        .build();
+  }
+
+  /**
+   * Counts the elements of {@code set1} that are (if {@code shared}) or are
+   * not in {@code set2}, an {@code ImmutableSortedSet} with the same
+   * comparator, in one simultaneous pass over both sets. If {@code out} is not
+   * null, adds each such element to it.
+   */
+  @SuppressWarnings("unchecked") // the comparator of set1 also orders set2
+  private static <E> int mergeSorted(ImmutableSortedSet<E> set1, Set<?> set2,
+      boolean shared, @Nullable List<? super E> out) {
+    Comparator<? super E> comparator = set1.comparator();
+    Iterator<E> iterator2 = (Iterator<E>) set2.iterator();
+    E element2 = iterator2.hasNext() ? iterator2.next() : null;
+    int count = 0;
+    for (E element1 : set1) {
+      int comparison = 1;
+      while (element2 != null
+          && (comparison = comparator.compare(element1, element2)) > 0) {
+        element2 = iterator2.hasNext() ? iterator2.next() : null;
+      }
+      if ((element2 != null && comparison == 0) == shared) {
+        if (out != null) {
+          out.add(element1);
+        }
+        count++;
+      }
+    }
+    return count;
+  }
+
   /**
    * Returns an unmodifiable <b>view</b> of the symmetric difference of two
    * sets. The returned set contains all elements that are contained in either
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+import com.google.caliper.SimpleBenchmark;
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares a chain of {@link Iterables#transform} and {@link Iterables#filter}
+ * views against the same pipeline run with {@link BatchedIterable}, both
+ * sequentially and on a thread pool with one thread per processor.
+ *
+ * @author Louis Wasserman
+ */
+public class BatchedIterableBenchmark extends SimpleBenchmark {
+  @Param({"1000", "100000"})
+  private int size;
+
+  @Param({"64", "1024"})
+  private int batchSize;
+
+  @Param private Impl impl;
+
+  private static final Function<Integer, Integer> MIX =
+      new Function<Integer, Integer>() {
+        @Override public Integer apply(Integer input) {
+          int x = input * 0x9E3779B9;
+          return x ^ (x >>> 16);
+        }
+      };
+
+  private static final Predicate<Integer> ODD = new Predicate<Integer>() {
+    @Override public boolean apply(Integer input) {
+      return (input & 1) != 0;
+    }
+  };
+
+  private static final Function<Integer, Integer> HALVE =
+      new Function<Integer, Integer>() {
+        @Override public Integer apply(Integer input) {
+          return input >> 1;
+        }
+      };
+
+  private static final Predicate<Integer> POSITIVE = new Predicate<Integer>() {
+    @Override public boolean apply(Integer input) {
+      return input > 0;
+    }
+  };
+
+  private static final BatchedIterable.Reducer<Integer, Long> SUM =
+      new BatchedIterable.Reducer<Integer, Long>() {
+        @Override public Long reduce(Long accumulated, Integer element) {
+          return accumulated + element;
+        }
+
+        @Override public Long combine(Long left, Long right) {
+          return left + right;
+        }
+      };
+
+  public enum Impl {
+    ITERABLES {
+      @Override long sum(List<Integer> input, int batchSize,
+          ListeningExecutorService executor) {
+        long sum = 0;
+        for (int i : Iterables.filter(Iterables.transform(Iterables.filter(
+            Iterables.transform(input, MIX), ODD), HALVE), POSITIVE)) {
+          sum += i;
+        }
+        return sum;
+      }
+    },
+    BATCHED {
+      @Override long sum(List<Integer> input, int batchSize,
+          ListeningExecutorService executor) {
+        return pipeline(input, batchSize).reduce(0L, SUM);
+      }
+    },
+    BATCHED_PARALLEL {
+      @Override long sum(List<Integer> input, int batchSize,
+          ListeningExecutorService executor) {
+        return pipeline(input, batchSize).parallel(executor).reduce(0L, SUM);
+      }
+    },
+    BATCHED_PARALLEL_UNORDERED {
+      @Override long sum(List<Integer> input, int batchSize,
+          ListeningExecutorService executor) {
+        return pipeline(input, batchSize)
+            .parallel(executor)
+            .unordered()
+            .reduce(0L, SUM);
+      }
+    };
+
+    abstract long sum(List<Integer> input, int batchSize,
+        ListeningExecutorService executor);
+
+    static BatchedIterable<Integer> pipeline(
+        List<Integer> input, int batchSize) {
+      return FluentIterable.from(input)
+          .batched(batchSize)
+          .transform(MIX)
+          .filter(ODD)
+          .transform(HALVE)
+          .filter(POSITIVE);
+    }
+  }
+
+  private List<Integer> input;
+  private ListeningExecutorService executor;
+
+  @Override protected void setUp() {
+    input = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      input.add(i);
+    }
+    executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors()));
+  }
+
+  @Override protected void tearDown() {
+    executor.shutdown();
+  }
+
+  public long timeSum(int reps) {
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += impl.sum(input, batchSize, executor);
+    }
+    return dummy;
+  }
+
+  public static void main(String[] args) {
+    Runner.main(BatchedIterableBenchmark.class, args);
+  }
+}
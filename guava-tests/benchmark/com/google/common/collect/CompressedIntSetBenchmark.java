@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Benchmarks for contains() and set algebra on a {@link CompressedIntSet},
+ * against the same operations on {@code HashSet} and {@code
+ * ImmutableSortedSet}, for sets of various densities.
+ *
+ * @author Louis Wasserman
+ */
+public class CompressedIntSetBenchmark extends SimpleBenchmark {
+  private static final int QUERIES = 0x400;
+
+  @Param({"1000", "100000", "1000000"}) int size;
+
+  @Param Distribution distribution;
+
+  @Param Impl impl;
+
+  private IntSet first;
+  private IntSet second;
+  private int[] queries;
+
+  @Override protected void setUp() {
+    Random random = new Random(0);
+    first = impl.create(distribution.values(random, size));
+    second = impl.create(distribution.values(random, size));
+    queries = new int[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      queries[i] = random.nextInt(size * distribution.spread);
+    }
+  }
+
+  public boolean timeContains(int reps) {
+    IntSet set = first;
+    boolean dummy = false;
+    for (int i = 0; i < reps; i++) {
+      dummy ^= set.contains(queries[i & (QUERIES - 1)]);
+    }
+    return dummy;
+  }
+
+  public int timeUnion(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += first.union(second).size();
+    }
+    return dummy;
+  }
+
+  public int timeIntersection(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += first.intersection(second).size();
+    }
+    return dummy;
+  }
+
+  public int timeDifference(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += first.difference(second).size();
+    }
+    return dummy;
+  }
+
+  /** How the values of a set are spread over the range they occupy. */
+  enum Distribution {
+    /** Each value is chosen uniformly from a range 100 times the size. */
+    SPARSE(100),
+    /** Each value is chosen uniformly from a range twice the size. */
+    DENSE(2),
+    /** Runs of about 1000 consecutive values, with gaps between them. */
+    RUNS(2) {
+      @Override int[] values(Random random, int size) {
+        int[] values = new int[size];
+        int start = 0;
+        for (int i = 0; i < size; ) {
+          start += random.nextInt(2000);
+          for (int j = random.nextInt(2000); j > 0 && i < size; j--) {
+            values[i++] = start++;
+          }
+        }
+        return values;
+      }
+    };
+
+    final int spread;
+
+    Distribution(int spread) {
+      this.spread = spread;
+    }
+
+    int[] values(Random random, int size) {
+      int[] values = new int[size];
+      for (int i = 0; i < size; i++) {
+        values[i] = random.nextInt(size * spread);
+      }
+      return values;
+    }
+  }
+
+  enum Impl {
+    COMPRESSED {
+      @Override IntSet create(int[] values) {
+        return new CompressedIntSetAdapter(CompressedIntSet.copyOf(values));
+      }
+    },
+    HASH {
+      @Override IntSet create(int[] values) {
+        Set<Integer> set = Sets.newHashSet();
+        for (int value : values) {
+          set.add(value);
+        }
+        return new SetAdapter(set, this);
+      }
+
+      @Override Set<Integer> copy(Set<Integer> view) {
+        return Sets.newHashSet(view);
+      }
+    },
+    IMMUTABLE_SORTED {
+      @Override IntSet create(int[] values) {
+        ImmutableSortedSet.Builder<Integer> builder =
+            ImmutableSortedSet.naturalOrder();
+        for (int value : values) {
+          builder.add(value);
+        }
+        return new SetAdapter(builder.build(), this);
+      }
+
+      @Override Set<Integer> copy(Set<Integer> view) {
+        return ImmutableSortedSet.copyOf(view);
+      }
+    };
+
+    abstract IntSet create(int[] values);
+
+    Set<Integer> copy(Set<Integer> view) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /** The operations being timed, with each result materialized. */
+  abstract static class IntSet {
+    abstract boolean contains(int value);
+
+    abstract int size();
+
+    abstract IntSet union(IntSet other);
+
+    abstract IntSet intersection(IntSet other);
+
+    abstract IntSet difference(IntSet other);
+  }
+
+  static final class CompressedIntSetAdapter extends IntSet {
+    final CompressedIntSet set;
+
+    CompressedIntSetAdapter(CompressedIntSet set) {
+      this.set = set;
+    }
+
+    @Override boolean contains(int value) {
+      return set.contains(value);
+    }
+
+    @Override int size() {
+      return set.size();
+    }
+
+    @Override IntSet union(IntSet other) {
+      return new CompressedIntSetAdapter(
+          set.union(((CompressedIntSetAdapter) other).set));
+    }
+
+    @Override IntSet intersection(IntSet other) {
+      return new CompressedIntSetAdapter(
+          set.intersection(((CompressedIntSetAdapter) other).set));
+    }
+
+    @Override IntSet difference(IntSet other) {
+      return new CompressedIntSetAdapter(
+          set.difference(((CompressedIntSetAdapter) other).set));
+    }
+  }
+
+  static final class SetAdapter extends IntSet {
+    final Set<Integer> set;
+    final Impl impl;
+
+    SetAdapter(Set<Integer> set, Impl impl) {
+      this.set = set;
+      this.impl = impl;
+    }
+
+    @Override boolean contains(int value) {
+      return set.contains(value);
+    }
+
+    @Override int size() {
+      return set.size();
+    }
+
+    @Override IntSet union(IntSet other) {
+      return new SetAdapter(
+          impl.copy(Sets.union(set, ((SetAdapter) other).set)), impl);
+    }
+
+    @Override IntSet intersection(IntSet other) {
+      return new SetAdapter(
+          impl.copy(Sets.intersection(set, ((SetAdapter) other).set)), impl);
+    }
+
+    @Override IntSet difference(IntSet other) {
+      return new SetAdapter(
+          impl.copy(Sets.difference(set, ((SetAdapter) other).set)), impl);
+    }
+  }
+
+  public static void main(String[] args) {
+    Runner.main(CompressedIntSetBenchmark.class, args);
+  }
+}
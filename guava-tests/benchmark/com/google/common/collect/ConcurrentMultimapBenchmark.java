@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+import com.google.caliper.SimpleBenchmark;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Benchmarks for {@link ConcurrentHashMultimap} against a {@link
+ * Multimaps#synchronizedSetMultimap synchronized}, a {@link
+ * Multimaps#readWriteLockedSetMultimap read-write-locked} and an {@link
+ * Multimaps#optimisticReadWriteLockedSetMultimap optimistically read} {@link
+ * HashMultimap}, on a read-mostly workload: each of several threads looks up
+ * the values of random keys, and every {@code writeInterval}-th operation
+ * replaces one value of a key instead.
+ *
+ * @author Louis Wasserman
+ */
+public class ConcurrentMultimapBenchmark extends SimpleBenchmark {
+  @Param({"1", "4", "16"}) int threads;
+  @Param({"100", "10000"}) int keyCount;
+  @Param({"1000", "10"}) int writeInterval;
+  @Param Impl impl;
+
+  private static final int VALUES_PER_KEY = 8;
+
+  private SetMultimap<Integer, Integer> multimap;
+  private ExecutorService threadPool;
+
+  @Override protected void setUp() {
+    multimap = impl.create();
+    for (int key = 0; key < keyCount; key++) {
+      for (int value = 0; value < VALUES_PER_KEY; value++) {
+        multimap.put(key, value);
+      }
+    }
+    threadPool = Executors.newFixedThreadPool(
+        threads, new ThreadFactoryBuilder().setDaemon(true).build());
+  }
+
+  @Override protected void tearDown() {
+    threadPool.shutdown();
+  }
+
+  public long timeReadMostly(final int reps)
+      throws ExecutionException, InterruptedException {
+    List<Future<Long>> futures = Lists.newArrayListWithCapacity(threads);
+    for (int i = 0; i < threads; i++) {
+      futures.add(threadPool.submit(new Callable<Long>() {
+        @Override public Long call() {
+          return runSingleThread(reps);
+        }
+      }));
+    }
+    long total = 0;
+    for (Future<Long> future : futures) {
+      total += future.get();
+    }
+    return total;
+  }
+
+  private long runSingleThread(int reps) {
+    Random random = new Random();
+    long dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      Integer key = random.nextInt(keyCount);
+      if (i % writeInterval == 0) {
+        Integer value = random.nextInt(VALUES_PER_KEY);
+        multimap.remove(key, value);
+        multimap.put(key, value);
+      } else if (multimap.containsEntry(key, i & (VALUES_PER_KEY - 1))) {
+        dummy += multimap.get(key).size();
+      }
+    }
+    return dummy;
+  }
+
+  enum Impl {
+    CONCURRENT {
+      @Override SetMultimap<Integer, Integer> create() {
+        return ConcurrentHashMultimap.create();
+      }
+    },
+    SYNCHRONIZED {
+      @Override SetMultimap<Integer, Integer> create() {
+        return Multimaps.synchronizedSetMultimap(
+            HashMultimap.<Integer, Integer>create());
+      }
+    },
+    READ_WRITE_LOCKED {
+      @Override SetMultimap<Integer, Integer> create() {
+        return Multimaps.readWriteLockedSetMultimap(
+            HashMultimap.<Integer, Integer>create(),
+            new ReentrantReadWriteLock());
+      }
+    },
+    OPTIMISTIC {
+      @Override SetMultimap<Integer, Integer> create() {
+        return Multimaps.optimisticReadWriteLockedSetMultimap(
+            HashMultimap.<Integer, Integer>create(),
+            new ReentrantReadWriteLock());
+      }
+    };
+
+    abstract SetMultimap<Integer, Integer> create();
+  }
+
+  public static void main(String[] args) {
+    Runner.main(ConcurrentMultimapBenchmark.class, args);
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Benchmarks for {@link HashBiMap}, compared with a bimap made of two
+ * {@link HashMap}s (the previous implementation). Run with
+ * {@code --measureMemory} to compare the allocations of {@link #timePut}.
+ *
+ * @author Louis Wasserman
+ */
+public class HashBiMapBenchmark extends SimpleBenchmark {
+  @Param({"100", "10000", "1000000"})
+  private int size;
+
+  @Param
+  private Impl impl;
+
+  enum Impl {
+    HashBiMap {
+      @Override BiMap<Integer, String> create(int expectedSize) {
+        return com.google.common.collect.HashBiMap.create(expectedSize);
+      }
+    },
+    TwoHashMaps {
+      @Override BiMap<Integer, String> create(int expectedSize) {
+        return new AbstractBiMap<Integer, String>(
+            Maps.<Integer, String>newHashMapWithExpectedSize(expectedSize),
+            Maps.<String, Integer>newHashMapWithExpectedSize(expectedSize)) {};
+      }
+    };
+
+    abstract BiMap<Integer, String> create(int expectedSize);
+  }
+
+  private static final int QUERIES = 1 << 12;
+
+  private Integer[] keys;
+  private String[] values;
+  private BiMap<Integer, String> bimap;
+  private Integer[] keyQueries;
+  private String[] valueQueries;
+
+  @Override protected void setUp() {
+    Random random = new Random(0);
+    keys = new Integer[size];
+    values = new String[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = random.nextInt();
+      values[i] = "name" + i;
+    }
+    bimap = impl.create(size);
+    for (int i = 0; i < size; i++) {
+      bimap.forcePut(keys[i], values[i]);
+    }
+    keyQueries = new Integer[QUERIES];
+    valueQueries = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      int index = random.nextInt(size);
+      keyQueries[i] = keys[index];
+      valueQueries[i] = values[index];
+    }
+  }
+
+  public int timePut(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      BiMap<Integer, String> map = impl.create(0);
+      for (int j = 0; j < size; j++) {
+        map.forcePut(keys[j], values[j]);
+      }
+      dummy += map.size();
+    }
+    return dummy;
+  }
+
+  public int timeGet(int reps) {
+    BiMap<Integer, String> map = bimap;
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      String value = map.get(keyQueries[i & (QUERIES - 1)]);
+      dummy += (value == null) ? 0 : value.length();
+    }
+    return dummy;
+  }
+
+  public int timeInverseGet(int reps) {
+    BiMap<String, Integer> inverse = bimap.inverse();
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      Integer key = inverse.get(valueQueries[i & (QUERIES - 1)]);
+      dummy += (key == null) ? 0 : key;
+    }
+    return dummy;
+  }
+
+  public static void main(String[] args) {
+    Runner.main(HashBiMapBenchmark.class, args);
+  }
+}
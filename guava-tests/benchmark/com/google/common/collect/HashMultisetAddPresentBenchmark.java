@@ -14,23 +14,45 @@
 
 package com.google.common.collect;
 
+import com.google.caliper.Param;
 import com.google.caliper.Runner;
 import com.google.caliper.SimpleBenchmark;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 
 /**
- * Benchmark for HashMultiset.add for an already-present element.
+ * Benchmark for HashMultiset.add for an already-present element, compared
+ * with a multiset backed by a {@code HashMap<E, Count>}.
  *
  * @author Louis Wasserman
  */
 public class HashMultisetAddPresentBenchmark extends SimpleBenchmark {
   private static final int ARRAY_MASK = 0x0ffff;
   private static final int ARRAY_SIZE = 0x10000;
+  @Param({"Hash", "MapBased"})
+  private Impl impl;
+
+  public enum Impl {
+    Hash {
+      @Override Multiset<Integer> create() {
+        return HashMultiset.create();
+      }
+    },
+    MapBased {
+      @Override Multiset<Integer> create() {
+        return new AbstractMapBasedMultiset<Integer>(
+            new HashMap<Integer, Count>()) {};
+      }
+    };
+
+    abstract Multiset<Integer> create();
+  }
+
   List<Multiset<Integer>> multisets = new ArrayList<Multiset<Integer>>(0x10000);
   int[] queries = new int[ARRAY_SIZE];
 
@@ -39,7 +61,7 @@ public class HashMultisetAddPresentBenchmark extends SimpleBenchmark {
     Random random = new Random();
     multisets.clear();
     for (int i = 0; i < ARRAY_SIZE; i++) {
-      HashMultiset<Integer> multiset = HashMultiset.<Integer>create();
+      Multiset<Integer> multiset = impl.create();
       multisets.add(multiset);
       queries[i] = random.nextInt();
       multiset.add(queries[i]);
@@ -55,6 +77,15 @@ public class HashMultisetAddPresentBenchmark extends SimpleBenchmark {
     return tmp;
   }
 
+  public int timeCount(int reps) {
+    int tmp = 0;
+    for (int i = 0; i < reps; i++) {
+      int j = i & ARRAY_MASK;
+      tmp += multisets.get(j).count(queries[j]);
+    }
+    return tmp;
+  }
+
   public static void main(String[] args) {
     Runner.main(HashMultisetAddPresentBenchmark.class, args);
   }
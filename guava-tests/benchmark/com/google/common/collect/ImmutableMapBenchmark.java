@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+import com.google.caliper.SimpleBenchmark;
+import com.google.common.collect.CollectionBenchmarkSampleData.Element;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * A microbenchmark for the lookup speed and footprint of {@link ImmutableMap}
+ * compared with {@link java.util.HashMap}. Run with {@code --measureMemory} to
+ * have Caliper report the bytes allocated by {@link #timeBuild}, which is the
+ * footprint of the built map plus the (garbage) builder entries.
+ *
+ * <p>Forked from {@link MapBenchmark}.
+ */
+public class ImmutableMapBenchmark extends SimpleBenchmark {
+  @Param({"Hash", "Immutable"})
+  private Impl impl;
+
+  public enum Impl {
+    Hash {
+      @Override Map<Element, Element> create(Collection<Element> keys) {
+        Map<Element, Element> map = Maps.newHashMapWithExpectedSize(keys.size());
+        for (Element element : keys) {
+          map.put(element, element);
+        }
+        return map;
+      }
+    },
+    Immutable {
+      @Override Map<Element, Element> create(Collection<Element> keys) {
+        ImmutableMap.Builder<Element, Element> builder = ImmutableMap.builder();
+        for (Element element : keys) {
+          builder.put(element, element);
+        }
+        return builder.build();
+      }
+    };
+
+    abstract Map<Element, Element> create(Collection<Element> contents);
+  }
+
+  @Param({"5", "50", "500", "5000", "50000", "500000"})
+  private int size;
+
+  @Param({"0.2", "0.9"})
+  private double hitRate;
+
+  @Param("true")
+  private boolean isUserTypeFast;
+
+  // "" means no fixed seed
+  @Param("")
+  private SpecialRandom random;
+
+  // the following must be set during setUp
+  private Element[] queries;
+  private Collection<Element> values;
+  private Map<Element, Element> mapToTest;
+
+  @Override public void setUp() {
+    CollectionBenchmarkSampleData sampleData =
+        new CollectionBenchmarkSampleData(
+            isUserTypeFast, random, hitRate, size);
+    this.values = sampleData.getValuesInSet();
+    this.mapToTest = impl.create(values);
+    this.queries = sampleData.getQueries();
+  }
+
+  public boolean timeGet(int reps) {
+    Map<Element, Element> map = mapToTest;
+    Element[] queries = this.queries;
+    int mask = queries.length - 1;
+
+    boolean dummy = false;
+    for (int i = 0; i < reps; i++) {
+      dummy ^= map.get(queries[i & mask]) != null;
+    }
+    return dummy;
+  }
+
+  public int timeIterateEntries(int reps) {
+    Map<Element, Element> map = mapToTest;
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      for (Entry<Element, Element> entry : map.entrySet()) {
+        dummy += entry.getValue().hashCode();
+      }
+    }
+    return dummy;
+  }
+
+  public int timeBuild(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += impl.create(values).size();
+    }
+    return dummy;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Runner.main(ImmutableMapBenchmark.class, args);
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+/**
+ * A microbenchmark for the footprint and iteration speed of immutable
+ * multimaps, which store their values in one flat array, compared with an
+ * {@link ImmutableMap} of one {@link ImmutableList} per key. Run with
+ * {@code --measureMemory} to have Caliper report the bytes allocated by
+ * {@link #timeBuild}, which is dominated by the footprint of the built
+ * structure.
+ *
+ * @author Louis Wasserman
+ */
+public class ImmutableMultimapBenchmark extends SimpleBenchmark {
+  @Param({"List", "Set", "MapOfLists"})
+  private Impl impl;
+
+  public enum Impl {
+    List {
+      @Override Map<Integer, ? extends Collection<Integer>> create(
+          Multimap<Integer, Integer> contents) {
+        return ImmutableListMultimap.copyOf(contents).asMap();
+      }
+    },
+    Set {
+      @Override Map<Integer, ? extends Collection<Integer>> create(
+          Multimap<Integer, Integer> contents) {
+        return ImmutableSetMultimap.copyOf(contents).asMap();
+      }
+    },
+    MapOfLists {
+      @Override Map<Integer, ? extends Collection<Integer>> create(
+          Multimap<Integer, Integer> contents) {
+        ImmutableMap.Builder<Integer, ImmutableList<Integer>> builder =
+            ImmutableMap.builder();
+        for (Entry<Integer, Collection<Integer>> entry
+            : contents.asMap().entrySet()) {
+          builder.put(entry.getKey(), ImmutableList.copyOf(entry.getValue()));
+        }
+        return builder.build();
+      }
+    };
+
+    abstract Map<Integer, ? extends Collection<Integer>> create(
+        Multimap<Integer, Integer> contents);
+  }
+
+  @Param({"1000", "100000"})
+  private int keys;
+
+  @Param({"1", "4", "32"})
+  private int valuesPerKey;
+
+  private static final int QUERIES = 1 << 12;
+
+  private Multimap<Integer, Integer> contents;
+  private Map<Integer, ? extends Collection<Integer>> map;
+  private Integer[] queries;
+
+  @Override protected void setUp() {
+    Random random = new Random(0);
+    contents = ArrayListMultimap.create(keys, valuesPerKey);
+    for (int key = 0; key < keys; key++) {
+      for (int i = 0; i < valuesPerKey; i++) {
+        // like the edges of a random graph
+        contents.put(key, random.nextInt(keys));
+      }
+    }
+    map = impl.create(contents);
+    queries = new Integer[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      queries[i] = random.nextInt(keys);
+    }
+  }
+
+  public int timeBuild(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += impl.create(contents).size();
+    }
+    return dummy;
+  }
+
+  public int timeGetAndIterate(int reps) {
+    Map<Integer, ? extends Collection<Integer>> map = this.map;
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      for (Integer value : map.get(queries[i & (QUERIES - 1)])) {
+        dummy += value;
+      }
+    }
+    return dummy;
+  }
+
+  public int timeIterateAll(int reps) {
+    Map<Integer, ? extends Collection<Integer>> map = this.map;
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      for (Collection<Integer> values : map.values()) {
+        for (Integer value : values) {
+          dummy += value;
+        }
+      }
+    }
+    return dummy;
+  }
+
+  public static void main(String[] args) {
+    Runner.main(ImmutableMultimapBenchmark.class, args);
+  }
+}
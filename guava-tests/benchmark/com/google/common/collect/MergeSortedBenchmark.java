@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Benchmarks for {@link Iterators#mergeSorted}, which merges with a loser
+ * tree, against the {@link PriorityQueue}-based merge it replaced.
+ *
+ * @author Louis Wasserman
+ */
+public class MergeSortedBenchmark extends SimpleBenchmark {
+  @Param({"2", "16", "512"}) int sources;
+  @Param({"10000"}) int totalSize;
+  @Param Impl impl;
+
+  private List<Integer[]> shards;
+
+  @Override protected void setUp() {
+    Random random = new Random(0);
+    shards = Lists.newArrayListWithCapacity(sources);
+    int shardSize = Math.max(1, totalSize / sources);
+    for (int i = 0; i < sources; i++) {
+      Integer[] shard = new Integer[shardSize];
+      for (int j = 0; j < shardSize; j++) {
+        shard[j] = random.nextInt();
+      }
+      Arrays.sort(shard);
+      shards.add(shard);
+    }
+  }
+
+  public int timeMerge(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      List<Iterator<Integer>> iterators =
+          Lists.newArrayListWithCapacity(sources);
+      for (Integer[] shard : shards) {
+        iterators.add(Iterators.forArray(shard));
+      }
+      Iterator<Integer> merged = impl.merge(iterators, Ordering.natural());
+      while (merged.hasNext()) {
+        dummy += merged.next();
+      }
+    }
+    return dummy;
+  }
+
+  enum Impl {
+    LOSER_TREE {
+      @Override <T> Iterator<T> merge(
+          List<Iterator<T>> iterators, Comparator<? super T> comparator) {
+        return Iterators.mergeSorted(iterators, comparator);
+      }
+    },
+    HEAP {
+      @Override <T> Iterator<T> merge(
+          List<Iterator<T>> iterators, Comparator<? super T> comparator) {
+        return new HeapMergingIterator<T>(iterators, comparator);
+      }
+    };
+
+    abstract <T> Iterator<T> merge(
+        List<Iterator<T>> iterators, Comparator<? super T> comparator);
+  }
+
+  /** The merge formerly used by {@link Iterators#mergeSorted}. */
+  private static class HeapMergingIterator<T> extends AbstractIterator<T> {
+    final PriorityQueue<PeekingIterator<T>> queue;
+
+    HeapMergingIterator(List<Iterator<T>> iterators,
+        final Comparator<? super T> comparator) {
+      queue = new PriorityQueue<PeekingIterator<T>>(2,
+          new Comparator<PeekingIterator<T>>() {
+            @Override
+            public int compare(PeekingIterator<T> o1, PeekingIterator<T> o2) {
+              return comparator.compare(o1.peek(), o2.peek());
+            }
+          });
+      for (Iterator<T> iterator : iterators) {
+        if (iterator.hasNext()) {
+          queue.add(Iterators.peekingIterator(iterator));
+        }
+      }
+    }
+
+    @Override protected T computeNext() {
+      if (queue.isEmpty()) {
+        return endOfData();
+      }
+      PeekingIterator<T> nextIter = queue.poll();
+      T next = nextIter.next();
+      if (nextIter.hasNext()) {
+        queue.add(nextIter);
+      }
+      return next;
+    }
+  }
+
+  public static void main(String[] args) {
+    Runner.main(MergeSortedBenchmark.class, args);
+  }
+}
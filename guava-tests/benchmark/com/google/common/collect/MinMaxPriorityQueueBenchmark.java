@@ -25,7 +25,12 @@ import com.google.common.collect.MinMaxPriorityQueue;
 import com.google.common.collect.Ordering;
 
 import java.math.BigInteger;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Random;
@@ -46,13 +51,17 @@ public class MinMaxPriorityQueueBenchmark extends SimpleBenchmark {
 
   private Queue<Integer> queue;
 
+  private List<Integer> elements;
+
   private final Random random = new Random();
 
   @Override public void setUp() {
     queue = heap.create(comparator.get());
+    elements = new ArrayList<Integer>(size);
     for (int i = 0; i < size; i++) {
-      queue.add(random.nextInt());
+      elements.add(random.nextInt());
     }
+    queue.addAll(elements);
   }
   
   public void timePollAndAdd(int reps) {
@@ -72,6 +81,26 @@ public class MinMaxPriorityQueueBenchmark extends SimpleBenchmark {
     }
   }
 
+  public int timeCreateFromCollection(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += heap.create(comparator.get(), elements).size();
+    }
+    return dummy;
+  }
+
+  public int timePopulateAndDrain(int reps) {
+    int dummy = 0;
+    List<Integer> drained = new ArrayList<Integer>(size);
+    for (int i = 0; i < reps; i++) {
+      queue.addAll(elements);
+      drained.clear();
+      heap.drain(queue, drained);
+      dummy += drained.size();
+    }
+    return dummy;
+  }
+
   /**
    * Implementation of the InvertedMinMaxPriorityQueue which forwards all calls to
    * a MinMaxPriorityQueue, except poll, which is forwarded to pollMax. That way
@@ -95,11 +124,86 @@ public class MinMaxPriorityQueueBenchmark extends SimpleBenchmark {
     
   }
 
+  /**
+   * Adapts a {@link DoubleMinMaxPriorityQueue}, keyed and valued by each
+   * element, to the {@code Queue} interface. It always uses the natural order
+   * of the elements, ignoring the benchmark's comparator.
+   */
+  static final class DoubleKeyedQueue extends AbstractQueue<Integer> {
+    final DoubleMinMaxPriorityQueue delegate =
+        DoubleMinMaxPriorityQueue.create();
+
+    @Override public boolean offer(Integer element) {
+      return delegate.offer(element, element);
+    }
+
+    @Override public Integer poll() {
+      return delegate.isEmpty() ? null : delegate.removeFirst();
+    }
+
+    @Override public Integer peek() {
+      return delegate.isEmpty() ? null : delegate.peekFirstValue();
+    }
+
+    @Override public int size() {
+      return delegate.size();
+    }
+
+    @Override public void clear() {
+      delegate.clear();
+    }
+
+    @Override public Iterator<Integer> iterator() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Adapts a {@link LongMinMaxPriorityQueue} like {@link DoubleKeyedQueue}.
+   */
+  static final class LongKeyedQueue extends AbstractQueue<Integer> {
+    final LongMinMaxPriorityQueue delegate = LongMinMaxPriorityQueue.create();
+
+    @Override public boolean offer(Integer element) {
+      return delegate.offer(element, element);
+    }
+
+    @Override public Integer poll() {
+      return delegate.isEmpty() ? null : delegate.removeFirst();
+    }
+
+    @Override public Integer peek() {
+      return delegate.isEmpty() ? null : delegate.peekFirstValue();
+    }
+
+    @Override public int size() {
+      return delegate.size();
+    }
+
+    @Override public void clear() {
+      delegate.clear();
+    }
+
+    @Override public Iterator<Integer> iterator() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
   public enum HeapType {
     MIN_MAX {
       @Override public Queue<Integer> create(Comparator<Integer> comparator) {
         return MinMaxPriorityQueue.orderedBy(comparator).create();
       }
+
+      @Override public Queue<Integer> create(Comparator<Integer> comparator,
+          Collection<Integer> contents) {
+        return MinMaxPriorityQueue.orderedBy(comparator).create(contents);
+      }
+
+      @Override public void drain(
+          Queue<Integer> queue, Collection<Integer> target) {
+        ((MinMaxPriorityQueue<Integer>) queue).drainTo(target);
+      }
     },
     PRIORITY_QUEUE {
       @Override public Queue<Integer> create(Comparator<Integer> comparator) {
@@ -110,9 +214,32 @@ public class MinMaxPriorityQueueBenchmark extends SimpleBenchmark {
       @Override public Queue<Integer> create(Comparator<Integer> comparator) {
         return new InvertedMinMaxPriorityQueue<Integer>(comparator);
       }
+    },
+    DOUBLE_MIN_MAX {
+      @Override public Queue<Integer> create(Comparator<Integer> comparator) {
+        return new DoubleKeyedQueue();
+      }
+    },
+    LONG_MIN_MAX {
+      @Override public Queue<Integer> create(Comparator<Integer> comparator) {
+        return new LongKeyedQueue();
+      }
     };
 
     public abstract Queue<Integer> create(Comparator<Integer> comparator);
+
+    public Queue<Integer> create(Comparator<Integer> comparator,
+        Collection<Integer> contents) {
+      Queue<Integer> queue = create(comparator);
+      queue.addAll(contents);
+      return queue;
+    }
+
+    public void drain(Queue<Integer> queue, Collection<Integer> target) {
+      for (Integer element; (element = queue.poll()) != null; ) {
+        target.add(element);
+      }
+    }
   }
   
   /**
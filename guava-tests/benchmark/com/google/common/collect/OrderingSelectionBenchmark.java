@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+import com.google.caliper.SimpleBenchmark;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Benchmarks for the streaming {@link Ordering#leastOf(java.util.Iterator,
+ * int)} against the copy-everything-and-quickselect implementation it
+ * replaced, and for {@link Ordering#parallelLeastOf} and {@link
+ * Ordering#parallelSortedCopy} against their sequential counterparts.
+ *
+ * @author Louis Wasserman
+ */
+public class OrderingSelectionBenchmark extends SimpleBenchmark {
+  @Param({"1000", "1000000"}) int size;
+  @Param({"10", "1000"}) int k;
+  @Param({"4"}) int threads;
+
+  private final Ordering<Integer> ordering = Ordering.natural();
+  private List<Integer> list;
+  private ExecutorService executor;
+
+  @Override protected void setUp() {
+    Random random = new Random(0);
+    list = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      list.add(random.nextInt());
+    }
+    executor = Executors.newFixedThreadPool(
+        threads, new ThreadFactoryBuilder().setDaemon(true).build());
+  }
+
+  @Override protected void tearDown() {
+    executor.shutdown();
+  }
+
+  public int timeLeastOfCopying(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += copyingLeastOf(list, k).size();
+    }
+    return dummy;
+  }
+
+  public int timeLeastOfStreaming(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += ordering.leastOf(list.iterator(), k).size();
+    }
+    return dummy;
+  }
+
+  public int timeParallelLeastOf(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += ordering.parallelLeastOf(list, k, executor, threads).size();
+    }
+    return dummy;
+  }
+
+  public int timeSortedCopy(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += ordering.sortedCopy(list).get(0);
+    }
+    return dummy;
+  }
+
+  public int timeParallelSortedCopy(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += ordering.parallelSortedCopy(list, executor, threads).get(0);
+    }
+    return dummy;
+  }
+
+  /** The implementation of {@link Ordering#leastOf} before streaming. */
+  private List<Integer> copyingLeastOf(List<Integer> input, int k) {
+    Integer[] values = input.toArray(new Integer[0]);
+    if (values.length <= k) {
+      Arrays.sort(values, ordering);
+      return Collections.unmodifiableList(Arrays.asList(values));
+    }
+    quicksortLeastK(values, 0, values.length - 1, k);
+    return Collections.unmodifiableList(
+        Arrays.asList(Arrays.copyOf(values, k)));
+  }
+
+  private void quicksortLeastK(Integer[] values, int left, int right, int k) {
+    if (right > left) {
+      int pivotIndex = (left + right) >>> 1;
+      int pivotNewIndex = partition(values, left, right, pivotIndex);
+      quicksortLeastK(values, left, pivotNewIndex - 1, k);
+      if (pivotNewIndex < k) {
+        quicksortLeastK(values, pivotNewIndex + 1, right, k);
+      }
+    }
+  }
+
+  private int partition(Integer[] values, int left, int right, int pivotIndex) {
+    Integer pivotValue = values[pivotIndex];
+    values[pivotIndex] = values[right];
+    values[right] = pivotValue;
+    int storeIndex = left;
+    for (int i = left; i < right; i++) {
+      if (ordering.compare(values[i], pivotValue) < 0) {
+        ObjectArrays.swap(values, storeIndex, i);
+        storeIndex++;
+      }
+    }
+    ObjectArrays.swap(values, right, storeIndex);
+    return storeIndex;
+  }
+
+  public static void main(String[] args) {
+    Runner.main(OrderingSelectionBenchmark.class, args);
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A microbenchmark for the cost of deriving an updated immutable collection
+ * from an existing one: a single-entry update of a {@link
+ * PersistentImmutableMap} or {@link PersistentImmutableList}, against a full
+ * rebuild of an {@link ImmutableMap} or {@link ImmutableList}.
+ *
+ * @author Louis Wasserman
+ */
+public class PersistentUpdateBenchmark extends SimpleBenchmark {
+  @Param({"100", "10000", "500000"})
+  private int size;
+
+  private static final int UPDATES = 1 << 10;
+
+  private ImmutableMap<Integer, Integer> immutableMap;
+  private PersistentImmutableMap<Integer, Integer> persistentMap;
+  private ImmutableList<Integer> immutableList;
+  private PersistentImmutableList<Integer> persistentList;
+  private int[] updates;
+
+  @Override protected void setUp() {
+    ImmutableMap.Builder<Integer, Integer> mapBuilder = ImmutableMap.builder();
+    ImmutableList.Builder<Integer> listBuilder = ImmutableList.builder();
+    for (int i = 0; i < size; i++) {
+      mapBuilder.put(i, i);
+      listBuilder.add(i);
+    }
+    immutableMap = mapBuilder.build();
+    persistentMap = PersistentImmutableMap.copyOf(immutableMap);
+    immutableList = listBuilder.build();
+    persistentList = PersistentImmutableList.copyOf(immutableList);
+    Random random = new Random(0);
+    updates = new int[UPDATES];
+    for (int i = 0; i < UPDATES; i++) {
+      updates[i] = random.nextInt(size);
+    }
+  }
+
+  public int timeRebuildMapWithUpdate(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      Integer key = updates[i & (UPDATES - 1)];
+      ImmutableMap.Builder<Integer, Integer> builder = ImmutableMap.builder();
+      for (Map.Entry<Integer, Integer> entry : immutableMap.entrySet()) {
+        builder.put(entry.getKey(),
+            entry.getKey().equals(key) ? i : entry.getValue());
+      }
+      dummy += builder.build().size();
+    }
+    return dummy;
+  }
+
+  public int timePersistentMapWith(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      Integer key = updates[i & (UPDATES - 1)];
+      dummy += persistentMap.with(key, i).size();
+    }
+    return dummy;
+  }
+
+  public int timePersistentMapWithout(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      Integer key = updates[i & (UPDATES - 1)];
+      dummy += persistentMap.without(key).size();
+    }
+    return dummy;
+  }
+
+  public int timeRebuildListWithAppend(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += ImmutableList.<Integer>builder()
+          .addAll(immutableList).add(i).build().size();
+    }
+    return dummy;
+  }
+
+  public int timePersistentListAppend(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += persistentList.append(i).size();
+    }
+    return dummy;
+  }
+
+  public int timePersistentListWith(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += persistentList.with(updates[i & (UPDATES - 1)], i).size();
+    }
+    return dummy;
+  }
+
+  public int timeImmutableMapGet(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += immutableMap.get(updates[i & (UPDATES - 1)]);
+    }
+    return dummy;
+  }
+
+  public int timePersistentMapGet(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += persistentMap.get(updates[i & (UPDATES - 1)]);
+    }
+    return dummy;
+  }
+
+  public static void main(String[] args) {
+    Runner.main(PersistentUpdateBenchmark.class, args);
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks for stabbing and overlap queries on a {@link RangeIndex},
+ * against a linear scan over a list of the same ranges.
+ *
+ * @author Louis Wasserman
+ */
+public class RangeIndexBenchmark extends SimpleBenchmark {
+  private static final int QUERIES = 0x400;
+
+  @Param({"100", "10000", "1000000"}) int size;
+
+  /** The maximum length of each stored range. */
+  @Param({"10", "1000"}) int maxLength;
+
+  @Param Impl impl;
+
+  private List<Range<Integer>> ranges;
+  private Impl.Index index;
+  private Integer[] points;
+  private List<Range<Integer>> queryRanges;
+
+  @Override protected void setUp() {
+    Random random = new Random(0);
+    int span = size * 10;
+    ranges = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      int lower = random.nextInt(span);
+      ranges.add(Ranges.closed(lower, lower + random.nextInt(maxLength)));
+    }
+    index = impl.create(ranges);
+    points = new Integer[QUERIES];
+    queryRanges = Lists.newArrayListWithCapacity(QUERIES);
+    for (int i = 0; i < QUERIES; i++) {
+      points[i] = random.nextInt(span);
+      queryRanges.add(Ranges.closedOpen(points[i], points[i] + 10));
+    }
+  }
+
+  public int timeContaining(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += index.containing(points[i & (QUERIES - 1)]).size();
+    }
+    return dummy;
+  }
+
+  public int timeOverlapping(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += index.overlapping(queryRanges.get(i & (QUERIES - 1))).size();
+    }
+    return dummy;
+  }
+
+  public int timeBuild(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += impl.create(ranges).containing(points[i & (QUERIES - 1)]).size();
+    }
+    return dummy;
+  }
+
+  enum Impl {
+    RANGE_INDEX {
+      @Override Index create(List<Range<Integer>> ranges) {
+        RangeIndex.Builder<Integer, Range<Integer>> builder =
+            RangeIndex.builder();
+        for (Range<Integer> range : ranges) {
+          builder.put(range, range);
+        }
+        final RangeIndex<Integer, Range<Integer>> rangeIndex = builder.build();
+        return new Index() {
+          @Override List<Range<Integer>> containing(Integer value) {
+            return rangeIndex.valuesContaining(value);
+          }
+
+          @Override List<Range<Integer>> overlapping(Range<Integer> range) {
+            return rangeIndex.valuesOverlapping(range);
+          }
+        };
+      }
+    },
+    LINEAR_SCAN {
+      @Override Index create(List<Range<Integer>> ranges) {
+        final List<Range<Integer>> list = ImmutableList.copyOf(ranges);
+        return new Index() {
+          @Override List<Range<Integer>> containing(Integer value) {
+            List<Range<Integer>> result = Lists.newArrayList();
+            for (Range<Integer> range : list) {
+              if (range.contains(value)) {
+                result.add(range);
+              }
+            }
+            return result;
+          }
+
+          @Override List<Range<Integer>> overlapping(Range<Integer> query) {
+            List<Range<Integer>> result = Lists.newArrayList();
+            for (Range<Integer> range : list) {
+              if (range.isConnected(query)
+                  && !range.intersection(query).isEmpty()) {
+                result.add(range);
+              }
+            }
+            return result;
+          }
+        };
+      }
+    };
+
+    abstract Index create(List<Range<Integer>> ranges);
+
+    abstract static class Index {
+      abstract List<Range<Integer>> containing(Integer value);
+
+      abstract List<Range<Integer>> overlapping(Range<Integer> range);
+    }
+  }
+
+  public static void main(String[] args) {
+    Runner.main(RangeIndexBenchmark.class, args);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.caliper.Param;
+import com.google.caliper.Runner;
+import com.google.caliper.SimpleBenchmark;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A microbenchmark comparing point lookups through {@link SortedLookupIndex}
+ * with a binary search over the same sorted list.
+ *
+ * @author Louis Wasserman
+ */
+public class SortedSetContainsBenchmark extends SimpleBenchmark {
+  @Param({"1000", "50000", "1000000", "5000000"})
+  private int size;
+
+  @Param({"Long", "String", "ReverseLong"})
+  private ElementType elementType;
+
+  enum ElementType {
+    Long {
+      @Override Object element(long value) {
+        return value;
+      }
+
+      @Override Comparator<?> comparator() {
+        return Ordering.natural();
+      }
+    },
+    String {
+      @Override Object element(long value) {
+        return java.lang.String.format("%012d", value);
+      }
+
+      @Override Comparator<?> comparator() {
+        return Ordering.natural();
+      }
+    },
+    ReverseLong {
+      @Override Object element(long value) {
+        return -value;
+      }
+
+      @Override Comparator<?> comparator() {
+        return Ordering.natural().reverse();
+      }
+    };
+
+    abstract Object element(long value);
+
+    abstract Comparator<?> comparator();
+  }
+
+  private static final int QUERIES = 1 << 12;
+
+  private List<Object> sortedList;
+  private Comparator<Object> comparator;
+  private SortedLookupIndex index;
+  private Object[] queries;
+
+  @SuppressWarnings("unchecked")
+  @Override protected void setUp() {
+    comparator = (Comparator<Object>) elementType.comparator();
+    sortedList = Lists.newArrayListWithCapacity(size);
+    for (long i = 0; i < size; i++) {
+      // leave gaps, so that about half of the queries miss
+      sortedList.add(elementType.element(2 * i));
+    }
+    Collections.sort(sortedList, comparator);
+    sortedList = ImmutableList.copyOf(sortedList);
+    index = SortedLookupIndex.create(sortedList, comparator);
+    Random random = new Random(0);
+    queries = new Object[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      queries[i] = elementType.element(random.nextInt(2 * size));
+    }
+  }
+
+  public int timeBinarySearch(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += Collections.binarySearch(
+          sortedList, queries[i & (QUERIES - 1)], comparator);
+    }
+    return dummy;
+  }
+
+  public int timeLookupIndex(int reps) {
+    int dummy = 0;
+    for (int i = 0; i < reps; i++) {
+      dummy += index.indexOf(queries[i & (QUERIES - 1)]);
+    }
+    return dummy;
+  }
+
+  public static void main(String[] args) {
+    Runner.main(SortedSetContainsBenchmark.class, args);
+  }
+}
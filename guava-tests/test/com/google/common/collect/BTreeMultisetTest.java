@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.collect.BoundType.CLOSED;
+import static com.google.common.collect.BoundType.OPEN;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.testing.IteratorFeature.MODIFIABLE;
+
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.testing.IteratorTester;
+
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit test for {@link BTreeMultiset}.
+ *
+ * @author Louis Wasserman
+ */
+@GwtCompatible(emulated = true)
+public class BTreeMultisetTest extends AbstractMultisetTest {
+  @SuppressWarnings("unchecked")
+  @Override protected <E> Multiset<E> create() {
+    return (Multiset) BTreeMultiset.create();
+  }
+
+  public void testCreate() {
+    BTreeMultiset<String> multiset = BTreeMultiset.create();
+    multiset.add("foo", 2);
+    multiset.add("bar");
+    assertEquals(3, multiset.size());
+    assertEquals(2, multiset.count("foo"));
+    assertEquals(Ordering.natural(), multiset.comparator());
+    assertEquals("[bar, foo x 2]", multiset.toString());
+  }
+
+  public void testCreateWithComparator() {
+    Multiset<String> multiset =
+        BTreeMultiset.create(Collections.reverseOrder());
+    multiset.add("foo", 2);
+    multiset.add("bar");
+    assertEquals(3, multiset.size());
+    assertEquals(2, multiset.count("foo"));
+    assertEquals("[foo x 2, bar]", multiset.toString());
+  }
+
+  @GwtIncompatible("unreasonable slow")
+  public void testIteratorBashing() {
+    IteratorTester<String> tester =
+        new IteratorTester<String>(createSample().size() + 2, MODIFIABLE,
+            newArrayList(createSample()),
+            IteratorTester.KnownOrder.KNOWN_ORDER) {
+          private Multiset<String> targetMultiset;
+
+          @Override protected Iterator<String> newTargetIterator() {
+            targetMultiset = createSample();
+            return targetMultiset.iterator();
+          }
+
+          @Override protected void verify(List<String> elements) {
+            assertEquals(elements, Lists.newArrayList(targetMultiset));
+          }
+        };
+
+    /* This next line added as a stopgap until JDK6 bug is fixed. */
+    tester.ignoreSunJavaBug6529795();
+
+    tester.test();
+  }
+
+  public void testSubMultisetSize() {
+    BTreeMultiset<String> ms = BTreeMultiset.create();
+    ms.add("a", Integer.MAX_VALUE);
+    ms.add("b", Integer.MAX_VALUE);
+    ms.add("c", 3);
+
+    assertEquals(Integer.MAX_VALUE, ms.size());
+    assertEquals(Integer.MAX_VALUE, ms.headMultiset("c", CLOSED).size());
+    assertEquals(Integer.MAX_VALUE, ms.headMultiset("b", CLOSED).size());
+    assertEquals(Integer.MAX_VALUE, ms.headMultiset("a", CLOSED).size());
+    assertEquals(0, ms.headMultiset("a", OPEN).size());
+
+    assertEquals(3, ms.tailMultiset("c", CLOSED).size());
+    assertEquals(Integer.MAX_VALUE, ms.tailMultiset("b", CLOSED).size());
+    assertEquals(Integer.MAX_VALUE, ms.tailMultiset("a", CLOSED).size());
+    assertEquals(0, ms.subMultiset("a", OPEN, "b", OPEN).size());
+  }
+
+  public void testTooManyOccurrences() {
+    BTreeMultiset<String> ms = BTreeMultiset.create();
+    ms.add("a", Integer.MAX_VALUE);
+    try {
+      ms.add("a");
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    assertEquals(Integer.MAX_VALUE, ms.count("a"));
+  }
+
+  /**
+   * Checks every query against a {@code TreeMultiset} while enough elements
+   * are added and removed for leaves and inner nodes to be split and freed.
+   */
+  public void testAgainstTreeMultiset() {
+    Random random = new Random(0);
+    BTreeMultiset<Integer> btree = BTreeMultiset.create();
+    TreeMultiset<Integer> expected = TreeMultiset.create();
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < 20000; i++) {
+        int e = random.nextInt(10000);
+        int occurrences = random.nextInt(3);
+        assertEquals(expected.add(e, occurrences), btree.add(e, occurrences));
+      }
+      assertMatches(expected, btree, random);
+      for (int i = 0; i < 30000; i++) {
+        int e = random.nextInt(10000);
+        int occurrences = random.nextInt(3);
+        assertEquals(
+            expected.remove(e, occurrences), btree.remove(e, occurrences));
+      }
+      assertMatches(expected, btree, random);
+    }
+    btree.clear();
+    assertTrue(btree.isEmpty());
+    btree.add(1);
+    assertEquals(Collections.singletonList(1), newArrayList(btree));
+  }
+
+  private static void assertMatches(SortedMultiset<Integer> expected,
+      SortedMultiset<Integer> actual, Random random) {
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected.entrySet().size(), actual.entrySet().size());
+    assertEquals(newArrayList(expected.entrySet()),
+        newArrayList(actual.entrySet()));
+    assertEquals(newArrayList(expected.descendingMultiset().entrySet()),
+        newArrayList(actual.descendingMultiset().entrySet()));
+    for (int i = 0; i < 200; i++) {
+      int low = random.nextInt(10100) - 50;
+      int high = low + random.nextInt(500);
+      BoundType lowType = random.nextBoolean() ? OPEN : CLOSED;
+      BoundType highType = random.nextBoolean() ? OPEN : CLOSED;
+      assertEquals(expected.count(low), actual.count(low));
+      assertEquals(expected.headMultiset(low, lowType).size(),
+          actual.headMultiset(low, lowType).size());
+      assertEquals(expected.tailMultiset(low, lowType).size(),
+          actual.tailMultiset(low, lowType).size());
+      SortedMultiset<Integer> expectedSub =
+          expected.subMultiset(low, lowType, high, highType);
+      SortedMultiset<Integer> actualSub =
+          actual.subMultiset(low, lowType, high, highType);
+      assertEquals(expectedSub.size(), actualSub.size());
+      assertEquals(
+          expectedSub.entrySet().size(), actualSub.entrySet().size());
+      assertEquals(newArrayList(expectedSub.entrySet()),
+          newArrayList(actualSub.entrySet()));
+      assertEquals(newArrayList(expectedSub.descendingMultiset()),
+          newArrayList(actualSub.descendingMultiset()));
+    }
+  }
+
+  public void testIteratorRemoveAcrossLeaves() {
+    BTreeMultiset<Integer> ms = BTreeMultiset.create();
+    for (int i = 0; i < 1000; i++) {
+      ms.add(i, 2);
+    }
+    Iterator<Multiset.Entry<Integer>> iterator =
+        ms.subMultiset(100, CLOSED, 900, OPEN).entrySet().iterator();
+    int expected = 100;
+    while (iterator.hasNext()) {
+      Multiset.Entry<Integer> entry = iterator.next();
+      assertEquals(expected, (int) entry.getElement());
+      assertEquals(2, entry.getCount());
+      if (expected % 3 != 0) {
+        iterator.remove();
+      }
+      expected++;
+    }
+    assertEquals(900, expected);
+    for (int i = 0; i < 1000; i++) {
+      boolean removed = i >= 100 && i < 900 && i % 3 != 0;
+      assertEquals(removed ? 0 : 2, ms.count(i));
+    }
+
+    Iterator<Integer> descending =
+        ms.headMultiset(500, CLOSED).descendingMultiset().iterator();
+    while (descending.hasNext()) {
+      descending.next();
+      descending.remove();
+    }
+    assertEquals(0, ms.headMultiset(500, CLOSED).size());
+    assertEquals(ms.tailMultiset(500, OPEN).size(), ms.size());
+  }
+
+  public void testClearSubMultiset() {
+    BTreeMultiset<Integer> ms = BTreeMultiset.create();
+    for (int i = 0; i < 1000; i++) {
+      ms.add(i);
+    }
+    ms.subMultiset(10, CLOSED, 990, OPEN).clear();
+    assertEquals(20, ms.size());
+    assertEquals(20, ms.elementSet().size());
+    assertEquals(10, ms.headMultiset(500, CLOSED).size());
+  }
+
+  public void testEntryReflectsCountChanges() {
+    BTreeMultiset<String> ms = BTreeMultiset.create();
+    ms.add("a", 2);
+    ms.add("b");
+    Multiset.Entry<String> entry = ms.entrySet().iterator().next();
+    ms.add("a");
+    assertEquals(3, entry.getCount());
+    ms.add("0");
+    ms.remove("a");
+    assertEquals(2, entry.getCount());
+    ms.remove("a", 2);
+    assertEquals(0, entry.getCount());
+  }
+
+  public void testConcurrentModification() {
+    BTreeMultiset<String> ms = BTreeMultiset.create();
+    ms.add("a", 2);
+    ms.add("b");
+    Iterator<String> iterator = ms.iterator();
+    iterator.next();
+    ms.add("b");
+    iterator.next();
+    ms.add("c");
+    try {
+      iterator.next();
+      fail();
+    } catch (ConcurrentModificationException expected) {
+    }
+  }
+
+  @Override public void testToStringNull() {
+    c = ms = BTreeMultiset.create(Ordering.natural().nullsFirst());
+    super.testToStringNull();
+  }
+}
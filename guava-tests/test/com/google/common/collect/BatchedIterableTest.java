@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static org.junit.contrib.truth.Truth.ASSERT;
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests for {@link BatchedIterable}.
+ *
+ * @author Louis Wasserman
+ */
+public class BatchedIterableTest extends TestCase {
+  private static final Function<Integer, Integer> SQUARE =
+      new Function<Integer, Integer>() {
+        @Override public Integer apply(Integer input) {
+          return input * input;
+        }
+      };
+
+  private static final Function<Integer, String> TO_STRING =
+      new Function<Integer, String>() {
+        @Override public String apply(Integer input) {
+          return input.toString();
+        }
+      };
+
+  private static final Predicate<Integer> EVEN = new Predicate<Integer>() {
+    @Override public boolean apply(Integer input) {
+      return input % 2 == 0;
+    }
+  };
+
+  private static final Predicate<Integer> NOT_DIVISIBLE_BY_THREE =
+      new Predicate<Integer>() {
+        @Override public boolean apply(Integer input) {
+          return input % 3 != 0;
+        }
+      };
+
+  private static final BatchedIterable.Reducer<Integer, Long> SUM =
+      new BatchedIterable.Reducer<Integer, Long>() {
+        @Override public Long reduce(Long accumulated, Integer element) {
+          return accumulated + element;
+        }
+
+        @Override public Long combine(Long left, Long right) {
+          return left + right;
+        }
+      };
+
+  private static final BatchedIterable.Reducer<String, String> CONCAT =
+      new BatchedIterable.Reducer<String, String>() {
+        @Override public String reduce(String accumulated, String element) {
+          return accumulated + element + ",";
+        }
+
+        @Override public String combine(String left, String right) {
+          return left + right;
+        }
+      };
+
+  private ListeningExecutorService executor;
+
+  @Override protected void setUp() {
+    executor = MoreExecutors.listeningDecorator(
+        Executors.newFixedThreadPool(4));
+  }
+
+  @Override protected void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private static List<Integer> range(int n) {
+    List<Integer> list = Lists.newArrayList();
+    for (int i = 0; i < n; i++) {
+      list.add(i);
+    }
+    return list;
+  }
+
+  /**
+   * Returns the result of the pipeline used by most tests, computed with
+   * plain iterables.
+   */
+  private static List<String> expected(int n) {
+    return Lists.newArrayList(Iterables.transform(
+        Iterables.filter(Iterables.filter(Iterables.transform(
+            range(n), SQUARE), EVEN), NOT_DIVISIBLE_BY_THREE), TO_STRING));
+  }
+
+  private static BatchedIterable<String> pipeline(
+      BatchedIterable<Integer> batched) {
+    return batched.transform(SQUARE)
+        .filter(EVEN)
+        .filter(NOT_DIVISIBLE_BY_THREE)
+        .transform(TO_STRING);
+  }
+
+  public void testBadBatchSize() {
+    try {
+      FluentIterable.from(range(3)).batched(0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testEmpty() {
+    BatchedIterable<Integer> batched =
+        FluentIterable.from(Collections.<Integer>emptyList()).batched(4);
+    ASSERT.that(pipeline(batched).toList()).isEmpty();
+    ASSERT.that(pipeline(batched).parallel(executor).toList()).isEmpty();
+    assertEquals(Long.valueOf(7), batched.reduce(7L, SUM));
+  }
+
+  public void testToList() {
+    for (int n : new int[] {0, 1, 5, 6, 7, 100}) {
+      for (int batchSize : new int[] {1, 3, 6, 1000}) {
+        BatchedIterable<Integer> batched =
+            FluentIterable.from(range(n)).batched(batchSize);
+        assertEquals(expected(n), pipeline(batched).toList());
+        assertEquals(expected(n),
+            pipeline(batched).parallel(executor).toList());
+      }
+    }
+  }
+
+  public void testNoStages() {
+    assertEquals(range(10), FluentIterable.from(range(10)).batched(3).toList());
+  }
+
+  public void testPipelinesAreImmutable() {
+    BatchedIterable<Integer> batched =
+        FluentIterable.from(range(10)).batched(4);
+    BatchedIterable<Integer> squares = batched.transform(SQUARE);
+    BatchedIterable<Integer> evenSquares = squares.filter(EVEN);
+    squares.filter(NOT_DIVISIBLE_BY_THREE);
+    ASSERT.that(batched.toList()).hasContentsInOrder(
+        0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    ASSERT.that(squares.toList()).hasContentsInOrder(
+        0, 1, 4, 9, 16, 25, 36, 49, 64, 81);
+    ASSERT.that(evenSquares.toList()).hasContentsInOrder(0, 4, 16, 36, 64);
+  }
+
+  public void testToSet() {
+    ImmutableSet<Integer> set = FluentIterable.from(range(100))
+        .batched(7)
+        .transform(new Function<Integer, Integer>() {
+          @Override public Integer apply(Integer input) {
+            return input % 10;
+          }
+        })
+        .parallel(executor)
+        .toSet();
+    ASSERT.that(set).hasContentsInOrder(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+  }
+
+  public void testCopyInto() {
+    List<String> list = Lists.newArrayList("a");
+    assertSame(list,
+        pipeline(FluentIterable.from(range(20)).batched(3)).copyInto(list));
+    assertEquals(Lists.newArrayList(
+        Iterables.concat(Collections.singleton("a"), expected(20))), list);
+  }
+
+  public void testReduce() {
+    BatchedIterable<Integer> batched =
+        FluentIterable.from(range(1000)).batched(16);
+    assertEquals(Long.valueOf(499500), batched.reduce(0L, SUM));
+    assertEquals(Long.valueOf(499500),
+        batched.parallel(executor).reduce(0L, SUM));
+    assertEquals(Long.valueOf(499500),
+        batched.parallel(executor).unordered().reduce(0L, SUM));
+  }
+
+  public void testReduceKeepsOrder() {
+    BatchedIterable<Integer> batched =
+        FluentIterable.from(range(1000)).batched(16);
+    String expected = Joiner.on(",").join(expected(1000)) + ",";
+    assertEquals(expected, pipeline(batched).reduce("", CONCAT));
+    assertEquals(expected,
+        pipeline(batched.parallel(executor)).reduce("", CONCAT));
+  }
+
+  public void testUnordered() {
+    BatchedIterable<Integer> batched =
+        FluentIterable.from(range(10000)).batched(10);
+    ASSERT.that(pipeline(batched).parallel(executor).unordered().toList())
+        .hasContentsAnyOrder(expected(10000).toArray());
+  }
+
+  public void testUnorderedSequentialKeepsOrder() {
+    BatchedIterable<Integer> batched =
+        FluentIterable.from(range(100)).batched(10);
+    assertEquals(expected(100), pipeline(batched).unordered().toList());
+  }
+
+  public void testExceptionPropagates() {
+    BatchedIterable<Integer> batched = FluentIterable.from(range(1000))
+        .batched(10)
+        .transform(new Function<Integer, Integer>() {
+          @Override public Integer apply(Integer input) {
+            if (input == 555) {
+              throw new IllegalStateException("555");
+            }
+            return input;
+          }
+        });
+    try {
+      batched.toList();
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+    try {
+      batched.parallel(executor).toList();
+      fail();
+    } catch (IllegalStateException expected) {
+      assertEquals("555", expected.getMessage());
+    }
+    try {
+      batched.parallel(executor).unordered().toList();
+      fail();
+    } catch (IllegalStateException expected) {
+      assertEquals("555", expected.getMessage());
+    }
+  }
+
+  public void testNullElementsRejectedByToList() {
+    BatchedIterable<Integer> batched =
+        FluentIterable.from(Lists.newArrayList(1, null, 3)).batched(2);
+    try {
+      batched.toList();
+      fail();
+    } catch (NullPointerException expected) {
+    }
+    assertEquals(Lists.newArrayList(1, null, 3),
+        batched.copyInto(Lists.<Integer>newArrayList()));
+  }
+}
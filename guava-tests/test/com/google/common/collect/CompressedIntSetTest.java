@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.primitives.Ints;
+import com.google.common.testing.EqualsTester;
+
+import junit.framework.TestCase;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Tests for {@link CompressedIntSet}.
+ *
+ * @author Louis Wasserman
+ */
+public class CompressedIntSetTest extends TestCase {
+  public void testEmpty() {
+    CompressedIntSet set = CompressedIntSet.of();
+    assertTrue(set.isEmpty());
+    assertEquals(0, set.size());
+    assertFalse(set.contains(0));
+    assertFalse(set.iterator().hasNext());
+    assertEquals(ImmutableList.of(), set.asRanges());
+    assertEquals(ImmutableSet.of(), set);
+    try {
+      set.first();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+  }
+
+  public void testOf() {
+    CompressedIntSet set =
+        CompressedIntSet.of(3, -1, 70000, 3, Integer.MIN_VALUE);
+    assertEquals(4, set.size());
+    assertEquals(ImmutableList.of(Integer.MIN_VALUE, -1, 3, 70000),
+        ImmutableList.copyOf(set));
+    assertTrue(set.contains(-1));
+    assertTrue(set.contains((Object) 70000));
+    assertFalse(set.contains(4));
+    assertFalse(set.contains("3"));
+    assertFalse(set.contains(null));
+    assertEquals(Integer.MIN_VALUE, (int) set.first());
+    assertEquals(70000, (int) set.last());
+  }
+
+  public void testExtremeValues() {
+    CompressedIntSet set =
+        CompressedIntSet.of(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    assertEquals(ImmutableList.of(Ranges.closedOpen(Integer.MIN_VALUE,
+        Integer.MIN_VALUE + 1), Ranges.atLeast(Integer.MAX_VALUE)),
+        set.asRanges());
+    assertEquals(Integer.MAX_VALUE, (int) set.last());
+  }
+
+  public void testCreateRange() {
+    CompressedIntSet set = CompressedIntSet.create(Ranges.closed(-5, 200000));
+    assertEquals(200006, set.size());
+    assertTrue(set.contains(-5));
+    assertTrue(set.contains(65535));
+    assertTrue(set.contains(200000));
+    assertFalse(set.contains(200001));
+    assertEquals(ImmutableList.of(Ranges.closedOpen(-5, 200001)),
+        set.asRanges());
+    assertEquals(ContiguousSet.create(
+        Ranges.closed(-5, 200000), DiscreteDomains.integers()), set);
+    assertTrue(CompressedIntSet.create(Ranges.open(1, 2)).isEmpty());
+    CompressedIntSet all = CompressedIntSet.create(Ranges.<Integer>all());
+    assertFalse(all.isEmpty());
+    assertEquals(Integer.MAX_VALUE, all.size());
+    assertEquals(Integer.MAX_VALUE, (int) all.last());
+    CompressedIntSet negative = CompressedIntSet.create(Ranges.lessThan(0));
+    assertEquals(CompressedIntSet.create(Ranges.atLeast(0)),
+        all.difference(negative));
+  }
+
+  public void testCopyOfContiguousSet() {
+    ContiguousSet<Integer> contiguous = Ranges.closed(10, 100000)
+        .asSet(DiscreteDomains.integers());
+    CompressedIntSet set = CompressedIntSet.copyOf(contiguous);
+    assertEquals(contiguous, set);
+    assertEquals(contiguous, set.asRanges().get(0)
+        .asSet(DiscreteDomains.integers()));
+  }
+
+  public void testRangeSetConversions() {
+    RangeSet<Integer> rangeSet = TreeRangeSet.create();
+    rangeSet.add(Ranges.closed(1, 5));
+    rangeSet.add(Ranges.closedOpen(65530, 65540));
+    rangeSet.add(Ranges.greaterThan(1000000));
+    CompressedIntSet set = CompressedIntSet.copyOf(rangeSet);
+    ImmutableList<Range<Integer>> canonical = ImmutableList.of(
+        Ranges.closedOpen(1, 6),
+        Ranges.closedOpen(65530, 65540),
+        Ranges.atLeast(1000001));
+    assertEquals(canonical, set.asRanges());
+    assertEquals(ImmutableSet.copyOf(canonical), set.toRangeSet().asRanges());
+    assertTrue(set.contains(65535));
+    assertTrue(set.contains(65536));
+    assertFalse(set.contains(6));
+  }
+
+  public void testSubSets() {
+    CompressedIntSet set = CompressedIntSet.of(1, 5, 10, 100000, 100001);
+    assertEquals(ImmutableSet.of(1, 5), set.headSet(10));
+    assertEquals(ImmutableSet.of(10, 100000, 100001), set.tailSet(6));
+    assertEquals(ImmutableSet.of(5, 10, 100000), set.subSet(5, 100001));
+    assertTrue(set.subSet(6, 6).isEmpty());
+    try {
+      set.subSet(6, 5);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testEquals() {
+    new EqualsTester()
+        .addEqualityGroup(CompressedIntSet.of(), ImmutableSet.of())
+        .addEqualityGroup(CompressedIntSet.of(1, 2, 3),
+            CompressedIntSet.create(Ranges.closed(1, 3)),
+            ImmutableSet.of(1, 2, 3))
+        .addEqualityGroup(CompressedIntSet.of(1, 3))
+        .testEquals();
+  }
+
+  public void testEqualsCanonical() {
+    RangeSet<Integer> rangeSet = TreeRangeSet.create();
+    rangeSet.add(Ranges.closed(1, 2));
+    rangeSet.add(Ranges.closed(3, 4));
+    new EqualsTester()
+        .addEqualityGroup(CompressedIntSet.copyOf(rangeSet),
+            CompressedIntSet.of(1, 2, 3, 4),
+            CompressedIntSet.of(1, 2).union(CompressedIntSet.of(3, 4)),
+            CompressedIntSet.create(Ranges.closed(3, 4))
+                .union(CompressedIntSet.create(Ranges.closed(1, 2))),
+            ImmutableSet.of(1, 2, 3, 4))
+        .testEquals();
+  }
+
+  public void testUnmodifiable() {
+    CompressedIntSet set = CompressedIntSet.of(1);
+    try {
+      set.add(2);
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    try {
+      set.iterator().remove();
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+  }
+
+  public void testAgainstTreeSet() {
+    Random random = new Random(0);
+    for (int trial = 0; trial < 30; trial++) {
+      TreeSet<Integer> a = randomSet(random);
+      TreeSet<Integer> b = randomSet(random);
+      CompressedIntSet setA = CompressedIntSet.copyOf(a);
+      CompressedIntSet setB = CompressedIntSet.copyOf(Ints.toArray(b));
+
+      assertSetEquals(a, setA);
+      assertSetEquals(b, setB);
+      assertSetEquals(Sets.union(a, b), setA.union(setB));
+      assertSetEquals(Sets.intersection(a, b), setA.intersection(setB));
+      assertSetEquals(Sets.difference(a, b), setA.difference(setB));
+      assertSetEquals(Sets.difference(b, a), setB.difference(setA));
+      assertEquals(a.containsAll(b), setA.containsAll(setB));
+      assertTrue(setA.union(setB).containsAll(setA));
+
+      CompressedIntSet rebuilt = CompressedIntSet.of();
+      for (Range<Integer> range : setA.asRanges()) {
+        rebuilt = rebuilt.union(CompressedIntSet.create(range));
+      }
+      assertSetEquals(a, rebuilt);
+      assertEquals(setA, rebuilt);
+    }
+  }
+
+  private static void assertSetEquals(Set<Integer> unsorted,
+      CompressedIntSet actual) {
+    TreeSet<Integer> expected = Sets.newTreeSet(unsorted);
+    assertEquals(expected.size(), actual.size());
+    assertEquals(ImmutableList.copyOf(expected), ImmutableList.copyOf(actual));
+    assertEquals(Ints.asList(Ints.toArray(expected)),
+        Ints.asList(actual.toIntArray()));
+    assertEquals(expected.hashCode(), actual.hashCode());
+    for (int value : expected) {
+      assertTrue(actual.contains(value));
+      assertFalse(actual.contains(value ^ 0x40000000)
+          != expected.contains(value ^ 0x40000000));
+    }
+  }
+
+  /**
+   * Returns a set mixing sparse values, dense values and runs, so that every
+   * kind of container appears, often within the same chunk.
+   */
+  private static TreeSet<Integer> randomSet(Random random) {
+    TreeSet<Integer> set = Sets.newTreeSet();
+    int chunks = random.nextInt(4) + 1;
+    for (int c = 0; c < chunks; c++) {
+      int base = (random.nextInt(8) - 4) << 16;
+      switch (random.nextInt(4)) {
+        case 0: // sparse
+          for (int i = random.nextInt(5000); i > 0; i--) {
+            set.add(base + random.nextInt(1 << 16));
+          }
+          break;
+        case 1: // dense
+          for (int i = 0; i < 1 << 16; i++) {
+            if (random.nextInt(3) != 0) {
+              set.add(base + i);
+            }
+          }
+          break;
+        case 2: // runs, some crossing into the next chunk
+          for (int i = random.nextInt(20); i > 0; i--) {
+            int start = base + random.nextInt(1 << 16);
+            for (int j = random.nextInt(5000); j >= 0; j--) {
+              set.add(start + j);
+            }
+          }
+          break;
+        default: // a full chunk
+          for (int i = 0; i < 1 << 16; i++) {
+            set.add(base + i);
+          }
+          break;
+      }
+    }
+    return set;
+  }
+}
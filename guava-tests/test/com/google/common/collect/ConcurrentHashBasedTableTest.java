@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.collect.Table.Cell;
+import com.google.common.testing.SerializableTester;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Test cases for {@link ConcurrentHashBasedTable}.
+ *
+ * @author Louis Wasserman
+ */
+public class ConcurrentHashBasedTableTest extends AbstractTableTest {
+
+  @Override protected Table<String, Integer, Character> create(
+      Object... data) {
+    Table<String, Integer, Character> table = ConcurrentHashBasedTable.create();
+    populate(table, data);
+    return table;
+  }
+
+  public void testCreateWithInvalidConcurrencyLevel() {
+    try {
+      ConcurrentHashBasedTable.create(0);
+      fail();
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testCreateCopy() {
+    Table<String, Integer, Character> original
+        = create("foo", 1, 'a', "bar", 1, 'b', "foo", 3, 'c');
+    Table<String, Integer, Character> copy =
+        ConcurrentHashBasedTable.create(original);
+    assertEquals(original, copy);
+    assertEquals((Character) 'a', copy.get("foo", 1));
+  }
+
+  public void testConditionalUpdates() {
+    ConcurrentHashBasedTable<String, Integer, Character> table =
+        ConcurrentHashBasedTable.create();
+    assertNull(table.putIfAbsent("foo", 1, 'a'));
+    assertEquals((Character) 'a', table.putIfAbsent("foo", 1, 'b'));
+    assertNull(table.replace("foo", 2, 'b'));
+    assertFalse(table.contains("foo", 2));
+    assertEquals((Character) 'a', table.replace("foo", 1, 'c'));
+    assertFalse(table.replace("foo", 1, 'a', 'd'));
+    assertTrue(table.replace("foo", 1, 'c', 'd'));
+    assertEquals((Character) 'd', table.column(1).get("foo"));
+    assertFalse(table.remove("foo", 1, 'c'));
+    assertTrue(table.remove("foo", 1, 'd'));
+    assertTrue(table.isEmpty());
+    assertFalse(table.containsColumn(1));
+  }
+
+  private static final Function<Integer, Integer> INCREMENT =
+      new Function<Integer, Integer>() {
+        @Override public Integer apply(Integer input) {
+          return (input == null) ? 1 : input + 1;
+        }
+      };
+
+  public void testCompute() {
+    ConcurrentHashBasedTable<String, Integer, Integer> table =
+        ConcurrentHashBasedTable.create();
+    assertEquals((Integer) 1, table.compute("foo", 1, INCREMENT));
+    assertEquals((Integer) 2, table.compute("foo", 1, INCREMENT));
+    assertEquals((Integer) 2, table.column(1).get("foo"));
+    assertNull(table.compute("foo", 1, Functions.<Integer>constant(null)));
+    assertTrue(table.isEmpty());
+    assertFalse(table.containsColumn(1));
+    assertNull(table.compute("bar", 2, Functions.<Integer>constant(null)));
+    assertTrue(table.isEmpty());
+  }
+
+  public void testColumnIsIndexed() {
+    table = create("foo", 1, 'a', "bar", 1, 'b', "foo", 3, 'c');
+    Map<String, Character> column = table.column(1);
+    assertEquals(2, column.size());
+    column.put("baz", 'd');
+    assertEquals((Character) 'd', table.get("baz", 1));
+    assertEquals(ImmutableMap.of(1, 'd'), table.row("baz"));
+    column.remove("foo");
+    assertEquals(ImmutableMap.of(3, 'c'), table.row("foo"));
+    assertEquals(3, table.size());
+    table.columnMap().remove(1);
+    assertEquals(ImmutableSet.of("foo"), table.rowKeySet());
+    assertEquals(1, table.size());
+  }
+
+  public void testIteratorsAreWeaklyConsistent() {
+    table = create("foo", 1, 'a', "bar", 1, 'b', "foo", 3, 'c');
+    Iterator<Cell<String, Integer, Character>> cellIterator =
+        table.cellSet().iterator();
+    Iterator<Integer> columnIterator = table.columnKeySet().iterator();
+    table.put("baz", 2, 'd');
+    table.remove("bar", 1);
+    // no ConcurrentModificationException
+    Iterators.size(cellIterator);
+    Iterators.size(columnIterator);
+    assertEquals(3, table.size());
+  }
+
+  public void testSerialization() {
+    table = create("foo", 1, 'a', "bar", 1, 'b', "foo", 3, 'c');
+    Table<String, Integer, Character> copy =
+        SerializableTester.reserializeAndAssert(table);
+    copy.put("baz", 2, 'd');
+    assertEquals(ImmutableMap.of("baz", 'd'), copy.column(2));
+  }
+
+  public void testConcurrentUpdates() throws Exception {
+    final ConcurrentHashBasedTable<Integer, Integer, Integer> counts =
+        ConcurrentHashBasedTable.create(4);
+    final int threads = 8;
+    final int incrementsPerThread = 2000;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Void>> futures = Lists.newArrayList();
+      for (int t = 0; t < threads; t++) {
+        final boolean useCompute = (t % 2 == 0);
+        futures.add(pool.submit(new Callable<Void>() {
+          @Override public Void call() {
+            for (int i = 0; i < incrementsPerThread; i++) {
+              int row = i % 5;
+              int column = i % 7;
+              if (useCompute) {
+                counts.compute(row, column, INCREMENT);
+                continue;
+              }
+              while (true) {
+                Integer old = counts.putIfAbsent(row, column, 1);
+                if (old == null || counts.replace(row, column, old, old + 1)) {
+                  break;
+                }
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    assertEquals(35, counts.size());
+    int total = 0;
+    for (Integer count : counts.values()) {
+      total += count;
+    }
+    assertEquals(threads * incrementsPerThread, total);
+    for (Cell<Integer, Integer, Integer> cell : counts.cellSet()) {
+      assertEquals(cell.getValue(),
+          counts.column(cell.getColumnKey()).get(cell.getRowKey()));
+    }
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.collect.testing.features.MapFeature;
+import com.google.common.collect.testing.google.ListMultimapTestSuiteBuilder;
+import com.google.common.collect.testing.google.SetMultimapTestSuiteBuilder;
+import com.google.common.collect.testing.google.TestStringListMultimapGenerator;
+import com.google.common.collect.testing.google.TestStringSetMultimapGenerator;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests for {@link ConcurrentHashMultimap} and {@link
+ * ConcurrentArrayListMultimap}.
+ *
+ * @author Louis Wasserman
+ */
+public class ConcurrentHashMultimapTest extends TestCase {
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTestSuite(ConcurrentHashMultimapTest.class);
+
+    suite.addTest(SetMultimapTestSuiteBuilder.using(
+        new TestStringSetMultimapGenerator() {
+          @Override protected SetMultimap<String, String> create(
+              Entry<String, String>[] entries) {
+            SetMultimap<String, String> multimap =
+                ConcurrentHashMultimap.create();
+            for (Entry<String, String> entry : entries) {
+              multimap.put(entry.getKey(), entry.getValue());
+            }
+            return multimap;
+          }
+        })
+        .named("ConcurrentHashMultimap")
+        .withFeatures(
+            MapFeature.ALLOWS_NULL_QUERIES,
+            MapFeature.GENERAL_PURPOSE,
+            CollectionFeature.SERIALIZABLE,
+            CollectionSize.ANY)
+        .createTestSuite());
+
+    suite.addTest(ListMultimapTestSuiteBuilder.using(
+        new TestStringListMultimapGenerator() {
+          @Override protected ListMultimap<String, String> create(
+              Entry<String, String>[] entries) {
+            ListMultimap<String, String> multimap =
+                ConcurrentArrayListMultimap.create();
+            for (Entry<String, String> entry : entries) {
+              multimap.put(entry.getKey(), entry.getValue());
+            }
+            return multimap;
+          }
+        })
+        .named("ConcurrentArrayListMultimap")
+        .withFeatures(
+            MapFeature.ALLOWS_NULL_QUERIES,
+            MapFeature.GENERAL_PURPOSE,
+            CollectionFeature.SERIALIZABLE,
+            CollectionSize.ANY)
+        .createTestSuite());
+
+    return suite;
+  }
+
+  public void testNullsRejected() {
+    ConcurrentHashMultimap<String, Integer> multimap =
+        ConcurrentHashMultimap.create();
+    try {
+      multimap.put(null, 1);
+      fail();
+    } catch (NullPointerException expected) {}
+    try {
+      multimap.put("a", null);
+      fail();
+    } catch (NullPointerException expected) {}
+    try {
+      multimap.get("a").add(null);
+      fail();
+    } catch (NullPointerException expected) {}
+    assertTrue(multimap.isEmpty());
+    assertFalse(multimap.containsKey(null));
+    assertTrue(multimap.get(null).isEmpty());
+    assertFalse(multimap.remove(null, null));
+  }
+
+  public void testCreateWithInvalidConcurrencyLevel() {
+    try {
+      ConcurrentHashMultimap.create(0);
+      fail();
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testGetIsLiveView() {
+    ConcurrentHashMultimap<String, Integer> multimap =
+        ConcurrentHashMultimap.create(1);
+    Set<Integer> values = multimap.get("a");
+    assertTrue(values.isEmpty());
+    multimap.put("a", 1);
+    multimap.put("a", 2);
+    assertEquals(ImmutableSet.of(1, 2), values);
+    values.add(3);
+    assertEquals(ImmutableSet.of(1, 2, 3), multimap.get("a"));
+    values.clear();
+    assertFalse(multimap.containsKey("a"));
+    assertEquals(0, multimap.size());
+  }
+
+  public void testIteratorsAreWeaklyConsistent() {
+    ConcurrentHashMultimap<String, Integer> multimap =
+        ConcurrentHashMultimap.create();
+    multimap.putAll("a", ImmutableList.of(1, 2, 3));
+    multimap.putAll("b", ImmutableList.of(4, 5));
+    Iterator<Integer> valueIterator = multimap.get("a").iterator();
+    Iterator<Map.Entry<String, Integer>> entryIterator =
+        multimap.entries().iterator();
+    multimap.removeAll("a");
+    multimap.put("c", 6);
+    // no ConcurrentModificationException
+    assertEquals(ImmutableList.of(1, 2, 3),
+        ImmutableList.copyOf(valueIterator));
+    while (entryIterator.hasNext()) {
+      entryIterator.next();
+    }
+    assertEquals(ImmutableSetMultimap.of("b", 4, "b", 5, "c", 6),
+        ImmutableSetMultimap.copyOf(multimap));
+  }
+
+  public void testReplaceValuesReturnsImmutableSnapshot() {
+    ConcurrentHashMultimap<String, Integer> multimap =
+        ConcurrentHashMultimap.create();
+    multimap.putAll("a", ImmutableList.of(1, 2));
+    ImmutableSet<Integer> old = multimap.replaceValues("a", ImmutableList.of(3));
+    assertEquals(ImmutableSet.of(1, 2), old);
+    assertEquals(ImmutableSet.of(3), multimap.get("a"));
+    assertEquals(1, multimap.size());
+  }
+
+  public void testListPositionalOperations() {
+    ConcurrentArrayListMultimap<String, Integer> multimap =
+        ConcurrentArrayListMultimap.create();
+    List<Integer> values = multimap.get("a");
+    values.add(0, 1);
+    values.add(2);
+    values.add(1, 3);
+    assertEquals(ImmutableList.of(1, 3, 2), multimap.get("a"));
+    assertEquals(Integer.valueOf(3), values.set(1, 4));
+    assertEquals(Integer.valueOf(1), values.remove(0));
+    assertEquals(ImmutableList.of(4, 2), values);
+    assertEquals(2, multimap.size());
+    try {
+      values.add(3, 5);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {}
+  }
+
+  public void testSerialization() {
+    ConcurrentArrayListMultimap<String, Integer> multimap =
+        ConcurrentArrayListMultimap.create(4);
+    multimap.putAll("a", ImmutableList.of(1, 2, 1));
+    multimap.put("b", 3);
+    ConcurrentArrayListMultimap<String, Integer> copy =
+        SerializableTester.reserializeAndAssert(multimap);
+    assertEquals(4, copy.size());
+    copy.put("b", 4);
+    assertEquals(ImmutableList.of(3, 4), copy.get("b"));
+  }
+
+  public void testConcurrentUpdates() throws Exception {
+    final ConcurrentHashMultimap<Integer, Integer> multimap =
+        ConcurrentHashMultimap.create(4);
+    final int threads = 8;
+    final int valuesPerThread = 2000;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Void>> futures = Lists.newArrayList();
+      for (int t = 0; t < threads; t++) {
+        final int thread = t;
+        futures.add(pool.submit(new Callable<Void>() {
+          @Override public Void call() {
+            for (int i = 0; i < valuesPerThread; i++) {
+              int value = thread * valuesPerThread + i;
+              multimap.put(value % 10, value);
+              if (value % 3 == 0) {
+                assertTrue(multimap.remove(value % 10, value));
+              }
+              multimap.get(value % 10).size();
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    int expectedSize = 0;
+    for (int value = 0; value < threads * valuesPerThread; value++) {
+      boolean present = value % 3 != 0;
+      assertEquals(present, multimap.containsEntry(value % 10, value));
+      if (present) {
+        expectedSize++;
+      }
+    }
+    assertEquals(expectedSize, multimap.size());
+    assertEquals(expectedSize, multimap.entries().size());
+    assertEquals(expectedSize, Iterators.size(multimap.values().iterator()));
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static java.util.Arrays.asList;
+
+import com.google.common.testing.EqualsTester;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for {@link DoubleArrayTable}.
+ *
+ * @author Louis Wasserman
+ */
+public class DoubleArrayTableTest extends TestCase {
+  private DoubleArrayTable<String, Integer> table;
+
+  @Override protected void setUp() {
+    table = DoubleArrayTable.create(asList("foo", "bar"), asList(1, 2, 3));
+    table.put("foo", 1, 1.0);
+    table.put("foo", 3, 2.0);
+    table.put("bar", 2, 4.0);
+  }
+
+  public void testCreateInvalid() {
+    try {
+      DoubleArrayTable.create(asList("foo", "foo"), asList(1));
+      fail();
+    } catch (IllegalArgumentException expected) {}
+    try {
+      DoubleArrayTable.create(ImmutableList.<String>of(), asList(1));
+      fail();
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testCreateTooManyCells() {
+    // 50000 * 50000 cells overflow an int
+    Set<Integer> keys =
+        Ranges.closedOpen(0, 50000).asSet(DiscreteDomains.integers());
+    try {
+      DoubleArrayTable.create(keys, keys);
+      fail();
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testKeyIndexes() {
+    assertEquals(ImmutableList.of("foo", "bar"), table.rowKeyList());
+    assertEquals(ImmutableList.of(1, 2, 3), table.columnKeyList());
+    assertEquals(ImmutableMap.of("foo", 0, "bar", 1), table.rowKeyToIndex());
+    assertEquals(ImmutableMap.of(1, 0, 2, 1, 3, 2), table.columnKeyToIndex());
+    assertEquals(6, table.size());
+  }
+
+  public void testAtAndSet() {
+    assertEquals(1.0, table.at(0, 0));
+    assertEquals(0.0, table.at(0, 1));
+    assertEquals(4.0, table.at(1, 1));
+    assertEquals(4.0, table.set(1, 1, 5.0));
+    assertEquals(5.0, table.get("bar", 2));
+    try {
+      table.at(0, 3);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {}
+    try {
+      table.set(2, 0, 1.0);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {}
+  }
+
+  public void testGetAndPutIllegal() {
+    try {
+      table.get("cat", 1);
+      fail();
+    } catch (IllegalArgumentException expected) {}
+    try {
+      table.put("foo", 4, 1.0);
+      fail();
+    } catch (IllegalArgumentException expected) {}
+    try {
+      table.get(null, 1);
+      fail();
+    } catch (NullPointerException expected) {}
+  }
+
+  public void testSums() {
+    assertEquals(3.0, table.rowSum(0));
+    assertEquals(4.0, table.rowSum(1));
+    assertEquals(4.0, table.columnSum(1));
+    assertTrue(Arrays.equals(new double[] {3.0, 4.0}, table.rowSums()));
+    assertTrue(
+        Arrays.equals(new double[] {1.0, 4.0, 2.0}, table.columnSums()));
+  }
+
+  public void testFill() {
+    table.fillRow(1, 7.0);
+    assertTrue(Arrays.equals(new double[] {1.0, 0.0, 2.0}, table.toArray()[0]));
+    assertTrue(Arrays.equals(new double[] {7.0, 7.0, 7.0}, table.toArray()[1]));
+    table.fillColumn(0, -1.0);
+    assertTrue(
+        Arrays.equals(new double[] {-2.0, 7.0, 9.0}, table.columnSums()));
+    table.fill(0.5);
+    assertTrue(Arrays.equals(new double[] {1.5, 1.5}, table.rowSums()));
+  }
+
+  public void testCopy() {
+    DoubleArrayTable<String, Integer> copy = DoubleArrayTable.create(table);
+    assertEquals(table, copy);
+    copy.set(0, 0, 10.0);
+    assertEquals(1.0, table.at(0, 0));
+    assertFalse(table.equals(copy));
+    table.copyFrom(copy);
+    assertEquals(10.0, table.at(0, 0));
+    try {
+      table.copyFrom(DoubleArrayTable.create(asList("foo"), asList(1, 2, 3)));
+      fail();
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testCreateFromTable() {
+    Table<String, Integer, Integer> source = HashBasedTable.create();
+    source.put("foo", 1, 2);
+    source.put("bar", 3, 4);
+    DoubleArrayTable<String, Integer> copy = DoubleArrayTable.create(source);
+    assertEquals(2.0, copy.get("foo", 1));
+    assertEquals(0.0, copy.get("foo", 3));
+    assertEquals(4.0, copy.get("bar", 3));
+  }
+
+  public void testEquals() {
+    new EqualsTester()
+        .addEqualityGroup(table, DoubleArrayTable.create(table))
+        .addEqualityGroup(
+            DoubleArrayTable.create(asList("foo", "bar"), asList(1, 2, 3)))
+        .addEqualityGroup(
+            DoubleArrayTable.create(asList("bar", "foo"), asList(1, 2, 3)))
+        .testEquals();
+  }
+
+  public void testAsTable() {
+    Table<String, Integer, Double> view = table.asTable();
+    assertEquals(6, view.size());
+    assertEquals((Double) 1.0, view.get("foo", 1));
+    assertEquals((Double) 0.0, view.get("foo", 2));
+    assertNull(view.get("cat", 1));
+    assertTrue(view.containsValue(4.0));
+    assertFalse(view.containsValue(null));
+    assertEquals(ImmutableMap.of(1, 1.0, 2, 0.0, 3, 2.0), view.row("foo"));
+    assertEquals(ImmutableMap.of("foo", 2.0, "bar", 0.0), view.column(3));
+    assertEquals("{foo={1=1.0, 2=0.0, 3=2.0}, bar={1=0.0, 2=4.0, 3=0.0}}",
+        view.toString());
+    assertEquals(view.toString(), table.toString());
+
+    assertEquals((Double) 4.0, view.put("bar", 2, 3.0));
+    assertEquals(3.0, table.at(1, 1));
+    view.column(1).put("bar", 6.0);
+    assertEquals(6.0, table.get("bar", 1));
+    view.rowMap().get("foo").put(2, 8.0);
+    assertEquals(8.0, table.at(0, 1));
+    table.set(0, 0, 9.0);
+    assertEquals((Double) 9.0, view.columnMap().get(1).get("foo"));
+  }
+
+  public void testAsTableUnsupported() {
+    Table<String, Integer, Double> view = table.asTable();
+    try {
+      view.put("foo", 1, null);
+      fail();
+    } catch (NullPointerException expected) {}
+    try {
+      view.row("foo").put(1, null);
+      fail();
+    } catch (NullPointerException expected) {}
+    try {
+      view.remove("foo", 1);
+      fail();
+    } catch (UnsupportedOperationException expected) {}
+    try {
+      view.clear();
+      fail();
+    } catch (UnsupportedOperationException expected) {}
+    try {
+      view.put("cat", 1, 1.0);
+      fail();
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testAsTableEquals() {
+    Table<String, Integer, Double> hashTable = HashBasedTable.create();
+    for (Table.Cell<String, Integer, Double> cell : table.asTable().cellSet()) {
+      hashTable.put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+    }
+    new EqualsTester()
+        .addEqualityGroup(table.asTable(), hashTable)
+        .testEquals();
+    assertTrue(table.asTable().cellSet().contains(
+        Tables.immutableCell("bar", 2, 4.0)));
+    assertEquals(6, Iterables.size(table.asTable().values()));
+    for (Map.Entry<String, Map<Integer, Double>> entry
+        : table.asTable().rowMap().entrySet()) {
+      assertEquals(3, entry.getValue().size());
+    }
+  }
+
+  public void testSerialization() {
+    DoubleArrayTable<String, Integer> copy =
+        SerializableTester.reserializeAndAssert(table);
+    copy.set(0, 0, 3.0);
+    assertEquals(1.0, table.at(0, 0));
+    assertEquals((Double) 3.0, copy.asTable().get("foo", 1));
+  }
+}
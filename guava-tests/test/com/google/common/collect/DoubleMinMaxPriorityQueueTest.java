@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Tests for {@link DoubleMinMaxPriorityQueue}.
+ *
+ * @author Louis Wasserman
+ */
+public class DoubleMinMaxPriorityQueueTest extends TestCase {
+  public void testEmpty() {
+    DoubleMinMaxPriorityQueue queue = DoubleMinMaxPriorityQueue.create();
+    assertTrue(queue.isEmpty());
+    assertEquals(0, queue.size());
+    assertEquals(Integer.MAX_VALUE, queue.maximumSize());
+    try {
+      queue.peekFirstKey();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+    try {
+      queue.peekLastValue();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+    try {
+      queue.removeFirst();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+    try {
+      queue.removeLast();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+  }
+
+  public void testOfferAndPeek() {
+    DoubleMinMaxPriorityQueue queue = DoubleMinMaxPriorityQueue.create();
+    assertTrue(queue.offer(5, 50));
+    assertTrue(queue.offer(2, 20));
+    assertTrue(queue.offer(9, 90));
+    assertTrue(queue.offer(7, 70));
+    assertEquals(4, queue.size());
+    assertEquals(2, queue.peekFirstKey(), 0);
+    assertEquals(20, queue.peekFirstValue());
+    assertEquals(9, queue.peekLastKey(), 0);
+    assertEquals(90, queue.peekLastValue());
+    assertEquals(90, queue.removeLast());
+    assertEquals(20, queue.removeFirst());
+    assertEquals(50, queue.removeFirst());
+    assertEquals(70, queue.removeLast());
+    assertTrue(queue.isEmpty());
+  }
+
+  public void testSpecialKeys() {
+    DoubleMinMaxPriorityQueue queue = DoubleMinMaxPriorityQueue.create();
+    queue.offer(Double.NaN, 0);
+    queue.offer(0.0, 1);
+    queue.offer(-0.0, 2);
+    queue.offer(Double.NEGATIVE_INFINITY, 3);
+    queue.offer(Double.POSITIVE_INFINITY, 4);
+    int[] order = new int[5];
+    for (int i = 0; i < 5; i++) {
+      order[i] = queue.removeFirst();
+    }
+    assertTrue(Arrays.equals(new int[] {3, 2, 1, 4, 0}, order));
+  }
+
+  public void testRandomOperations() {
+    Random random = new Random(0);
+    for (int trial = 0; trial < 50; trial++) {
+      DoubleMinMaxPriorityQueue queue =
+          DoubleMinMaxPriorityQueue.createWithExpectedSize(0);
+      TreeMultiset<Double> control = TreeMultiset.create();
+      for (int i = 0; i < 1000; i++) {
+        int op = random.nextInt(4);
+        if (op < 2 || control.isEmpty()) {
+          double key = random.nextInt(100);
+          queue.offer(key, (int) key);
+          control.add(key);
+        } else if (op == 2) {
+          double first = control.firstEntry().getElement();
+          assertEquals(first, queue.peekFirstKey(), 0);
+          assertEquals(first, queue.removeFirst(), 0);
+          control.remove(first);
+        } else {
+          double last = control.lastEntry().getElement();
+          assertEquals(last, queue.peekLastKey(), 0);
+          assertEquals(last, queue.removeLast(), 0);
+          control.remove(last);
+        }
+        assertEquals(control.size(), queue.size());
+        assertTrue(queue.isIntact());
+      }
+    }
+  }
+
+  public void testMaximumSize() {
+    Random random = new Random(0);
+    DoubleMinMaxPriorityQueue queue =
+        DoubleMinMaxPriorityQueue.createWithMaximumSize(10);
+    double[] keys = new double[1000];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = random.nextDouble();
+      queue.offer(keys[i], i);
+      assertTrue(queue.size() <= 10);
+      assertTrue(queue.isIntact());
+    }
+    double[] sorted = keys.clone();
+    Arrays.sort(sorted);
+    double[] drainedKeys = new double[20];
+    int[] drainedValues = new int[20];
+    assertEquals(10, queue.drainTo(drainedKeys, drainedValues));
+    assertTrue(queue.isEmpty());
+    for (int i = 0; i < 10; i++) {
+      assertEquals(sorted[i], drainedKeys[i], 0);
+      assertEquals(sorted[i], keys[drainedValues[i]], 0);
+    }
+  }
+
+  public void testMaximumSize_rejectsGreatest() {
+    DoubleMinMaxPriorityQueue queue =
+        DoubleMinMaxPriorityQueue.createWithMaximumSize(2);
+    assertTrue(queue.offer(1, 1));
+    assertTrue(queue.offer(3, 3));
+    assertFalse(queue.offer(3, 4));
+    assertFalse(queue.offer(5, 5));
+    assertTrue(queue.offer(2, 2));
+    assertEquals(2, queue.size());
+    assertEquals(2, queue.peekLastValue());
+  }
+
+  public void testDrainTo_partial() {
+    DoubleMinMaxPriorityQueue queue = DoubleMinMaxPriorityQueue.create();
+    for (int i = 9; i >= 0; i--) {
+      queue.offer(i, i);
+    }
+    double[] keys = new double[3];
+    int[] values = new int[3];
+    assertEquals(3, queue.drainTo(keys, values));
+    assertTrue(Arrays.equals(new int[] {0, 1, 2}, values));
+    assertEquals(7, queue.size());
+    assertEquals(3, queue.peekFirstValue());
+    try {
+      queue.drainTo(new double[2], new int[3]);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testDrainTo_all() {
+    Random random = new Random(0);
+    for (int size : new int[] {0, 1, 7, 8, 100, 1000}) {
+      DoubleMinMaxPriorityQueue queue = DoubleMinMaxPriorityQueue.create();
+      double[] offeredKeys = new double[size];
+      for (int i = 0; i < size; i++) {
+        offeredKeys[i] = random.nextInt(50);
+        queue.offer(offeredKeys[i], i);
+      }
+      double[] keys = new double[size + 2];
+      int[] values = new int[size + 2];
+      assertEquals(size, queue.drainTo(keys, values));
+      assertTrue(queue.isEmpty());
+      for (int i = 0; i < size; i++) {
+        assertEquals(offeredKeys[values[i]], keys[i], 0);
+        if (i > 0) {
+          assertTrue(keys[i - 1] <= keys[i]);
+        }
+      }
+      double[] sortedKeys = offeredKeys.clone();
+      Arrays.sort(sortedKeys);
+      assertTrue(Arrays.equals(sortedKeys, Arrays.copyOf(keys, size)));
+      queue.offer(3, 3);
+      assertEquals(3, queue.removeFirst());
+    }
+  }
+
+  public void testClear() {
+    DoubleMinMaxPriorityQueue queue = DoubleMinMaxPriorityQueue.create();
+    queue.offer(1, 1);
+    queue.clear();
+    assertTrue(queue.isEmpty());
+    queue.offer(2, 2);
+    assertEquals(2, queue.removeFirst());
+  }
+
+  public void testInvalidArguments() {
+    try {
+      DoubleMinMaxPriorityQueue.createWithMaximumSize(0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      DoubleMinMaxPriorityQueue.createWithExpectedSize(-1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.Table.Cell;
+import com.google.common.testing.SerializableTester;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Test cases for {@link HashBasedTable#createWithColumnIndex}.
+ *
+ * @author Louis Wasserman
+ */
+public class HashBasedTableWithColumnIndexTest extends AbstractTableTest {
+
+  @Override protected Table<String, Integer, Character> create(
+      Object... data) {
+    Table<String, Integer, Character> table =
+        HashBasedTable.createWithColumnIndex();
+    populate(table, data);
+    return table;
+  }
+
+  /**
+   * Checks that every column view agrees with a column computed from the
+   * cells.
+   */
+  private void assertIndexConsistent() {
+    Table<String, Integer, Character> expected = HashBasedTable.create(table);
+    assertEquals(expected.columnKeySet(), table.columnKeySet());
+    assertEquals(expected.columnMap(), table.columnMap());
+    for (Integer columnKey : expected.columnKeySet()) {
+      assertEquals(expected.column(columnKey).size(),
+          table.column(columnKey).size());
+    }
+  }
+
+  public void testIndexFollowsRowViews() {
+    table = create("foo", 1, 'a', "bar", 1, 'b', "foo", 3, 'c');
+    Map<Integer, Character> row = table.row("foo");
+    row.put(2, 'd');
+    assertEquals(ImmutableMap.of("foo", 'd'), table.column(2));
+    row.remove(1);
+    assertEquals(ImmutableMap.of("bar", 'b'), table.column(1));
+    row.keySet().remove(2);
+    assertFalse(table.containsColumn(2));
+    Iterator<Map.Entry<Integer, Character>> iterator =
+        row.entrySet().iterator();
+    iterator.next();
+    iterator.remove();
+    assertFalse(table.containsColumn(3));
+    assertIndexConsistent();
+  }
+
+  public void testIndexFollowsCellSetIterator() {
+    table = create("foo", 1, 'a', "bar", 1, 'b', "foo", 3, 'c');
+    Iterator<Cell<String, Integer, Character>> iterator =
+        table.cellSet().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().getColumnKey() == 1) {
+        iterator.remove();
+      }
+    }
+    assertFalse(table.containsColumn(1));
+    assertEquals(ImmutableSet.of(3), table.columnKeySet());
+    assertIndexConsistent();
+  }
+
+  public void testIndexFollowsRowMap() {
+    table = create("foo", 1, 'a', "bar", 1, 'b', "foo", 3, 'c');
+    table.rowMap().remove("foo");
+    assertEquals(ImmutableSet.of(1), table.columnKeySet());
+    table.rowMap().get("bar").clear();
+    assertTrue(table.columnKeySet().isEmpty());
+    assertIndexConsistent();
+  }
+
+  public void testIndexFollowsClear() {
+    table = create("foo", 1, 'a', "bar", 1, 'b', "foo", 3, 'c');
+    table.clear();
+    assertFalse(table.containsColumn(1));
+    assertTrue(table.column(1).isEmpty());
+    table.put("baz", 1, 'd');
+    assertEquals(ImmutableMap.of("baz", 'd'), table.column(1));
+  }
+
+  public void testColumnKeySetIteratorRemove() {
+    table = create("foo", 1, 'a', "bar", 1, 'b', "foo", 3, 'c');
+    Iterator<Integer> iterator = table.columnKeySet().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next() == 1) {
+        iterator.remove();
+      }
+    }
+    assertEquals(ImmutableMap.of(3, 'c'), table.row("foo"));
+    assertFalse(table.containsRow("bar"));
+    assertIndexConsistent();
+  }
+
+  @GwtIncompatible("SerializableTester")
+  public void testSerialization() {
+    table = create("foo", 1, 'a', "bar", 1, 'b', "foo", 3, 'c');
+    Table<String, Integer, Character> copy =
+        SerializableTester.reserializeAndAssert(table);
+    copy.remove("foo", 1);
+    assertEquals(ImmutableMap.of("bar", 'b'), copy.column(1));
+  }
+}
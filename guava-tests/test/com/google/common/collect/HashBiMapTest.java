@@ -79,6 +79,52 @@ public class HashBiMapTest extends TestCase {
     }
   }
 
+  public void testInverseEntrySetValue() {
+    BiMap<Integer, String> bimap = HashBiMap.create();
+    for (int i = 0; i < N; i++) {
+      bimap.put(i, Integer.toString(i));
+    }
+    BiMap<String, Integer> inverse = bimap.inverse();
+    int visited = 0;
+    for (Entry<String, Integer> entry : inverse.entrySet()) {
+      assertEquals(entry.getKey(), Integer.toString(entry.getValue()));
+      assertEquals(entry.getValue(), (Object) entry.setValue(entry.getValue() + N));
+      visited++;
+    }
+    assertEquals(N, visited);
+    for (int i = 0; i < N; i++) {
+      assertEquals(Integer.toString(i), bimap.get(i + N));
+      assertFalse(bimap.containsKey(i));
+    }
+  }
+
+  public void testEntrySetValueThenRemove() {
+    BiMap<Integer, String> bimap = HashBiMap.create();
+    bimap.put(1, "one");
+    bimap.put(2, "two");
+    Iterator<Entry<String, Integer>> iterator =
+        bimap.inverse().entrySet().iterator();
+    Entry<String, Integer> entry = iterator.next();
+    entry.setValue(3);
+    iterator.remove();
+    assertEquals(1, bimap.size());
+    assertFalse(bimap.containsValue(entry.getKey()));
+    assertFalse(bimap.containsKey(3));
+  }
+
+  public void testGrowAndClear() {
+    BiMap<Integer, Integer> bimap = HashBiMap.create(0);
+    for (int i = 0; i < N; i++) {
+      bimap.put(i, -i);
+    }
+    assertEquals(N, bimap.size());
+    assertEquals(N, bimap.inverse().size());
+    bimap.clear();
+    assertTrue(bimap.isEmpty());
+    assertTrue(bimap.inverse().isEmpty());
+    assertNull(bimap.inverse().get(-1));
+  }
+
   // The next two tests verify that map entries are not accessed after they're
   // removed, since IdentityHashMap throws an exception when that occurs.
   public void testIdentityKeySetIteratorRemove() {
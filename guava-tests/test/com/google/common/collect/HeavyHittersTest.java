@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static org.junit.contrib.truth.Truth.ASSERT;
+
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.testing.NullPointerTester;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests for {@link HeavyHitters}.
+ *
+ * @author Louis Wasserman
+ */
+@GwtCompatible(emulated = true)
+public class HeavyHittersTest extends TestCase {
+  public void testCreate_badCapacity() {
+    try {
+      HeavyHitters.create(0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testExactBelowCapacity() {
+    HeavyHitters<String> hitters = HeavyHitters.create(3);
+    for (String s : Arrays.asList("a", "b", "a", "c", "a", "b")) {
+      hitters.offer(s);
+    }
+    hitters.offer("c", 5);
+    hitters.offer("b", 0);
+    assertEquals(11, hitters.totalCount());
+    assertEquals(0, hitters.maxOverestimate());
+    assertEquals(
+        ImmutableMultiset.builder().addCopies("a", 3).addCopies("b", 2)
+            .addCopies("c", 6).build(),
+        hitters.asMultiset());
+    assertEquals(6, hitters.lowerBound("c"));
+    assertEquals(6, hitters.upperBound("c"));
+    assertEquals(0, hitters.upperBound("d"));
+    ASSERT.that(Multisets.copyHighestCountFirst(hitters.asMultiset(), 2))
+        .hasContentsInOrder("c", "c", "c", "c", "c", "c", "a", "a", "a");
+  }
+
+  public void testEviction() {
+    HeavyHitters<String> hitters = HeavyHitters.create(2);
+    hitters.offer("a", 5);
+    hitters.offer("b", 2);
+    hitters.offer("c");
+    // c replaced b, and inherited its count as error
+    assertEquals(0, hitters.asMultiset().count("b"));
+    assertEquals(3, hitters.asMultiset().count("c"));
+    assertEquals(1, hitters.lowerBound("c"));
+    assertEquals(3, hitters.upperBound("c"));
+    assertEquals(3, hitters.maxOverestimate());
+    assertEquals(3, hitters.upperBound("b"));
+    assertEquals(0, hitters.lowerBound("b"));
+    assertEquals(5, hitters.lowerBound("a"));
+    assertEquals(2, hitters.asMultiset().elementSet().size());
+    assertEquals(8, hitters.asMultiset().size());
+  }
+
+  public void testBoundsOnSkewedStream() {
+    int capacity = 50;
+    HeavyHitters<Integer> hitters = HeavyHitters.create(capacity);
+    Multiset<Integer> exact = HashMultiset.create();
+    Random random = new Random(0);
+    for (int i = 0; i < 100000; i++) {
+      // roughly Zipfian over 10000 elements
+      int element = (int) Math.floor(Math.pow(10000, random.nextDouble()));
+      hitters.offer(element);
+      exact.add(element);
+    }
+    long total = hitters.totalCount();
+    assertEquals(100000, total);
+    assertTrue(hitters.maxOverestimate() <= total / capacity);
+    for (Multiset.Entry<Integer> entry : exact.entrySet()) {
+      Integer element = entry.getElement();
+      int count = entry.getCount();
+      assertTrue(hitters.lowerBound(element) <= count);
+      assertTrue(count <= hitters.upperBound(element));
+      if (count > total / capacity) {
+        assertTrue(hitters.asMultiset().contains(element));
+      }
+    }
+    // the most frequent elements are far more frequent than the error bound
+    assertEquals(
+        ImmutableList.copyOf(
+            Multisets.copyHighestCountFirst(exact, 3).elementSet()),
+        ImmutableList.copyOf(Multisets.copyHighestCountFirst(
+            hitters.asMultiset(), 3).elementSet()));
+  }
+
+  public void testViewIsReadOnly() {
+    HeavyHitters<String> hitters = HeavyHitters.create(2);
+    hitters.offer("a");
+    Multiset<String> view = hitters.asMultiset();
+    try {
+      view.add("a");
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    try {
+      view.remove("a");
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    try {
+      view.clear();
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    try {
+      view.iterator().remove();
+      fail();
+    } catch (UnsupportedOperationException expected) {
+    } catch (IllegalStateException expected) {
+    }
+    assertEquals(1, view.count("a"));
+  }
+
+  public void testViewReflectsOffers() {
+    HeavyHitters<String> hitters = HeavyHitters.create(2);
+    Multiset<String> view = hitters.asMultiset();
+    assertTrue(view.isEmpty());
+    hitters.offer("a", 2);
+    assertEquals(2, view.count("a"));
+    assertEquals("[a x 2]", hitters.toString());
+  }
+
+  public void testNegativeOccurrences() {
+    HeavyHitters<String> hitters = HeavyHitters.create(2);
+    try {
+      hitters.offer("a", -1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  @GwtIncompatible("NullPointerTester")
+  public void testNullPointers() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicInstanceMethods(HeavyHitters.create(2));
+  }
+}
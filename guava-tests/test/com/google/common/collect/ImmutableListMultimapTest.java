@@ -315,6 +315,24 @@ public class ImmutableListMultimapTest extends TestCase {
     assertEquals(input, multimap);
   }
 
+  public void testCopyOfManyKeys() {
+    ArrayListMultimap<Integer, Integer> input = ArrayListMultimap.create();
+    for (int key = 0; key < 100; key++) {
+      for (int value = 0; value < key % 7; value++) {
+        input.put(key, value);
+        input.put(key, value);
+      }
+    }
+    ImmutableListMultimap<Integer, Integer> copy
+        = ImmutableListMultimap.copyOf(input);
+    assertEquals(input, copy);
+    assertEquals(input.keySet(), copy.keySet());
+    for (int key = 0; key < 100; key++) {
+      assertEquals(input.get(key), copy.get(key));
+      assertEquals(input.get(key).hashCode(), copy.get(key).hashCode());
+    }
+  }
+
   public void testCopyOfEmpty() {
     ArrayListMultimap<String, Integer> input = ArrayListMultimap.create();
     Multimap<String, Integer> multimap = ImmutableListMultimap.copyOf(input);
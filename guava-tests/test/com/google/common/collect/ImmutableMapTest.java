@@ -22,6 +22,7 @@ import com.google.common.annotations.GwtCompatible;
 import com.google.common.annotations.GwtIncompatible;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap.Builder;
+import com.google.common.collect.testing.AnEnum;
 import com.google.common.collect.testing.CollectionTestSuiteBuilder;
 import com.google.common.collect.testing.ListTestSuiteBuilder;
 import com.google.common.collect.testing.MapInterfaceTest;
@@ -29,6 +30,7 @@ import com.google.common.collect.testing.MapTestSuiteBuilder;
 import com.google.common.collect.testing.MinimalSet;
 import com.google.common.collect.testing.SampleElements.Colliders;
 import com.google.common.collect.testing.SampleElements.Unhashables;
+import com.google.common.collect.testing.TestEnumMapGenerator;
 import com.google.common.collect.testing.UnhashableObject;
 import com.google.common.collect.testing.features.CollectionFeature;
 import com.google.common.collect.testing.features.CollectionSize;
@@ -74,6 +76,24 @@ public class ImmutableMapTest extends TestCase {
         .named("ImmutableMap.keySet")
         .createTestSuite());
 
+    suite.addTest(MapTestSuiteBuilder.using(new TestEnumMapGenerator() {
+          @Override protected Map<AnEnum, String> create(
+              Entry<AnEnum, String>[] entries) {
+            Map<AnEnum, String> map = Maps.newHashMap();
+            for (Entry<AnEnum, String> entry : entries) {
+              map.put(entry.getKey(), entry.getValue());
+            }
+            return Maps.immutableEnumMap(map);
+          }
+        })
+        .withFeatures(
+            CollectionSize.ANY,
+            CollectionFeature.SERIALIZABLE_INCLUDING_VIEWS,
+            CollectionFeature.KNOWN_ORDER,
+            CollectionFeature.ALLOWS_NULL_QUERIES)
+        .named("Maps.immutableEnumMap")
+        .createTestSuite());
+
     suite.addTest(CollectionTestSuiteBuilder.using(
             new ImmutableMapUnhashableValuesGenerator())
         .withFeatures(CollectionSize.ANY, CollectionFeature.KNOWN_ORDER,
@@ -389,6 +409,80 @@ public class ImmutableMapTest extends TestCase {
       }
     }
 
+    public void testStreamingBuilder() {
+      Builder<String, Integer> builder =
+          ImmutableMap.<String, Integer>streamingBuilder()
+              .put("one", 1)
+              .put(Maps.immutableEntry("two", 2))
+              .putAll(ImmutableMap.of("three", 3, "four", 4));
+      ImmutableMap<String, Integer> map = builder.build();
+      assertMapEquals(map, "one", 1, "two", 2, "three", 3, "four", 4);
+
+      // adding to the builder after build() must not change the built map
+      ImmutableMap<String, Integer> bigger =
+          builder.put("five", 5).put("six", 6).build();
+      assertMapEquals(map, "one", 1, "two", 2, "three", 3, "four", 4);
+      assertNull(map.get("five"));
+      assertMapEquals(bigger,
+          "one", 1, "two", 2, "three", 3, "four", 4, "five", 5, "six", 6);
+      assertEquals(ImmutableSet.of("one", "two", "three", "four").hashCode(),
+          map.keySet().hashCode());
+    }
+
+    public void testStreamingBuilder_smallMaps() {
+      assertEquals(ImmutableMap.of(),
+          ImmutableMap.<String, Integer>streamingBuilder().build());
+      assertMapEquals(
+          ImmutableMap.<String, Integer>streamingBuilder().put("one", 1)
+              .build(),
+          "one", 1);
+    }
+
+    public void testStreamingBuilder_puttingTheSameKeyTwiceThrowsOnPut() {
+      Builder<String, Integer> builder =
+          ImmutableMap.<String, Integer>streamingBuilder()
+              .put("one", 1)
+              .put("two", 2);
+      try {
+        builder.put("one", 3);
+        fail();
+      } catch (IllegalArgumentException expected) {
+        assertEquals("duplicate key: one", expected.getMessage());
+      }
+      assertMapEquals(builder.build(), "one", 1, "two", 2);
+    }
+
+    public void testStreamingBuilder_putNullKeyOrValue() {
+      Builder<String, Integer> builder =
+          ImmutableMap.<String, Integer>streamingBuilder();
+      try {
+        builder.put(null, 1);
+        fail();
+      } catch (NullPointerException expected) {
+      }
+      try {
+        builder.putAll(Collections.<String, Integer>singletonMap("one", null));
+        fail();
+      } catch (NullPointerException expected) {
+      }
+      assertTrue(builder.build().isEmpty());
+    }
+
+    public void testStreamingBuilder_manyKeys() {
+      Builder<Integer, Integer> builder = ImmutableMap.streamingBuilder();
+      for (int i = 0; i < 1000; i++) {
+        builder.put(i, -i);
+      }
+      ImmutableMap<Integer, Integer> map = builder.build();
+      assertEquals(1000, map.size());
+      ImmutableList<Integer> keys = map.keySet().asList();
+      for (int i = 0; i < 1000; i++) {
+        assertEquals(Integer.valueOf(-i), map.get(i));
+        assertEquals(Integer.valueOf(i), keys.get(i));
+      }
+      assertNull(map.get(1000));
+    }
+
     public void testOf() {
       assertMapEquals(
           ImmutableMap.of("one", 1),
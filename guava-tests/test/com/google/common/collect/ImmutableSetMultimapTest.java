@@ -27,6 +27,11 @@ import com.google.common.testing.SerializableTester;
 
 import junit.framework.TestCase;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -327,6 +332,30 @@ public class ImmutableSetMultimapTest extends TestCase {
     assertEquals(3, copy.size());
   }
 
+  public void testCopyOfManyKeysWithDuplicates() {
+    ArrayListMultimap<Integer, Integer> input = ArrayListMultimap.create();
+    for (int key = 0; key < 100; key++) {
+      for (int value = 0; value < key % 7; value++) {
+        input.put(key, value);
+        input.put(key, value + 100 * key);
+        input.put(key, value);
+      }
+    }
+    ImmutableSetMultimap<Integer, Integer> copy
+        = ImmutableSetMultimap.copyOf(input);
+    assertEquals(HashMultimap.create(input), copy);
+    for (int key = 0; key < 100; key++) {
+      ImmutableSet<Integer> values = copy.get(key);
+      assertEquals(Sets.newLinkedHashSet(input.get(key)), values);
+      ASSERT.that(values).hasContentsInOrder(
+          Sets.newLinkedHashSet(input.get(key)).toArray());
+      for (int value = 0; value < 1000; value++) {
+        assertEquals(input.containsEntry(key, value),
+            values.contains(value));
+      }
+    }
+  }
+
   public void testCopyOfEmpty() {
     HashMultimap<String, Integer> input = HashMultimap.create();
     Multimap<String, Integer> multimap = ImmutableSetMultimap.copyOf(input);
@@ -496,6 +525,33 @@ public class ImmutableSetMultimapTest extends TestCase {
     assertSame(multimap, SerializableTester.reserialize(multimap));
   }
 
+  @GwtIncompatible("java.io.ObjectInputStream")
+  public void testDeserializationRejectsDuplicateValues() throws Exception {
+    ImmutableSetMultimap<String, String> multimap = ImmutableSetMultimap.of(
+        "bar", "v1", "foo", "v1", "foo", "v2");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(multimap);
+    out.close();
+    // rewrite "v2" as "v1", giving "foo" the same value twice
+    byte[] data = bytes.toByteArray();
+    int found = 0;
+    for (int i = 0; i + 1 < data.length; i++) {
+      if (data[i] == 'v' && data[i + 1] == '2') {
+        data[i + 1] = '1';
+        found++;
+      }
+    }
+    assertEquals(1, found);
+    try {
+      new ObjectInputStream(new ByteArrayInputStream(data)).readObject();
+      fail();
+    } catch (InvalidObjectException expected) {
+      assertEquals("Duplicate key-value pairs exist for key foo",
+          expected.getMessage());
+    }
+  }
+
   private ImmutableSetMultimap<String, Integer> createMultimap() {
     return ImmutableSetMultimap.<String, Integer>builder()
         .put("foo", 1).put("bar", 2).put("foo", 3).build();
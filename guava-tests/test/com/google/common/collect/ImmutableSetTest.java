@@ -24,6 +24,7 @@ import com.google.common.collect.ImmutableSet.Builder;
 import com.google.common.testing.NullPointerTester;
 import com.google.common.testing.SerializableTester;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -162,6 +163,70 @@ public class ImmutableSetTest extends AbstractImmutableSetTest {
         tableSize, ((RegularImmutableSet<Integer>) set).table.length);
   }
 
+  public void testStreamingBuilder() {
+    Builder<String> builder = ImmutableSet.<String>streamingBuilder()
+        .add("a", "b", "a")
+        .addAll(Arrays.asList("c", "b", "d"))
+        .add("a");
+    ImmutableSet<String> set = builder.build();
+    ASSERT.that(set).hasContentsInOrder("a", "b", "c", "d");
+    assertEquals(Sets.newHashSet("a", "b", "c", "d").hashCode(),
+        set.hashCode());
+    assertTrue(set.contains("c"));
+    assertFalse(set.contains("e"));
+
+    // adding to the builder after build() must not change the built set
+    ImmutableSet<String> bigger = builder.add("e", "c", "f").build();
+    ASSERT.that(set).hasContentsInOrder("a", "b", "c", "d");
+    assertFalse(set.contains("e"));
+    ASSERT.that(bigger).hasContentsInOrder("a", "b", "c", "d", "e", "f");
+    assertTrue(bigger.contains("e"));
+  }
+
+  public void testStreamingBuilder_smallSets() {
+    assertEquals(ImmutableSet.of(),
+        ImmutableSet.<String>streamingBuilder().build());
+    ImmutableSet<String> set =
+        ImmutableSet.<String>streamingBuilder().add("a", "a", "a").build();
+    assertEquals(ImmutableSet.of("a"), set);
+    assertEquals("a".hashCode(), set.hashCode());
+  }
+
+  public void testStreamingBuilder_nullElement() {
+    Builder<String> builder =
+        ImmutableSet.<String>streamingBuilder().add("a", "b");
+    try {
+      builder.add("c", null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+    ASSERT.that(builder.build()).hasContentsInOrder("a", "b", "c");
+  }
+
+  @GwtIncompatible("RegularImmutableSet.table not in emulation")
+  public void testStreamingBuilder_resizeTable() {
+    verifyStreamingTableSize(100, 2, 4);
+    verifyStreamingTableSize(100, 5, 8);
+    verifyStreamingTableSize(100, 33, 64);
+    verifyStreamingTableSize(17, 17, 32);
+    verifyStreamingTableSize(17, 16, 32);
+    verifyStreamingTableSize(17, 15, 32);
+  }
+
+  @GwtIncompatible("RegularImmutableSet.table not in emulation")
+  private void verifyStreamingTableSize(
+      int inputSize, int setSize, int tableSize) {
+    Builder<Integer> builder = ImmutableSet.streamingBuilder();
+    for (int i = 0; i < inputSize; i++) {
+      builder.add(i % setSize);
+    }
+    ImmutableSet<Integer> set = builder.build();
+    assertEquals(setSize, set.size());
+    assertTrue(set instanceof RegularImmutableSet);
+    assertEquals("Input size " + inputSize + " and set size " + setSize,
+        tableSize, ((RegularImmutableSet<Integer>) set).table.length);
+  }
+
   public void testCopyOf_copiesImmutableSortedSet() {
     ImmutableSortedSet<String> sortedSet = ImmutableSortedSet.of("a");
     ImmutableSet<String> copy = ImmutableSet.copyOf(sortedSet);
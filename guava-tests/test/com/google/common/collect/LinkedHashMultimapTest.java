@@ -61,6 +61,25 @@ public class LinkedHashMultimapTest extends AbstractSetMultimapTest {
     }
   }
 
+  public void testValueSetRemoveAcrossHashTableCreation() {
+    LinkedHashMultimap<String, Integer> multimap = LinkedHashMultimap.create();
+    for (int z = 1; z <= 10; z++) {
+      multimap.put("a", z);
+    }
+    assertTrue(multimap.remove("a", 1));
+    assertTrue(multimap.remove("a", 10));
+    assertFalse(multimap.remove("a", 10));
+    for (Iterator<Integer> itr = multimap.get("a").iterator(); itr.hasNext();) {
+      if (itr.next() % 2 == 0) {
+        itr.remove();
+      }
+    }
+    ASSERT.that(multimap.get("a")).hasContentsInOrder(3, 5, 7, 9);
+    assertTrue(multimap.containsEntry("a", 7));
+    assertFalse(multimap.containsEntry("a", 4));
+    ASSERT.that(multimap.values()).hasContentsInOrder(3, 5, 7, 9);
+  }
+
   private Multimap<String, Integer> initializeMultimap5() {
     Multimap<String, Integer> multimap = getMultimap();
     multimap.put("foo", 5);
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static java.util.Arrays.asList;
+
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * Tests for {@link LongArrayTable}.
+ *
+ * @author Louis Wasserman
+ */
+public class LongArrayTableTest extends TestCase {
+  private LongArrayTable<String, Integer> table;
+
+  @Override protected void setUp() {
+    table = LongArrayTable.create(asList("foo", "bar"), asList(1, 2, 3));
+    table.put("foo", 1, 1);
+    table.put("foo", 3, 2);
+    table.put("bar", 2, 4);
+  }
+
+  public void testAtAndSet() {
+    assertEquals(1, table.at(0, 0));
+    assertEquals(0, table.at(1, 0));
+    assertEquals(4, table.set(1, 1, 5));
+    assertEquals(5, table.get("bar", 2));
+    try {
+      table.at(-1, 0);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {}
+  }
+
+  public void testSumsAndFill() {
+    assertTrue(Arrays.equals(new long[] {3, 4}, table.rowSums()));
+    assertTrue(Arrays.equals(new long[] {1, 4, 2}, table.columnSums()));
+    assertEquals(2, table.columnSum(2));
+    table.fillColumn(2, Long.MAX_VALUE);
+    assertEquals(Long.MIN_VALUE, table.rowSum(0));
+    table.fill(3);
+    assertEquals(9, table.rowSum(1));
+  }
+
+  public void testAsTable() {
+    Table<String, Integer, Long> view = table.asTable();
+    assertEquals(ImmutableMap.of(1, 1L, 2, 0L, 3, 2L), view.row("foo"));
+    view.put("bar", 1, 7L);
+    assertEquals(7, table.at(1, 0));
+    assertEquals(HashBasedTable.create(view), view);
+  }
+
+  public void testCopyAndSerialization() {
+    LongArrayTable<String, Integer> copy = LongArrayTable.create(table);
+    assertEquals(table, copy);
+    assertTrue(Arrays.equals(new long[] {1, 0, 2}, copy.toArray()[0]));
+    copy = SerializableTester.reserializeAndAssert(table);
+    copy.fill(1);
+    assertEquals(3, table.rowSum(0));
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Tests for {@link LongMinMaxPriorityQueue}.
+ *
+ * @author Louis Wasserman
+ */
+public class LongMinMaxPriorityQueueTest extends TestCase {
+  public void testEmpty() {
+    LongMinMaxPriorityQueue queue = LongMinMaxPriorityQueue.create();
+    assertTrue(queue.isEmpty());
+    assertEquals(0, queue.size());
+    assertEquals(Integer.MAX_VALUE, queue.maximumSize());
+    try {
+      queue.peekFirstKey();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+    try {
+      queue.peekLastValue();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+    try {
+      queue.removeFirst();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+    try {
+      queue.removeLast();
+      fail();
+    } catch (NoSuchElementException expected) {
+    }
+  }
+
+  public void testOfferAndPeek() {
+    LongMinMaxPriorityQueue queue = LongMinMaxPriorityQueue.create();
+    assertTrue(queue.offer(5, 50));
+    assertTrue(queue.offer(2, 20));
+    assertTrue(queue.offer(9, 90));
+    assertTrue(queue.offer(7, 70));
+    assertEquals(4, queue.size());
+    assertEquals(2, queue.peekFirstKey());
+    assertEquals(20, queue.peekFirstValue());
+    assertEquals(9, queue.peekLastKey());
+    assertEquals(90, queue.peekLastValue());
+    assertEquals(90, queue.removeLast());
+    assertEquals(20, queue.removeFirst());
+    assertEquals(50, queue.removeFirst());
+    assertEquals(70, queue.removeLast());
+    assertTrue(queue.isEmpty());
+  }
+
+  public void testExtremeKeys() {
+    LongMinMaxPriorityQueue queue = LongMinMaxPriorityQueue.create();
+    queue.offer(Long.MAX_VALUE, 0);
+    queue.offer(0, 1);
+    queue.offer(Long.MIN_VALUE, 2);
+    queue.offer(-1, 3);
+    int[] order = new int[4];
+    for (int i = 0; i < 4; i++) {
+      order[i] = queue.removeFirst();
+    }
+    assertTrue(Arrays.equals(new int[] {2, 3, 1, 0}, order));
+  }
+
+  public void testRandomOperations() {
+    Random random = new Random(0);
+    for (int trial = 0; trial < 50; trial++) {
+      LongMinMaxPriorityQueue queue =
+          LongMinMaxPriorityQueue.createWithExpectedSize(0);
+      TreeMultiset<Long> control = TreeMultiset.create();
+      for (int i = 0; i < 1000; i++) {
+        int op = random.nextInt(4);
+        if (op < 2 || control.isEmpty()) {
+          long key = random.nextInt(100);
+          queue.offer(key, (int) key);
+          control.add(key);
+        } else if (op == 2) {
+          long first = control.firstEntry().getElement();
+          assertEquals(first, queue.peekFirstKey());
+          assertEquals(first, queue.removeFirst());
+          control.remove(first);
+        } else {
+          long last = control.lastEntry().getElement();
+          assertEquals(last, queue.peekLastKey());
+          assertEquals(last, queue.removeLast());
+          control.remove(last);
+        }
+        assertEquals(control.size(), queue.size());
+        assertTrue(queue.isIntact());
+      }
+    }
+  }
+
+  public void testMaximumSize() {
+    Random random = new Random(0);
+    LongMinMaxPriorityQueue queue =
+        LongMinMaxPriorityQueue.createWithMaximumSize(10);
+    long[] keys = new long[1000];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = random.nextLong();
+      queue.offer(keys[i], i);
+      assertTrue(queue.size() <= 10);
+      assertTrue(queue.isIntact());
+    }
+    long[] sorted = keys.clone();
+    Arrays.sort(sorted);
+    long[] drainedKeys = new long[20];
+    int[] drainedValues = new int[20];
+    assertEquals(10, queue.drainTo(drainedKeys, drainedValues));
+    assertTrue(queue.isEmpty());
+    for (int i = 0; i < 10; i++) {
+      assertEquals(sorted[i], drainedKeys[i]);
+      assertEquals(sorted[i], keys[drainedValues[i]]);
+    }
+  }
+
+  public void testMaximumSize_rejectsGreatest() {
+    LongMinMaxPriorityQueue queue =
+        LongMinMaxPriorityQueue.createWithMaximumSize(2);
+    assertTrue(queue.offer(1, 1));
+    assertTrue(queue.offer(3, 3));
+    assertFalse(queue.offer(3, 4));
+    assertFalse(queue.offer(5, 5));
+    assertTrue(queue.offer(2, 2));
+    assertEquals(2, queue.size());
+    assertEquals(2, queue.peekLastValue());
+  }
+
+  public void testDrainTo_partial() {
+    LongMinMaxPriorityQueue queue = LongMinMaxPriorityQueue.create();
+    for (int i = 9; i >= 0; i--) {
+      queue.offer(i, i);
+    }
+    long[] keys = new long[3];
+    int[] values = new int[3];
+    assertEquals(3, queue.drainTo(keys, values));
+    assertTrue(Arrays.equals(new int[] {0, 1, 2}, values));
+    assertEquals(7, queue.size());
+    assertEquals(3, queue.peekFirstValue());
+    try {
+      queue.drainTo(new long[2], new int[3]);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testDrainTo_all() {
+    Random random = new Random(0);
+    for (int size : new int[] {0, 1, 7, 8, 100, 1000}) {
+      LongMinMaxPriorityQueue queue = LongMinMaxPriorityQueue.create();
+      long[] offeredKeys = new long[size];
+      for (int i = 0; i < size; i++) {
+        offeredKeys[i] = random.nextInt(50);
+        queue.offer(offeredKeys[i], i);
+      }
+      long[] keys = new long[size + 2];
+      int[] values = new int[size + 2];
+      assertEquals(size, queue.drainTo(keys, values));
+      assertTrue(queue.isEmpty());
+      for (int i = 0; i < size; i++) {
+        assertEquals(offeredKeys[values[i]], keys[i]);
+        if (i > 0) {
+          assertTrue(keys[i - 1] <= keys[i]);
+        }
+      }
+      long[] sortedKeys = offeredKeys.clone();
+      Arrays.sort(sortedKeys);
+      assertTrue(Arrays.equals(sortedKeys, Arrays.copyOf(keys, size)));
+      queue.offer(3, 3);
+      assertEquals(3, queue.removeFirst());
+    }
+  }
+
+  public void testClear() {
+    LongMinMaxPriorityQueue queue = LongMinMaxPriorityQueue.create();
+    queue.offer(1, 1);
+    queue.clear();
+    assertTrue(queue.isEmpty());
+    queue.offer(2, 2);
+    assertEquals(2, queue.removeFirst());
+  }
+
+  public void testInvalidArguments() {
+    try {
+      LongMinMaxPriorityQueue.createWithMaximumSize(0);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      LongMinMaxPriorityQueue.createWithExpectedSize(-1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+}
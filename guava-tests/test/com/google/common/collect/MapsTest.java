@@ -34,6 +34,7 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.Maps.EntryTransformer;
 import com.google.common.collect.Maps.ValueDifferenceImpl;
 import com.google.common.collect.SetsTest.Derived;
+import com.google.common.collect.testing.AnEnum;
 import com.google.common.collect.testing.MapTestSuiteBuilder;
 import com.google.common.collect.testing.SortedMapInterfaceTest;
 import com.google.common.collect.testing.TestStringMapGenerator;
@@ -41,6 +42,7 @@ import com.google.common.collect.testing.features.CollectionSize;
 import com.google.common.collect.testing.features.MapFeature;
 import com.google.common.testing.EqualsTester;
 import com.google.common.testing.NullPointerTester;
+import com.google.common.testing.SerializableTester;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -318,6 +320,57 @@ public class MapsTest extends TestCase {
     } catch (IllegalArgumentException expected) {}
   }
 
+  private enum OtherEnum { A, B }
+
+  public void testImmutableEnumMap() {
+    Map<AnEnum, Integer> original = Maps.newLinkedHashMap();
+    original.put(AnEnum.D, 4);
+    original.put(AnEnum.B, 2);
+    ImmutableMap<AnEnum, Integer> map = Maps.immutableEnumMap(original);
+    assertEquals(original, map);
+    assertEquals(original.hashCode(), map.hashCode());
+    ASSERT.that(map.keySet()).hasContentsInOrder(AnEnum.B, AnEnum.D);
+    ASSERT.that(map.values()).hasContentsInOrder(2, 4);
+    assertEquals(Integer.valueOf(2), map.get(AnEnum.B));
+    assertNull(map.get(AnEnum.A));
+    // same ordinal, different enum type
+    assertNull(map.get(OtherEnum.B));
+    assertFalse(map.containsKey(OtherEnum.B));
+    assertNull(map.get("B"));
+    assertSame(map, Maps.immutableEnumMap(map));
+  }
+
+  public void testImmutableEnumMap_empty() {
+    assertSame(ImmutableMap.of(),
+        Maps.immutableEnumMap(Maps.<AnEnum, String>newHashMap()));
+  }
+
+  public void testImmutableEnumMap_nullValue() {
+    Map<AnEnum, String> original = Maps.newEnumMap(AnEnum.class);
+    original.put(AnEnum.A, null);
+    try {
+      Maps.immutableEnumMap(original);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  @GwtIncompatible("ImmutableEnumSet")
+  public void testImmutableEnumMap_keySetIsEnumSet() {
+    ImmutableMap<AnEnum, String> map =
+        Maps.immutableEnumMap(ImmutableMap.of(AnEnum.C, "c", AnEnum.A, "a"));
+    assertTrue(map.keySet() instanceof ImmutableEnumSet);
+    assertEquals(Sets.immutableEnumSet(AnEnum.A, AnEnum.C), map.keySet());
+  }
+
+  @GwtIncompatible("SerializableTester")
+  public void testImmutableEnumMap_serialized() {
+    ImmutableMap<AnEnum, String> map =
+        Maps.immutableEnumMap(ImmutableMap.of(AnEnum.C, "c", AnEnum.A, "a"));
+    assertTrue(SerializableTester.reserializeAndAssert(map)
+        instanceof ImmutableEnumMap);
+  }
+
   public void testToStringImplWithNullKeys() throws Exception {
     Map<String, String> hashmap = Maps.newHashMap();
     hashmap.put("foo", "bar");
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.collect.testing.IteratorFeature.UNMODIFIABLE;
+
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.Function;
+import com.google.common.collect.testing.IteratorTester;
+
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Tests for {@link MergingIterator}, as returned by {@link
+ * Iterators#mergeSorted}.
+ *
+ * @author Louis Wasserman
+ */
+@GwtCompatible(emulated = true)
+public class MergingIteratorTest extends TestCase {
+  private static final Function<List<Integer>, Iterator<Integer>> TO_ITERATOR =
+      new Function<List<Integer>, Iterator<Integer>>() {
+        @Override public Iterator<Integer> apply(List<Integer> list) {
+          return list.iterator();
+        }
+      };
+
+  private static Iterable<Iterator<Integer>> iterators(
+      List<List<Integer>> lists) {
+    return Lists.transform(lists, TO_ITERATOR);
+  }
+
+  private static final MergingIterator.Combiner<Integer> SUM =
+      new MergingIterator.Combiner<Integer>() {
+        @Override public Integer combine(Integer first, Integer second) {
+          return first + second;
+        }
+      };
+
+  public void testEmpty() {
+    MergingIterator<Integer> iterator = Iterators.mergeSorted(
+        ImmutableList.<Iterator<Integer>>of(), Ordering.natural());
+    assertFalse(iterator.hasNext());
+    try {
+      iterator.next();
+      fail();
+    } catch (NoSuchElementException expected) {}
+    assertEquals(0, iterator.drainTo(Lists.<Integer>newArrayList(), 5));
+  }
+
+  public void testRandomAgainstSort() {
+    Random random = new Random(0);
+    for (int sources : new int[] {1, 2, 3, 5, 8, 17, 64}) {
+      List<List<Integer>> lists = Lists.newArrayList();
+      List<Integer> all = Lists.newArrayList();
+      for (int i = 0; i < sources; i++) {
+        List<Integer> list = Lists.newArrayList();
+        int length = random.nextInt(20);
+        for (int j = 0; j < length; j++) {
+          list.add(random.nextInt(50));
+        }
+        Collections.sort(list);
+        lists.add(list);
+        all.addAll(list);
+      }
+      Collections.sort(all);
+      assertEquals(all, ImmutableList.copyOf(
+          Iterators.mergeSorted(iterators(lists), Ordering.natural())));
+      assertEquals(ImmutableSortedSet.copyOf(all).asList(),
+          ImmutableList.copyOf(Iterators.mergeSortedDistinct(
+              iterators(lists), Ordering.natural())));
+    }
+  }
+
+  public void testStableAcrossSources() {
+    // Compares only the first character, so "a1" and "a2" are equivalent.
+    Comparator<String> byFirstChar = new Comparator<String>() {
+      @Override public int compare(String a, String b) {
+        return a.charAt(0) - b.charAt(0);
+      }
+    };
+    List<Iterator<String>> iterators = ImmutableList.<Iterator<String>>of(
+        Iterators.forArray("a1", "b1", "b2"),
+        Iterators.forArray("a2", "b3"),
+        Iterators.forArray("a3", "c1"));
+    assertEquals(ImmutableList.of("a1", "a2", "a3", "b1", "b2", "b3", "c1"),
+        ImmutableList.copyOf(Iterators.mergeSorted(iterators, byFirstChar)));
+
+    iterators = ImmutableList.<Iterator<String>>of(
+        Iterators.forArray("a1", "b1", "b2"),
+        Iterators.forArray("a2", "b3"),
+        Iterators.forArray("a3", "c1"));
+    assertEquals(ImmutableList.of("a1", "b1", "c1"), ImmutableList.copyOf(
+        Iterators.mergeSortedDistinct(iterators, byFirstChar)));
+  }
+
+  public void testStableAgainstStableSort() {
+    // Compares only the first character, so many elements are equivalent.
+    Comparator<String> byFirstChar = new Comparator<String>() {
+      @Override public int compare(String a, String b) {
+        return a.charAt(0) - b.charAt(0);
+      }
+    };
+    Random random = new Random(0);
+    for (int trial = 0; trial < 50; trial++) {
+      List<List<String>> lists = Lists.newArrayList();
+      List<String> all = Lists.newArrayList();
+      for (int i = random.nextInt(40); i >= 0; i--) {
+        List<String> list = Lists.newArrayList();
+        for (int j = random.nextInt(10); j > 0; j--) {
+          list.add((char) ('a' + random.nextInt(4)) + "" + lists.size());
+        }
+        Collections.sort(list, byFirstChar);
+        lists.add(list);
+        all.addAll(list);
+      }
+      // Collections.sort is stable, and all is in the order of the sources
+      Collections.sort(all, byFirstChar);
+      assertEquals(all, ImmutableList.copyOf(
+          Iterables.mergeSorted(lists, byFirstChar)));
+    }
+  }
+
+  public void testCombining() {
+    List<List<Integer>> lists = ImmutableList.<List<Integer>>of(
+        ImmutableList.of(1, 3, 3, 7),
+        ImmutableList.<Integer>of(),
+        ImmutableList.of(3, 5, 7),
+        ImmutableList.of(7, 9));
+    assertEquals(ImmutableList.of(1, 9, 5, 21, 9), ImmutableList.copyOf(
+        Iterators.mergeSorted(iterators(lists), Ordering.natural(), SUM)));
+  }
+
+  public void testDrainTo() {
+    List<List<Integer>> lists = ImmutableList.<List<Integer>>of(
+        ImmutableList.of(1, 4, 6), ImmutableList.of(2, 3, 5));
+    MergingIterator<Integer> iterator =
+        Iterators.mergeSorted(iterators(lists), Ordering.natural());
+    List<Integer> drained = Lists.newArrayList();
+    assertEquals(0, iterator.drainTo(drained, 0));
+    assertEquals(4, iterator.drainTo(drained, 4));
+    assertEquals(ImmutableList.of(1, 2, 3, 4), drained);
+    assertEquals((Integer) 5, iterator.next());
+    assertEquals(1, iterator.drainTo(drained, 4));
+    assertEquals(ImmutableList.of(1, 2, 3, 4, 6), drained);
+    assertFalse(iterator.hasNext());
+    try {
+      iterator.drainTo(drained, -1);
+      fail();
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testDrainToCombining() {
+    List<List<Integer>> lists = ImmutableList.<List<Integer>>of(
+        ImmutableList.of(1, 2, 2), ImmutableList.of(1, 3));
+    MergingIterator<Integer> iterator =
+        Iterators.mergeSorted(iterators(lists), Ordering.natural(), SUM);
+    List<Integer> drained = Lists.newArrayList();
+    assertEquals(3, iterator.drainTo(drained, 10));
+    assertEquals(ImmutableList.of(2, 4, 3), drained);
+  }
+
+  public void testNullElements() {
+    Ordering<Integer> nullsFirst = Ordering.natural().nullsFirst();
+    List<Iterator<Integer>> iterators = Lists.newArrayList();
+    iterators.add(Iterators.forArray(null, 2));
+    iterators.add(Iterators.forArray(null, 1, 3));
+    assertEquals(Lists.newArrayList(null, null, 1, 2, 3),
+        Lists.newArrayList(Iterators.mergeSorted(iterators, nullsFirst)));
+  }
+
+  @GwtIncompatible("slow")
+  public void testIteratorTester() {
+    final List<List<Integer>> lists = ImmutableList.<List<Integer>>of(
+        ImmutableList.of(1, 4), ImmutableList.of(2, 3, 5));
+    new IteratorTester<Integer>(6, UNMODIFIABLE,
+        ImmutableList.of(1, 2, 3, 4, 5), IteratorTester.KnownOrder.KNOWN_ORDER) {
+      @Override protected Iterator<Integer> newTargetIterator() {
+        return Iterators.mergeSorted(iterators(lists), Ordering.natural());
+      }
+    }.test();
+  }
+}
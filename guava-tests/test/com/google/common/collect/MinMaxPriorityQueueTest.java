@@ -786,6 +786,129 @@ public class MinMaxPriorityQueueTest extends TestCase {
     }
   }
 
+  public void testCreate_heapifies() {
+    Random random = new Random(0);
+    for (int size = 0; size < 200; size++) {
+      List<Integer> elements = Lists.newArrayList();
+      for (int i = 0; i < size; i++) {
+        elements.add(random.nextInt(size + 1));
+      }
+      MinMaxPriorityQueue<Integer> q = MinMaxPriorityQueue.create(elements);
+      assertTrue("State " + Arrays.toString(q.toArray()), q.isIntact());
+      List<Integer> polled = Lists.newArrayList();
+      while (!q.isEmpty()) {
+        polled.add(q.pollFirst());
+        assertTrue(q.isIntact());
+      }
+      Collections.sort(elements);
+      assertEquals(elements, polled);
+    }
+  }
+
+  public void testCreate_heapifiesWithMaximumSize() {
+    Random random = new Random(0);
+    List<Integer> elements = Lists.newArrayList();
+    for (int i = 0; i < 1000; i++) {
+      elements.add(random.nextInt());
+    }
+    MinMaxPriorityQueue<Integer> q =
+        MinMaxPriorityQueue.maximumSize(37).create(elements);
+    assertEquals(37, q.size());
+    assertTrue(q.isIntact());
+    assertTrue(q.capacity() <= 38);
+    List<Integer> polled = Lists.newArrayList();
+    while (!q.isEmpty()) {
+      polled.add(q.pollFirst());
+    }
+    assertEquals(Ordering.natural().leastOf(elements, 37), polled);
+  }
+
+  public void testAddAll_heapifies() {
+    Random random = new Random(0);
+    MinMaxPriorityQueue<Integer> q = MinMaxPriorityQueue.create();
+    PriorityQueue<Integer> control = new PriorityQueue<Integer>();
+    for (int round = 0; round < 10; round++) {
+      List<Integer> batch = Lists.newArrayList();
+      // Alternate between batches smaller and larger than the queue.
+      int batchSize = (round % 2 == 0) ? q.size() + 10 : q.size() / 3;
+      for (int i = 0; i < batchSize; i++) {
+        batch.add(random.nextInt(100));
+      }
+      assertEquals(!batch.isEmpty(), q.addAll(batch));
+      control.addAll(batch);
+      assertTrue(q.isIntact());
+      assertEquals(control.size(), q.size());
+      assertEquals(control.peek(), q.peekFirst());
+      assertEquals(Collections.max(control), q.peekLast());
+    }
+  }
+
+  public void testAddAll_withMaximumSize() {
+    MinMaxPriorityQueue<Integer> q =
+        MinMaxPriorityQueue.maximumSize(5).create();
+    q.addAll(Arrays.asList(10, 3, 7));
+    q.addAll(Arrays.asList(9, 1, 8, 2, 6));
+    assertTrue(q.isIntact());
+    List<Integer> drained = Lists.newArrayList();
+    q.drainTo(drained);
+    assertEquals(Arrays.asList(1, 2, 3, 6, 7), drained);
+  }
+
+  public void testAddAll_self() {
+    MinMaxPriorityQueue<Integer> q =
+        MinMaxPriorityQueue.create(Arrays.asList(3, 1, 2));
+    q.addAll(q);
+    List<Integer> drained = Lists.newArrayList();
+    q.drainTo(drained);
+    assertEquals(Arrays.asList(1, 1, 2, 2, 3, 3), drained);
+  }
+
+  public void testAddAll_nullElement() {
+    MinMaxPriorityQueue<Integer> q = MinMaxPriorityQueue.create();
+    try {
+      q.addAll(Arrays.asList(1, null));
+      fail();
+    } catch (NullPointerException expected) {
+    }
+    assertTrue(q.isEmpty());
+  }
+
+  public void testDrainTo() {
+    Random random = new Random(0);
+    for (int max : new int[] {0, 1, 10, 49, 50, 99, 100, 1000}) {
+      List<Integer> elements = Lists.newArrayList();
+      for (int i = 0; i < 100; i++) {
+        elements.add(random.nextInt(50));
+      }
+      MinMaxPriorityQueue<Integer> q = MinMaxPriorityQueue.create(elements);
+      List<Integer> drained = Lists.newArrayList();
+      int count = Math.min(max, 100);
+      assertEquals(count, q.drainTo(drained, max));
+      assertTrue(q.isIntact());
+      assertEquals(100 - count, q.size());
+      Collections.sort(elements);
+      assertEquals(elements.subList(0, count), drained);
+      List<Integer> rest = Lists.newArrayList();
+      q.drainTo(rest);
+      assertEquals(elements.subList(count, 100), rest);
+      assertTrue(q.isEmpty());
+    }
+  }
+
+  public void testDrainTo_invalid() {
+    MinMaxPriorityQueue<Integer> q = MinMaxPriorityQueue.create();
+    try {
+      q.drainTo(q);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      q.drainTo(Lists.<Integer>newArrayList(), -1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
   public void testNullPointers() {
     NullPointerTester tester = new NullPointerTester();
     tester.testAllPublicConstructors(MinMaxPriorityQueue.class);
@@ -53,7 +53,7 @@ public class MultisetsTest extends TestCase {
     Multiset<String> multisetView = Multisets.forSet(set);
     assertTrue(multiset.equals(multisetView));
     assertTrue(multisetView.equals(multiset));
-    assertEquals(multiset.toString(), multisetView.toString());
+    assertEquals(set.toString(), multisetView.toString());
     assertEquals(multiset.hashCode(), multisetView.hashCode());
     assertEquals(multiset.size(), multisetView.size());
     assertTrue(multisetView.contains("foo"));
@@ -247,6 +247,45 @@ public class MultisetsTest extends TestCase {
     ASSERT.that(Multisets.copyHighestCountFirst(ImmutableMultiset.of())).isEmpty();
   }
 
+  public void testHighestCountFirst_topK() {
+    Multiset<String> multiset = LinkedHashMultiset.create(
+        Arrays.asList("d", "a", "a", "a", "b", "e", "c", "c", "f", "f"));
+    ASSERT.that(Multisets.copyHighestCountFirst(multiset, 0).entrySet()).isEmpty();
+    ASSERT.that(Multisets.copyHighestCountFirst(multiset, 1).entrySet()).hasContentsInOrder(
+        Multisets.immutableEntry("a", 3));
+    // ties are resolved by the iteration order of the original multiset
+    ASSERT.that(Multisets.copyHighestCountFirst(multiset, 2).entrySet()).hasContentsInOrder(
+        Multisets.immutableEntry("a", 3), Multisets.immutableEntry("c", 2));
+    ASSERT.that(Multisets.copyHighestCountFirst(multiset, 4).entrySet()).hasContentsInOrder(
+        Multisets.immutableEntry("a", 3), Multisets.immutableEntry("c", 2),
+        Multisets.immutableEntry("f", 2), Multisets.immutableEntry("d", 1));
+    assertEquals(Multisets.copyHighestCountFirst(multiset).entrySet().asList(),
+        Multisets.copyHighestCountFirst(multiset, 6).entrySet().asList());
+    assertEquals(Multisets.copyHighestCountFirst(multiset).entrySet().asList(),
+        Multisets.copyHighestCountFirst(multiset, 100).entrySet().asList());
+  }
+
+  public void testHighestCountFirst_topKMatchesFullSort() {
+    Multiset<Integer> multiset = LinkedHashMultiset.create();
+    for (int i = 0; i < 1000; i++) {
+      multiset.add((i * 7919) % 101, i % 13 + 1);
+    }
+    ImmutableList<Multiset.Entry<Integer>> sorted =
+        Multisets.copyHighestCountFirst(multiset).entrySet().asList();
+    for (int k = 0; k <= 101; k++) {
+      assertEquals(sorted.subList(0, k),
+          Multisets.copyHighestCountFirst(multiset, k).entrySet().asList());
+    }
+  }
+
+  public void testHighestCountFirst_negativeK() {
+    try {
+      Multisets.copyHighestCountFirst(HashMultiset.create(), -1);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
   @GwtIncompatible("NullPointerTester")
   public void testNullPointers() {
     NullPointerTester tester = new NullPointerTester();
@@ -42,6 +42,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
 import java.util.RandomAccess;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.annotation.Nullable;
 
@@ -577,6 +579,139 @@ public class OrderingTest extends TestCase {
     }
   }
 
+  public void testLeastOfIterator_reconcileAgainstSortAndSublist() {
+    Random random = new Random(42);
+    Ordering<Integer> ordering = Ordering.natural();
+    for (int elements : new int[] {0, 1, 10, 300}) {
+      List<Integer> list = Lists.newArrayList();
+      for (int j = 0; j < elements; j++) {
+        list.add(random.nextInt(elements));
+      }
+      List<Integer> sorted = ordering.sortedCopy(list);
+      for (int k : new int[] {0, 1, 2, 7, 50, 299, 300, 301}) {
+        List<Integer> result = ordering.leastOf(list.iterator(), k);
+        assertEquals(sorted.subList(0, Math.min(k, elements)), result);
+        assertTrue(result instanceof RandomAccess);
+      }
+    }
+  }
+
+  public void testLeastOfIterator_descendingInput() {
+    List<Integer> list = Lists.newArrayList();
+    for (int i = 1000; i > 0; i--) {
+      list.add(i);
+    }
+    assertEquals(ImmutableList.of(1, 2, 3),
+        numberOrdering.leastOf(list.iterator(), 3));
+  }
+
+  public void testLeastOfIterator_nulls() {
+    Ordering<Integer> ordering = Ordering.natural().nullsFirst();
+    List<Integer> list = Arrays.asList(3, null, 5, null, 1);
+    assertEquals(Arrays.asList(null, null, 1),
+        ordering.leastOf(list.iterator(), 3));
+  }
+
+  public void testLeastOfIterator_negativeK() {
+    try {
+      numberOrdering.leastOf(Iterators.forArray(1, 2), -1);
+      fail();
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  public void testGreatestOfIterator() {
+    List<Integer> list = Arrays.asList(3, 1, 3, 2, 4, 2, 4, 3);
+    assertEquals(Arrays.asList(4, 4, 3, 3),
+        numberOrdering.greatestOf(list.iterator(), 4));
+  }
+
+  @GwtIncompatible("java.util.concurrent")
+  public void testParallelSortedCopy() {
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      Random random = new Random(0);
+      List<Integer> list = Lists.newArrayList();
+      for (int i = 0; i < 1000; i++) {
+        list.add(random.nextInt(100));
+      }
+      for (int parallelism : new int[] {1, 3, 7, 2000}) {
+        assertEquals(numberOrdering.sortedCopy(list),
+            numberOrdering.parallelSortedCopy(list, executor, parallelism));
+      }
+      assertTrue(numberOrdering.parallelSortedCopy(
+          ImmutableList.<Integer>of(), executor, 4).isEmpty());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @GwtIncompatible("java.util.concurrent")
+  public void testParallelSortedCopy_stable() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Ordering<String> byLength = Ordering.natural().onResultOf(
+          new Function<String, Integer>() {
+            @Override public Integer apply(String input) {
+              return input.length();
+            }
+          });
+      List<String> list = ImmutableList.of(
+          "ccc", "a", "bb", "b", "aa", "c", "aaa", "d", "cc");
+      assertEquals(byLength.sortedCopy(list),
+          byLength.parallelSortedCopy(list, executor, 3));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @GwtIncompatible("java.util.concurrent")
+  public void testParallelLeastOf() {
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      Random random = new Random(0);
+      List<Integer> list = Lists.newArrayList();
+      for (int i = 0; i < 1000; i++) {
+        list.add(random.nextInt(5000));
+      }
+      List<Integer> sorted = numberOrdering.sortedCopy(list);
+      for (int k : new int[] {0, 1, 10, 1000, 1001}) {
+        assertEquals(sorted.subList(0, Math.min(k, 1000)),
+            numberOrdering.parallelLeastOf(list, k, executor, 4));
+        assertEquals(sorted.subList(0, Math.min(k, 1000)),
+            numberOrdering.parallelLeastOf(
+                Iterables.unmodifiableIterable(list), k, executor, 5));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @GwtIncompatible("java.util.concurrent")
+  public void testParallel_propagatesExceptions() {
+    Ordering<Integer> failing = new Ordering<Integer>() {
+      @Override public int compare(Integer left, Integer right) {
+        if (left == 13 || right == 13) {
+          throw new IllegalStateException();
+        }
+        return left.compareTo(right);
+      }
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Integer> list = Arrays.asList(1, 5, 13, 2, 4, 3);
+      try {
+        failing.parallelSortedCopy(list, executor, 2);
+        fail();
+      } catch (IllegalStateException expected) {}
+      try {
+        failing.parallelLeastOf(list, 1, executor, 2);
+        fail();
+      } catch (IllegalStateException expected) {}
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   public void testGreatestOf_simple() {
     /*
      * If greatestOf() promised to be implemented as reverse().leastOf(), this
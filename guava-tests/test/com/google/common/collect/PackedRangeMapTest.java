@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.GwtIncompatible;
+
+import junit.framework.TestCase;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for {@link PackedRangeMap}.
+ *
+ * @author Louis Wasserman
+ */
+@GwtIncompatible("RangeMap")
+public class PackedRangeMapTest extends TestCase {
+  public void testEmpty() {
+    PackedRangeMap<Integer, String> rangeMap =
+        PackedRangeMap.copyOfIntegers(ImmutableMap.<Range<Integer>, String>of());
+    assertTrue(rangeMap.isEmpty());
+    assertNull(rangeMap.get(0));
+    assertNull(rangeMap.getEntry(0));
+    assertTrue(rangeMap.asMapOfRanges().isEmpty());
+  }
+
+  public void testGet() {
+    PackedRangeMap<Long, String> rangeMap = PackedRangeMap.copyOfLongs(ImmutableMap.of(
+        Ranges.atLeast(100L), "high", Ranges.closed(1L, 3L), "low", Ranges.open(3L, 5L), "mid",
+        Ranges.closedOpen(50L, 50L), "empty"));
+    assertEquals("low", rangeMap.get(1L));
+    assertEquals("low", rangeMap.get(3));
+    assertEquals("mid", rangeMap.get(4L));
+    assertNull(rangeMap.get(5L));
+    assertNull(rangeMap.get(50L));
+    assertEquals("high", rangeMap.get(Long.MAX_VALUE));
+    assertEquals("high", rangeMap.apply(100L));
+    assertEquals(Maps.immutableEntry(Ranges.closedOpen(4L, 5L), "mid"), rangeMap.getEntry(4L));
+    assertEquals(ImmutableList.of(Ranges.closedOpen(1L, 4L), Ranges.closedOpen(4L, 5L),
+        Ranges.atLeast(100L)), rangeMap.asMapOfRanges().keySet().asList());
+    assertEquals("{[1‥4)=low, [4‥5)=mid, [100‥+∞)=high}", rangeMap.toString());
+  }
+
+  public void testMatchesRangeMap() {
+    Random random = new Random(0);
+    for (int trial = 0; trial < 200; trial++) {
+      Map<Range<Integer>, Integer> ranges = Maps.newHashMap();
+      RangeMap<Integer, Integer> expected = RangeMap.create();
+      // Disjoint ranges, some adjacent, added to the HashMap in no particular order.
+      for (int lower = random.nextInt(5); lower < 100; lower += random.nextInt(10) + 1) {
+        Range<Integer> range = Ranges.closed(lower, lower + random.nextInt(5));
+        ranges.put(range, lower);
+        expected.put(range, lower);
+        lower = range.upperEndpoint();
+      }
+      PackedRangeMap<Integer, Integer> rangeMap = PackedRangeMap.copyOfIntegers(ranges);
+      for (int key = -5; key < 110; key++) {
+        assertEquals(expected.get(key), rangeMap.get(key));
+        assertEquals(expected.get(key), rangeMap.get((long) key));
+      }
+      assertEquals(rangeMap, PackedRangeMap.copyOfIntegers(ranges));
+      assertEquals(rangeMap.hashCode(), PackedRangeMap.copyOfIntegers(ranges).hashCode());
+    }
+  }
+
+  public void testOverlapping() {
+    try {
+      PackedRangeMap.copyOfIntegers(ImmutableMap.of(
+          Ranges.closed(5, 8), "a", Ranges.closed(1, 5), "b"));
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+  }
+
+  public void testNullValue() {
+    Map<Range<Integer>, String> ranges = Maps.newHashMap();
+    ranges.put(Ranges.closed(1, 2), null);
+    try {
+      PackedRangeMap.copyOfIntegers(ranges);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static org.junit.contrib.truth.Truth.ASSERT;
+
+import com.google.common.annotations.GwtIncompatible;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link PackedRangeSet}.
+ *
+ * @author Louis Wasserman
+ */
+@GwtIncompatible("TreeRangeSet")
+public class PackedRangeSetTest extends AbstractRangeSetTest {
+  public void testEmpty() {
+    PackedRangeSet<Integer> rangeSet =
+        PackedRangeSet.copyOfIntegers(ImmutableList.<Range<Integer>>of());
+    testInvariants(rangeSet);
+    assertTrue(rangeSet.isEmpty());
+    assertFalse(rangeSet.contains(0));
+    assertNull(rangeSet.rangeContaining(0));
+    ASSERT.that(rangeSet.complement().asRanges()).hasContentsInOrder(
+        Ranges.atLeast(Integer.MIN_VALUE));
+  }
+
+  public void testCoalescesOverlappingAndAdjacent() {
+    PackedRangeSet<Integer> rangeSet = PackedRangeSet.copyOfIntegers(ImmutableList.of(
+        Ranges.closed(4, 6), Ranges.closed(1, 3), Ranges.open(10, 12), Ranges.closed(5, 8),
+        Ranges.closedOpen(20, 20)));
+    testInvariants(rangeSet);
+    ASSERT.that(rangeSet.asRanges()).hasContentsInOrder(
+        Ranges.closedOpen(1, 9), Ranges.closedOpen(11, 12));
+    ASSERT.that(rangeSet.complement().asRanges()).hasContentsInOrder(
+        Ranges.closedOpen(Integer.MIN_VALUE, 1), Ranges.closedOpen(9, 11),
+        Ranges.atLeast(12));
+    assertSame(rangeSet, rangeSet.complement().complement());
+  }
+
+  public void testLookups() {
+    PackedRangeSet<Long> rangeSet = PackedRangeSet.copyOfLongs(ImmutableList.of(
+        Ranges.closed(1L, 3L), Ranges.greaterThan(100L), Ranges.lessThan(-5L)));
+    assertTrue(rangeSet.contains(1L));
+    assertTrue(rangeSet.contains(3));
+    assertFalse(rangeSet.contains(4L));
+    assertFalse(rangeSet.contains(100));
+    assertTrue(rangeSet.contains(Long.MAX_VALUE));
+    assertTrue(rangeSet.contains(Long.MIN_VALUE));
+    assertFalse(rangeSet.contains(-5));
+    assertEquals(Ranges.closedOpen(1L, 4L), rangeSet.rangeContaining(2L));
+    assertEquals(Ranges.atLeast(101L), rangeSet.rangeContaining(200L));
+    assertNull(rangeSet.rangeContaining(50L));
+    assertTrue(rangeSet.encloses(Ranges.open(0L, 4L)));
+    assertTrue(rangeSet.encloses(Ranges.atLeast(1000L)));
+    assertFalse(rangeSet.encloses(Ranges.closed(2L, 4L)));
+    assertFalse(rangeSet.encloses(Ranges.<Long>all()));
+    assertTrue(rangeSet.asRanges().contains(Ranges.closedOpen(1L, 4L)));
+    assertFalse(rangeSet.asRanges().contains(Ranges.closed(1L, 3L)));
+    assertFalse(rangeSet.asRanges().contains(Ranges.closedOpen(1, 4)));
+    assertFalse(rangeSet.asRanges().contains("foo"));
+  }
+
+  public void testExtremes() {
+    PackedRangeSet<Long> rangeSet = PackedRangeSet.copyOfLongs(ImmutableList.of(
+        Ranges.greaterThan(Long.MAX_VALUE), Ranges.<Long>all()));
+    ASSERT.that(rangeSet.asRanges()).hasContentsInOrder(Ranges.atLeast(Long.MIN_VALUE));
+    assertTrue(rangeSet.complement().isEmpty());
+    assertTrue(rangeSet.contains(Long.MIN_VALUE));
+    assertTrue(rangeSet.contains(Long.MAX_VALUE));
+  }
+
+  public void testMatchesTreeRangeSet() {
+    Random random = new Random(0);
+    for (int trial = 0; trial < 200; trial++) {
+      List<Range<Integer>> ranges = Lists.newArrayList();
+      TreeRangeSet<Integer> expected = TreeRangeSet.create();
+      int count = random.nextInt(20);
+      for (int i = 0; i < count; i++) {
+        int lower = random.nextInt(100);
+        Range<Integer> range = Ranges.closed(lower, lower + random.nextInt(10));
+        ranges.add(range);
+        expected.add(range.canonical(DiscreteDomains.integers()));
+      }
+      PackedRangeSet<Integer> rangeSet = PackedRangeSet.copyOfIntegers(ranges);
+      testInvariants(rangeSet);
+      assertEquals(expected, rangeSet);
+      assertEquals(expected.hashCode(), rangeSet.hashCode());
+      for (int value = -5; value < 115; value++) {
+        assertEquals(expected.contains(value), rangeSet.contains(value));
+        assertEquals(expected.rangeContaining(value), rangeSet.rangeContaining(value));
+        assertEquals(!expected.contains(value), rangeSet.complement().contains(value));
+        Range<Integer> query = Ranges.closed(value, value + 3);
+        assertEquals(expected.encloses(query), rangeSet.encloses(query));
+      }
+    }
+  }
+
+  public void testFloorIndex() {
+    long[] sorted = {-3, 0, 0, 5, 9};
+    assertEquals(-1, PackedRangeSet.floorIndex(new long[0], 0));
+    assertEquals(-1, PackedRangeSet.floorIndex(sorted, -4));
+    assertEquals(0, PackedRangeSet.floorIndex(sorted, -3));
+    assertEquals(0, PackedRangeSet.floorIndex(sorted, -1));
+    assertEquals(2, PackedRangeSet.floorIndex(sorted, 0));
+    assertEquals(2, PackedRangeSet.floorIndex(sorted, 4));
+    assertEquals(3, PackedRangeSet.floorIndex(sorted, 5));
+    assertEquals(4, PackedRangeSet.floorIndex(sorted, 9));
+    assertEquals(4, PackedRangeSet.floorIndex(sorted, Long.MAX_VALUE));
+  }
+}
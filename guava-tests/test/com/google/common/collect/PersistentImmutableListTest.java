@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.collect.testing.ListTestSuiteBuilder;
+import com.google.common.collect.testing.TestStringListGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link PersistentImmutableList}.
+ *
+ * @author Louis Wasserman
+ */
+public class PersistentImmutableListTest extends TestCase {
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTestSuite(PersistentImmutableListTest.class);
+
+    suite.addTest(ListTestSuiteBuilder.using(new TestStringListGenerator() {
+          @Override protected List<String> create(String[] elements) {
+            return PersistentImmutableList.copyOf(elements);
+          }
+        })
+        .named("PersistentImmutableList")
+        .withFeatures(
+            CollectionSize.ANY,
+            CollectionFeature.SERIALIZABLE,
+            CollectionFeature.ALLOWS_NULL_QUERIES)
+        .createTestSuite());
+
+    return suite;
+  }
+
+  public void testAppend() {
+    // enough elements for three levels of the trie
+    int size = 32 * 32 * 32 + 100;
+    List<Integer> expected = Lists.newArrayList();
+    PersistentImmutableList<Integer> list = PersistentImmutableList.of();
+    for (int i = 0; i < size; i++) {
+      PersistentImmutableList<Integer> previous = list;
+      list = list.append(i);
+      expected.add(i);
+      assertEquals(i, previous.size());
+      assertEquals(i + 1, list.size());
+      assertEquals(Integer.valueOf(i), list.get(i));
+    }
+    assertEquals(expected, list);
+  }
+
+  public void testWith() {
+    Random random = new Random(0);
+    List<Integer> expected = Lists.newArrayList();
+    PersistentImmutableList<Integer> list = PersistentImmutableList.of();
+    for (int i = 0; i < 5000; i++) {
+      list = list.append(i);
+      expected.add(i);
+    }
+    PersistentImmutableList<Integer> original = list;
+    for (int i = 0; i < 5000; i++) {
+      int index = random.nextInt(expected.size());
+      expected.set(index, -i);
+      list = list.with(index, -i);
+      assertEquals(Integer.valueOf(-i), list.get(index));
+    }
+    assertEquals(expected, list);
+    for (int i = 0; i < 5000; i++) {
+      assertEquals(Integer.valueOf(i), original.get(i));
+    }
+    assertSame(list, list.with(0, list.get(0)));
+  }
+
+  public void testWithOutOfBounds() {
+    PersistentImmutableList<String> list =
+        PersistentImmutableList.<String>of().append("a");
+    try {
+      list.with(1, "b");
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+    try {
+      list.append(null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  public void testSerializationKeepsType() {
+    SerializableTester.reserializeAndAssert(
+        PersistentImmutableList.copyOf(ImmutableList.of("a", "b", "c")));
+  }
+}
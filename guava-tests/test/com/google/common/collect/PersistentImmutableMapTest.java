@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.collect.testing.MapTestSuiteBuilder;
+import com.google.common.collect.testing.SetTestSuiteBuilder;
+import com.google.common.collect.testing.TestStringMapGenerator;
+import com.google.common.collect.testing.TestStringSetGenerator;
+import com.google.common.collect.testing.features.CollectionFeature;
+import com.google.common.collect.testing.features.CollectionSize;
+import com.google.common.testing.SerializableTester;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tests for {@link PersistentImmutableMap} and {@link PersistentImmutableSet}.
+ *
+ * @author Louis Wasserman
+ */
+public class PersistentImmutableMapTest extends TestCase {
+  public static Test suite() {
+    TestSuite suite = new TestSuite();
+    suite.addTestSuite(PersistentImmutableMapTest.class);
+
+    suite.addTest(MapTestSuiteBuilder.using(new TestStringMapGenerator() {
+          @Override protected Map<String, String> create(
+              Entry<String, String>[] entries) {
+            PersistentImmutableMap<String, String> map =
+                PersistentImmutableMap.of();
+            for (Entry<String, String> entry : entries) {
+              map = map.with(entry.getKey(), entry.getValue());
+            }
+            return map;
+          }
+        })
+        .named("PersistentImmutableMap")
+        .withFeatures(
+            CollectionSize.ANY,
+            CollectionFeature.SERIALIZABLE_INCLUDING_VIEWS,
+            CollectionFeature.ALLOWS_NULL_QUERIES)
+        .createTestSuite());
+
+    suite.addTest(SetTestSuiteBuilder.using(new TestStringSetGenerator() {
+          @Override protected Set<String> create(String[] elements) {
+            return PersistentImmutableSet.copyOf(elements);
+          }
+        })
+        .named("PersistentImmutableSet")
+        .withFeatures(
+            CollectionSize.ANY,
+            CollectionFeature.SERIALIZABLE,
+            CollectionFeature.ALLOWS_NULL_QUERIES)
+        .createTestSuite());
+
+    return suite;
+  }
+
+  /** A key whose hash code is chosen, so that keys can be made to collide. */
+  private static final class Key {
+    final int hash;
+    final int id;
+
+    Key(int hash, int id) {
+      this.hash = hash;
+      this.id = id;
+    }
+
+    @Override public boolean equals(Object obj) {
+      return obj instanceof Key && ((Key) obj).hash == hash
+          && ((Key) obj).id == id;
+    }
+
+    @Override public int hashCode() {
+      return hash;
+    }
+  }
+
+  public void testWithLeavesOriginalUnchanged() {
+    PersistentImmutableMap<Integer, String> empty = PersistentImmutableMap.of();
+    PersistentImmutableMap<Integer, String> one = empty.with(1, "a");
+    PersistentImmutableMap<Integer, String> two = one.with(2, "b");
+    PersistentImmutableMap<Integer, String> replaced = two.with(1, "c");
+    assertTrue(empty.isEmpty());
+    assertEquals(ImmutableMap.of(1, "a"), one);
+    assertEquals(ImmutableMap.of(1, "a", 2, "b"), two);
+    assertEquals(ImmutableMap.of(1, "c", 2, "b"), replaced);
+    assertEquals(ImmutableMap.of(2, "b"), replaced.without(1));
+    assertEquals(ImmutableMap.of(1, "c", 2, "b"), replaced);
+  }
+
+  public void testNoOpUpdatesReturnSameMap() {
+    String value = "a";
+    PersistentImmutableMap<Integer, String> map =
+        PersistentImmutableMap.<Integer, String>of().with(1, value);
+    assertSame(map, map.with(1, value));
+    assertSame(map, map.without(2));
+    assertSame(map, map.without(null));
+    assertSame(PersistentImmutableMap.of(), map.without(1));
+  }
+
+  public void testNulls() {
+    PersistentImmutableMap<String, String> map = PersistentImmutableMap.of();
+    try {
+      map.with(null, "a");
+      fail();
+    } catch (NullPointerException expected) {
+    }
+    try {
+      map.with("a", null);
+      fail();
+    } catch (NullPointerException expected) {
+    }
+  }
+
+  public void testCollidingKeys() {
+    PersistentImmutableMap<Key, Integer> map = PersistentImmutableMap.of();
+    Map<Key, Integer> expected = Maps.newHashMap();
+    for (int id = 0; id < 5; id++) {
+      for (int hash : new int[] {0, 32, 1 << 30, -1}) {
+        Key key = new Key(hash, id);
+        map = map.with(key, id);
+        expected.put(key, id);
+        assertEquals(expected, map);
+      }
+    }
+    for (Key key : ImmutableSet.copyOf(expected.keySet())) {
+      map = map.without(key);
+      expected.remove(key);
+      assertEquals(expected, map);
+      assertNull(map.get(key));
+    }
+    assertTrue(map.isEmpty());
+  }
+
+  public void testRandomUpdates() {
+    Random random = new Random(0);
+    Map<Integer, Integer> expected = Maps.newHashMap();
+    PersistentImmutableMap<Integer, Integer> map = PersistentImmutableMap.of();
+    for (int i = 0; i < 20000; i++) {
+      Integer key = random.nextInt(3000);
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        map = map.without(key);
+      } else {
+        expected.put(key, i);
+        map = map.with(key, i);
+      }
+      assertEquals(expected.size(), map.size());
+      assertEquals(expected.get(key), map.get(key));
+    }
+    assertEquals(expected, map);
+    assertEquals(expected.keySet(), map.keySet());
+    assertEquals(map, PersistentImmutableMap.copyOf(expected));
+  }
+
+  public void testSetWithAndWithout() {
+    PersistentImmutableSet<String> set = PersistentImmutableSet.of();
+    PersistentImmutableSet<String> ab = set.with("a").with("b");
+    assertSame(ab, ab.with("a"));
+    assertEquals(ImmutableSet.of("a", "b"), ab);
+    assertEquals(ImmutableSet.of("b"), ab.without("a"));
+    assertEquals(ImmutableSet.of("a", "b"), ab);
+    assertSame(PersistentImmutableSet.of(), ab.without("a").without("b"));
+  }
+
+  public void testSerializationKeepsType() {
+    PersistentImmutableMap<String, Integer> map =
+        PersistentImmutableMap.<String, Integer>of().with("a", 1).with("b", 2);
+    SerializableTester.reserializeAndAssert(map);
+    SerializableTester.reserializeAndAssert(
+        PersistentImmutableSet.copyOf(map.keySet()));
+  }
+}
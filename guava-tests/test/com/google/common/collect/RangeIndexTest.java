@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static org.junit.contrib.truth.Truth.ASSERT;
+
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.Function;
+import com.google.common.testing.NullPointerTester;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+
+/**
+ * Tests for {@link RangeIndex}.
+ *
+ * @author Louis Wasserman
+ */
+@GwtCompatible(emulated = true)
+public class RangeIndexTest extends TestCase {
+  public void testEmpty() {
+    RangeIndex<Integer, String> index = RangeIndex.<Integer, String>builder().build();
+    assertTrue(index.isEmpty());
+    assertEquals(0, index.size());
+    assertTrue(index.valuesContaining(0).isEmpty());
+    assertTrue(index.entriesOverlapping(Ranges.<Integer>all()).isEmpty());
+  }
+
+  public void testContaining() {
+    RangeIndex<Integer, String> index = RangeIndex.<Integer, String>builder()
+        .put(Ranges.closed(5, 10), "b")
+        .put(Ranges.closed(1, 3), "a")
+        .put(Ranges.atLeast(8), "c")
+        .put(Ranges.closed(5, 10), "d")
+        .put(Ranges.closedOpen(4, 4), "empty")
+        .build();
+    assertEquals(5, index.size());
+    ASSERT.that(index.valuesContaining(0)).isEmpty();
+    ASSERT.that(index.valuesContaining(3)).hasContentsInOrder("a");
+    ASSERT.that(index.valuesContaining(4)).isEmpty();
+    ASSERT.that(index.valuesContaining(9)).hasContentsInOrder("b", "d", "c");
+    ASSERT.that(index.valuesContaining(11)).hasContentsInOrder("c");
+    ASSERT.that(index.entriesContaining(1)).hasContentsInOrder(
+        Maps.immutableEntry(Ranges.closed(1, 3), "a"));
+    assertEquals(Maps.immutableEntry(Ranges.closedOpen(4, 4), "empty"),
+        index.entries().get(4));
+  }
+
+  public void testOverlapping() {
+    RangeIndex<Integer, String> index = RangeIndex.copyOf(ImmutableListMultimap.of(
+        Ranges.closedOpen(1, 3), "a", Ranges.open(3, 6), "b", Ranges.lessThan(0), "c"));
+    ASSERT.that(index.valuesOverlapping(Ranges.closed(3, 3))).isEmpty();
+    ASSERT.that(index.valuesOverlapping(Ranges.closedOpen(3, 4))).hasContentsInOrder("b");
+    ASSERT.that(index.valuesOverlapping(Ranges.closed(2, 4))).hasContentsInOrder("a", "b");
+    ASSERT.that(index.valuesOverlapping(Ranges.closedOpen(0, 1))).isEmpty();
+    ASSERT.that(index.valuesOverlapping(Ranges.<Integer>all())).hasContentsInOrder(
+        "c", "a", "b");
+    ASSERT.that(index.valuesOverlapping(Ranges.closedOpen(2, 2))).isEmpty();
+  }
+
+  public void testMatchesLinearScan() {
+    Random random = new Random(0);
+    for (int trial = 0; trial < 100; trial++) {
+      RangeIndex.Builder<Integer, Integer> builder = RangeIndex.builder();
+      List<Range<Integer>> ranges = Lists.newArrayList();
+      int count = random.nextInt(50);
+      for (int i = 0; i < count; i++) {
+        int lower = random.nextInt(100);
+        Range<Integer> range = Ranges.closedOpen(lower, lower + random.nextInt(20));
+        ranges.add(range);
+        builder.put(range, i);
+      }
+      RangeIndex<Integer, Integer> index = builder.build();
+      for (int lower = -5; lower < 125; lower++) {
+        assertEquals(scan(ranges, Ranges.singleton(lower)),
+            ImmutableMultiset.copyOf(index.valuesContaining(lower)));
+        Range<Integer> query = Ranges.closed(lower, lower + random.nextInt(10));
+        assertEquals(scan(ranges, query),
+            ImmutableMultiset.copyOf(index.valuesOverlapping(query)));
+        for (Entry<Range<Integer>, Integer> entry : index.entriesOverlapping(query)) {
+          assertEquals(ranges.get(entry.getValue()), entry.getKey());
+        }
+      }
+      assertTrue(Ordering.natural().isOrdered(
+          Lists.transform(index.entriesContaining(50),
+              new Function<Entry<Range<Integer>, Integer>, Integer>() {
+                @Override
+                public Integer apply(Entry<Range<Integer>, Integer> entry) {
+                  return entry.getKey().lowerEndpoint();
+                }
+              })));
+    }
+  }
+
+  private static ImmutableMultiset<Integer> scan(
+      List<Range<Integer>> ranges, Range<Integer> query) {
+    ImmutableMultiset.Builder<Integer> builder = ImmutableMultiset.builder();
+    for (int i = 0; i < ranges.size(); i++) {
+      Range<Integer> range = ranges.get(i);
+      if (range.isConnected(query) && !range.intersection(query).isEmpty()) {
+        builder.add(i);
+      }
+    }
+    return builder.build();
+  }
+
+  public void testEquals() {
+    RangeIndex<Integer, String> index =
+        RangeIndex.copyOf(ImmutableListMultimap.of(Ranges.closed(1, 2), "a"));
+    assertEquals(index, RangeIndex.copyOf(ImmutableListMultimap.of(Ranges.closed(1, 2), "a")));
+    assertEquals(index.hashCode(),
+        RangeIndex.copyOf(ImmutableListMultimap.of(Ranges.closed(1, 2), "a")).hashCode());
+    assertFalse(index.equals(RangeIndex.<Integer, String>builder().build()));
+  }
+
+  @GwtIncompatible("NullPointerTester")
+  public void testNullPointers() {
+    NullPointerTester tester = new NullPointerTester();
+    tester.testAllPublicStaticMethods(RangeIndex.class);
+    tester.testAllPublicInstanceMethods(RangeIndex.builder());
+    tester.testAllPublicInstanceMethods(RangeIndex.builder().build());
+  }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static org.junit.contrib.truth.Truth.ASSERT;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@code ReadWriteLocked#multimap}.
+ *
+ * @author Louis Wasserman
+ */
+public class ReadWriteLockedMultimapTest extends AbstractSetMultimapTest {
+
+  @Override protected Multimap<String, Integer> create() {
+    TestMultimap<String, Integer> inner = new TestMultimap<String, Integer>();
+    return ReadWriteLocked.multimap(
+        inner, new ReadWriteLocked.Guard(inner.lock));
+  }
+
+  private static final class TestMultimap<K, V> extends ForwardingMultimap<K, V>
+      implements Serializable {
+    final Multimap<K, V> delegate = HashMultimap.create();
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override protected Multimap<K, V> delegate() {
+      return delegate;
+    }
+
+    void assertReadLocked() {
+      assertTrue(lock.getReadHoldCount() > 0
+          || lock.isWriteLockedByCurrentThread());
+    }
+
+    void assertWriteLocked() {
+      assertTrue(lock.isWriteLockedByCurrentThread());
+    }
+
+    @Override public String toString() {
+      assertReadLocked();
+      return super.toString();
+    }
+
+    @Override public boolean equals(@Nullable Object o) {
+      assertReadLocked();
+      return super.equals(o);
+    }
+
+    @Override public int hashCode() {
+      assertReadLocked();
+      return super.hashCode();
+    }
+
+    @Override public int size() {
+      assertReadLocked();
+      return super.size();
+    }
+
+    @Override public boolean isEmpty() {
+      assertReadLocked();
+      return super.isEmpty();
+    }
+
+    @Override public boolean containsKey(@Nullable Object key) {
+      assertReadLocked();
+      return super.containsKey(key);
+    }
+
+    @Override public boolean containsValue(@Nullable Object value) {
+      assertReadLocked();
+      return super.containsValue(value);
+    }
+
+    @Override public boolean containsEntry(@Nullable Object key,
+        @Nullable Object value) {
+      assertReadLocked();
+      return super.containsEntry(key, value);
+    }
+
+    @Override public Collection<V> get(@Nullable K key) {
+      assertReadLocked();
+      return super.get(key);
+    }
+
+    @Override public boolean put(K key, V value) {
+      assertWriteLocked();
+      return super.put(key, value);
+    }
+
+    @Override public boolean putAll(@Nullable K key,
+        Iterable<? extends V> values) {
+      assertWriteLocked();
+      return super.putAll(key, values);
+    }
+
+    @Override public boolean putAll(Multimap<? extends K, ? extends V> map) {
+      assertWriteLocked();
+      return super.putAll(map);
+    }
+
+    @Override public Collection<V> replaceValues(@Nullable K key,
+        Iterable<? extends V> values) {
+      assertWriteLocked();
+      return super.replaceValues(key, values);
+    }
+
+    @Override public boolean remove(@Nullable Object key,
+        @Nullable Object value) {
+      assertWriteLocked();
+      return super.remove(key, value);
+    }
+
+    @Override public Collection<V> removeAll(@Nullable Object key) {
+      assertWriteLocked();
+      return super.removeAll(key);
+    }
+
+    @Override public void clear() {
+      assertWriteLocked();
+      super.clear();
+    }
+
+    @Override public Set<K> keySet() {
+      assertReadLocked();
+      return super.keySet();
+    }
+
+    @Override public Multiset<K> keys() {
+      assertReadLocked();
+      return super.keys();
+    }
+
+    @Override public Collection<V> values() {
+      assertReadLocked();
+      return super.values();
+    }
+
+    @Override public Collection<Map.Entry<K, V>> entries() {
+      assertReadLocked();
+      return super.entries();
+    }
+
+    @Override public Map<K, Collection<V>> asMap() {
+      assertReadLocked();
+      return super.asMap();
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  public void testReadWriteLockedListMultimap() {
+    ListMultimap<String, Integer> multimap
+        = Multimaps.readWriteLockedListMultimap(
+            ArrayListMultimap.<String, Integer>create(),
+            new ReentrantReadWriteLock());
+    multimap.putAll("foo", Arrays.asList(3, -1, 2, 4, 1));
+    multimap.putAll("bar", Arrays.asList(1, 2, 3, 1));
+    ASSERT.that(multimap.removeAll("foo")).hasContentsInOrder(3, -1, 2, 4, 1);
+    assertFalse(multimap.containsKey("foo"));
+    ASSERT.that(multimap.replaceValues("bar", Arrays.asList(6, 5)))
+        .hasContentsInOrder(1, 2, 3, 1);
+    ASSERT.that(multimap.get("bar")).hasContentsInOrder(6, 5);
+    assertTrue(multimap.get("bar") instanceof RandomAccess);
+  }
+
+  public void testReadWriteLockedSetMultimap() {
+    SetMultimap<String, Integer> multimap
+        = Multimaps.readWriteLockedSetMultimap(
+            LinkedHashMultimap.<String, Integer>create(),
+            new ReentrantReadWriteLock());
+    multimap.putAll("foo", Arrays.asList(3, -1, 2, 4, 1, 3));
+    ASSERT.that(multimap.get("foo")).hasContentsInOrder(3, -1, 2, 4, 1);
+    ASSERT.that(multimap.replaceValues("foo", Arrays.asList(6, 5)))
+        .hasContentsInOrder(3, -1, 2, 4, 1);
+    assertEquals(2, multimap.entries().size());
+  }
+
+  public void testReadWriteLockedSortedSetMultimap() {
+    SortedSetMultimap<String, Integer> multimap
+        = Multimaps.optimisticReadWriteLockedSortedSetMultimap(
+            TreeMultimap.<String, Integer>create(),
+            new ReentrantReadWriteLock());
+    multimap.putAll("foo", Arrays.asList(3, -1, 2, 4, 1, 3));
+    SortedSet<Integer> values = multimap.get("foo");
+    ASSERT.that(values).hasContentsInOrder(-1, 1, 2, 3, 4);
+    assertEquals(Ordering.natural(), multimap.valueComparator());
+    assertEquals(Ordering.natural(), values.comparator());
+    ASSERT.that(values.subSet(1, 4)).hasContentsInOrder(1, 2, 3);
+    values.headSet(2).clear();
+    ASSERT.that(multimap.get("foo")).hasContentsInOrder(2, 3, 4);
+    assertEquals(2, (int) values.first());
+    assertEquals(4, (int) values.tailSet(3).last());
+    ASSERT.that(multimap.replaceValues("foo", Arrays.asList(6, 5)))
+        .hasContentsInOrder(2, 3, 4);
+    ASSERT.that(multimap.removeAll("foo")).hasContentsInOrder(5, 6);
+    assertTrue(multimap.isEmpty());
+  }
+
+  public void testOptimisticIteratorRemoveAdvancesVersion() {
+    ReadWriteLocked.OptimisticGuard guard =
+        new ReadWriteLocked.OptimisticGuard(new ReentrantReadWriteLock());
+    Multimap<String, Integer> multimap = ReadWriteLocked.multimap(
+        HashMultimap.<String, Integer>create(), guard);
+    multimap.putAll("foo", Arrays.asList(1, 2));
+    long stamp = guard.tryOptimisticRead();
+    assertTrue(guard.validate(stamp));
+    Iterator<Integer> iterator = multimap.get("foo").iterator();
+    iterator.next();
+    iterator.remove();
+    assertFalse(guard.validate(stamp));
+    assertEquals(1, multimap.size());
+    assertTrue(guard.validate(guard.tryOptimisticRead()));
+  }
+
+  public void testOptimisticReadsDuringWrites() throws InterruptedException {
+    final Multimap<Integer, Integer> multimap =
+        Multimaps.optimisticReadWriteLockedMultimap(
+            HashMultimap.<Integer, Integer>create(),
+            new ReentrantReadWriteLock());
+    multimap.put(-1, -1);
+    final AtomicBoolean done = new AtomicBoolean();
+    final AtomicInteger misses = new AtomicInteger();
+    Thread writer = new Thread() {
+      @Override public void run() {
+        for (int i = 0; i < 20000; i++) {
+          multimap.put(i % 500, i);
+          if (i >= 1000) {
+            multimap.remove((i - 1000) % 500, i - 1000);
+          }
+        }
+        done.set(true);
+      }
+    };
+    Thread reader = new Thread() {
+      @Override public void run() {
+        while (!done.get()) {
+          if (!multimap.containsEntry(-1, -1)
+              || !multimap.containsKey(-1)
+              || multimap.isEmpty()) {
+            misses.incrementAndGet();
+          }
+        }
+      }
+    };
+    writer.start();
+    reader.start();
+    writer.join();
+    reader.join();
+    assertEquals(0, misses.get());
+    assertEquals(1001, multimap.size());
+  }
+}
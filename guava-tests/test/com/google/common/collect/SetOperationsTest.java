@@ -21,6 +21,8 @@ import static java.util.Arrays.asList;
 
 import com.google.common.annotations.GwtCompatible;
 import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.Predicate;
+import com.google.common.collect.testing.AnEnum;
 import com.google.common.collect.testing.SetTestSuiteBuilder;
 import com.google.common.collect.testing.TestStringSetGenerator;
 import com.google.common.collect.testing.features.CollectionFeature;
@@ -30,6 +32,7 @@ import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
 
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -348,5 +351,114 @@ public class SetOperationsTest extends TestCase {
       assertEquals(3, immut.size());
       assertEquals(3, mut.size());
     }
+
+    public void testNestedImmutableViews() {
+      ImmutableSet<Integer> a = ImmutableSet.of(1, 2, 3, 4);
+      ImmutableSet<Integer> b = ImmutableSet.of(3, 4, 5, 6);
+      ImmutableSet<Integer> c = ImmutableSet.of(2, 4, 6, 8);
+      Sets.SetView<Integer> view =
+          Sets.difference(Sets.union(a, b), Sets.intersection(b, c));
+      assertEquals(4, view.size());
+      ImmutableSet<Integer> copy = view.immutableCopy();
+      assertEquals(ImmutableList.of(1, 2, 3, 5), copy.asList());
+      assertSame(copy, view.immutableCopy());
+      assertEquals(ImmutableList.of(1, 2, 3, 5), ImmutableList.copyOf(view));
+      assertFalse(view.isEmpty());
+      assertTrue(view.contains(5));
+      assertFalse(view.contains(6));
+    }
+
+    public void testMutableViewsAreNotCached() {
+      Set<Integer> mutable = Sets.newHashSet(1, 2);
+      Sets.SetView<Integer> view =
+          Sets.intersection(ImmutableSet.of(1, 2, 3), mutable);
+      assertEquals(ImmutableSet.of(1, 2), view.immutableCopy());
+      mutable.remove(1);
+      assertEquals(ImmutableSet.of(2), view.immutableCopy());
+      assertEquals(1, view.size());
+    }
+
+    public void testIntersection_smallerSecondSet() {
+      Set<Integer> large = Sets.newLinkedHashSet();
+      for (int i = 100; i > 0; i--) {
+        large.add(i);
+      }
+      Set<Integer> small = Sets.newHashSet(3, 50, 200);
+      assertEquals(2, Sets.intersection(large, small).size());
+      assertEquals(98, Sets.difference(large, small).size());
+      assertFalse(Sets.intersection(large, small).isEmpty());
+      assertTrue(Sets.intersection(large, Sets.newHashSet(0, 200)).isEmpty());
+      assertEquals(ImmutableList.of(50, 3),
+          Sets.intersection(large, small).immutableCopy().asList());
+    }
+
+    public void testEnumSets() {
+      Set<AnEnum> set1 = EnumSet.of(AnEnum.A, AnEnum.C, AnEnum.E);
+      Set<AnEnum> set2 = Sets.immutableEnumSet(AnEnum.B, AnEnum.C, AnEnum.E);
+      Sets.SetView<AnEnum> intersection = Sets.intersection(set1, set2);
+      assertEquals(2, intersection.size());
+      assertFalse(intersection.isEmpty());
+      assertEquals(ImmutableList.of(AnEnum.C, AnEnum.E),
+          intersection.immutableCopy().asList());
+      Sets.SetView<AnEnum> difference = Sets.difference(set1, set2);
+      assertEquals(1, difference.size());
+      assertEquals(ImmutableSet.of(AnEnum.A), difference.immutableCopy());
+      assertTrue(Sets.difference(set1, set1).immutableCopy().isEmpty());
+      assertTrue(Sets.intersection(set1, EnumSet.of(AnEnum.B)).isEmpty());
+
+      set1.add(AnEnum.B);
+      set1.remove(AnEnum.A);
+      assertEquals(3, intersection.size());
+      assertTrue(difference.isEmpty());
+    }
+
+    public void testImmutableSortedSets() {
+      ImmutableSortedSet<String> set1 = ImmutableSortedSet
+          .<String>reverseOrder()
+          .add("a", "b", "c", "d", "e")
+          .build();
+      ImmutableSortedSet<String> set2 = ImmutableSortedSet
+          .<String>reverseOrder()
+          .add("b", "d", "f")
+          .build();
+      Sets.SetView<String> intersection = Sets.intersection(set1, set2);
+      assertEquals(2, intersection.size());
+      ImmutableSet<String> copy = intersection.immutableCopy();
+      assertTrue(copy instanceof ImmutableSortedSet);
+      assertEquals(ImmutableList.of("d", "b"), copy.asList());
+      Sets.SetView<String> difference = Sets.difference(set1, set2);
+      assertEquals(3, difference.size());
+      assertEquals(ImmutableList.of("e", "c", "a"),
+          difference.immutableCopy().asList());
+      assertEquals(ImmutableList.of("e", "c", "a"),
+          ImmutableList.copyOf(difference));
+
+      // different comparators, so no merge
+      ImmutableSortedSet<String> natural = ImmutableSortedSet.of("b", "d", "f");
+      assertEquals(ImmutableList.of("d", "b"),
+          Sets.intersection(set1, natural).immutableCopy().asList());
+      assertEquals(1, Sets.difference(natural, set1).size());
+    }
+
+    public void testIntersectionIsEmpty_nestedMutableViews() {
+      Set<Integer> mutable = Sets.newLinkedHashSet();
+      for (int i = 0; i < 1000; i++) {
+        mutable.add(i);
+      }
+      final int[] calls = {0};
+      Set<Integer> filtered = Sets.filter(mutable, new Predicate<Integer>() {
+        @Override public boolean apply(Integer input) {
+          calls[0]++;
+          return true;
+        }
+      });
+      Sets.SetView<Integer> view = Sets.intersection(
+          Sets.intersection(filtered, mutable), Sets.newHashSet(0, 1, 2));
+      assertFalse(view.isEmpty());
+      // the inner views are not sized, only iterated up to a shared element
+      assertEquals(1, calls[0]);
+      mutable.removeAll(asList(0, 1, 2));
+      assertTrue(view.isEmpty());
+    }
   }
 }
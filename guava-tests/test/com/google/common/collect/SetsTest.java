@@ -295,6 +295,20 @@ public class SetsTest extends TestCase {
     } catch (UnsupportedOperationException expected) {}
   }
 
+  public void testImmutableEnumSet_algebra() {
+    ImmutableSet<SomeEnum> set1 =
+        Sets.immutableEnumSet(SomeEnum.A, SomeEnum.B, SomeEnum.C);
+    ImmutableSet<SomeEnum> set2 = Sets.immutableEnumSet(SomeEnum.B, SomeEnum.C);
+    assertTrue(set1.containsAll(set2));
+    assertFalse(set2.containsAll(set1));
+    assertEquals(set2, Sets.immutableEnumSet(SomeEnum.C, SomeEnum.B));
+    assertFalse(set1.equals(set2));
+    assertEquals(set2, Sets.intersection(set1, set2).immutableCopy());
+    assertEquals(ImmutableSet.of(SomeEnum.A),
+        Sets.difference(set1, set2).immutableCopy());
+    assertEquals(3, Sets.union(set1, set2).size());
+  }
+
   @GwtIncompatible("SerializableTester")
   public void testImmutableEnumSet_serialized() {
     Set<SomeEnum> units = Sets.immutableEnumSet(SomeEnum.D, SomeEnum.B);
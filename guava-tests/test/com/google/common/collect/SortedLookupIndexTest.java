@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import junit.framework.TestCase;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Tests for {@link SortedLookupIndex}.
+ *
+ * @author Louis Wasserman
+ */
+public class SortedLookupIndexTest extends TestCase {
+  private static final int[] SIZES = {1, 2, 3, 4, 5, 6, 7, 8, 9, 15, 16, 17, 100, 1023, 1024, 1025};
+
+  public void testLowerBoundSlot() {
+    // ended at the left child of slot 3's left child: answer is that child
+    assertEquals(6, SortedLookupIndex.lowerBoundSlot(12));
+    // went right at every level: no element is >= the key
+    assertEquals(0, SortedLookupIndex.lowerBoundSlot(7));
+    assertEquals(1, SortedLookupIndex.lowerBoundSlot(2));
+  }
+
+  public void testLongIndex() {
+    for (int size : SIZES) {
+      List<Long> elements = Lists.newArrayList();
+      for (long i = 0; i < size; i++) {
+        elements.add(3 * i - 7);
+      }
+      SortedLookupIndex index = SortedLookupIndex.create(elements, Ordering.natural());
+      for (long key = -10; key < 3 * size; key++) {
+        assertEquals(elements.indexOf(key), index.indexOf(key));
+      }
+      assertEquals(-1, index.indexOf(-7));
+      assertEquals(-1, index.indexOf("foo"));
+    }
+  }
+
+  public void testIntIndex() {
+    for (int size : SIZES) {
+      List<Integer> elements = Lists.newArrayList();
+      for (int i = 0; i < size; i++) {
+        elements.add(2 * i + 1);
+      }
+      SortedLookupIndex index = SortedLookupIndex.create(elements, Ordering.natural());
+      for (int key = -2; key < 2 * size + 3; key++) {
+        assertEquals(elements.indexOf(key), index.indexOf(key));
+      }
+      assertEquals(-1, index.indexOf(1L));
+    }
+  }
+
+  public void testIntIndexExtremes() {
+    List<Integer> elements =
+        ImmutableList.of(Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE);
+    SortedLookupIndex index = SortedLookupIndex.create(elements, Ordering.natural());
+    for (int i = 0; i < elements.size(); i++) {
+      assertEquals(i, index.indexOf(elements.get(i)));
+    }
+    assertEquals(-1, index.indexOf(Integer.MAX_VALUE - 1));
+  }
+
+  public void testStringIndex() {
+    for (int size : SIZES) {
+      List<String> elements = Lists.newArrayList();
+      for (int i = 0; i < size; i++) {
+        elements.add(String.format("%05d", 2 * i));
+      }
+      SortedLookupIndex index = SortedLookupIndex.create(elements, Ordering.natural());
+      for (int key = -1; key < 2 * size + 1; key++) {
+        String target = String.format("%05d", key);
+        assertEquals(elements.indexOf(target), index.indexOf(target));
+      }
+      assertEquals(-1, index.indexOf(0));
+    }
+  }
+
+  public void testComparatorIndex() {
+    Comparator<Integer> comparator = Ordering.natural().reverse();
+    for (int size : SIZES) {
+      List<Integer> elements = Lists.newArrayList();
+      for (int i = size - 1; i >= 0; i--) {
+        elements.add(2 * i);
+      }
+      SortedLookupIndex index = SortedLookupIndex.create(elements, comparator);
+      for (int key = -1; key < 2 * size + 1; key++) {
+        assertEquals(elements.indexOf(key), index.indexOf(key));
+      }
+    }
+  }
+
+  public void testComparatorIndex_classCastException() {
+    List<Integer> elements = ImmutableList.of(1, 2, 3);
+    SortedLookupIndex index =
+        SortedLookupIndex.create(elements, Ordering.natural().reverse());
+    try {
+      index.indexOf("a");
+      fail();
+    } catch (ClassCastException expected) {
+    }
+  }
+
+  public void testMixedTypesUseComparator() {
+    List<Object> elements = Lists.<Object>newArrayList(1L, 2L, 3L);
+    SortedLookupIndex index = SortedLookupIndex.create(elements, Ordering.natural());
+    assertEquals(1, index.indexOf(2L));
+  }
+
+  public void testLargeImmutableSortedSet() {
+    int size = SortedLookupIndex.MIN_INDEXED_SIZE * 3 + 1;
+    ImmutableSortedSet.Builder<Long> builder = ImmutableSortedSet.naturalOrder();
+    ImmutableSortedMap.Builder<Long, Long> mapBuilder = ImmutableSortedMap.naturalOrder();
+    for (long i = 0; i < size; i++) {
+      builder.add(5 * i);
+      mapBuilder.put(5 * i, i);
+    }
+    ImmutableSortedSet<Long> set = builder.build();
+    ImmutableSortedMap<Long, Long> map = mapBuilder.build();
+    for (long key = -1; key <= 5 * size; key++) {
+      boolean present = key >= 0 && key % 5 == 0 && key < 5 * size;
+      assertEquals(present, set.contains(key));
+      assertEquals(present ? key / 5 : -1, set.asList().indexOf(key));
+      assertEquals(present ? Long.valueOf(key / 5) : null, map.get(key));
+    }
+    assertFalse(set.contains("foo"));
+    assertFalse(set.contains(5));
+    assertNull(map.get(5));
+    ImmutableSortedSet<Long> subSet = set.subSet(50L, 50000L);
+    assertTrue(subSet.contains(50L));
+    assertFalse(subSet.contains(45L));
+    assertFalse(subSet.contains(50000L));
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.io.ExternalSorter.ElementSerializer;
+import com.google.common.io.ExternalSorter.SortedIterator;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import junit.framework.TestCase;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Unit tests for {@link ExternalSorter}.
+ *
+ * @author Louis Wasserman
+ */
+public class ExternalSorterTest extends TestCase {
+  private static final ElementSerializer<Integer> INTS =
+      new ElementSerializer<Integer>() {
+        @Override public void write(Integer element, DataOutput output)
+            throws IOException {
+          output.writeInt(element);
+        }
+
+        @Override public Integer read(DataInput input) throws IOException {
+          return input.readInt();
+        }
+      };
+
+  private static final ElementSerializer<String> STRINGS =
+      new ElementSerializer<String>() {
+        @Override public void write(String element, DataOutput output)
+            throws IOException {
+          output.writeUTF(element);
+        }
+
+        @Override public String read(DataInput input) throws IOException {
+          return input.readUTF();
+        }
+      };
+
+  private static List<Integer> randomInts(int size) {
+    Random random = new Random(size);
+    List<Integer> result = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      result.add(random.nextInt(size));
+    }
+    return result;
+  }
+
+  private static <T> List<T> drain(SortedIterator<T> iterator)
+      throws IOException {
+    try {
+      return Lists.newArrayList(iterator);
+    } finally {
+      iterator.close();
+    }
+  }
+
+  public void testEmpty() throws IOException {
+    ExternalSorter<Integer> sorter =
+        ExternalSorter.create(Ordering.natural(), INTS).withRunSize(3);
+    assertTrue(drain(sorter.sort(Iterators.<Integer>emptyIterator()))
+        .isEmpty());
+  }
+
+  public void testSingleRun() throws IOException {
+    List<Integer> input = randomInts(100);
+    List<Integer> expected = Ordering.natural().sortedCopy(input);
+    ExternalSorter<Integer> sorter = ExternalSorter.create(
+        Ordering.natural(), INTS);
+    assertEquals(expected, drain(sorter.sort(input.iterator())));
+  }
+
+  public void testManyRuns() throws IOException {
+    for (int runSize : new int[] {1, 7, 100, 999, 1000}) {
+      List<Integer> input = randomInts(1000);
+      List<Integer> expected = Ordering.natural().sortedCopy(input);
+      ExternalSorter<Integer> sorter =
+          ExternalSorter.create(Ordering.natural(), INTS).withRunSize(runSize);
+      assertEquals(expected, drain(sorter.sort(input.iterator())));
+      assertEquals(Lists.reverse(expected), drain(
+          ExternalSorter.create(Ordering.natural().reverse(), INTS)
+              .withRunSize(runSize).sort(input.iterator())));
+    }
+  }
+
+  public void testStable() throws IOException {
+    Ordering<String> byKey = Ordering.natural().onResultOf(
+        new Function<String, Integer>() {
+          @Override public Integer apply(String input) {
+            return Integer.parseInt(input.substring(0, input.indexOf(':')));
+          }
+        });
+    List<String> input = Lists.newArrayList();
+    Random random = new Random(0);
+    for (int i = 0; i < 500; i++) {
+      input.add(random.nextInt(20) + ":" + i);
+    }
+    List<String> expected = Lists.newArrayList(input);
+    Collections.sort(expected, byKey);
+    assertEquals(expected, drain(ExternalSorter.create(byKey, STRINGS)
+        .withRunSize(37).sort(input.iterator())));
+  }
+
+  public void testMergePasses() throws IOException {
+    final int[] reads = new int[1];
+    ElementSerializer<String> counting = new ElementSerializer<String>() {
+      @Override public void write(String element, DataOutput output)
+          throws IOException {
+        STRINGS.write(element, output);
+      }
+
+      @Override public String read(DataInput input) throws IOException {
+        reads[0]++;
+        return STRINGS.read(input);
+      }
+    };
+    Ordering<String> byKey = Ordering.natural().onResultOf(
+        new Function<String, Integer>() {
+          @Override public Integer apply(String input) {
+            return Integer.parseInt(input.substring(0, input.indexOf(':')));
+          }
+        });
+    List<String> input = Lists.newArrayList();
+    Random random = new Random(0);
+    for (int i = 0; i < 100; i++) {
+      input.add(random.nextInt(10) + ":" + i);
+    }
+    List<String> expected = Lists.newArrayList(input);
+    Collections.sort(expected, byKey);
+    // 34 runs are merged into 9, then 3, and then by the final merge
+    assertEquals(expected, drain(ExternalSorter.create(byKey, counting)
+        .withRunSize(3).withMaxFanIn(4).sort(input.iterator())));
+    assertEquals(300, reads[0]);
+  }
+
+  public void testConcurrentRuns() throws IOException {
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      List<Integer> input = randomInts(5000);
+      List<Integer> expected = Ordering.natural().sortedCopy(input);
+      ExternalSorter<Integer> sorter = ExternalSorter.create(
+          Ordering.natural(), INTS).withRunSize(128).withExecutor(executor, 3);
+      assertEquals(expected, drain(sorter.sort(input.iterator())));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testWriteFailure() {
+    ElementSerializer<Integer> failing = new ElementSerializer<Integer>() {
+      @Override public void write(Integer element, DataOutput output)
+          throws IOException {
+        if (element == 42) {
+          throw new IOException("42");
+        }
+        output.writeInt(element);
+      }
+
+      @Override public Integer read(DataInput input) throws IOException {
+        return input.readInt();
+      }
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Integer> input = Lists.newArrayList();
+      for (int i = 0; i < 100; i++) {
+        input.add(i);
+      }
+      ExternalSorter<Integer> sorter =
+          ExternalSorter.create(Ordering.natural(), failing).withRunSize(10);
+      for (ExternalSorter<Integer> s
+          : ImmutableList.of(sorter, sorter.withExecutor(executor, 2))) {
+        try {
+          s.sort(input.iterator());
+          fail();
+        } catch (IOException expected) {
+          assertEquals("42", expected.getMessage());
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  public void testClose() throws IOException {
+    List<Integer> input = randomInts(100);
+    SortedIterator<Integer> iterator = ExternalSorter.create(
+        Ordering.natural(), INTS).withRunSize(10).sort(input.iterator());
+    assertTrue(iterator.hasNext());
+    iterator.next();
+    iterator.close();
+    assertFalse(iterator.hasNext());
+    iterator.close();
+  }
+
+  public void testInvalidArguments() {
+    ExternalSorter<Integer> sorter =
+        ExternalSorter.create(Ordering.natural(), INTS);
+    try {
+      sorter.withRunSize(0);
+      fail();
+    } catch (IllegalArgumentException expected) {}
+    try {
+      sorter.withExecutor(MoreExecutors.sameThreadExecutor(), 0);
+      fail();
+    } catch (IllegalArgumentException expected) {}
+    try {
+      sorter.withMaxFanIn(1);
+      fail();
+    } catch (IllegalArgumentException expected) {}
+  }
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Multisets.checkNonnegative;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.Objects;
+import com.google.common.primitives.Ints;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * Basic implementation of {@code Multiset<E>} that keeps each distinct element
+ * in a numbered slot and its count in a parallel {@code int[]}, rather than in
+ * a {@link Count} object per element. A slot holds an element exactly when its
+ * count is positive.
+ *
+ * <p>Subclasses decide which slot an element lives in. For serialization to
+ * work, the subclass must specify explicit {@code readObject} and {@code
+ * writeObject} methods.
+ *
+ * @author Louis Wasserman
+ */
+@GwtIncompatible("not needed in emulated source")
+abstract class AbstractArrayBasedMultiset<E> extends AbstractMultiset<E>
+    implements Serializable {
+  /** The count of the element in each slot, or 0 if the slot is empty. */
+  transient int[] counts;
+
+  /*
+   * Cache the size for efficiency. Using a long lets us avoid the need for
+   * overflow checking and ensures that size() will function correctly even if
+   * the multiset had once been larger than Integer.MAX_VALUE.
+   */
+  transient long size;
+
+  transient int distinctElements;
+
+  /**
+   * Incremented whenever an element enters or leaves its slot, or slots are
+   * reassigned; changes to the count of an element already present do not
+   * invalidate iterators.
+   */
+  transient int modCount;
+
+  /**
+   * Returns the slot holding {@code element}, or -1 if it is not in the
+   * multiset.
+   */
+  abstract int slotOf(@Nullable Object element);
+
+  /**
+   * Returns the slot holding {@code element}, first assigning it an empty slot
+   * if it is not in the multiset. The caller must then give the slot a
+   * positive count.
+   */
+  abstract int findOrAssignSlot(@Nullable E element);
+
+  /** Returns the element in an occupied slot. */
+  abstract E elementAt(int slot);
+
+  /**
+   * Releases a slot whose count has just been set to 0. Does nothing by
+   * default.
+   */
+  void releaseSlot(int slot) {}
+
+  // Required Implementations
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Invoking {@link Multiset.Entry#getCount} on an entry in the returned
+   * set always returns the current count of that element in the multiset, as
+   * opposed to the count at the time the entry was retrieved.
+   */
+  @Override
+  public Set<Multiset.Entry<E>> entrySet() {
+    return super.entrySet();
+  }
+
+  @Override
+  Iterator<Entry<E>> entryIterator() {
+    return new SlotIterator<Entry<E>>() {
+      @Override
+      Entry<E> output(int slot) {
+        return new SlotEntry(slot);
+      }
+    };
+  }
+
+  /**
+   * An entry that remembers the slot its element was found in, so that {@link
+   * #getCount} normally reads the counts array directly.
+   */
+  private final class SlotEntry extends Multisets.AbstractEntry<E> {
+    final E element;
+    int lastKnownSlot;
+
+    SlotEntry(int slot) {
+      this.element = elementAt(slot);
+      this.lastKnownSlot = slot;
+    }
+
+    @Override
+    public E getElement() {
+      return element;
+    }
+
+    @Override
+    public int getCount() {
+      int slot = lastKnownSlot;
+      if (slot >= counts.length || counts[slot] == 0
+          || !Objects.equal(element, elementAt(slot))) {
+        slot = slotOf(element);
+        if (slot == -1) {
+          return 0;
+        }
+        lastKnownSlot = slot;
+      }
+      return counts[slot];
+    }
+  }
+
+  /**
+   * Visits the occupied slots in order, and removes the whole slot on {@link
+   * #remove}.
+   */
+  private abstract class SlotIterator<T> implements Iterator<T> {
+    int nextSlot = nextOccupiedSlot(0);
+    int toRemove = -1;
+    int expectedModCount = modCount;
+
+    abstract T output(int slot);
+
+    @Override
+    public boolean hasNext() {
+      checkForComodification();
+      return nextSlot < counts.length;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      toRemove = nextSlot;
+      nextSlot = nextOccupiedSlot(nextSlot + 1);
+      return output(toRemove);
+    }
+
+    @Override
+    public void remove() {
+      checkForComodification();
+      Iterators.checkRemove(toRemove != -1);
+      clearSlot(toRemove);
+      expectedModCount = modCount;
+      toRemove = -1;
+    }
+
+    void checkForComodification() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+  }
+
+  private int nextOccupiedSlot(int slot) {
+    int[] counts = this.counts;
+    while (slot < counts.length && counts[slot] == 0) {
+      slot++;
+    }
+    return slot;
+  }
+
+  /** Removes every occurrence of the element in an occupied slot. */
+  private void clearSlot(int slot) {
+    size -= counts[slot];
+    counts[slot] = 0;
+    releaseSlot(slot);
+    distinctElements--;
+    modCount++;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(counts, 0);
+    size = 0L;
+    distinctElements = 0;
+    modCount++;
+  }
+
+  @Override
+  int distinctElements() {
+    return distinctElements;
+  }
+
+  // Optimizations - Query Operations
+
+  @Override public int size() {
+    return Ints.saturatedCast(size);
+  }
+
+  @Override public Iterator<E> iterator() {
+    return new ArrayBasedMultisetIterator();
+  }
+
+  /*
+   * Walks the slots directly, so that iterating over the elements allocates
+   * nothing beyond the iterator itself.
+   */
+  private class ArrayBasedMultisetIterator implements Iterator<E> {
+    int currentSlot = -1;
+    int occurrencesLeft;
+    boolean canRemove;
+    int expectedModCount = modCount;
+
+    @Override
+    public boolean hasNext() {
+      checkForComodification();
+      return occurrencesLeft > 0
+          || nextOccupiedSlot(currentSlot + 1) < counts.length;
+    }
+
+    @Override
+    public E next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      if (occurrencesLeft == 0) {
+        currentSlot = nextOccupiedSlot(currentSlot + 1);
+        occurrencesLeft = counts[currentSlot];
+      }
+      occurrencesLeft--;
+      canRemove = true;
+      return elementAt(currentSlot);
+    }
+
+    @Override
+    public void remove() {
+      checkForComodification();
+      checkState(canRemove,
+          "no calls to next() since the last call to remove()");
+      int frequency = counts[currentSlot];
+      if (frequency <= 0) {
+        throw new ConcurrentModificationException();
+      }
+      if (frequency == 1) {
+        clearSlot(currentSlot);
+        expectedModCount = modCount;
+      } else {
+        counts[currentSlot] = frequency - 1;
+        size--;
+      }
+      canRemove = false;
+    }
+
+    void checkForComodification() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+  }
+
+  @Override public int count(@Nullable Object element) {
+    int slot = slotOf(element);
+    return (slot == -1) ? 0 : counts[slot];
+  }
+
+  // Optional Operations - Modification Operations
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalArgumentException if the call would result in more than
+   *     {@link Integer#MAX_VALUE} occurrences of {@code element} in this
+   *     multiset.
+   */
+  @Override public int add(@Nullable E element, int occurrences) {
+    if (occurrences == 0) {
+      return count(element);
+    }
+    checkArgument(
+        occurrences > 0, "occurrences cannot be negative: %s", occurrences);
+    int slot = findOrAssignSlot(element);
+    int oldCount = counts[slot];
+    long newCount = (long) oldCount + (long) occurrences;
+    checkArgument(newCount <= Integer.MAX_VALUE,
+        "too many occurrences: %s", newCount);
+    if (oldCount == 0) {
+      distinctElements++;
+      modCount++;
+    }
+    counts[slot] = (int) newCount;
+    size += occurrences;
+    return oldCount;
+  }
+
+  @Override public int remove(@Nullable Object element, int occurrences) {
+    if (occurrences == 0) {
+      return count(element);
+    }
+    checkArgument(
+        occurrences > 0, "occurrences cannot be negative: %s", occurrences);
+    int slot = slotOf(element);
+    if (slot == -1) {
+      return 0;
+    }
+
+    int oldCount = counts[slot];
+    if (oldCount > occurrences) {
+      counts[slot] = oldCount - occurrences;
+      size -= occurrences;
+    } else {
+      clearSlot(slot);
+    }
+    return oldCount;
+  }
+
+  @Override public int setCount(@Nullable E element, int count) {
+    checkNonnegative(count, "count");
+
+    int slot;
+    int oldCount;
+    if (count == 0) {
+      slot = slotOf(element);
+      if (slot == -1) {
+        return 0;
+      }
+      oldCount = counts[slot];
+      clearSlot(slot);
+    } else {
+      slot = findOrAssignSlot(element);
+      oldCount = counts[slot];
+      if (oldCount == 0) {
+        distinctElements++;
+        modCount++;
+      }
+      counts[slot] = count;
+      size += (count - oldCount);
+    }
+    return oldCount;
+  }
+
+  // Views
+
+  @Override Set<E> createElementSet() {
+    return new ArrayBasedElementSet();
+  }
+
+  class ArrayBasedElementSet extends Multisets.ElementSet<E> {
+    @Override
+    Multiset<E> multiset() {
+      return AbstractArrayBasedMultiset.this;
+    }
+  }
+
+  // Don't allow default serialization.
+  @SuppressWarnings("unused") // actually used during deserialization
+  private void readObjectNoData() throws ObjectStreamException {
+    throw new InvalidObjectException("Stream data required");
+  }
+
+  private static final long serialVersionUID = 0;
+}
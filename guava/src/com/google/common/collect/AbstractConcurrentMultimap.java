@@ -0,0 +1,603 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.collect.Serialization.FieldSetter;
+import com.google.common.primitives.Ints;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+
+/**
+ * Basic implementation of a concurrent {@link Multimap}. The values for each
+ * key are held in an immutable collection, which is replaced wholesale on
+ * every update of that key. Reads are lock-free: they fetch the current
+ * collection from a {@link ConcurrentMap} and never block. Writes to a key
+ * lock one of a fixed array of stripes, chosen by the key's hash code, so
+ * that updates of unrelated keys rarely contend.
+ *
+ * <p>Keys map only to non-empty collections; a key is removed from the
+ * backing map as soon as its last value is.
+ *
+ * @author Louis Wasserman
+ */
+@GwtIncompatible("java.util.concurrent")
+abstract class AbstractConcurrentMultimap<K, V, C extends ImmutableCollection<V>>
+    implements Multimap<K, V>, Serializable {
+  static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+  private static final int MAX_STRIPES = 1 << 16;
+
+  /** A write lock, together with the number of entries whose key hashes to it. */
+  static final class Stripe extends ReentrantLock {
+    // written only while the lock is held
+    volatile int size;
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private final transient ConcurrentMap<K, C> map;
+  private final transient Stripe[] stripes;
+
+  AbstractConcurrentMultimap(int concurrencyLevel) {
+    checkArgument(concurrencyLevel > 0,
+        "concurrencyLevel must be positive: %s", concurrencyLevel);
+    this.map = new MapMaker().concurrencyLevel(concurrencyLevel).makeMap();
+    this.stripes = createStripes(concurrencyLevel);
+  }
+
+  private static Stripe[] createStripes(int concurrencyLevel) {
+    int stripeCount = 1;
+    while (stripeCount < concurrencyLevel && stripeCount < MAX_STRIPES) {
+      stripeCount <<= 1;
+    }
+    Stripe[] stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new Stripe();
+    }
+    return stripes;
+  }
+
+  /** Returns the empty value collection. */
+  abstract C emptyValues();
+
+  /** Returns a value collection containing {@code values}. */
+  abstract C copyValues(Iterable<? extends V> values);
+
+  /**
+   * Returns {@code values} with {@code value} added, or {@code values} itself
+   * if the collection would be unchanged.
+   */
+  abstract C withValue(C values, V value);
+
+  /**
+   * Returns {@code values} with {@code newValues} added, or {@code values}
+   * itself if the collection would be unchanged.
+   */
+  abstract C withValues(C values, Iterable<? extends V> newValues);
+
+  /**
+   * Returns {@code values} with one occurrence of {@code value} removed, or
+   * {@code values} itself if it does not contain {@code value}.
+   */
+  abstract C withoutValue(C values, Object value);
+
+  /** Returns a live view of the values associated with {@code key}. */
+  abstract Collection<V> wrapValues(@Nullable K key);
+
+  /** Returns the values currently associated with {@code key}. */
+  final C snapshot(@Nullable Object key) {
+    C values = (key == null) ? null : map.get(key);
+    return (values == null) ? emptyValues() : values;
+  }
+
+  /**
+   * Returns the locked stripe guarding {@code key}. The caller must unlock
+   * it.
+   */
+  final Stripe lock(Object key) {
+    Stripe stripe = stripes[Hashing.smear(key.hashCode()) & (stripes.length - 1)];
+    stripe.lock();
+    return stripe;
+  }
+
+  /**
+   * Replaces the values of {@code key}, which are {@code oldValues}, by
+   * {@code newValues}. The caller must hold the stripe guarding {@code key}.
+   */
+  final void install(K key, C oldValues, C newValues, Stripe stripe) {
+    if (newValues.isEmpty()) {
+      map.remove(key);
+    } else {
+      map.put(key, newValues);
+    }
+    stripe.size += newValues.size() - oldValues.size();
+  }
+
+  // Query Operations
+
+  @Override
+  public int size() {
+    long size = 0;
+    for (Stripe stripe : stripes) {
+      size += stripe.size;
+    }
+    return Ints.saturatedCast(size);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(@Nullable Object key) {
+    return key != null && map.containsKey(key);
+  }
+
+  @Override
+  public boolean containsValue(@Nullable Object value) {
+    if (value == null) {
+      return false;
+    }
+    for (C values : map.values()) {
+      if (values.contains(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean containsEntry(@Nullable Object key, @Nullable Object value) {
+    return snapshot(key).contains(value);
+  }
+
+  // Modification Operations
+
+  @Override
+  public boolean put(K key, V value) {
+    checkNotNull(key);
+    checkNotNull(value);
+    Stripe stripe = lock(key);
+    try {
+      C oldValues = snapshot(key);
+      C newValues = withValue(oldValues, value);
+      if (newValues == oldValues) {
+        return false;
+      }
+      install(key, oldValues, newValues, stripe);
+      return true;
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  @Override
+  public boolean remove(@Nullable Object key, @Nullable Object value) {
+    if (key == null || value == null) {
+      return false;
+    }
+    Stripe stripe = lock(key);
+    try {
+      C oldValues = map.get(key);
+      if (oldValues == null) {
+        return false;
+      }
+      C newValues = withoutValue(oldValues, value);
+      if (newValues == oldValues) {
+        return false;
+      }
+      @SuppressWarnings("unchecked") // key is present in the map
+      K k = (K) key;
+      install(k, oldValues, newValues, stripe);
+      return true;
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  // Bulk Operations
+
+  @Override
+  public boolean putAll(K key, Iterable<? extends V> values) {
+    checkNotNull(key);
+    Stripe stripe = lock(key);
+    try {
+      C oldValues = snapshot(key);
+      C newValues = withValues(oldValues, values);
+      if (newValues == oldValues) {
+        return false;
+      }
+      install(key, oldValues, newValues, stripe);
+      return true;
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  @Override
+  public boolean putAll(Multimap<? extends K, ? extends V> multimap) {
+    boolean changed = false;
+    for (Map.Entry<? extends K, ? extends Collection<? extends V>> entry
+        : multimap.asMap().entrySet()) {
+      changed |= putAll(entry.getKey(), entry.getValue());
+    }
+    return changed;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned collection is immutable.
+   */
+  @Override
+  public C replaceValues(K key, Iterable<? extends V> values) {
+    checkNotNull(key);
+    C newValues = copyValues(values);
+    Stripe stripe = lock(key);
+    try {
+      C oldValues = snapshot(key);
+      install(key, oldValues, newValues, stripe);
+      return oldValues;
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned collection is immutable.
+   */
+  @Override
+  public C removeAll(@Nullable Object key) {
+    if (key == null) {
+      return emptyValues();
+    }
+    Stripe stripe = lock(key);
+    try {
+      C oldValues = map.remove(key);
+      if (oldValues == null) {
+        return emptyValues();
+      }
+      stripe.size -= oldValues.size();
+      return oldValues;
+    } finally {
+      stripe.unlock();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Each key is removed atomically, but other threads may observe the
+   * multimap with some keys removed and others not yet.
+   */
+  @Override
+  public void clear() {
+    for (K key : map.keySet()) {
+      removeAll(key);
+    }
+  }
+
+  // Views
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned collection reads the values of {@code key} afresh on each
+   * call, and writes through to this multimap. Its iterators traverse the
+   * values as they were when the iterator was created.
+   */
+  @Override
+  public Collection<V> get(@Nullable K key) {
+    return wrapValues(key);
+  }
+
+  private transient Set<K> keySet;
+
+  @Override
+  public Set<K> keySet() {
+    Set<K> result = keySet;
+    return (result == null) ? keySet = new KeySet() : result;
+  }
+
+  private class KeySet extends Sets.ImprovedAbstractSet<K> {
+    @Override public Iterator<K> iterator() {
+      final Iterator<K> backingIterator = map.keySet().iterator();
+      return new Iterator<K>() {
+        K key;
+
+        @Override
+        public boolean hasNext() {
+          return backingIterator.hasNext();
+        }
+
+        @Override
+        public K next() {
+          return key = backingIterator.next();
+        }
+
+        @Override
+        public void remove() {
+          Iterators.checkRemove(key != null);
+          AbstractConcurrentMultimap.this.removeAll(key);
+          key = null;
+        }
+      };
+    }
+
+    @Override public int size() {
+      return map.size();
+    }
+
+    @Override public boolean isEmpty() {
+      return map.isEmpty();
+    }
+
+    @Override public boolean contains(@Nullable Object o) {
+      return containsKey(o);
+    }
+
+    @Override public boolean remove(@Nullable Object o) {
+      return !AbstractConcurrentMultimap.this.removeAll(o).isEmpty();
+    }
+
+    @Override public void clear() {
+      AbstractConcurrentMultimap.this.clear();
+    }
+  }
+
+  private transient Multiset<K> keys;
+
+  @Override
+  public Multiset<K> keys() {
+    Multiset<K> result = keys;
+    if (result == null) {
+      return keys = new Multimaps.Keys<K, V>() {
+        @Override Multimap<K, V> multimap() {
+          return AbstractConcurrentMultimap.this;
+        }
+      };
+    }
+    return result;
+  }
+
+  private transient Collection<V> values;
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned collection is weakly consistent, like the views of a
+   * {@link java.util.concurrent.ConcurrentHashMap}: its iterators never throw
+   * {@link java.util.ConcurrentModificationException}, and may or may not
+   * reflect modifications made after they were created.
+   */
+  @Override
+  public Collection<V> values() {
+    Collection<V> result = values;
+    if (result == null) {
+      return values = new Multimaps.Values<K, V>() {
+        @Override Multimap<K, V> multimap() {
+          return AbstractConcurrentMultimap.this;
+        }
+      };
+    }
+    return result;
+  }
+
+  private transient Collection<Map.Entry<K, V>> entries;
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned collection is weakly consistent, like the views of a
+   * {@link java.util.concurrent.ConcurrentHashMap}: its iterators never throw
+   * {@link java.util.ConcurrentModificationException}, and may or may not
+   * reflect modifications made after they were created. Each entry is an
+   * immutable snapshot of a key-value mapping in the multimap.
+   */
+  @Override
+  public Collection<Map.Entry<K, V>> entries() {
+    Collection<Map.Entry<K, V>> result = entries;
+    return (result == null) ? entries = createEntries() : result;
+  }
+
+  Collection<Map.Entry<K, V>> createEntries() {
+    return new Multimaps.Entries<K, V>() {
+      @Override Multimap<K, V> multimap() {
+        return AbstractConcurrentMultimap.this;
+      }
+
+      @Override public Iterator<Map.Entry<K, V>> iterator() {
+        return entryIterator();
+      }
+    };
+  }
+
+  final Iterator<Map.Entry<K, V>> entryIterator() {
+    final Iterator<Map.Entry<K, C>> keyIterator = map.entrySet().iterator();
+    return new Iterator<Map.Entry<K, V>>() {
+      K key;
+      Iterator<V> valueIterator = Iterators.emptyModifiableIterator();
+      Map.Entry<K, V> last;
+
+      @Override
+      public boolean hasNext() {
+        return valueIterator.hasNext() || keyIterator.hasNext();
+      }
+
+      @Override
+      public Map.Entry<K, V> next() {
+        if (!valueIterator.hasNext()) {
+          Map.Entry<K, C> entry = keyIterator.next();
+          key = entry.getKey();
+          valueIterator = entry.getValue().iterator();
+        }
+        return last = Maps.immutableEntry(key, valueIterator.next());
+      }
+
+      @Override
+      public void remove() {
+        Iterators.checkRemove(last != null);
+        AbstractConcurrentMultimap.this.remove(last.getKey(), last.getValue());
+        last = null;
+      }
+    };
+  }
+
+  /**
+   * An iterator over a snapshot of the values of {@code key}, whose {@code
+   * remove} writes through to the multimap.
+   */
+  final class ValueIterator implements Iterator<V> {
+    final Object key;
+    final Iterator<V> snapshotIterator;
+    V last;
+
+    ValueIterator(Object key) {
+      this.key = key;
+      this.snapshotIterator = snapshot(key).iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return snapshotIterator.hasNext();
+    }
+
+    @Override
+    public V next() {
+      return last = snapshotIterator.next();
+    }
+
+    @Override
+    public void remove() {
+      Iterators.checkRemove(last != null);
+      AbstractConcurrentMultimap.this.remove(key, last);
+      last = null;
+    }
+  }
+
+  private transient Map<K, Collection<V>> asMap;
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned map is weakly consistent, like a {@link
+   * java.util.concurrent.ConcurrentHashMap}: iterators over its views never
+   * throw {@link java.util.ConcurrentModificationException}, and may or may
+   * not reflect modifications made after they were created.
+   */
+  @Override
+  public Map<K, Collection<V>> asMap() {
+    Map<K, Collection<V>> result = asMap;
+    if (result == null) {
+      return asMap = new Multimaps.AsMap<K, V>() {
+        @Override Multimap<K, V> multimap() {
+          return AbstractConcurrentMultimap.this;
+        }
+
+        @Override public int size() {
+          return map.size();
+        }
+
+        @Override Iterator<Map.Entry<K, Collection<V>>> entryIterator() {
+          final Iterator<K> keyIterator = keySet().iterator();
+          return new TransformedIterator<K, Map.Entry<K, Collection<V>>>(
+              keyIterator) {
+            @Override
+            Map.Entry<K, Collection<V>> transform(K key) {
+              return Maps.immutableEntry(key, wrapValues(key));
+            }
+          };
+        }
+      };
+    }
+    return result;
+  }
+
+  // Comparison and hashing
+
+  @Override public boolean equals(@Nullable Object object) {
+    if (object == this) {
+      return true;
+    }
+    if (object instanceof Multimap) {
+      Multimap<?, ?> that = (Multimap<?, ?>) object;
+      return this.asMap().equals(that.asMap());
+    }
+    return false;
+  }
+
+  @Override public int hashCode() {
+    return asMap().hashCode();
+  }
+
+  @Override public String toString() {
+    return asMap().toString();
+  }
+
+  // Serialization
+
+  // This constant allows the deserialization code to set final fields. This
+  // holder class makes sure it is not initialized unless an instance is
+  // deserialized.
+  private static class FieldSettersHolder {
+    static final FieldSetter<AbstractConcurrentMultimap> MAP_FIELD_SETTER =
+        Serialization.getFieldSetter(AbstractConcurrentMultimap.class, "map");
+    static final FieldSetter<AbstractConcurrentMultimap> STRIPES_FIELD_SETTER =
+        Serialization.getFieldSetter(
+            AbstractConcurrentMultimap.class, "stripes");
+  }
+
+  /**
+   * @serialData the number of stripes, followed by the multimap contents in
+   *     the format of {@link Serialization#writeMultimap}
+   */
+  private void writeObject(ObjectOutputStream stream) throws IOException {
+    stream.defaultWriteObject();
+    stream.writeInt(stripes.length);
+    Serialization.writeMultimap(this, stream);
+  }
+
+  private void readObject(ObjectInputStream stream)
+      throws IOException, ClassNotFoundException {
+    stream.defaultReadObject();
+    int concurrencyLevel = stream.readInt();
+    FieldSettersHolder.MAP_FIELD_SETTER.set(this,
+        new MapMaker().concurrencyLevel(concurrencyLevel).makeMap());
+    FieldSettersHolder.STRIPES_FIELD_SETTER.set(this,
+        createStripes(concurrencyLevel));
+    Serialization.populateMultimap(this, stream);
+  }
+
+  private static final long serialVersionUID = 0;
+}
@@ -0,0 +1,900 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.primitives.Ints;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+/**
+ * A multiset which maintains the ordering of its elements, according to either their natural order
+ * or an explicit {@link Comparator}, stored in a B+-tree. As with {@link TreeMultiset}, this
+ * implementation uses {@link Comparable#compareTo} or {@link Comparator#compare} instead of
+ * {@link Object#equals} to determine equivalence of instances.
+ *
+ * <p>Elements and their counts are stored in parallel arrays in the leaves of the tree, up to 64
+ * to a leaf, and each inner node records the total count and the number of distinct elements
+ * under each of its children. Compared to {@code TreeMultiset}, which allocates a node with five
+ * references and four counters per distinct element, this uses a small fraction of the memory and
+ * of the objects, and iterates over adjacent elements in memory order. {@link #count} and
+ * {@code add} take O(log n) time, as does {@code size()} on any {@linkplain #headMultiset
+ * head}, {@linkplain #tailMultiset tail} or {@linkplain #subMultiset sub}-multiset view, which
+ * makes {@code headMultiset(e, OPEN).size()} an efficient rank query.
+ *
+ * <p>When the last occurrence of an element is removed, it is removed from its leaf, and a leaf or
+ * inner node is only freed once it is empty. Nodes are not merged, so a multiset from which most
+ * elements have been removed may retain more memory than it needs.
+ *
+ * <p>Iterators over this multiset and its views fail fast if elements are added to or removed from
+ * the multiset other than through the iterator itself; changes to the counts of elements that are
+ * already present are permitted, and are reflected by the entries being iterated over.
+ *
+ * <p><b>Warning:</b> The comparison must be <i>consistent with equals</i> as explained by the
+ * {@link Comparable} class specification. Otherwise, the resulting multiset will violate the
+ * {@link java.util.Collection} contract, which is specified in terms of {@link Object#equals}.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+@GwtCompatible(emulated = true)
+public final class BTreeMultiset<E> extends AbstractSortedMultiset<E> implements Serializable {
+
+  /**
+   * Creates a new, empty multiset, sorted according to the elements' natural order. All elements
+   * inserted into the multiset must implement the {@code Comparable} interface, and must be
+   * <i>mutually comparable</i>.
+   *
+   * <p>The type specification is {@code <E extends Comparable>}, instead of the more specific
+   * {@code <E extends Comparable<? super E>>}, to support classes defined without generics.
+   */
+  public static <E extends Comparable> BTreeMultiset<E> create() {
+    return new BTreeMultiset<E>(Ordering.natural());
+  }
+
+  /**
+   * Creates a new, empty multiset, sorted according to the specified comparator. All elements
+   * inserted into the multiset must be <i>mutually comparable</i> by the specified comparator.
+   *
+   * @param comparator the comparator that will be used to sort this multiset. A null value
+   *     indicates that the elements' <i>natural ordering</i> should be used.
+   */
+  @SuppressWarnings("unchecked")
+  public static <E> BTreeMultiset<E> create(@Nullable Comparator<? super E> comparator) {
+    return (comparator == null)
+        ? new BTreeMultiset<E>((Comparator) Ordering.natural())
+        : new BTreeMultiset<E>(comparator);
+  }
+
+  /**
+   * Creates an empty multiset containing the given initial elements, sorted according to the
+   * elements' natural order.
+   *
+   * <p>The type specification is {@code <E extends Comparable>}, instead of the more specific
+   * {@code <E extends Comparable<? super E>>}, to support classes defined without generics.
+   */
+  public static <E extends Comparable> BTreeMultiset<E> create(Iterable<? extends E> elements) {
+    BTreeMultiset<E> multiset = create();
+    Iterables.addAll(multiset, elements);
+    return multiset;
+  }
+
+  // the most elements in a leaf, and the most children of an inner node
+  private static final int MAX_NODE_SIZE = 64;
+  // the capacity of a new root leaf, which grows as needed up to MAX_NODE_SIZE
+  private static final int INITIAL_LEAF_CAPACITY = 4;
+
+  private abstract static class Node {
+    // the number of elements in a leaf, or of children of an inner node
+    int size;
+
+    /**
+     * Returns the smallest element that may be stored in this node: its first element for a leaf,
+     * and the separator it was split off with for an inner node.
+     */
+    abstract Object lowKey();
+  }
+
+  private static final class Leaf extends Node {
+    Object[] elements;
+    int[] counts;
+    @Nullable Leaf prev;
+    @Nullable Leaf next;
+
+    Leaf(int capacity) {
+      elements = new Object[capacity];
+      counts = new int[capacity];
+    }
+
+    @Override Object lowKey() {
+      return elements[0];
+    }
+
+    /**
+     * Returns the index of {@code e} in this leaf if present, and otherwise {@code -i - 1} where
+     * {@code i} is the index at which it would be inserted.
+     */
+    @SuppressWarnings("unchecked")
+    int search(Comparator<?> comparator, Object e) {
+      Comparator<Object> c = (Comparator<Object>) comparator;
+      int lo = 0;
+      int hi = size - 1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        int cmp = c.compare(elements[mid], e);
+        if (cmp < 0) {
+          lo = mid + 1;
+        } else if (cmp > 0) {
+          hi = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return -lo - 1;
+    }
+
+    /**
+     * Returns the number of elements in this leaf that are less than {@code e}, or less than or
+     * equal to it if {@code inclusive}.
+     */
+    int indexAbove(Comparator<?> comparator, Object e, boolean inclusive) {
+      int i = search(comparator, e);
+      return (i >= 0) ? (inclusive ? i + 1 : i) : -i - 1;
+    }
+
+    /**
+     * Inserts {@code e} with {@code count} occurrences at {@code index}, and returns the new right
+     * half of this leaf if it had to be split, or null.
+     */
+    @Nullable Leaf insert(int index, Object e, int count) {
+      if (size < elements.length) {
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        System.arraycopy(counts, index, counts, index + 1, size - index);
+        elements[index] = e;
+        counts[index] = count;
+        size++;
+        return null;
+      } else if (size < MAX_NODE_SIZE) {
+        int newCapacity = Math.min(MAX_NODE_SIZE, 2 * elements.length);
+        int[] newCounts = new int[newCapacity];
+        System.arraycopy(counts, 0, newCounts, 0, size);
+        elements = ObjectArrays.arraysCopyOf(elements, newCapacity);
+        counts = newCounts;
+        return insert(index, e, count);
+      }
+      Leaf right = new Leaf(MAX_NODE_SIZE);
+      int half = size / 2;
+      right.size = size - half;
+      System.arraycopy(elements, half, right.elements, 0, right.size);
+      System.arraycopy(counts, half, right.counts, 0, right.size);
+      Arrays.fill(elements, half, size, null);
+      size = half;
+      right.next = next;
+      if (next != null) {
+        next.prev = right;
+      }
+      right.prev = this;
+      next = right;
+      if (index <= half) {
+        insert(index, e, count);
+      } else {
+        right.insert(index - half, e, count);
+      }
+      return right;
+    }
+
+    void removeAt(int index) {
+      System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+      System.arraycopy(counts, index + 1, counts, index, size - index - 1);
+      size--;
+      elements[size] = null;
+    }
+
+    void unlink() {
+      if (prev != null) {
+        prev.next = next;
+      }
+      if (next != null) {
+        next.prev = prev;
+      }
+    }
+
+    long total() {
+      long total = 0;
+      for (int i = 0; i < size; i++) {
+        total += counts[i];
+      }
+      return total;
+    }
+  }
+
+  private static final class Inner extends Node {
+    // keys[i] is a lower bound on the elements of children[i], and an upper bound (exclusive) on
+    // the elements of children[i - 1]; keys[0] is the lower bound of this node, if any.
+    final Object[] keys = new Object[MAX_NODE_SIZE];
+    final Node[] children = new Node[MAX_NODE_SIZE];
+    // the total count and the number of distinct elements under each child
+    final long[] totals = new long[MAX_NODE_SIZE];
+    final int[] distincts = new int[MAX_NODE_SIZE];
+
+    @Override Object lowKey() {
+      return keys[0];
+    }
+
+    /**
+     * Returns the index of the child whose range contains {@code e}.
+     */
+    @SuppressWarnings("unchecked")
+    int childIndex(Comparator<?> comparator, Object e) {
+      Comparator<Object> c = (Comparator<Object>) comparator;
+      int lo = 1;
+      int hi = size;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (c.compare(keys[mid], e) <= 0) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      return lo - 1;
+    }
+
+    void setChild(int index, Node child) {
+      children[index] = child;
+      if (index > 0) {
+        keys[index] = child.lowKey();
+      }
+      if (child instanceof Leaf) {
+        Leaf leaf = (Leaf) child;
+        totals[index] = leaf.total();
+        distincts[index] = leaf.size;
+      } else {
+        Inner inner = (Inner) child;
+        totals[index] = inner.total();
+        distincts[index] = inner.distinct();
+      }
+    }
+
+    /**
+     * Recomputes the aggregates of the child at {@code index}, and inserts {@code newChild} after
+     * it, returning the new right half of this node if it had to be split, or null.
+     */
+    @Nullable Inner insertAfter(int index, Node newChild) {
+      setChild(index, children[index]);
+      if (size == MAX_NODE_SIZE) {
+        Inner right = new Inner();
+        int half = size / 2;
+        right.size = size - half;
+        System.arraycopy(keys, half, right.keys, 0, right.size);
+        System.arraycopy(children, half, right.children, 0, right.size);
+        System.arraycopy(totals, half, right.totals, 0, right.size);
+        System.arraycopy(distincts, half, right.distincts, 0, right.size);
+        Arrays.fill(keys, half, size, null);
+        Arrays.fill(children, half, size, null);
+        size = half;
+        if (index < half) {
+          insertAfter(index, newChild);
+        } else {
+          right.insertAfter(index - half, newChild);
+        }
+        return right;
+      }
+      int at = index + 1;
+      System.arraycopy(keys, at, keys, at + 1, size - at);
+      System.arraycopy(children, at, children, at + 1, size - at);
+      System.arraycopy(totals, at, totals, at + 1, size - at);
+      System.arraycopy(distincts, at, distincts, at + 1, size - at);
+      size++;
+      setChild(at, newChild);
+      return null;
+    }
+
+    void removeAt(int index) {
+      if (index == 0 && size > 1) {
+        // the next child inherits this node's lower bound
+        keys[1] = keys[0];
+      }
+      System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+      System.arraycopy(children, index + 1, children, index, size - index - 1);
+      System.arraycopy(totals, index + 1, totals, index, size - index - 1);
+      System.arraycopy(distincts, index + 1, distincts, index, size - index - 1);
+      size--;
+      keys[size] = null;
+      children[size] = null;
+    }
+
+    long total() {
+      long total = 0;
+      for (int i = 0; i < size; i++) {
+        total += totals[i];
+      }
+      return total;
+    }
+
+    int distinct() {
+      int distinct = 0;
+      for (int i = 0; i < size; i++) {
+        distinct += distincts[i];
+      }
+      return distinct;
+    }
+  }
+
+  /**
+   * The state shared by a multiset and its views.
+   */
+  private static final class Tree {
+    Node root = new Leaf(INITIAL_LEAF_CAPACITY);
+    long totalCount;
+    int distinctElements;
+    // incremented whenever an element is added or removed, but not when only a count changes
+    int modCount;
+
+    Leaf firstLeaf() {
+      Node node = root;
+      while (node instanceof Inner) {
+        node = ((Inner) node).children[0];
+      }
+      return (Leaf) node;
+    }
+
+    Leaf lastLeaf() {
+      Node node = root;
+      while (node instanceof Inner) {
+        Inner inner = (Inner) node;
+        node = inner.children[inner.size - 1];
+      }
+      return (Leaf) node;
+    }
+
+    Leaf leafFor(Comparator<?> comparator, Object e) {
+      Node node = root;
+      while (node instanceof Inner) {
+        Inner inner = (Inner) node;
+        node = inner.children[inner.childIndex(comparator, e)];
+      }
+      return (Leaf) node;
+    }
+  }
+
+  private final transient Tree tree;
+  private final transient GeneralRange<E> range;
+
+  private BTreeMultiset(Tree tree, GeneralRange<E> range) {
+    super(range.comparator());
+    this.tree = tree;
+    this.range = range;
+  }
+
+  BTreeMultiset(Comparator<? super E> comparator) {
+    this(new Tree(), GeneralRange.all(comparator));
+  }
+
+  /**
+   * Returns the total count of the elements less than {@code e}, or less than or equal to {@code
+   * e} if {@code inclusive}; or, if {@code distinct}, the number of such distinct elements.
+   */
+  private long aggregateBelow(Object e, boolean inclusive, boolean distinct) {
+    // At each node, sum whichever side of the search path is shorter, knowing the node's total.
+    long result = 0;
+    long nodeTotal = distinct ? tree.distinctElements : tree.totalCount;
+    Node node = tree.root;
+    while (node instanceof Inner) {
+      Inner inner = (Inner) node;
+      int index = inner.childIndex(comparator(), e);
+      long childTotal = distinct ? inner.distincts[index] : inner.totals[index];
+      if (2 * index < inner.size) {
+        for (int i = 0; i < index; i++) {
+          result += distinct ? inner.distincts[i] : inner.totals[i];
+        }
+      } else {
+        long above = 0;
+        for (int i = index + 1; i < inner.size; i++) {
+          above += distinct ? inner.distincts[i] : inner.totals[i];
+        }
+        result += nodeTotal - childTotal - above;
+      }
+      nodeTotal = childTotal;
+      node = inner.children[index];
+    }
+    Leaf leaf = (Leaf) node;
+    int index = leaf.indexAbove(comparator(), e, inclusive);
+    if (distinct) {
+      result += index;
+    } else if (2 * index < leaf.size) {
+      for (int i = 0; i < index; i++) {
+        result += leaf.counts[i];
+      }
+    } else {
+      long above = 0;
+      for (int i = index; i < leaf.size; i++) {
+        above += leaf.counts[i];
+      }
+      result += nodeTotal - above;
+    }
+    return result;
+  }
+
+  private long aggregateForEntries(boolean distinct) {
+    long total = distinct ? tree.distinctElements : tree.totalCount;
+    if (range.hasLowerBound()) {
+      total -= aggregateBelow(
+          range.getLowerEndpoint(), range.getLowerBoundType() == BoundType.OPEN, distinct);
+    }
+    if (range.hasUpperBound()) {
+      total -= (distinct ? tree.distinctElements : tree.totalCount) - aggregateBelow(
+          range.getUpperEndpoint(), range.getUpperBoundType() == BoundType.CLOSED, distinct);
+    }
+    return Math.max(total, 0);
+  }
+
+  @Override
+  public int size() {
+    return Ints.saturatedCast(aggregateForEntries(false));
+  }
+
+  @Override
+  int distinctElements() {
+    return Ints.saturatedCast(aggregateForEntries(true));
+  }
+
+  @Override
+  public int count(@Nullable Object element) {
+    try {
+      @SuppressWarnings("unchecked")
+      E e = (E) element;
+      if (!range.contains(e)) {
+        return 0;
+      }
+      Leaf leaf = tree.leafFor(comparator(), e);
+      int index = leaf.search(comparator(), e);
+      return (index >= 0) ? leaf.counts[index] : 0;
+    } catch (ClassCastException e) {
+      return 0;
+    } catch (NullPointerException e) {
+      return 0;
+    }
+  }
+
+  @Override
+  public int add(@Nullable E element, int occurrences) {
+    checkArgument(occurrences >= 0, "occurrences must be >= 0 but was %s", occurrences);
+    if (occurrences == 0) {
+      return count(element);
+    }
+    checkArgument(range.contains(element));
+    comparator().compare(element, element);
+    int[] result = new int[1]; // used as a mutable int reference to hold result
+    Node split = add(tree.root, element, occurrences, result);
+    if (split != null) {
+      Inner newRoot = new Inner();
+      newRoot.size = 1;
+      newRoot.setChild(0, tree.root);
+      newRoot.keys[0] = null;
+      newRoot.insertAfter(0, split);
+      tree.root = newRoot;
+    }
+    tree.totalCount += occurrences;
+    if (result[0] == 0) {
+      tree.distinctElements++;
+      tree.modCount++;
+    }
+    return result[0];
+  }
+
+  /**
+   * Adds {@code occurrences} of {@code e} to the subtree rooted at {@code node}, stores the
+   * previous count in {@code result[0]}, and returns the new right half of {@code node} if it had
+   * to be split, or null.
+   */
+  @Nullable private Node add(Node node, E e, int occurrences, int[] result) {
+    if (node instanceof Leaf) {
+      Leaf leaf = (Leaf) node;
+      int index = leaf.search(comparator(), e);
+      if (index >= 0) {
+        int oldCount = leaf.counts[index];
+        checkArgument((long) oldCount + occurrences <= Integer.MAX_VALUE,
+            "too many occurrences: %s", (long) oldCount + occurrences);
+        leaf.counts[index] += occurrences;
+        result[0] = oldCount;
+        return null;
+      }
+      result[0] = 0;
+      return leaf.insert(-index - 1, e, occurrences);
+    }
+    Inner inner = (Inner) node;
+    int index = inner.childIndex(comparator(), e);
+    Node split = add(inner.children[index], e, occurrences, result);
+    if (split != null) {
+      return inner.insertAfter(index, split);
+    }
+    inner.totals[index] += occurrences;
+    if (result[0] == 0) {
+      inner.distincts[index]++;
+    }
+    return null;
+  }
+
+  @Override
+  public int remove(@Nullable Object element, int occurrences) {
+    checkArgument(occurrences >= 0, "occurrences must be >= 0 but was %s", occurrences);
+    if (occurrences == 0) {
+      return count(element);
+    }
+    int[] result = new int[1]; // used as a mutable int reference to hold result
+    try {
+      @SuppressWarnings("unchecked")
+      E e = (E) element;
+      if (!range.contains(e)) {
+        return 0;
+      }
+      remove(tree.root, e, occurrences, result);
+    } catch (ClassCastException e) {
+      return 0;
+    } catch (NullPointerException e) {
+      return 0;
+    }
+    int oldCount = result[0];
+    if (oldCount > 0) {
+      tree.totalCount -= Math.min(oldCount, occurrences);
+      if (oldCount <= occurrences) {
+        tree.distinctElements--;
+        tree.modCount++;
+        collapseRoot();
+      }
+    }
+    return oldCount;
+  }
+
+  /**
+   * Removes up to {@code occurrences} of {@code e} from the subtree rooted at {@code node}, stores
+   * the previous count in {@code result[0]}, and returns whether {@code node} is now empty.
+   */
+  private boolean remove(Node node, E e, int occurrences, int[] result) {
+    if (node instanceof Leaf) {
+      Leaf leaf = (Leaf) node;
+      int index = leaf.search(comparator(), e);
+      if (index < 0) {
+        return false;
+      }
+      int oldCount = leaf.counts[index];
+      result[0] = oldCount;
+      if (oldCount > occurrences) {
+        leaf.counts[index] -= occurrences;
+        return false;
+      }
+      leaf.removeAt(index);
+      return leaf.size == 0;
+    }
+    Inner inner = (Inner) node;
+    int index = inner.childIndex(comparator(), e);
+    Node child = inner.children[index];
+    boolean childEmpty = remove(child, e, occurrences, result);
+    int oldCount = result[0];
+    if (oldCount == 0) {
+      return false;
+    }
+    inner.totals[index] -= Math.min(oldCount, occurrences);
+    if (oldCount <= occurrences) {
+      inner.distincts[index]--;
+    }
+    if (childEmpty) {
+      if (child instanceof Leaf) {
+        ((Leaf) child).unlink();
+      }
+      inner.removeAt(index);
+    }
+    return inner.size == 0;
+  }
+
+  /**
+   * Replaces a root with fewer than two children with its only child, or with an empty leaf.
+   */
+  private void collapseRoot() {
+    while (tree.root instanceof Inner) {
+      Inner root = (Inner) tree.root;
+      if (root.size == 0) {
+        tree.root = new Leaf(INITIAL_LEAF_CAPACITY);
+      } else if (root.size == 1) {
+        tree.root = root.children[0];
+      } else {
+        return;
+      }
+    }
+  }
+
+  @Override
+  public int setCount(@Nullable E element, int count) {
+    checkArgument(count >= 0);
+    if (!range.contains(element)) {
+      checkArgument(count == 0);
+      return 0;
+    }
+    int oldCount = count(element);
+    if (count > oldCount) {
+      add(element, count - oldCount);
+    } else if (count < oldCount) {
+      remove(element, oldCount - count);
+    }
+    return oldCount;
+  }
+
+  @Override
+  public boolean setCount(@Nullable E element, int oldCount, int newCount) {
+    checkArgument(newCount >= 0);
+    checkArgument(oldCount >= 0);
+    checkArgument(range.contains(element));
+    if (count(element) != oldCount) {
+      return false;
+    }
+    setCount(element, newCount);
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    if (range.hasLowerBound() || range.hasUpperBound()) {
+      super.clear();
+    } else if (tree.distinctElements > 0) {
+      tree.root = new Leaf(INITIAL_LEAF_CAPACITY);
+      tree.totalCount = 0;
+      tree.distinctElements = 0;
+      tree.modCount++;
+    }
+  }
+
+  /**
+   * An entry for an element found at a position in a leaf. Its count is read from that position
+   * for as long as no elements are added to or removed from the multiset.
+   */
+  private final class LeafEntry extends Multisets.AbstractEntry<E> {
+    private final E element;
+    private final Leaf leaf;
+    private final int index;
+    private final int expectedModCount;
+
+    LeafEntry(Leaf leaf, int index) {
+      @SuppressWarnings("unchecked") // we only put E's in leaves
+      E element = (E) leaf.elements[index];
+      this.element = element;
+      this.leaf = leaf;
+      this.index = index;
+      this.expectedModCount = tree.modCount;
+    }
+
+    @Override
+    public E getElement() {
+      return element;
+    }
+
+    @Override
+    public int getCount() {
+      return (tree.modCount == expectedModCount) ? leaf.counts[index] : count(element);
+    }
+  }
+
+  private abstract class EntryIterator implements Iterator<Entry<E>> {
+    // the position of the next entry, or null if there is none
+    @Nullable Leaf leaf;
+    int index;
+    @Nullable E lastElement;
+    boolean canRemove;
+    int expectedModCount = tree.modCount;
+
+    abstract boolean beyondRange(E element);
+
+    abstract void advance();
+
+    /**
+     * Positions this iterator at the first entry after {@code e}, in iteration order.
+     */
+    abstract void seekAfter(E e);
+
+    void checkForComodification() {
+      if (tree.modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      checkForComodification();
+      if (leaf == null) {
+        return false;
+      }
+      @SuppressWarnings("unchecked") // we only put E's in leaves
+      E element = (E) leaf.elements[index];
+      if (beyondRange(element)) {
+        leaf = null;
+        return false;
+      }
+      return true;
+    }
+
+    @Override
+    public Entry<E> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      LeafEntry result = new LeafEntry(leaf, index);
+      lastElement = result.getElement();
+      canRemove = true;
+      advance();
+      return result;
+    }
+
+    @Override
+    public void remove() {
+      checkState(canRemove);
+      checkForComodification();
+      setCount(lastElement, 0);
+      expectedModCount = tree.modCount;
+      canRemove = false;
+      if (leaf != null) {
+        // removing lastElement may have shifted the next entry
+        seekAfter(lastElement);
+      }
+    }
+  }
+
+  @Override
+  Iterator<Entry<E>> entryIterator() {
+    return new EntryIterator() {
+      @Override
+      boolean beyondRange(E element) {
+        return range.tooHigh(element);
+      }
+
+      @Override
+      void advance() {
+        if (++index == leaf.size) {
+          leaf = leaf.next;
+          index = 0;
+        }
+      }
+
+      @Override
+      void seekAfter(E e) {
+        seekCeiling(e, false);
+      }
+
+      void seekCeiling(E e, boolean inclusive) {
+        leaf = tree.leafFor(comparator(), e);
+        index = leaf.indexAbove(comparator(), e, !inclusive);
+        if (index == leaf.size) {
+          leaf = leaf.next;
+          index = 0;
+        }
+      }
+
+      {
+        if (range.hasLowerBound()) {
+          seekCeiling(range.getLowerEndpoint(), range.getLowerBoundType() == BoundType.CLOSED);
+        } else {
+          leaf = tree.firstLeaf();
+          if (leaf.size == 0) {
+            leaf = null;
+          }
+        }
+      }
+    };
+  }
+
+  @Override
+  Iterator<Entry<E>> descendingEntryIterator() {
+    return new EntryIterator() {
+      @Override
+      boolean beyondRange(E element) {
+        return range.tooLow(element);
+      }
+
+      @Override
+      void advance() {
+        if (--index < 0) {
+          leaf = leaf.prev;
+          index = (leaf == null) ? 0 : leaf.size - 1;
+        }
+      }
+
+      @Override
+      void seekAfter(E e) {
+        seekFloor(e, false);
+      }
+
+      void seekFloor(E e, boolean inclusive) {
+        leaf = tree.leafFor(comparator(), e);
+        index = leaf.indexAbove(comparator(), e, inclusive) - 1;
+        if (index < 0) {
+          leaf = leaf.prev;
+          index = (leaf == null) ? 0 : leaf.size - 1;
+        }
+      }
+
+      {
+        if (range.hasUpperBound()) {
+          seekFloor(range.getUpperEndpoint(), range.getUpperBoundType() == BoundType.CLOSED);
+        } else {
+          leaf = tree.lastLeaf();
+          index = leaf.size - 1;
+          if (leaf.size == 0) {
+            leaf = null;
+          }
+        }
+      }
+    };
+  }
+
+  @Override
+  public SortedMultiset<E> headMultiset(@Nullable E upperBound, BoundType boundType) {
+    return new BTreeMultiset<E>(tree, range.intersect(GeneralRange.upTo(
+        comparator(),
+        upperBound,
+        boundType)));
+  }
+
+  @Override
+  public SortedMultiset<E> tailMultiset(@Nullable E lowerBound, BoundType boundType) {
+    return new BTreeMultiset<E>(tree, range.intersect(GeneralRange.downTo(
+        comparator(),
+        lowerBound,
+        boundType)));
+  }
+
+  /**
+   * @serialData the comparator, the number of distinct elements, the first element, its count, the
+   *             second element, its count, and so on
+   */
+  @GwtIncompatible("java.io.ObjectOutputStream")
+  private void writeObject(ObjectOutputStream stream) throws IOException {
+    stream.defaultWriteObject();
+    stream.writeObject(elementSet().comparator());
+    Serialization.writeMultiset(this, stream);
+  }
+
+  @GwtIncompatible("java.io.ObjectInputStream")
+  private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+    stream.defaultReadObject();
+    @SuppressWarnings("unchecked")
+    // reading data stored by writeObject
+    Comparator<? super E> comparator = (Comparator<? super E>) stream.readObject();
+    Serialization.getFieldSetter(AbstractSortedMultiset.class, "comparator").set(this, comparator);
+    Serialization.getFieldSetter(BTreeMultiset.class, "range").set(
+        this,
+        GeneralRange.all(comparator));
+    Serialization.getFieldSetter(BTreeMultiset.class, "tree").set(this, new Tree());
+    Serialization.populateMultiset(this, stream);
+  }
+
+  @GwtIncompatible("not needed in emulated source") private static final long serialVersionUID = 1;
+}
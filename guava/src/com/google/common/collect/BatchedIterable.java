@@ -0,0 +1,456 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.annotation.Nullable;
+
+/**
+ * A pipeline of transformations and filters over an iterable, which processes
+ * its elements in arrays of a fixed size rather than one at a time. Obtain one
+ * with {@link FluentIterable#batched}.
+ *
+ * <p>A chain of {@link FluentIterable#transform} and {@link
+ * FluentIterable#filter} calls wraps the source iterator once per stage, and
+ * makes several virtual calls per stage for each element. A batched pipeline
+ * instead copies a batch of elements from the source into an array, and runs
+ * each stage over the whole array in a tight loop. Adjacent transformations
+ * are fused into a single stage, as are adjacent filters.
+ *
+ * <p>Nothing is computed until one of the terminal operations, such as {@link
+ * #toList} or {@link #reduce}, is called. By default, the batches are
+ * processed sequentially on the calling thread. After {@link #parallel}, they
+ * are processed on an executor, while the calling thread reads the source and
+ * collects the results. The source is only ever iterated by the calling
+ * thread, but the functions and predicates of the pipeline must be safe to
+ * call concurrently.
+ *
+ * <p>Like {@code FluentIterable}, instances are immutable; each method
+ * returns a new pipeline.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+@GwtIncompatible("java.util.concurrent")
+public final class BatchedIterable<E> {
+  /**
+   * A two-step reduction of the elements of a {@link BatchedIterable} to a
+   * single value. Each batch is folded with {@link #reduce}, starting from the
+   * identity, and the results for the batches are then folded together with
+   * {@link #combine}.
+   *
+   * <p>{@code combine} must be associative, and the identity must be an
+   * identity for it. If the pipeline is {@linkplain BatchedIterable#unordered
+   * unordered}, {@code combine} must also be commutative.
+   *
+   * @since 14.0
+   */
+  @Beta
+  public interface Reducer<E, A> {
+    /**
+     * Returns the result of folding {@code element} into {@code accumulated}.
+     */
+    A reduce(A accumulated, E element);
+
+    /**
+     * Returns the result of combining two partial results, where {@code left}
+     * comes from elements before those of {@code right} in an ordered pipeline.
+     */
+    A combine(A left, A right);
+  }
+
+  private final Iterable<?> source;
+  private final int batchSize;
+  private final ImmutableList<Stage> stages;
+  @Nullable private final ListeningExecutorService executor;
+  private final boolean ordered;
+
+  BatchedIterable(Iterable<?> source, int batchSize) {
+    this(checkNotNull(source), batchSize, ImmutableList.<Stage>of(), null,
+        true);
+    checkArgument(batchSize > 0, "batchSize (%s) must be positive", batchSize);
+  }
+
+  private BatchedIterable(Iterable<?> source, int batchSize,
+      ImmutableList<Stage> stages,
+      @Nullable ListeningExecutorService executor, boolean ordered) {
+    this.source = source;
+    this.batchSize = batchSize;
+    this.stages = stages;
+    this.executor = executor;
+    this.ordered = ordered;
+  }
+
+  /**
+   * Returns a pipeline that applies {@code function} to each element of this
+   * pipeline.
+   */
+  public <T> BatchedIterable<T> transform(Function<? super E, T> function) {
+    @SuppressWarnings("unchecked") // the stages are applied in order
+    Function<Object, ?> current = (Function<Object, ?>) checkNotNull(function);
+    Stage last = lastStage();
+    if (last instanceof TransformStage) {
+      return withLastStage(new TransformStage(
+          Functions.compose(current, ((TransformStage) last).function)));
+    }
+    return withStage(new TransformStage(current));
+  }
+
+  /**
+   * Returns a pipeline that keeps only the elements of this pipeline that
+   * satisfy {@code predicate}.
+   */
+  public BatchedIterable<E> filter(Predicate<? super E> predicate) {
+    @SuppressWarnings("unchecked") // the stages are applied in order
+    Predicate<Object> current = (Predicate<Object>) checkNotNull(predicate);
+    Stage last = lastStage();
+    if (last instanceof FilterStage) {
+      return withLastStage(new FilterStage(
+          Predicates.and(((FilterStage) last).predicate, current)));
+    }
+    return withStage(new FilterStage(current));
+  }
+
+  /**
+   * Returns a pipeline that processes its batches on {@code executor}, rather
+   * than on the thread calling a terminal operation. The results are still
+   * collected in source order unless {@link #unordered} is also called.
+   *
+   * <p>At most a small multiple of the number of available processors
+   * batches are submitted to {@code executor} at a time, so that long sources
+   * are not read far ahead of the results.
+   */
+  public BatchedIterable<E> parallel(ListeningExecutorService executor) {
+    return new BatchedIterable<E>(
+        source, batchSize, stages, checkNotNull(executor), ordered);
+  }
+
+  /**
+   * Returns a pipeline whose terminal operations may see the results of its
+   * batches in the order in which they finish, rather than in source order.
+   * The elements within each batch keep their order. This only has an effect
+   * on a {@linkplain #parallel parallel} pipeline, where it keeps one slow
+   * batch from holding up the rest.
+   */
+  public BatchedIterable<E> unordered() {
+    return new BatchedIterable<E>(source, batchSize, stages, executor, false);
+  }
+
+  /**
+   * Returns an {@code ImmutableList} containing the elements of this
+   * pipeline, in source order unless the pipeline is {@linkplain #unordered
+   * unordered}.
+   *
+   * @throws NullPointerException if any element is null
+   */
+  public ImmutableList<E> toList() {
+    final ImmutableList.Builder<E> builder = ImmutableList.builder();
+    run(new ArrayTerminal() {
+      @Override void accept(Object[] batch) {
+        builder.add(BatchedIterable.<E>cast(batch));
+      }
+    });
+    return builder.build();
+  }
+
+  /**
+   * Returns an {@code ImmutableSet} containing the elements of this pipeline
+   * with duplicates removed. Duplicates are removed as each batch is
+   * collected, so only the distinct elements are retained.
+   *
+   * @throws NullPointerException if any element is null
+   */
+  public ImmutableSet<E> toSet() {
+    final ImmutableSet.Builder<E> builder = ImmutableSet.streamingBuilder();
+    run(new ArrayTerminal() {
+      @Override void accept(Object[] batch) {
+        builder.add(BatchedIterable.<E>cast(batch));
+      }
+    });
+    return builder.build();
+  }
+
+  /**
+   * Adds the elements of this pipeline to {@code collection}, on the calling
+   * thread.
+   *
+   * @return {@code collection}, for convenience
+   */
+  public <C extends Collection<? super E>> C copyInto(final C collection) {
+    checkNotNull(collection);
+    run(new ArrayTerminal() {
+      @Override void accept(Object[] batch) {
+        collection.addAll(Arrays.asList(BatchedIterable.<E>cast(batch)));
+      }
+    });
+    return collection;
+  }
+
+  /**
+   * Reduces the elements of this pipeline with {@code reducer}, starting from
+   * {@code identity}. In a parallel pipeline, each batch is reduced on the
+   * executor, and only the per-batch results are combined on the calling
+   * thread.
+   */
+  public <A> A reduce(final A identity, final Reducer<? super E, A> reducer) {
+    checkNotNull(reducer);
+    final Object[] result = {identity};
+    run(new Terminal<A>() {
+      @Override A processBatch(Object[] elements, int size) {
+        A accumulated = identity;
+        for (int i = 0; i < size; i++) {
+          @SuppressWarnings("unchecked") // the stages produce only E's
+          E element = (E) elements[i];
+          accumulated = reducer.reduce(accumulated, element);
+        }
+        return accumulated;
+      }
+
+      @Override void accept(A batchResult) {
+        @SuppressWarnings("unchecked") // result[0] is always an A
+        A accumulated = (A) result[0];
+        result[0] = reducer.combine(accumulated, batchResult);
+      }
+    });
+    @SuppressWarnings("unchecked") // result[0] is always an A
+    A reduced = (A) result[0];
+    return reduced;
+  }
+
+  @Override public String toString() {
+    return "BatchedIterable(" + source + ", " + batchSize + ")";
+  }
+
+  @Nullable private Stage lastStage() {
+    return stages.isEmpty() ? null : stages.get(stages.size() - 1);
+  }
+
+  private <T> BatchedIterable<T> withStage(Stage stage) {
+    return new BatchedIterable<T>(source, batchSize,
+        ImmutableList.<Stage>builder().addAll(stages).add(stage).build(),
+        executor, ordered);
+  }
+
+  private <T> BatchedIterable<T> withLastStage(Stage stage) {
+    return new BatchedIterable<T>(source, batchSize,
+        ImmutableList.<Stage>builder()
+            .addAll(stages.subList(0, stages.size() - 1))
+            .add(stage)
+            .build(),
+        executor, ordered);
+  }
+
+  @SuppressWarnings("unchecked") // the stages produce only E's
+  private static <E> E[] cast(Object[] batch) {
+    return (E[]) batch;
+  }
+
+  /**
+   * One step of a pipeline, applied to a whole batch at once.
+   */
+  private abstract static class Stage {
+    /**
+     * Applies this stage to the first {@code size} elements of {@code
+     * elements} in place, and returns the number of elements left, which are
+     * moved to the front of the array.
+     */
+    abstract int apply(Object[] elements, int size);
+  }
+
+  private static final class TransformStage extends Stage {
+    final Function<Object, ?> function;
+
+    TransformStage(Function<Object, ?> function) {
+      this.function = function;
+    }
+
+    @Override int apply(Object[] elements, int size) {
+      for (int i = 0; i < size; i++) {
+        elements[i] = function.apply(elements[i]);
+      }
+      return size;
+    }
+  }
+
+  private static final class FilterStage extends Stage {
+    final Predicate<Object> predicate;
+
+    FilterStage(Predicate<Object> predicate) {
+      this.predicate = predicate;
+    }
+
+    @Override int apply(Object[] elements, int size) {
+      int kept = 0;
+      for (int i = 0; i < size; i++) {
+        Object element = elements[i];
+        if (predicate.apply(element)) {
+          elements[kept++] = element;
+        }
+      }
+      Arrays.fill(elements, kept, size, null);
+      return kept;
+    }
+  }
+
+  /**
+   * A terminal operation, in two parts: {@link #processBatch} may run on the
+   * executor of a parallel pipeline, while {@link #accept} always runs on the
+   * calling thread, once per batch.
+   */
+  private abstract static class Terminal<R> {
+    abstract R processBatch(Object[] elements, int size);
+
+    abstract void accept(R batchResult);
+  }
+
+  /**
+   * A terminal operation that collects the elements of each batch.
+   */
+  private abstract static class ArrayTerminal extends Terminal<Object[]> {
+    @Override Object[] processBatch(Object[] elements, int size) {
+      return (size == elements.length)
+          ? elements
+          : ObjectArrays.arraysCopyOf(elements, size);
+    }
+  }
+
+  private <R> R processBatch(Terminal<R> terminal, Object[] elements) {
+    int size = elements.length;
+    for (Stage stage : stages) {
+      size = stage.apply(elements, size);
+    }
+    return terminal.processBatch(elements, size);
+  }
+
+  /**
+   * Reads the next batch from {@code iterator} into a new array, which is
+   * shorter than the batch size only if the iterator is exhausted.
+   */
+  private Object[] nextBatch(Iterator<?> iterator) {
+    Object[] batch = new Object[batchSize];
+    int size = 0;
+    while (size < batchSize && iterator.hasNext()) {
+      batch[size++] = iterator.next();
+    }
+    return (size == batchSize) ? batch : ObjectArrays.arraysCopyOf(batch, size);
+  }
+
+  private <R> void run(Terminal<R> terminal) {
+    Iterator<?> iterator = source.iterator();
+    if (executor == null) {
+      while (iterator.hasNext()) {
+        terminal.accept(processBatch(terminal, nextBatch(iterator)));
+      }
+    } else {
+      runInParallel(terminal, iterator);
+    }
+  }
+
+  private static final int MAX_BATCHES_IN_FLIGHT =
+      2 * Runtime.getRuntime().availableProcessors() + 1;
+
+  private <R> void runInParallel(
+      final Terminal<R> terminal, Iterator<?> iterator) {
+    // futures in submission order, or in completion order if unordered
+    final Queue<ListenableFuture<R>> inFlight =
+        new ArrayDeque<ListenableFuture<R>>();
+    final BlockingQueue<ListenableFuture<R>> completed =
+        new LinkedBlockingQueue<ListenableFuture<R>>();
+    try {
+      while (iterator.hasNext()) {
+        if (inFlight.size() == MAX_BATCHES_IN_FLIGHT) {
+          terminal.accept(getDone(nextDone(inFlight, completed)));
+        }
+        final Object[] batch = nextBatch(iterator);
+        final ListenableFuture<R> future = executor.submit(new Callable<R>() {
+          @Override public R call() {
+            return processBatch(terminal, batch);
+          }
+        });
+        inFlight.add(future);
+        if (!ordered) {
+          future.addListener(new Runnable() {
+            @Override public void run() {
+              completed.add(future);
+            }
+          }, MoreExecutors.sameThreadExecutor());
+        }
+      }
+      while (!inFlight.isEmpty()) {
+        terminal.accept(getDone(nextDone(inFlight, completed)));
+      }
+    } finally {
+      // only nonempty if a batch or the source threw
+      for (Future<R> future : inFlight) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Removes and returns the next future whose result should be accepted:
+   * the oldest one if this pipeline is ordered, and otherwise whichever one
+   * finishes first.
+   */
+  private <R> ListenableFuture<R> nextDone(Queue<ListenableFuture<R>> inFlight,
+      BlockingQueue<ListenableFuture<R>> completed) {
+    if (ordered) {
+      return inFlight.remove();
+    }
+    ListenableFuture<R> future = Uninterruptibles.takeUninterruptibly(completed);
+    inFlight.remove(future);
+    return future;
+  }
+
+  /**
+   * Waits for {@code future}, rethrowing any unchecked exception or error
+   * thrown by its task.
+   */
+  private static <V> V getDone(Future<V> future) {
+    try {
+      return Uninterruptibles.getUninterruptibly(future);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+}
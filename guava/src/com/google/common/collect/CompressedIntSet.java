@@ -0,0 +1,932 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.Beta;
+import com.google.common.primitives.Ints;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable, compressed sorted set of {@code int} values, in the style of a
+ * <a href="http://roaringbitmap.org/">Roaring bitmap</a>. It typically needs a
+ * few bits per element, rather than the dozens of bytes per element of a
+ * {@link java.util.HashSet HashSet} or {@link ImmutableSortedSet} of {@code
+ * Integer}.
+ *
+ * <p>The values are divided into chunks of 2<sup>16</sup> consecutive values.
+ * Each nonempty chunk is stored in the most compact of three <i>containers</i>:
+ * a sorted {@code char} array of the values present, a bitmap of 2<sup>16</sup>
+ * bits, or a sorted array of runs of consecutive values. So sparse chunks cost
+ * two bytes per value, dense ones at most 8 KB, and ranges four bytes per run.
+ *
+ * <p>{@link #contains(int)} takes a binary search over the chunks and a lookup
+ * in one container. {@link #union}, {@link #intersection} and {@link
+ * #difference} combine two sets chunk by chunk; chunks present in only one
+ * operand are shared rather than copied, and bitmaps are combined a 64-bit word
+ * at a time.
+ *
+ * <p>The set can also be built from, and viewed as, a list of ranges: see
+ * {@link #create(Range)} and {@link #asRanges}. A {@link ContiguousSet} is
+ * copied in time proportional to the number of chunks it spans.
+ *
+ * <p>Like other immutable collections, this set rejects null queries, and does
+ * not support modification.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+public final class CompressedIntSet extends AbstractSet<Integer>
+    implements SortedSet<Integer> {
+  private static final CompressedIntSet EMPTY =
+      new CompressedIntSet(new char[0], new Container[0]);
+
+  /** Returns the empty set. */
+  public static CompressedIntSet of() {
+    return EMPTY;
+  }
+
+  /** Returns a set containing the given values, in any order. */
+  public static CompressedIntSet of(int... values) {
+    return copyOf(values);
+  }
+
+  /**
+   * Returns a set containing the given values, which may be in any order and
+   * contain duplicates.
+   */
+  public static CompressedIntSet copyOf(int[] values) {
+    int[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return fromSorted(sorted);
+  }
+
+  /**
+   * Returns a set containing the given values. If {@code values} is a {@link
+   * ContiguousSet} or another {@code CompressedIntSet}, no element is visited
+   * individually.
+   *
+   * @throws NullPointerException if any of {@code values} is null
+   */
+  public static CompressedIntSet copyOf(Iterable<Integer> values) {
+    if (values instanceof CompressedIntSet) {
+      return (CompressedIntSet) values;
+    } else if (values instanceof ContiguousSet) {
+      ContiguousSet<Integer> contiguousSet = (ContiguousSet<Integer>) values;
+      return contiguousSet.isEmpty()
+          ? EMPTY
+          : create(contiguousSet.range());
+    }
+    Collection<Integer> collection = (values instanceof Collection)
+        ? (Collection<Integer>) values
+        : Lists.newArrayList(values);
+    return copyOf(Ints.toArray(collection));
+  }
+
+  /**
+   * Returns a set containing every {@code int} in {@code range}. This takes
+   * time and space proportional to the number of chunks of 2<sup>16</sup>
+   * values the range spans.
+   */
+  public static CompressedIntSet create(Range<Integer> range) {
+    return copyOfRanges(ImmutableList.of(range));
+  }
+
+  /**
+   * Returns a set containing every {@code int} in the ranges of {@code
+   * rangeSet}.
+   */
+  static CompressedIntSet copyOf(RangeSet<Integer> rangeSet) {
+    return copyOfRanges(rangeSet.asRanges());
+  }
+
+  /**
+   * Returns a set of the {@code int}s in {@code ranges}, which must be disjoint
+   * and in increasing order, as in a {@link RangeSet}.
+   */
+  private static CompressedIntSet copyOfRanges(
+      Iterable<Range<Integer>> ranges) {
+    Builder builder = new Builder();
+    for (Range<Integer> range : ranges) {
+      Range<Integer> canonical = range.canonical(DiscreteDomains.integers());
+      if (!canonical.isEmpty()) {
+        int lowest = canonical.lowerEndpoint();
+        long highest = canonical.hasUpperBound()
+            ? canonical.upperEndpoint() - 1L
+            : Integer.MAX_VALUE;
+        builder.addRun(unsigned(lowest), unsigned((int) highest));
+      }
+    }
+    return builder.build();
+  }
+
+  private static CompressedIntSet fromSorted(int[] sorted) {
+    Builder builder = new Builder();
+    for (int i = 0; i < sorted.length; ) {
+      // Extend the run of consecutive values starting at sorted[i].
+      int j = i + 1;
+      while (j < sorted.length && (long) sorted[j] - sorted[j - 1] <= 1) {
+        j++;
+      }
+      builder.addRun(unsigned(sorted[i]), unsigned(sorted[j - 1]));
+      i = j;
+    }
+    return builder.build();
+  }
+
+  /*
+   * Values are stored with their sign bit flipped, so that the unsigned order
+   * of the stored bits is the signed order of the values. The high 16 bits of
+   * a stored value are its chunk key, and the low 16 bits its position in the
+   * chunk.
+   */
+
+  private static long unsigned(int value) {
+    return (value ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+  }
+
+  private static int value(char key, char low) {
+    return ((key << 16) | low) ^ Integer.MIN_VALUE;
+  }
+
+  /** The keys of the nonempty chunks, in increasing order. */
+  private final char[] keys;
+
+  /** The container of each chunk, indexed like {@link #keys}. */
+  private final Container[] containers;
+
+  /** The number of elements, which may exceed {@code Integer.MAX_VALUE}. */
+  private final long size;
+
+  private CompressedIntSet(char[] keys, Container[] containers) {
+    this.keys = keys;
+    this.containers = containers;
+    long size = 0;
+    for (Container container : containers) {
+      size += container.cardinality();
+    }
+    this.size = size;
+  }
+
+  /**
+   * Returns the number of elements in this set, or {@code Integer.MAX_VALUE}
+   * if it has more elements than that.
+   */
+  @Override public int size() {
+    return Ints.saturatedCast(size);
+  }
+
+  @Override public boolean isEmpty() {
+    return keys.length == 0;
+  }
+
+  @Override public boolean contains(@Nullable Object object) {
+    return (object instanceof Integer)
+        && contains(((Integer) object).intValue());
+  }
+
+  /** Returns whether this set contains {@code value}, without boxing it. */
+  public boolean contains(int value) {
+    int stored = value ^ Integer.MIN_VALUE;
+    int index = Arrays.binarySearch(keys, (char) (stored >>> 16));
+    return index >= 0 && containers[index].contains((char) stored);
+  }
+
+  @Override public boolean containsAll(Collection<?> collection) {
+    if (collection instanceof CompressedIntSet) {
+      return ((CompressedIntSet) collection).difference(this).isEmpty();
+    }
+    return super.containsAll(collection);
+  }
+
+  @Override public UnmodifiableIterator<Integer> iterator() {
+    return new UnmodifiableIterator<Integer>() {
+      int chunk = -1;
+      char[] buffer = new char[0];
+      int bufferSize = 0;
+      int position = 0;
+
+      @Override public boolean hasNext() {
+        return position < bufferSize || chunk + 1 < containers.length;
+      }
+
+      @Override public Integer next() {
+        if (position == bufferSize) {
+          if (chunk + 1 >= containers.length) {
+            throw new NoSuchElementException();
+          }
+          Container container = containers[++chunk];
+          if (buffer.length < container.cardinality()) {
+            buffer = new char[container.cardinality()];
+          }
+          bufferSize = container.fill(buffer);
+          position = 0;
+        }
+        return value(keys[chunk], buffer[position++]);
+      }
+    };
+  }
+
+  /** Returns the values of this set, in increasing order. */
+  public int[] toIntArray() {
+    int[] result = new int[size()];
+    char[] buffer = new char[Container.MAX_CARDINALITY];
+    for (int chunk = 0, i = 0; chunk < containers.length; chunk++) {
+      int count = containers[chunk].fill(buffer);
+      for (int j = 0; j < count; j++) {
+        result[i++] = value(keys[chunk], buffer[j]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the natural ordering, by which the elements of this set are
+   * ordered.
+   */
+  @Override public Comparator<? super Integer> comparator() {
+    return Ordering.natural();
+  }
+
+  @Override public Integer first() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return value(keys[0], containers[0].first());
+  }
+
+  @Override public Integer last() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    int last = keys.length - 1;
+    return value(keys[last], containers[last].last());
+  }
+
+  /**
+   * Returns a set of the elements less than {@code toElement}. The set is
+   * computed eagerly rather than being a view, by intersecting this set with a
+   * set of the range, so it takes time proportional to the number of chunks of
+   * this set plus the number of chunks the range spans.
+   */
+  @Override public CompressedIntSet headSet(Integer toElement) {
+    return intersection(create(Ranges.lessThan(toElement)));
+  }
+
+  /**
+   * Returns a set of the elements from {@code fromElement}, inclusive, to
+   * {@code toElement}, exclusive. The set is computed eagerly, like {@link
+   * #headSet}.
+   *
+   * @throws IllegalArgumentException if {@code fromElement} is greater than
+   *     {@code toElement}
+   */
+  @Override public CompressedIntSet subSet(
+      Integer fromElement, Integer toElement) {
+    checkArgument(fromElement <= toElement,
+        "fromElement (%s) is greater than toElement (%s)",
+        fromElement, toElement);
+    return intersection(create(Ranges.closedOpen(fromElement, toElement)));
+  }
+
+  /**
+   * Returns a set of the elements greater than or equal to {@code
+   * fromElement}. The set is computed eagerly, like {@link #headSet}.
+   */
+  @Override public CompressedIntSet tailSet(Integer fromElement) {
+    return intersection(create(Ranges.atLeast(fromElement)));
+  }
+
+  /** Returns the set of values in this set, in {@code other}, or in both. */
+  public CompressedIntSet union(CompressedIntSet other) {
+    int i = 0;
+    int j = 0;
+    Builder builder = new Builder();
+    while (i < keys.length || j < other.keys.length) {
+      if (j == other.keys.length
+          || (i < keys.length && keys[i] < other.keys[j])) {
+        builder.add(keys[i], containers[i]);
+        i++;
+      } else if (i == keys.length || other.keys[j] < keys[i]) {
+        builder.add(other.keys[j], other.containers[j]);
+        j++;
+      } else {
+        builder.add(keys[i], Container.or(containers[i], other.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return builder.build();
+  }
+
+  /** Returns the set of values in both this set and {@code other}. */
+  public CompressedIntSet intersection(CompressedIntSet other) {
+    int i = 0;
+    int j = 0;
+    Builder builder = new Builder();
+    while (i < keys.length && j < other.keys.length) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (other.keys[j] < keys[i]) {
+        j++;
+      } else {
+        builder.add(keys[i], Container.and(containers[i], other.containers[j]));
+        i++;
+        j++;
+      }
+    }
+    return builder.build();
+  }
+
+  /** Returns the set of values in this set but not in {@code other}. */
+  public CompressedIntSet difference(CompressedIntSet other) {
+    int j = 0;
+    Builder builder = new Builder();
+    for (int i = 0; i < keys.length; i++) {
+      while (j < other.keys.length && other.keys[j] < keys[i]) {
+        j++;
+      }
+      if (j < other.keys.length && other.keys[j] == keys[i]) {
+        builder.add(keys[i],
+            Container.andNot(containers[i], other.containers[j]));
+      } else {
+        builder.add(keys[i], containers[i]);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns the maximal ranges of consecutive values in this set, in increasing
+   * order. Each range is in its {@linkplain Range#canonical canonical} form;
+   * {@link Range#asSet} converts it to a {@link ContiguousSet}.
+   */
+  public ImmutableList<Range<Integer>> asRanges() {
+    ImmutableList.Builder<Range<Integer>> builder = ImmutableList.builder();
+    char[] buffer = new char[Container.MAX_CARDINALITY];
+    boolean inRun = false;
+    long runStart = 0;
+    long runEnd = 0;
+    for (int chunk = 0; chunk < containers.length; chunk++) {
+      long base = ((long) keys[chunk]) << 16;
+      int count = containers[chunk].fill(buffer);
+      for (int i = 0; i < count; i++) {
+        long stored = base | buffer[i];
+        if (inRun && stored == runEnd + 1) {
+          runEnd = stored;
+        } else {
+          if (inRun) {
+            builder.add(toRange(runStart, runEnd));
+          }
+          inRun = true;
+          runStart = runEnd = stored;
+        }
+      }
+    }
+    if (inRun) {
+      builder.add(toRange(runStart, runEnd));
+    }
+    return builder.build();
+  }
+
+  private static Range<Integer> toRange(long storedLowest, long storedHighest) {
+    return PackedRangeSet.Endpoints.INTEGERS.toRange(
+        (int) storedLowest ^ Integer.MIN_VALUE,
+        (int) storedHighest ^ Integer.MIN_VALUE);
+  }
+
+  /** Returns the ranges of this set as a {@link PackedRangeSet}. */
+  PackedRangeSet<Integer> toRangeSet() {
+    return PackedRangeSet.copyOfIntegers(asRanges());
+  }
+
+  @Override public boolean equals(@Nullable Object object) {
+    if (object instanceof CompressedIntSet) {
+      CompressedIntSet other = (CompressedIntSet) object;
+      // Each container has the representation chosen by Container.optimize,
+      // which depends only on its contents.
+      return size == other.size && Arrays.equals(keys, other.keys)
+          && Arrays.equals(containers, other.containers);
+    }
+    return super.equals(object);
+  }
+
+  @Override public int hashCode() {
+    int hashCode = 0;
+    char[] buffer = new char[Container.MAX_CARDINALITY];
+    for (int chunk = 0; chunk < containers.length; chunk++) {
+      int count = containers[chunk].fill(buffer);
+      for (int i = 0; i < count; i++) {
+        hashCode += value(keys[chunk], buffer[i]);
+      }
+    }
+    return hashCode;
+  }
+
+  /**
+   * Accumulates chunks, or runs of values, in increasing order.
+   */
+  private static final class Builder {
+    char[] keys = new char[4];
+    Container[] containers = new Container[4];
+    int chunks = 0;
+
+    // The runs of the chunk being built from addRun.
+    boolean building = false;
+    char buildingKey;
+    char[] runStarts = new char[4];
+    char[] runLasts = new char[4];
+    int runs = 0;
+
+    /**
+     * Adds a container for a chunk after all the chunks added so far. A null
+     * container, meaning an empty chunk, is ignored.
+     */
+    void add(char key, @Nullable Container container) {
+      if (container == null) {
+        return;
+      }
+      if (chunks == keys.length) {
+        keys = Arrays.copyOf(keys, chunks * 2);
+        containers = Arrays.copyOf(containers, chunks * 2);
+      }
+      keys[chunks] = key;
+      containers[chunks] = container;
+      chunks++;
+    }
+
+    /**
+     * Adds the stored values from {@code lowest} to {@code highest},
+     * inclusive, which must be greater than any value added so far.
+     */
+    void addRun(long lowest, long highest) {
+      while (true) {
+        char key = (char) (lowest >>> 16);
+        long chunkEnd = lowest | 0xFFFF;
+        long end = Math.min(chunkEnd, highest);
+        if (!building || key != buildingKey) {
+          finishChunk();
+          building = true;
+          buildingKey = key;
+        }
+        if (runs > 0 && (char) lowest == runLasts[runs - 1] + 1) {
+          // Merge adjacent runs, so that equal sets get equal containers.
+          runLasts[runs - 1] = (char) end;
+        } else {
+          if (runs == runStarts.length) {
+            runStarts = Arrays.copyOf(runStarts, runs * 2);
+            runLasts = Arrays.copyOf(runLasts, runs * 2);
+          }
+          runStarts[runs] = (char) lowest;
+          runLasts[runs] = (char) end;
+          runs++;
+        }
+        if (end == highest) {
+          return;
+        }
+        lowest = end + 1;
+      }
+    }
+
+    private void finishChunk() {
+      if (building) {
+        add(buildingKey, Container.optimize(new RunContainer(
+            Arrays.copyOf(runStarts, runs), Arrays.copyOf(runLasts, runs))));
+        building = false;
+        runs = 0;
+      }
+    }
+
+    CompressedIntSet build() {
+      finishChunk();
+      return (chunks == 0)
+          ? EMPTY
+          : new CompressedIntSet(
+              Arrays.copyOf(keys, chunks), Arrays.copyOf(containers, chunks));
+    }
+  }
+
+  /**
+   * The values of one chunk, as {@code char}s. Containers are immutable, and
+   * so may be shared between sets; each is created by {@link #optimize}, and is
+   * never empty.
+   */
+  private abstract static class Container {
+    static final int MAX_CARDINALITY = 1 << 16;
+
+    /** The number of 64-bit words in a bitmap. */
+    static final int WORDS = MAX_CARDINALITY / 64;
+
+    /** The size of a bitmap, in bytes. */
+    static final int BITMAP_BYTES = MAX_CARDINALITY / 8;
+
+    abstract int cardinality();
+
+    abstract boolean contains(char value);
+
+    abstract char first();
+
+    abstract char last();
+
+    /** Returns the number of runs of consecutive values. */
+    abstract int runCount();
+
+    /**
+     * Writes the values in increasing order to the start of {@code buffer},
+     * and returns how many there are.
+     */
+    abstract int fill(char[] buffer);
+
+    /** Sets the bits of the values in the bitmap {@code words}. */
+    abstract void orInto(long[] words);
+
+    long[] toBitmapWords() {
+      long[] words = new long[WORDS];
+      orInto(words);
+      return words;
+    }
+
+    /**
+     * Returns a container with the same values as {@code container}, in
+     * whichever representation is smallest, or {@code null} if it is empty.
+     */
+    @Nullable static Container optimize(Container container) {
+      int cardinality = container.cardinality();
+      if (cardinality == 0) {
+        return null;
+      }
+      int arrayBytes = 2 * cardinality;
+      int runBytes = 4 * container.runCount();
+      if (runBytes < arrayBytes && runBytes < BITMAP_BYTES) {
+        return (container instanceof RunContainer)
+            ? container
+            : RunContainer.fromSorted(fillNew(container));
+      } else if (arrayBytes <= BITMAP_BYTES) {
+        return (container instanceof ArrayContainer)
+            ? container
+            : new ArrayContainer(fillNew(container));
+      } else {
+        return (container instanceof BitmapContainer)
+            ? container
+            : new BitmapContainer(container.toBitmapWords(), cardinality);
+      }
+    }
+
+    private static char[] fillNew(Container container) {
+      char[] values = new char[container.cardinality()];
+      container.fill(values);
+      return values;
+    }
+
+    @Nullable static Container and(Container a, Container b) {
+      if (a instanceof ArrayContainer) {
+        return ((ArrayContainer) a).filter(b, true);
+      } else if (b instanceof ArrayContainer) {
+        return ((ArrayContainer) b).filter(a, true);
+      }
+      long[] words = a.toBitmapWords();
+      long[] otherWords = (b instanceof BitmapContainer)
+          ? ((BitmapContainer) b).words
+          : b.toBitmapWords();
+      for (int i = 0; i < WORDS; i++) {
+        words[i] &= otherWords[i];
+      }
+      return optimize(BitmapContainer.create(words));
+    }
+
+    @Nullable static Container or(Container a, Container b) {
+      if (a instanceof ArrayContainer && b instanceof ArrayContainer
+          && a.cardinality() + b.cardinality() <= BITMAP_BYTES / 2) {
+        return optimize(((ArrayContainer) a).merge((ArrayContainer) b));
+      }
+      long[] words = a.toBitmapWords();
+      b.orInto(words);
+      return optimize(BitmapContainer.create(words));
+    }
+
+    @Nullable static Container andNot(Container a, Container b) {
+      if (a instanceof ArrayContainer) {
+        return ((ArrayContainer) a).filter(b, false);
+      }
+      long[] words = a.toBitmapWords();
+      long[] otherWords = (b instanceof BitmapContainer)
+          ? ((BitmapContainer) b).words
+          : b.toBitmapWords();
+      for (int i = 0; i < WORDS; i++) {
+        words[i] &= ~otherWords[i];
+      }
+      return optimize(BitmapContainer.create(words));
+    }
+  }
+
+  /** A sorted array of the values, for sparse chunks. */
+  private static final class ArrayContainer extends Container {
+    final char[] values;
+
+    ArrayContainer(char[] values) {
+      this.values = values;
+    }
+
+    @Override int cardinality() {
+      return values.length;
+    }
+
+    @Override boolean contains(char value) {
+      return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    @Override char first() {
+      return values[0];
+    }
+
+    @Override char last() {
+      return values[values.length - 1];
+    }
+
+    @Override int runCount() {
+      int runs = 1;
+      for (int i = 1; i < values.length; i++) {
+        if (values[i] != values[i - 1] + 1) {
+          runs++;
+        }
+      }
+      return runs;
+    }
+
+    @Override int fill(char[] buffer) {
+      System.arraycopy(values, 0, buffer, 0, values.length);
+      return values.length;
+    }
+
+    @Override void orInto(long[] words) {
+      for (char value : values) {
+        words[value >>> 6] |= 1L << value;
+      }
+    }
+
+    /**
+     * Returns the values that {@code other} contains, if {@code keep}, or does
+     * not contain, otherwise.
+     */
+    @Nullable Container filter(Container other, boolean keep) {
+      char[] result = new char[values.length];
+      int count = 0;
+      for (char value : values) {
+        if (other.contains(value) == keep) {
+          result[count++] = value;
+        }
+      }
+      return optimize(new ArrayContainer(Arrays.copyOf(result, count)));
+    }
+
+    /** Returns the union of these values and those of {@code other}. */
+    ArrayContainer merge(ArrayContainer other) {
+      char[] otherValues = other.values;
+      char[] result = new char[values.length + otherValues.length];
+      int i = 0;
+      int j = 0;
+      int count = 0;
+      while (i < values.length && j < otherValues.length) {
+        char value = values[i];
+        char otherValue = otherValues[j];
+        if (value <= otherValue) {
+          i++;
+        }
+        if (otherValue <= value) {
+          j++;
+        }
+        result[count++] = (value <= otherValue) ? value : otherValue;
+      }
+      while (i < values.length) {
+        result[count++] = values[i++];
+      }
+      while (j < otherValues.length) {
+        result[count++] = otherValues[j++];
+      }
+      return new ArrayContainer(Arrays.copyOf(result, count));
+    }
+
+    @Override public boolean equals(@Nullable Object object) {
+      return object instanceof ArrayContainer
+          && Arrays.equals(values, ((ArrayContainer) object).values);
+    }
+
+    @Override public int hashCode() {
+      return Arrays.hashCode(values);
+    }
+  }
+
+  /** A bitmap of the values, for dense chunks. */
+  private static final class BitmapContainer extends Container {
+    final long[] words;
+    final int cardinality;
+
+    static BitmapContainer create(long[] words) {
+      int cardinality = 0;
+      for (long word : words) {
+        cardinality += Long.bitCount(word);
+      }
+      return new BitmapContainer(words, cardinality);
+    }
+
+    BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override int cardinality() {
+      return cardinality;
+    }
+
+    @Override boolean contains(char value) {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override char first() {
+      int i = 0;
+      while (words[i] == 0) {
+        i++;
+      }
+      return (char) (i * 64 + Long.numberOfTrailingZeros(words[i]));
+    }
+
+    @Override char last() {
+      int i = WORDS - 1;
+      while (words[i] == 0) {
+        i--;
+      }
+      return (char) (i * 64 + 63 - Long.numberOfLeadingZeros(words[i]));
+    }
+
+    @Override int runCount() {
+      int runs = 0;
+      long previousWord = 0;
+      for (long word : words) {
+        // A run starts at each set bit whose predecessor is clear.
+        long starts = word & ~((word << 1) | (previousWord >>> 63));
+        runs += Long.bitCount(starts);
+        previousWord = word;
+      }
+      return runs;
+    }
+
+    @Override int fill(char[] buffer) {
+      int count = 0;
+      for (int i = 0; i < WORDS; i++) {
+        for (long word = words[i]; word != 0; word &= word - 1) {
+          buffer[count++] =
+              (char) (i * 64 + Long.numberOfTrailingZeros(word));
+        }
+      }
+      return count;
+    }
+
+    @Override void orInto(long[] target) {
+      for (int i = 0; i < WORDS; i++) {
+        target[i] |= words[i];
+      }
+    }
+
+    @Override long[] toBitmapWords() {
+      return words.clone();
+    }
+
+    @Override public boolean equals(@Nullable Object object) {
+      return object instanceof BitmapContainer
+          && Arrays.equals(words, ((BitmapContainer) object).words);
+    }
+
+    @Override public int hashCode() {
+      return Arrays.hashCode(words);
+    }
+  }
+
+  /** Sorted runs of consecutive values, for chunks made of ranges. */
+  private static final class RunContainer extends Container {
+    /** The first value of each run, in increasing order. */
+    final char[] starts;
+
+    /** The last value of each run, inclusive. */
+    final char[] lasts;
+
+    final int cardinality;
+
+    static RunContainer fromSorted(char[] values) {
+      int runs = 0;
+      char[] starts = new char[values.length];
+      char[] lasts = new char[values.length];
+      for (int i = 0; i < values.length; i++) {
+        if (runs > 0 && values[i] == lasts[runs - 1] + 1) {
+          lasts[runs - 1] = values[i];
+        } else {
+          starts[runs] = lasts[runs] = values[i];
+          runs++;
+        }
+      }
+      return new RunContainer(
+          Arrays.copyOf(starts, runs), Arrays.copyOf(lasts, runs));
+    }
+
+    RunContainer(char[] starts, char[] lasts) {
+      this.starts = starts;
+      this.lasts = lasts;
+      int cardinality = 0;
+      for (int i = 0; i < starts.length; i++) {
+        cardinality += lasts[i] - starts[i] + 1;
+      }
+      this.cardinality = cardinality;
+    }
+
+    @Override int cardinality() {
+      return cardinality;
+    }
+
+    @Override boolean contains(char value) {
+      int index = Arrays.binarySearch(starts, value);
+      if (index >= 0) {
+        return true;
+      }
+      int run = -index - 2;
+      return run >= 0 && value <= lasts[run];
+    }
+
+    @Override char first() {
+      return starts[0];
+    }
+
+    @Override char last() {
+      return lasts[lasts.length - 1];
+    }
+
+    @Override int runCount() {
+      return starts.length;
+    }
+
+    @Override int fill(char[] buffer) {
+      int count = 0;
+      for (int i = 0; i < starts.length; i++) {
+        for (int value = starts[i]; value <= lasts[i]; value++) {
+          buffer[count++] = (char) value;
+        }
+      }
+      return count;
+    }
+
+    @Override void orInto(long[] words) {
+      for (int i = 0; i < starts.length; i++) {
+        int start = starts[i];
+        int end = lasts[i] + 1;
+        int firstWord = start >>> 6;
+        int lastWord = (end - 1) >>> 6;
+        long firstMask = -1L << start;
+        long lastMask = -1L >>> -end;
+        if (firstWord == lastWord) {
+          words[firstWord] |= firstMask & lastMask;
+        } else {
+          words[firstWord] |= firstMask;
+          for (int w = firstWord + 1; w < lastWord; w++) {
+            words[w] = -1L;
+          }
+          words[lastWord] |= lastMask;
+        }
+      }
+    }
+
+    @Override public boolean equals(@Nullable Object object) {
+      if (object instanceof RunContainer) {
+        RunContainer other = (RunContainer) object;
+        return Arrays.equals(starts, other.starts)
+            && Arrays.equals(lasts, other.lasts);
+      }
+      return false;
+    }
+
+    @Override public int hashCode() {
+      return Arrays.hashCode(starts) * 31 + Arrays.hashCode(lasts);
+    }
+  }
+}
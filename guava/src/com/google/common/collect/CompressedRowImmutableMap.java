@@ -0,0 +1,446 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+
+/**
+ * The backing map of an immutable multimap, in compressed sparse row layout:
+ * the distinct keys are stored once, in order, and the values of all keys are
+ * stored in one flat array, where the values of key {@code i} occupy the
+ * positions from {@code offsets[i]} (inclusive) to {@code offsets[i + 1]}
+ * (exclusive). No collection is retained per key; the value collections seen
+ * through {@link #get} are views over the flat array, created on demand.
+ *
+ * <p>Keys are found through an open-addressed table of key indices, probed
+ * linearly.
+ *
+ * @author Louis Wasserman
+ */
+@GwtIncompatible("not needed in emulated source")
+abstract class CompressedRowImmutableMap<K, V, C extends ImmutableCollection<V>>
+    extends ImmutableMap<K, C> {
+
+  /**
+   * Returns a map from each key with a nonempty collection of values in
+   * {@code rows} to an {@link ImmutableList} of those values.
+   *
+   * @throws NullPointerException if any key or value is null
+   * @throws IllegalArgumentException if two rows have the same key
+   */
+  static <K, V> CompressedRowImmutableMap<K, V, ImmutableList<V>> forLists(
+      Collection<? extends Entry<? extends K, ? extends Collection<? extends V>>>
+          rows) {
+    // first pass: size the arrays
+    int keyCount = 0;
+    int valueCount = 0;
+    for (Entry<? extends K, ? extends Collection<? extends V>> row : rows) {
+      int rowSize = row.getValue().size();
+      if (rowSize > 0) {
+        keyCount++;
+        valueCount += rowSize;
+      }
+    }
+
+    // second pass: fill them
+    Object[] keys = new Object[keyCount];
+    int[] offsets = new int[keyCount + 1];
+    Object[] values = new Object[valueCount];
+    int keyIndex = 0;
+    int valueIndex = 0;
+    for (Entry<? extends K, ? extends Collection<? extends V>> row : rows) {
+      Collection<? extends V> rowValues = row.getValue();
+      if (!rowValues.isEmpty()) {
+        keys[keyIndex++] = checkNotNull(row.getKey());
+        for (V value : rowValues) {
+          values[valueIndex++] = checkNotNull(value);
+        }
+        offsets[keyIndex] = valueIndex;
+      }
+    }
+    return new ListRows<K, V>(keys, offsets, values);
+  }
+
+  /**
+   * Returns a map from each key with a nonempty collection of values in
+   * {@code rows} to an {@link ImmutableSet} of those values. Duplicate values
+   * for the same key are ignored.
+   *
+   * @throws NullPointerException if any key or value is null
+   * @throws IllegalArgumentException if two rows have the same key
+   */
+  static <K, V> CompressedRowImmutableMap<K, V, ImmutableSet<V>> forSets(
+      Collection<? extends Entry<? extends K, ? extends Collection<? extends V>>>
+          rows) {
+    // first pass: size the arrays, leaving room for duplicates
+    int keyCount = 0;
+    int valueCount = 0;
+    for (Entry<? extends K, ? extends Collection<? extends V>> row : rows) {
+      int rowSize = row.getValue().size();
+      if (rowSize > 0) {
+        keyCount++;
+        valueCount += rowSize;
+      }
+    }
+
+    // second pass: fill them, hashing each (key, value) pair as we go
+    Object[] keys = new Object[keyCount];
+    int[] offsets = new int[keyCount + 1];
+    Object[] values = new Object[valueCount];
+    int[] entryTable = newTable(valueCount);
+    int entryMask = entryTable.length - 1;
+    int keyIndex = 0;
+    int valueIndex = 0;
+    for (Entry<? extends K, ? extends Collection<? extends V>> row : rows) {
+      Collection<? extends V> rowValues = row.getValue();
+      if (rowValues.isEmpty()) {
+        continue;
+      }
+      int rowStart = valueIndex;
+      keys[keyIndex] = checkNotNull(row.getKey());
+      valueLoop:
+      for (V value : rowValues) {
+        checkNotNull(value);
+        for (int i = entryHash(keyIndex, value); ; i++) {
+          int existing = entryTable[i & entryMask];
+          if (existing == ABSENT) {
+            entryTable[i & entryMask] = valueIndex;
+            values[valueIndex++] = value;
+            break;
+          } else if (existing >= rowStart && value.equals(values[existing])) {
+            continue valueLoop;
+          }
+        }
+      }
+      offsets[++keyIndex] = valueIndex;
+    }
+    if (valueIndex < values.length) {
+      values = ObjectArrays.arraysCopyOf(values, valueIndex);
+    }
+    return new SetRows<K, V>(keys, offsets, values, entryTable);
+  }
+
+  private static final int ABSENT = -1;
+
+  private static int[] newTable(int expectedEntries) {
+    int[] table = new int[ImmutableSet.chooseTableSize(
+        Math.max(expectedEntries, 2))];
+    Arrays.fill(table, ABSENT);
+    return table;
+  }
+
+  private static int entryHash(int keyIndex, Object value) {
+    return Hashing.smear(value.hashCode() ^ (keyIndex * 0x9E3779B9));
+  }
+
+  // the distinct keys, in order
+  private final transient Object[] keys;
+  // the values of key i are at [offsets[i], offsets[i + 1])
+  final transient int[] offsets;
+  // the values of every key, concatenated
+  final transient Object[] values;
+  // key indices in hashed positions, or ABSENT
+  private final transient int[] keyTable;
+  private final transient int keySetHashCode;
+
+  CompressedRowImmutableMap(Object[] keys, int[] offsets, Object[] values) {
+    this.keys = keys;
+    this.offsets = offsets;
+    this.values = values;
+    this.keyTable = newTable(keys.length);
+    int mask = keyTable.length - 1;
+    int keySetHashCodeMutable = 0;
+    for (int keyIndex = 0; keyIndex < keys.length; keyIndex++) {
+      Object key = keys[keyIndex];
+      int keyHashCode = key.hashCode();
+      keySetHashCodeMutable += keyHashCode;
+      for (int i = Hashing.smear(keyHashCode); ; i++) {
+        int existing = keyTable[i & mask];
+        if (existing == ABSENT) {
+          keyTable[i & mask] = keyIndex;
+          break;
+        }
+        checkArgument(!key.equals(keys[existing]), "duplicate key: %s", key);
+      }
+    }
+    this.keySetHashCode = keySetHashCodeMutable;
+  }
+
+  /** Returns the values of the key at {@code keyIndex}, as a view. */
+  abstract C row(int keyIndex);
+
+  /** Returns the number of values of the key at {@code keyIndex}. */
+  int rowSize(int keyIndex) {
+    return offsets[keyIndex + 1] - offsets[keyIndex];
+  }
+
+  /** Returns the total number of values, over all keys. */
+  int valueCount() {
+    return values.length;
+  }
+
+  @SuppressWarnings("unchecked") // only K's are stored in keys
+  K keyAt(int keyIndex) {
+    return (K) keys[keyIndex];
+  }
+
+  /** Returns the index of {@code key}, or -1 if it is not a key. */
+  int indexOf(@Nullable Object key) {
+    if (key == null) {
+      return -1;
+    }
+    int mask = keyTable.length - 1;
+    for (int i = Hashing.smear(key.hashCode()); ; i++) {
+      int keyIndex = keyTable[i & mask];
+      if (keyIndex == ABSENT) {
+        return -1;
+      } else if (key.equals(keys[keyIndex])) {
+        return keyIndex;
+      }
+    }
+  }
+
+  @Override public C get(@Nullable Object key) {
+    int keyIndex = indexOf(key);
+    return (keyIndex == -1) ? null : row(keyIndex);
+  }
+
+  @Override public boolean containsKey(@Nullable Object key) {
+    return indexOf(key) != -1;
+  }
+
+  @Override
+  public int size() {
+    return keys.length;
+  }
+
+  @Override public boolean isEmpty() {
+    return keys.length == 0;
+  }
+
+  @Override boolean isPartialView() {
+    return false;
+  }
+
+  @Override
+  ImmutableSet<Entry<K, C>> createEntrySet() {
+    return new EntrySet();
+  }
+
+  @SuppressWarnings("serial") // uses writeReplace(), not default serialization
+  private class EntrySet extends ImmutableMapEntrySet<K, C> {
+    @Override ImmutableMap<K, C> map() {
+      return CompressedRowImmutableMap.this;
+    }
+
+    @Override
+    public UnmodifiableIterator<Entry<K, C>> iterator() {
+      return asList().iterator();
+    }
+
+    @Override
+    ImmutableList<Entry<K, C>> createAsList() {
+      return new ImmutableAsList<Entry<K, C>>() {
+        @Override
+        public Entry<K, C> get(int index) {
+          checkElementIndex(index, size());
+          return Maps.immutableEntry(keyAt(index), row(index));
+        }
+
+        @Override
+        ImmutableCollection<Entry<K, C>> delegateCollection() {
+          return EntrySet.this;
+        }
+      };
+    }
+  }
+
+  @Override
+  ImmutableSet<K> createKeySet() {
+    return new ImmutableMapKeySet<K, C>(entrySet(), keySetHashCode) {
+      @Override ImmutableMap<K, C> map() {
+        return CompressedRowImmutableMap.this;
+      }
+
+      @Override public UnmodifiableIterator<K> iterator() {
+        return asList().iterator();
+      }
+
+      @Override ImmutableList<K> createAsList() {
+        return new RegularImmutableAsList<K>(this, keys);
+      }
+    };
+  }
+
+  private static final class ListRows<K, V>
+      extends CompressedRowImmutableMap<K, V, ImmutableList<V>> {
+    ListRows(Object[] keys, int[] offsets, Object[] values) {
+      super(keys, offsets, values);
+    }
+
+    @SuppressWarnings("unchecked") // only V's are stored in values
+    @Override ImmutableList<V> row(int keyIndex) {
+      int start = offsets[keyIndex];
+      int size = offsets[keyIndex + 1] - start;
+      return (size == 1)
+          ? new SingletonImmutableList<V>((V) values[start])
+          : new RegularImmutableList<V>(values, start, size);
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static final class SetRows<K, V>
+      extends CompressedRowImmutableMap<K, V, ImmutableSet<V>> {
+    // indices into values, in positions hashed by (key index, value)
+    private final transient int[] entryTable;
+
+    SetRows(Object[] keys, int[] offsets, Object[] values, int[] entryTable) {
+      super(keys, offsets, values);
+      this.entryTable = entryTable;
+    }
+
+    @Override ImmutableSet<V> row(int keyIndex) {
+      return new RowSet(keyIndex);
+    }
+
+    boolean rowContains(int keyIndex, Object value) {
+      int start = offsets[keyIndex];
+      int end = offsets[keyIndex + 1];
+      int mask = entryTable.length - 1;
+      for (int i = entryHash(keyIndex, value); ; i++) {
+        int valueIndex = entryTable[i & mask];
+        if (valueIndex == ABSENT) {
+          return false;
+        } else if (valueIndex >= start && valueIndex < end
+            && value.equals(values[valueIndex])) {
+          return true;
+        }
+      }
+    }
+
+    @SuppressWarnings("serial") // uses writeReplace, not default serialization
+    private final class RowSet extends ImmutableSet<V> {
+      final int keyIndex;
+
+      RowSet(int keyIndex) {
+        this.keyIndex = keyIndex;
+      }
+
+      @Override
+      public int size() {
+        return offsets[keyIndex + 1] - offsets[keyIndex];
+      }
+
+      @Override public boolean isEmpty() {
+        return false;
+      }
+
+      @Override public boolean contains(@Nullable Object target) {
+        return target != null && rowContains(keyIndex, target);
+      }
+
+      @Override public UnmodifiableIterator<V> iterator() {
+        return asList().iterator();
+      }
+
+      @Override ImmutableList<V> createAsList() {
+        return new RegularImmutableAsList<V>(this,
+            new RegularImmutableList<V>(values, offsets[keyIndex], size()));
+      }
+
+      @Override boolean isPartialView() {
+        return true;
+      }
+
+      @Override Object writeReplace() {
+        return new RowSetSerializedForm(toArray());
+      }
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  @Override Object writeReplace() {
+    return new RowsSerializedForm(keys, offsets, values, this instanceof SetRows);
+  }
+
+  /*
+   * The serialized forms rebuild the same layout, so that the map and its
+   * value sets come back as the same types.
+   */
+
+  private static final class RowsSerializedForm implements Serializable {
+    private final Object[] keys;
+    private final int[] offsets;
+    private final Object[] values;
+    private final boolean sets;
+
+    RowsSerializedForm(
+        Object[] keys, int[] offsets, Object[] values, boolean sets) {
+      this.keys = keys;
+      this.offsets = offsets;
+      this.values = values;
+      this.sets = sets;
+    }
+
+    Object readResolve() {
+      List<Entry<Object, List<Object>>> rows =
+          Lists.newArrayListWithCapacity(keys.length);
+      List<Object> valueList = Arrays.asList(values);
+      for (int i = 0; i < keys.length; i++) {
+        rows.add(Maps.immutableEntry(
+            keys[i], valueList.subList(offsets[i], offsets[i + 1])));
+      }
+      return sets ? forSets(rows) : forLists(rows);
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static final class RowSetSerializedForm implements Serializable {
+    private final Object[] elements;
+
+    RowSetSerializedForm(Object[] elements) {
+      this.elements = elements;
+    }
+
+    Object readResolve() {
+      // a single row; its key is never seen
+      return forSets(ImmutableList.of(
+          Maps.immutableEntry(0, Arrays.asList(elements)))).row(0);
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  // This class is never actually serialized directly, but we have to make the
+  // warning go away (and suppressing would suppress for all nested classes too)
+  private static final long serialVersionUID = 0;
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndex;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link ListMultimap} that supports full concurrency of retrievals and
+ * adjustable expected concurrency for updates, in the manner of {@link
+ * java.util.concurrent.ConcurrentHashMap}. Null keys and values are not
+ * supported.
+ *
+ * <p>The values for each key are held in an immutable list that is replaced on
+ * every update of that key, so that reads never block and never observe a
+ * partially applied update. Each update of a key therefore copies its values,
+ * which makes this class best suited to multimaps that are read much more
+ * often than they are written, and that have few values per key. Updates of
+ * one key are serialized by a lock shared with a fraction of the other keys,
+ * chosen by hash code; the number of such locks is fixed by the concurrency
+ * level.
+ *
+ * <p>Operations on a single key, including {@code putAll(key, values)}, {@code
+ * replaceValues} and {@code removeAll}, are atomic. Bulk operations spanning
+ * several keys, such as {@code putAll(multimap)} and {@code clear()}, are not.
+ * The views returned by {@link #asMap}, {@link #entries}, {@link #keys},
+ * {@link #keySet} and {@link #values} are weakly consistent: their iterators
+ * never throw {@link java.util.ConcurrentModificationException}, and reflect
+ * the values of each key as they were when the iterator reached that key. The
+ * order of the keys is unspecified.
+ *
+ * <p>The lists returned by {@link #get} support every {@code List} operation.
+ * Their iterators traverse a snapshot of the list, but their list iterators
+ * and the other positional operations read the current values on each call, and
+ * so may throw {@link IndexOutOfBoundsException} if other threads remove values
+ * of the same key.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+@GwtIncompatible("java.util.concurrent")
+public final class ConcurrentArrayListMultimap<K, V>
+    extends AbstractConcurrentMultimap<K, V, ImmutableList<V>>
+    implements ListMultimap<K, V> {
+  /**
+   * Creates a new, empty {@code ConcurrentArrayListMultimap} with the default
+   * concurrency level.
+   */
+  public static <K, V> ConcurrentArrayListMultimap<K, V> create() {
+    return new ConcurrentArrayListMultimap<K, V>(DEFAULT_CONCURRENCY_LEVEL);
+  }
+
+  /**
+   * Creates a new, empty {@code ConcurrentArrayListMultimap} tuned for about
+   * {@code concurrencyLevel} threads updating it at once.
+   *
+   * @throws IllegalArgumentException if {@code concurrencyLevel} is not
+   *     positive
+   */
+  public static <K, V> ConcurrentArrayListMultimap<K, V> create(
+      int concurrencyLevel) {
+    return new ConcurrentArrayListMultimap<K, V>(concurrencyLevel);
+  }
+
+  /**
+   * Creates a new {@code ConcurrentArrayListMultimap} with the same mappings as
+   * {@code multimap} and the default concurrency level.
+   *
+   * @throws NullPointerException if any key or value in {@code multimap} is
+   *     null
+   */
+  public static <K, V> ConcurrentArrayListMultimap<K, V> create(
+      Multimap<? extends K, ? extends V> multimap) {
+    ConcurrentArrayListMultimap<K, V> result = create();
+    result.putAll(multimap);
+    return result;
+  }
+
+  private ConcurrentArrayListMultimap(int concurrencyLevel) {
+    super(concurrencyLevel);
+  }
+
+  @Override ImmutableList<V> emptyValues() {
+    return ImmutableList.of();
+  }
+
+  @Override ImmutableList<V> copyValues(Iterable<? extends V> values) {
+    return ImmutableList.copyOf(values);
+  }
+
+  @Override ImmutableList<V> withValue(ImmutableList<V> values, V value) {
+    return ImmutableList.<V>builder().addAll(values).add(value).build();
+  }
+
+  @Override ImmutableList<V> withValues(
+      ImmutableList<V> values, Iterable<? extends V> newValues) {
+    ImmutableList<V> result =
+        ImmutableList.<V>builder().addAll(values).addAll(newValues).build();
+    return (result.size() == values.size()) ? values : result;
+  }
+
+  @Override ImmutableList<V> withoutValue(
+      ImmutableList<V> values, Object value) {
+    int index = values.indexOf(value);
+    return (index < 0) ? values : splice(values, index, index + 1, null);
+  }
+
+  /**
+   * Returns {@code values} with the elements from {@code fromIndex} to {@code
+   * toIndex} replaced by {@code value}, or removed if {@code value} is null.
+   */
+  private static <V> ImmutableList<V> splice(ImmutableList<V> values,
+      int fromIndex, int toIndex, @Nullable V value) {
+    ImmutableList.Builder<V> builder = ImmutableList.builder();
+    builder.addAll(values.subList(0, fromIndex));
+    if (value != null) {
+      builder.add(value);
+    }
+    return builder.addAll(values.subList(toIndex, values.size())).build();
+  }
+
+  @Override List<V> wrapValues(@Nullable K key) {
+    return new ValueList(key);
+  }
+
+  private final class ValueList extends AbstractList<V> {
+    final K key;
+
+    ValueList(K key) {
+      this.key = key;
+    }
+
+    @Override public V get(int index) {
+      return snapshot(key).get(index);
+    }
+
+    @Override public int size() {
+      return snapshot(key).size();
+    }
+
+    @Override public boolean isEmpty() {
+      return !containsKey(key);
+    }
+
+    @Override public Iterator<V> iterator() {
+      return new ValueIterator(key);
+    }
+
+    @Override public boolean contains(@Nullable Object o) {
+      return containsEntry(key, o);
+    }
+
+    @Override public int indexOf(@Nullable Object o) {
+      return snapshot(key).indexOf(o);
+    }
+
+    @Override public int lastIndexOf(@Nullable Object o) {
+      return snapshot(key).lastIndexOf(o);
+    }
+
+    @Override public boolean add(V value) {
+      return put(key, value);
+    }
+
+    @Override public boolean addAll(Collection<? extends V> values) {
+      return putAll(key, values);
+    }
+
+    @Override public void add(int index, V value) {
+      checkNotNull(key);
+      checkNotNull(value);
+      Stripe stripe = lock(key);
+      try {
+        ImmutableList<V> oldValues = snapshot(key);
+        checkPositionIndex(index, oldValues.size());
+        install(key, oldValues, splice(oldValues, index, index, value), stripe);
+      } finally {
+        stripe.unlock();
+      }
+    }
+
+    @Override public V set(int index, V value) {
+      checkNotNull(value);
+      if (key == null) {
+        throw new IndexOutOfBoundsException();
+      }
+      Stripe stripe = lock(key);
+      try {
+        ImmutableList<V> oldValues = snapshot(key);
+        checkElementIndex(index, oldValues.size());
+        install(key, oldValues,
+            splice(oldValues, index, index + 1, value), stripe);
+        return oldValues.get(index);
+      } finally {
+        stripe.unlock();
+      }
+    }
+
+    @Override public V remove(int index) {
+      if (key == null) {
+        throw new IndexOutOfBoundsException();
+      }
+      Stripe stripe = lock(key);
+      try {
+        ImmutableList<V> oldValues = snapshot(key);
+        checkElementIndex(index, oldValues.size());
+        install(key, oldValues,
+            splice(oldValues, index, index + 1, null), stripe);
+        return oldValues.get(index);
+      } finally {
+        stripe.unlock();
+      }
+    }
+
+    @Override public boolean remove(@Nullable Object o) {
+      return ConcurrentArrayListMultimap.this.remove(key, o);
+    }
+
+    @Override public void clear() {
+      ConcurrentArrayListMultimap.this.removeAll(key);
+    }
+
+    @Override public boolean equals(@Nullable Object object) {
+      return snapshot(key).equals(object);
+    }
+
+    @Override public int hashCode() {
+      return snapshot(key).hashCode();
+    }
+
+    @Override public String toString() {
+      return snapshot(key).toString();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned list reads the values of {@code key} afresh on each call,
+   * and writes through to this multimap.
+   */
+  @Override public List<V> get(@Nullable K key) {
+    return (List<V>) super.get(key);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned list is immutable.
+   */
+  @Override public ImmutableList<V> removeAll(@Nullable Object key) {
+    return super.removeAll(key);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned list is immutable.
+   */
+  @Override public ImmutableList<V> replaceValues(
+      K key, Iterable<? extends V> values) {
+    return super.replaceValues(key, values);
+  }
+
+  private static final long serialVersionUID = 0;
+}
@@ -0,0 +1,990 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.Function;
+import com.google.common.collect.Serialization.FieldSetter;
+import com.google.common.primitives.Ints;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Table} that supports full concurrency of retrievals and adjustable
+ * expected concurrency for updates, in the manner of {@link
+ * java.util.concurrent.ConcurrentHashMap}. In addition to the {@code Table}
+ * operations, it offers the atomic conditional updates of {@link
+ * ConcurrentMap}: {@link #putIfAbsent}, {@link #remove(Object, Object,
+ * Object)} and two forms of {@link #replace}, and {@link #compute}, which
+ * builds an atomic read-modify-write of a cell on them. Null row keys, column
+ * keys and values are not supported.
+ *
+ * <p>The cells are indexed twice, in a {@code ConcurrentMap<R, ConcurrentMap<C,
+ * V>>} and a {@code ConcurrentMap<C, ConcurrentMap<R, V>>}, so that {@link
+ * #row} and {@link #column} are equally fast: neither has to scan the other
+ * index. {@link #get} and the other queries never block. An update of a cell
+ * locks one of a fixed array of row stripes and then one of a fixed array of
+ * column stripes, chosen by hash code, so that updates of cells in unrelated
+ * rows and columns rarely contend; the number of stripes of each kind is fixed
+ * by the concurrency level.
+ *
+ * <p>The views returned by {@link #row}, {@link #column}, {@link #rowMap},
+ * {@link #columnMap}, {@link #cellSet}, {@link #rowKeySet}, {@link
+ * #columnKeySet} and {@link #values} are weakly consistent: their iterators
+ * never throw {@link java.util.ConcurrentModificationException}, and may or
+ * may not reflect modifications made after they were created. Removing a whole
+ * row or column removes its cells one at a time, as does {@link #clear}. The
+ * iteration order is unspecified.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+@GwtIncompatible("java.util.concurrent")
+public final class ConcurrentHashBasedTable<R, C, V>
+    implements Table<R, C, V>, Serializable {
+  private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+  private static final int MAX_STRIPES = 1 << 16;
+
+  /**
+   * Creates an empty {@code ConcurrentHashBasedTable} with the default
+   * concurrency level.
+   */
+  public static <R, C, V> ConcurrentHashBasedTable<R, C, V> create() {
+    return new ConcurrentHashBasedTable<R, C, V>(DEFAULT_CONCURRENCY_LEVEL);
+  }
+
+  /**
+   * Creates an empty {@code ConcurrentHashBasedTable} tuned for about {@code
+   * concurrencyLevel} threads updating it at once.
+   *
+   * @throws IllegalArgumentException if {@code concurrencyLevel} is not
+   *     positive
+   */
+  public static <R, C, V> ConcurrentHashBasedTable<R, C, V> create(
+      int concurrencyLevel) {
+    return new ConcurrentHashBasedTable<R, C, V>(concurrencyLevel);
+  }
+
+  /**
+   * Creates a {@code ConcurrentHashBasedTable} with the same mappings as the
+   * specified table and the default concurrency level.
+   *
+   * @throws NullPointerException if any of the row keys, column keys or
+   *     values in {@code table} is null
+   */
+  public static <R, C, V> ConcurrentHashBasedTable<R, C, V> create(
+      Table<? extends R, ? extends C, ? extends V> table) {
+    ConcurrentHashBasedTable<R, C, V> result = create();
+    result.putAll(table);
+    return result;
+  }
+
+  /** A row lock, together with the number of cells in the rows it guards. */
+  private static final class Stripe extends ReentrantLock {
+    // written only while the lock is held
+    volatile int size;
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private final transient int concurrencyLevel;
+  private final transient ConcurrentMap<R, ConcurrentMap<C, V>> rows;
+  private final transient ConcurrentMap<C, ConcurrentMap<R, V>> columns;
+  private final transient Stripe[] rowStripes;
+  private final transient ReentrantLock[] columnStripes;
+
+  private ConcurrentHashBasedTable(int concurrencyLevel) {
+    checkArgument(concurrencyLevel > 0,
+        "concurrencyLevel must be positive: %s", concurrencyLevel);
+    int stripeCount = 1;
+    while (stripeCount < concurrencyLevel && stripeCount < MAX_STRIPES) {
+      stripeCount <<= 1;
+    }
+    this.concurrencyLevel = concurrencyLevel;
+    this.rows = newIndexMap(concurrencyLevel);
+    this.columns = newIndexMap(concurrencyLevel);
+    this.rowStripes = new Stripe[stripeCount];
+    this.columnStripes = new ReentrantLock[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      rowStripes[i] = new Stripe();
+      columnStripes[i] = new ReentrantLock();
+    }
+  }
+
+  private static <K, V> ConcurrentMap<K, V> newIndexMap(int concurrencyLevel) {
+    return new MapMaker().concurrencyLevel(concurrencyLevel).makeMap();
+  }
+
+  /*
+   * Every update of a cell holds the stripe of its row and then the stripe of
+   * its column. Holding the row stripe makes the update atomic, and makes it
+   * safe to remove a row's map from the row index once it is empty; holding
+   * the column stripe does the same for the column index. Since row stripes
+   * are always acquired first, updates cannot deadlock.
+   */
+
+  private Stripe lockRow(Object rowKey) {
+    Stripe stripe = rowStripes[
+        Hashing.smear(rowKey.hashCode()) & (rowStripes.length - 1)];
+    stripe.lock();
+    return stripe;
+  }
+
+  private ReentrantLock lockColumn(Object columnKey) {
+    ReentrantLock lock = columnStripes[
+        Hashing.smear(columnKey.hashCode()) & (columnStripes.length - 1)];
+    lock.lock();
+    return lock;
+  }
+
+  /** Sets a cell. The caller must hold the stripes of the cell. */
+  private V putLocked(R rowKey, C columnKey, V value, Stripe rowStripe) {
+    ConcurrentMap<C, V> row = rows.get(rowKey);
+    if (row == null) {
+      row = newIndexMap(1);
+      rows.put(rowKey, row);
+    }
+    V oldValue = row.put(columnKey, value);
+    ConcurrentMap<R, V> column = columns.get(columnKey);
+    if (column == null) {
+      column = newIndexMap(1);
+      columns.put(columnKey, column);
+    }
+    column.put(rowKey, value);
+    if (oldValue == null) {
+      rowStripe.size++;
+    }
+    return oldValue;
+  }
+
+  /** Clears a cell. The caller must hold the stripes of the cell. */
+  private V removeLocked(Object rowKey, Object columnKey, Stripe rowStripe) {
+    ConcurrentMap<C, V> row = rows.get(rowKey);
+    if (row == null) {
+      return null;
+    }
+    V oldValue = row.remove(columnKey);
+    if (oldValue == null) {
+      return null;
+    }
+    if (row.isEmpty()) {
+      rows.remove(rowKey);
+    }
+    ConcurrentMap<R, V> column = columns.get(columnKey);
+    column.remove(rowKey);
+    if (column.isEmpty()) {
+      columns.remove(columnKey);
+    }
+    rowStripe.size--;
+    return oldValue;
+  }
+
+  // Accessors
+
+  @Override
+  public boolean contains(
+      @Nullable Object rowKey, @Nullable Object columnKey) {
+    return get(rowKey, columnKey) != null;
+  }
+
+  @Override
+  public boolean containsRow(@Nullable Object rowKey) {
+    return rowKey != null && rows.containsKey(rowKey);
+  }
+
+  @Override
+  public boolean containsColumn(@Nullable Object columnKey) {
+    return columnKey != null && columns.containsKey(columnKey);
+  }
+
+  @Override
+  public boolean containsValue(@Nullable Object value) {
+    if (value == null) {
+      return false;
+    }
+    for (ConcurrentMap<C, V> row : rows.values()) {
+      if (row.containsValue(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public V get(@Nullable Object rowKey, @Nullable Object columnKey) {
+    if (rowKey == null || columnKey == null) {
+      return null;
+    }
+    ConcurrentMap<C, V> row = rows.get(rowKey);
+    return (row == null) ? null : row.get(columnKey);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return rows.isEmpty();
+  }
+
+  @Override
+  public int size() {
+    long size = 0;
+    for (Stripe stripe : rowStripes) {
+      size += stripe.size;
+    }
+    return Ints.saturatedCast(size);
+  }
+
+  // Mutators
+
+  @Override
+  public V put(R rowKey, C columnKey, V value) {
+    checkNotNull(rowKey);
+    checkNotNull(columnKey);
+    checkNotNull(value);
+    Stripe rowStripe = lockRow(rowKey);
+    ReentrantLock columnLock = lockColumn(columnKey);
+    try {
+      return putLocked(rowKey, columnKey, value, rowStripe);
+    } finally {
+      columnLock.unlock();
+      rowStripe.unlock();
+    }
+  }
+
+  /**
+   * If no value is associated with the specified row and column keys,
+   * associates it with the given value; otherwise returns the current value.
+   * This happens atomically.
+   *
+   * @return the value previously associated with the row and column keys, or
+   *     null if there was none
+   */
+  public V putIfAbsent(R rowKey, C columnKey, V value) {
+    checkNotNull(rowKey);
+    checkNotNull(columnKey);
+    checkNotNull(value);
+    Stripe rowStripe = lockRow(rowKey);
+    ReentrantLock columnLock = lockColumn(columnKey);
+    try {
+      V oldValue = get(rowKey, columnKey);
+      return (oldValue != null)
+          ? oldValue : putLocked(rowKey, columnKey, value, rowStripe);
+    } finally {
+      columnLock.unlock();
+      rowStripe.unlock();
+    }
+  }
+
+  /**
+   * Associates the specified row and column keys with {@code value} only if
+   * they are currently associated with some value. This happens atomically.
+   *
+   * @return the value previously associated with the row and column keys, or
+   *     null if there was none
+   */
+  public V replace(R rowKey, C columnKey, V value) {
+    checkNotNull(rowKey);
+    checkNotNull(columnKey);
+    checkNotNull(value);
+    Stripe rowStripe = lockRow(rowKey);
+    ReentrantLock columnLock = lockColumn(columnKey);
+    try {
+      return contains(rowKey, columnKey)
+          ? putLocked(rowKey, columnKey, value, rowStripe) : null;
+    } finally {
+      columnLock.unlock();
+      rowStripe.unlock();
+    }
+  }
+
+  /**
+   * Associates the specified row and column keys with {@code newValue} only if
+   * they are currently associated with {@code oldValue}. This happens
+   * atomically.
+   *
+   * @return true if the value was replaced
+   */
+  public boolean replace(R rowKey, C columnKey, V oldValue, V newValue) {
+    checkNotNull(rowKey);
+    checkNotNull(columnKey);
+    checkNotNull(oldValue);
+    checkNotNull(newValue);
+    Stripe rowStripe = lockRow(rowKey);
+    ReentrantLock columnLock = lockColumn(columnKey);
+    try {
+      if (!oldValue.equals(get(rowKey, columnKey))) {
+        return false;
+      }
+      putLocked(rowKey, columnKey, newValue, rowStripe);
+      return true;
+    } finally {
+      columnLock.unlock();
+      rowStripe.unlock();
+    }
+  }
+
+  /**
+   * Atomically replaces the value of the specified cell with the result of
+   * applying {@code function} to its current value, or to null if there is
+   * none. If the function returns null, the cell is removed, or left absent.
+   *
+   * <p>The function is not called while any lock is held. If another thread
+   * updates the cell between reading it and writing the new value, the
+   * function is applied again to the newer value, so it may be called more
+   * than once and should be free of side effects.
+   *
+   * @return the new value of the cell, or null if it is now absent
+   */
+  public V compute(R rowKey, C columnKey,
+      Function<? super V, ? extends V> function) {
+    checkNotNull(rowKey);
+    checkNotNull(columnKey);
+    checkNotNull(function);
+    while (true) {
+      V oldValue = get(rowKey, columnKey);
+      V newValue = function.apply(oldValue);
+      if (oldValue == null) {
+        if (newValue == null
+            || putIfAbsent(rowKey, columnKey, newValue) == null) {
+          return newValue;
+        }
+      } else if (newValue == null) {
+        if (remove(rowKey, columnKey, oldValue)) {
+          return null;
+        }
+      } else if (replace(rowKey, columnKey, oldValue, newValue)) {
+        return newValue;
+      }
+    }
+  }
+
+  @Override
+  public void putAll(Table<? extends R, ? extends C, ? extends V> table) {
+    for (Cell<? extends R, ? extends C, ? extends V> cell : table.cellSet()) {
+      put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+    }
+  }
+
+  @Override
+  public V remove(@Nullable Object rowKey, @Nullable Object columnKey) {
+    if (rowKey == null || columnKey == null) {
+      return null;
+    }
+    Stripe rowStripe = lockRow(rowKey);
+    ReentrantLock columnLock = lockColumn(columnKey);
+    try {
+      return removeLocked(rowKey, columnKey, rowStripe);
+    } finally {
+      columnLock.unlock();
+      rowStripe.unlock();
+    }
+  }
+
+  /**
+   * Removes the mapping for the specified row and column keys only if they
+   * are currently associated with {@code value}. This happens atomically.
+   *
+   * @return true if the value was removed
+   */
+  public boolean remove(@Nullable Object rowKey, @Nullable Object columnKey,
+      @Nullable Object value) {
+    if (rowKey == null || columnKey == null || value == null) {
+      return false;
+    }
+    Stripe rowStripe = lockRow(rowKey);
+    ReentrantLock columnLock = lockColumn(columnKey);
+    try {
+      if (!value.equals(get(rowKey, columnKey))) {
+        return false;
+      }
+      removeLocked(rowKey, columnKey, rowStripe);
+      return true;
+    } finally {
+      columnLock.unlock();
+      rowStripe.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (R rowKey : rows.keySet()) {
+      removeRow(rowKey);
+    }
+  }
+
+  private void removeRow(Object rowKey) {
+    ConcurrentMap<C, V> row = rows.get(rowKey);
+    if (row != null) {
+      for (C columnKey : row.keySet()) {
+        remove(rowKey, columnKey);
+      }
+    }
+  }
+
+  private void removeColumn(Object columnKey) {
+    ConcurrentMap<R, V> column = columns.get(columnKey);
+    if (column != null) {
+      for (R rowKey : column.keySet()) {
+        remove(rowKey, columnKey);
+      }
+    }
+  }
+
+  // Views
+
+  /**
+   * An iterator over keys of a backing index map, whose {@code remove} removes
+   * the cells of the key from the table.
+   */
+  private abstract static class KeyIterator<K> implements Iterator<K> {
+    final Iterator<K> backingIterator;
+    K last;
+
+    KeyIterator(Iterator<K> backingIterator) {
+      this.backingIterator = backingIterator;
+    }
+
+    abstract void removeCells(K key);
+
+    @Override
+    public boolean hasNext() {
+      return backingIterator.hasNext();
+    }
+
+    @Override
+    public K next() {
+      return last = backingIterator.next();
+    }
+
+    @Override
+    public void remove() {
+      Iterators.checkRemove(last != null);
+      removeCells(last);
+      last = null;
+    }
+  }
+
+  /**
+   * A live view of the cells of one row or column, mapping the other key of
+   * each cell to its value.
+   */
+  private abstract class Slice<K> extends Maps.ImprovedAbstractMap<K, V> {
+    /** Returns the current backing map of the slice, or null if it is empty. */
+    @Nullable abstract ConcurrentMap<K, V> backing();
+
+    abstract V putCell(K key, V value);
+
+    abstract V removeCell(Object key);
+
+    @Override public V get(@Nullable Object key) {
+      ConcurrentMap<K, V> backing = backing();
+      return (backing == null || key == null) ? null : backing.get(key);
+    }
+
+    @Override public boolean containsKey(@Nullable Object key) {
+      return get(key) != null;
+    }
+
+    @Override public V put(K key, V value) {
+      return putCell(key, value);
+    }
+
+    @Override public V remove(@Nullable Object key) {
+      return (key == null) ? null : removeCell(key);
+    }
+
+    @Override public int size() {
+      ConcurrentMap<K, V> backing = backing();
+      return (backing == null) ? 0 : backing.size();
+    }
+
+    @Override public boolean isEmpty() {
+      ConcurrentMap<K, V> backing = backing();
+      return backing == null || backing.isEmpty();
+    }
+
+    @Override public void clear() {
+      ConcurrentMap<K, V> backing = backing();
+      if (backing != null) {
+        for (K key : backing.keySet()) {
+          removeCell(key);
+        }
+      }
+    }
+
+    @Override protected Set<Entry<K, V>> createEntrySet() {
+      return new Maps.EntrySet<K, V>() {
+        @Override Map<K, V> map() {
+          return Slice.this;
+        }
+
+        @Override public Iterator<Entry<K, V>> iterator() {
+          ConcurrentMap<K, V> backing = backing();
+          if (backing == null) {
+            return Iterators.emptyModifiableIterator();
+          }
+          final Iterator<Entry<K, V>> backingIterator =
+              backing.entrySet().iterator();
+          return new Iterator<Entry<K, V>>() {
+            K lastKey;
+
+            @Override
+            public boolean hasNext() {
+              return backingIterator.hasNext();
+            }
+
+            @Override
+            public Entry<K, V> next() {
+              final Entry<K, V> entry = backingIterator.next();
+              lastKey = entry.getKey();
+              return new AbstractMapEntry<K, V>() {
+                V value = entry.getValue();
+
+                @Override public K getKey() {
+                  return entry.getKey();
+                }
+
+                @Override public V getValue() {
+                  return value;
+                }
+
+                @Override public V setValue(V newValue) {
+                  V oldValue = putCell(getKey(), checkNotNull(newValue));
+                  value = newValue;
+                  return oldValue;
+                }
+              };
+            }
+
+            @Override
+            public void remove() {
+              Iterators.checkRemove(lastKey != null);
+              removeCell(lastKey);
+              lastKey = null;
+            }
+          };
+        }
+      };
+    }
+  }
+
+  private final class Row extends Slice<C> {
+    final R rowKey;
+
+    Row(R rowKey) {
+      this.rowKey = rowKey;
+    }
+
+    @Override ConcurrentMap<C, V> backing() {
+      return rows.get(rowKey);
+    }
+
+    @Override V putCell(C columnKey, V value) {
+      return ConcurrentHashBasedTable.this.put(rowKey, columnKey, value);
+    }
+
+    @Override V removeCell(Object columnKey) {
+      return ConcurrentHashBasedTable.this.remove(rowKey, columnKey);
+    }
+  }
+
+  private final class Column extends Slice<R> {
+    final C columnKey;
+
+    Column(C columnKey) {
+      this.columnKey = columnKey;
+    }
+
+    @Override ConcurrentMap<R, V> backing() {
+      return columns.get(columnKey);
+    }
+
+    @Override V putCell(R rowKey, V value) {
+      return ConcurrentHashBasedTable.this.put(rowKey, columnKey, value);
+    }
+
+    @Override V removeCell(Object rowKey) {
+      return ConcurrentHashBasedTable.this.remove(rowKey, columnKey);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned map reads the row afresh on each call, and writes through
+   * to this table.
+   *
+   * @throws NullPointerException if {@code rowKey} is null
+   */
+  @Override
+  public Map<C, V> row(R rowKey) {
+    return new Row(checkNotNull(rowKey));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned map reads the column afresh on each call, and writes
+   * through to this table. Its operations take time proportional to the size
+   * of the column, not of the table.
+   *
+   * @throws NullPointerException if {@code columnKey} is null
+   */
+  @Override
+  public Map<R, V> column(C columnKey) {
+    return new Column(checkNotNull(columnKey));
+  }
+
+  private transient Set<Cell<R, C, V>> cellSet;
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned set's iterator is weakly consistent, and its {@code
+   * remove} removes a cell only if it still holds the value that was
+   * returned.
+   */
+  @Override
+  public Set<Cell<R, C, V>> cellSet() {
+    Set<Cell<R, C, V>> result = cellSet;
+    return (result == null) ? cellSet = new CellSet() : result;
+  }
+
+  private final class CellSet extends Sets.ImprovedAbstractSet<Cell<R, C, V>> {
+    @Override public Iterator<Cell<R, C, V>> iterator() {
+      return cellIterator();
+    }
+
+    @Override public int size() {
+      return ConcurrentHashBasedTable.this.size();
+    }
+
+    @Override public boolean isEmpty() {
+      return ConcurrentHashBasedTable.this.isEmpty();
+    }
+
+    @Override public boolean contains(@Nullable Object o) {
+      if (o instanceof Cell) {
+        Cell<?, ?, ?> cell = (Cell<?, ?, ?>) o;
+        V value = get(cell.getRowKey(), cell.getColumnKey());
+        return value != null && value.equals(cell.getValue());
+      }
+      return false;
+    }
+
+    @Override public boolean remove(@Nullable Object o) {
+      if (o instanceof Cell) {
+        Cell<?, ?, ?> cell = (Cell<?, ?, ?>) o;
+        return ConcurrentHashBasedTable.this.remove(
+            cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+      }
+      return false;
+    }
+
+    @Override public void clear() {
+      ConcurrentHashBasedTable.this.clear();
+    }
+  }
+
+  private Iterator<Cell<R, C, V>> cellIterator() {
+    final Iterator<Entry<R, ConcurrentMap<C, V>>> rowIterator =
+        rows.entrySet().iterator();
+    return new Iterator<Cell<R, C, V>>() {
+      R rowKey;
+      Iterator<Entry<C, V>> columnIterator =
+          Iterators.emptyModifiableIterator();
+      Cell<R, C, V> last;
+
+      @Override
+      public boolean hasNext() {
+        return columnIterator.hasNext() || rowIterator.hasNext();
+      }
+
+      @Override
+      public Cell<R, C, V> next() {
+        if (!columnIterator.hasNext()) {
+          Entry<R, ConcurrentMap<C, V>> row = rowIterator.next();
+          rowKey = row.getKey();
+          columnIterator = row.getValue().entrySet().iterator();
+        }
+        Entry<C, V> entry = columnIterator.next();
+        return last = Tables.immutableCell(
+            rowKey, entry.getKey(), entry.getValue());
+      }
+
+      @Override
+      public void remove() {
+        Iterators.checkRemove(last != null);
+        ConcurrentHashBasedTable.this.remove(
+            last.getRowKey(), last.getColumnKey(), last.getValue());
+        last = null;
+      }
+    };
+  }
+
+  @Override
+  public Set<R> rowKeySet() {
+    return rowMap().keySet();
+  }
+
+  @Override
+  public Set<C> columnKeySet() {
+    return columnMap().keySet();
+  }
+
+  private transient Collection<V> values;
+
+  @Override
+  public Collection<V> values() {
+    Collection<V> result = values;
+    if (result == null) {
+      return values = new AbstractCollection<V>() {
+        @Override public Iterator<V> iterator() {
+          return new TransformedIterator<Cell<R, C, V>, V>(cellIterator()) {
+            @Override
+            V transform(Cell<R, C, V> cell) {
+              return cell.getValue();
+            }
+          };
+        }
+
+        @Override public int size() {
+          return ConcurrentHashBasedTable.this.size();
+        }
+
+        @Override public boolean isEmpty() {
+          return ConcurrentHashBasedTable.this.isEmpty();
+        }
+
+        @Override public boolean contains(@Nullable Object o) {
+          return containsValue(o);
+        }
+
+        @Override public void clear() {
+          ConcurrentHashBasedTable.this.clear();
+        }
+      };
+    }
+    return result;
+  }
+
+  /**
+   * A live view of one of the indexes, mapping each row or column key to its
+   * {@link Slice}.
+   */
+  private abstract class IndexMap<K, K2>
+      extends Maps.ImprovedAbstractMap<K, Map<K2, V>> {
+    final ConcurrentMap<K, ConcurrentMap<K2, V>> index;
+
+    IndexMap(ConcurrentMap<K, ConcurrentMap<K2, V>> index) {
+      this.index = index;
+    }
+
+    abstract Map<K2, V> slice(K key);
+
+    abstract void removeSlice(Object key);
+
+    @Override public boolean containsKey(@Nullable Object key) {
+      return key != null && index.containsKey(key);
+    }
+
+    @SuppressWarnings("unchecked") // key is present in the index
+    @Override public Map<K2, V> get(@Nullable Object key) {
+      return containsKey(key) ? slice((K) key) : null;
+    }
+
+    @Override public Map<K2, V> remove(@Nullable Object key) {
+      if (!containsKey(key)) {
+        return null;
+      }
+      Map<K2, V> oldSlice = ImmutableMap.copyOf(get(key));
+      removeSlice(key);
+      return oldSlice;
+    }
+
+    @Override public int size() {
+      return index.size();
+    }
+
+    @Override public boolean isEmpty() {
+      return index.isEmpty();
+    }
+
+    @Override public void clear() {
+      ConcurrentHashBasedTable.this.clear();
+    }
+
+    @Override protected Set<Entry<K, Map<K2, V>>> createEntrySet() {
+      return new Maps.EntrySet<K, Map<K2, V>>() {
+        @Override Map<K, Map<K2, V>> map() {
+          return IndexMap.this;
+        }
+
+        @Override public Iterator<Entry<K, Map<K2, V>>> iterator() {
+          Iterator<K> keyIterator = new KeyIterator<K>(
+              index.keySet().iterator()) {
+            @Override void removeCells(K key) {
+              removeSlice(key);
+            }
+          };
+          return new TransformedIterator<K, Entry<K, Map<K2, V>>>(
+              keyIterator) {
+            @Override
+            Entry<K, Map<K2, V>> transform(K key) {
+              return Maps.immutableEntry(key, slice(key));
+            }
+          };
+        }
+      };
+    }
+  }
+
+  private transient Map<R, Map<C, V>> rowMap;
+
+  @Override
+  public Map<R, Map<C, V>> rowMap() {
+    Map<R, Map<C, V>> result = rowMap;
+    if (result == null) {
+      return rowMap = new IndexMap<R, C>(rows) {
+        @Override Map<C, V> slice(R rowKey) {
+          return new Row(rowKey);
+        }
+
+        @Override void removeSlice(Object rowKey) {
+          removeRow(rowKey);
+        }
+      };
+    }
+    return result;
+  }
+
+  private transient Map<C, Map<R, V>> columnMap;
+
+  @Override
+  public Map<C, Map<R, V>> columnMap() {
+    Map<C, Map<R, V>> result = columnMap;
+    if (result == null) {
+      return columnMap = new IndexMap<C, R>(columns) {
+        @Override Map<R, V> slice(C columnKey) {
+          return new Column(columnKey);
+        }
+
+        @Override void removeSlice(Object columnKey) {
+          removeColumn(columnKey);
+        }
+      };
+    }
+    return result;
+  }
+
+  // Comparison and hashing
+
+  @Override public boolean equals(@Nullable Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (obj instanceof Table) {
+      Table<?, ?, ?> other = (Table<?, ?, ?>) obj;
+      return cellSet().equals(other.cellSet());
+    }
+    return false;
+  }
+
+  @Override public int hashCode() {
+    return cellSet().hashCode();
+  }
+
+  /**
+   * Returns the string representation {@code rowMap().toString()}.
+   */
+  @Override public String toString() {
+    return rowMap().toString();
+  }
+
+  // Serialization
+
+  // This constant allows the deserialization code to set final fields. This
+  // holder class makes sure it is not initialized unless an instance is
+  // deserialized.
+  private static class FieldSettersHolder {
+    static final FieldSetter<ConcurrentHashBasedTable> CONCURRENCY_LEVEL_SETTER =
+        Serialization.getFieldSetter(
+            ConcurrentHashBasedTable.class, "concurrencyLevel");
+    static final FieldSetter<ConcurrentHashBasedTable> ROWS_SETTER =
+        Serialization.getFieldSetter(ConcurrentHashBasedTable.class, "rows");
+    static final FieldSetter<ConcurrentHashBasedTable> COLUMNS_SETTER =
+        Serialization.getFieldSetter(ConcurrentHashBasedTable.class, "columns");
+    static final FieldSetter<ConcurrentHashBasedTable> ROW_STRIPES_SETTER =
+        Serialization.getFieldSetter(
+            ConcurrentHashBasedTable.class, "rowStripes");
+    static final FieldSetter<ConcurrentHashBasedTable> COLUMN_STRIPES_SETTER =
+        Serialization.getFieldSetter(
+            ConcurrentHashBasedTable.class, "columnStripes");
+  }
+
+  /**
+   * @serialData the concurrency level, followed by the row key, column key and
+   *     value of each cell, followed by null
+   */
+  private void writeObject(ObjectOutputStream stream) throws IOException {
+    stream.defaultWriteObject();
+    stream.writeInt(concurrencyLevel);
+    for (Cell<R, C, V> cell : cellSet()) {
+      stream.writeObject(cell.getRowKey());
+      stream.writeObject(cell.getColumnKey());
+      stream.writeObject(cell.getValue());
+    }
+    stream.writeObject(null);
+  }
+
+  @SuppressWarnings("unchecked") // reading data stored by writeObject
+  private void readObject(ObjectInputStream stream)
+      throws IOException, ClassNotFoundException {
+    stream.defaultReadObject();
+    // copy the final fields from a fresh table with the same concurrency level
+    ConcurrentHashBasedTable<R, C, V> template =
+        new ConcurrentHashBasedTable<R, C, V>(stream.readInt());
+    FieldSettersHolder.CONCURRENCY_LEVEL_SETTER.set(
+        this, template.concurrencyLevel);
+    FieldSettersHolder.ROWS_SETTER.set(this, template.rows);
+    FieldSettersHolder.COLUMNS_SETTER.set(this, template.columns);
+    FieldSettersHolder.ROW_STRIPES_SETTER.set(this, template.rowStripes);
+    FieldSettersHolder.COLUMN_STRIPES_SETTER.set(this, template.columnStripes);
+    for (Object rowKey; (rowKey = stream.readObject()) != null; ) {
+      put((R) rowKey, (C) stream.readObject(), (V) stream.readObject());
+    }
+  }
+
+  private static final long serialVersionUID = 0;
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link SetMultimap} that supports full concurrency of retrievals and
+ * adjustable expected concurrency for updates, in the manner of {@link
+ * java.util.concurrent.ConcurrentHashMap}. Null keys and values are not
+ * supported.
+ *
+ * <p>The values for each key are held in an immutable set that is replaced on
+ * every update of that key, so that reads never block and never observe a
+ * partially applied update. Each update of a key therefore copies its values,
+ * which makes this class best suited to multimaps that are read much more
+ * often than they are written, and that have few values per key. Updates of
+ * one key are serialized by a lock shared with a fraction of the other keys,
+ * chosen by hash code; the number of such locks is fixed by the concurrency
+ * level.
+ *
+ * <p>Operations on a single key, including {@code putAll(key, values)}, {@code
+ * replaceValues} and {@code removeAll}, are atomic. Bulk operations spanning
+ * several keys, such as {@code putAll(multimap)} and {@code clear()}, are not.
+ * The views returned by {@link #asMap}, {@link #entries}, {@link #keys},
+ * {@link #keySet} and {@link #values} are weakly consistent: their iterators
+ * never throw {@link java.util.ConcurrentModificationException}, and reflect
+ * the values of each key as they were when the iterator reached that key. The
+ * iteration order is unspecified; the values of each key are traversed in the
+ * order in which they were added.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+@GwtIncompatible("java.util.concurrent")
+public final class ConcurrentHashMultimap<K, V>
+    extends AbstractConcurrentMultimap<K, V, ImmutableSet<V>>
+    implements SetMultimap<K, V> {
+  /**
+   * Creates a new, empty {@code ConcurrentHashMultimap} with the default
+   * concurrency level.
+   */
+  public static <K, V> ConcurrentHashMultimap<K, V> create() {
+    return new ConcurrentHashMultimap<K, V>(DEFAULT_CONCURRENCY_LEVEL);
+  }
+
+  /**
+   * Creates a new, empty {@code ConcurrentHashMultimap} tuned for about
+   * {@code concurrencyLevel} threads updating it at once.
+   *
+   * @throws IllegalArgumentException if {@code concurrencyLevel} is not
+   *     positive
+   */
+  public static <K, V> ConcurrentHashMultimap<K, V> create(
+      int concurrencyLevel) {
+    return new ConcurrentHashMultimap<K, V>(concurrencyLevel);
+  }
+
+  /**
+   * Creates a new {@code ConcurrentHashMultimap} with the same mappings as
+   * {@code multimap} and the default concurrency level. If a key-value
+   * mapping appears multiple times in {@code multimap}, it only appears once
+   * in the constructed multimap.
+   *
+   * @throws NullPointerException if any key or value in {@code multimap} is
+   *     null
+   */
+  public static <K, V> ConcurrentHashMultimap<K, V> create(
+      Multimap<? extends K, ? extends V> multimap) {
+    ConcurrentHashMultimap<K, V> result = create();
+    result.putAll(multimap);
+    return result;
+  }
+
+  private ConcurrentHashMultimap(int concurrencyLevel) {
+    super(concurrencyLevel);
+  }
+
+  @Override ImmutableSet<V> emptyValues() {
+    return ImmutableSet.of();
+  }
+
+  @Override ImmutableSet<V> copyValues(Iterable<? extends V> values) {
+    return ImmutableSet.copyOf(values);
+  }
+
+  @Override ImmutableSet<V> withValue(ImmutableSet<V> values, V value) {
+    if (values.contains(value)) {
+      return values;
+    }
+    return ImmutableSet.<V>builder().addAll(values).add(value).build();
+  }
+
+  @Override ImmutableSet<V> withValues(
+      ImmutableSet<V> values, Iterable<? extends V> newValues) {
+    ImmutableSet<V> result =
+        ImmutableSet.<V>builder().addAll(values).addAll(newValues).build();
+    return (result.size() == values.size()) ? values : result;
+  }
+
+  @Override ImmutableSet<V> withoutValue(ImmutableSet<V> values, Object value) {
+    if (!values.contains(value)) {
+      return values;
+    }
+    ImmutableSet.Builder<V> builder = ImmutableSet.builder();
+    for (V v : values) {
+      if (!v.equals(value)) {
+        builder.add(v);
+      }
+    }
+    return builder.build();
+  }
+
+  @Override Set<V> wrapValues(@Nullable K key) {
+    return new ValueSet(key);
+  }
+
+  private final class ValueSet extends Sets.ImprovedAbstractSet<V> {
+    final K key;
+
+    ValueSet(K key) {
+      this.key = key;
+    }
+
+    @Override public Iterator<V> iterator() {
+      return new ValueIterator(key);
+    }
+
+    @Override public int size() {
+      return snapshot(key).size();
+    }
+
+    @Override public boolean isEmpty() {
+      return !containsKey(key);
+    }
+
+    @Override public boolean contains(@Nullable Object o) {
+      return containsEntry(key, o);
+    }
+
+    @Override public boolean add(V value) {
+      return put(key, value);
+    }
+
+    @Override public boolean addAll(Collection<? extends V> values) {
+      return putAll(key, values);
+    }
+
+    @Override public boolean remove(@Nullable Object o) {
+      return ConcurrentHashMultimap.this.remove(key, o);
+    }
+
+    @Override public void clear() {
+      ConcurrentHashMultimap.this.removeAll(key);
+    }
+
+    @Override public boolean equals(@Nullable Object object) {
+      return snapshot(key).equals(object);
+    }
+
+    @Override public int hashCode() {
+      return snapshot(key).hashCode();
+    }
+
+    @Override public String toString() {
+      return snapshot(key).toString();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned set reads the values of {@code key} afresh on each call,
+   * and writes through to this multimap. Its iterators traverse the values as
+   * they were when the iterator was created.
+   */
+  @Override public Set<V> get(@Nullable K key) {
+    return (Set<V>) super.get(key);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned set is immutable.
+   */
+  @Override public ImmutableSet<V> removeAll(@Nullable Object key) {
+    return super.removeAll(key);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned set is immutable. Any duplicates in {@code values} are
+   * stored only once.
+   */
+  @Override public ImmutableSet<V> replaceValues(
+      K key, Iterable<? extends V> values) {
+    return super.replaceValues(key, values);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The returned set is weakly consistent, like the views of a {@link
+   * java.util.concurrent.ConcurrentHashMap}: its iterators never throw
+   * {@link java.util.ConcurrentModificationException}, and may or may not
+   * reflect modifications made after they were created. Each entry is an
+   * immutable snapshot of a key-value mapping in the multimap.
+   */
+  @Override public Set<Map.Entry<K, V>> entries() {
+    return (Set<Map.Entry<K, V>>) super.entries();
+  }
+
+  @Override Set<Map.Entry<K, V>> createEntries() {
+    return new Multimaps.EntrySet<K, V>() {
+      @Override Multimap<K, V> multimap() {
+        return ConcurrentHashMultimap.this;
+      }
+
+      @Override public Iterator<Map.Entry<K, V>> iterator() {
+        return entryIterator();
+      }
+    };
+  }
+
+  private static final long serialVersionUID = 0;
+}
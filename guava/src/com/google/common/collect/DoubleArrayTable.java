@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import com.google.common.annotations.Beta;
+
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+/**
+ * Fixed-size table of {@code double} values, backed by a single array that
+ * holds the cells in row-major order. This is the primitive counterpart of
+ * {@link ArrayTable}: it needs no boxed {@link Double} per cell, and reading
+ * or writing a cell by index neither boxes nor follows a pointer to a row
+ * array.
+ *
+ * <p>The allowed row and column keys must be supplied when the table is
+ * created, and determine the order of the rows and columns. Every cell
+ * initially has the value {@code 0.0}. Cells are addressed by the positions of
+ * their keys, as given by {@link #rowKeyToIndex} and {@link
+ * #columnKeyToIndex}; the {@link #asTable} view offers the usual {@link Table}
+ * operations on boxed values.
+ *
+ * <p>Null row keys or column keys are not permitted.
+ *
+ * <p>Note that this implementation is not synchronized. As with {@code
+ * ArrayTable}, synchronization is unnecessary between a thread that writes to
+ * one cell and a thread that reads from another.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+public final class DoubleArrayTable<R, C>
+    extends PrimitiveArrayTable<R, C, Double> {
+  /**
+   * Creates a {@code DoubleArrayTable} whose cells are all {@code 0.0}.
+   *
+   * @param rowKeys row keys of the generated table
+   * @param columnKeys column keys of the generated table
+   * @throws NullPointerException if any of the provided keys is null
+   * @throws IllegalArgumentException if {@code rowKeys} or {@code columnKeys}
+   *     contains duplicates or is empty, or if the table would have more than
+   *     {@code Integer.MAX_VALUE} cells
+   */
+  public static <R, C> DoubleArrayTable<R, C> create(
+      Iterable<? extends R> rowKeys, Iterable<? extends C> columnKeys) {
+    return new DoubleArrayTable<R, C>(rowKeys, columnKeys);
+  }
+
+  /**
+   * Creates a {@code DoubleArrayTable} with the row keys, column keys and
+   * values of {@code table}. Pairs of keys with no value in {@code table} map
+   * to {@code 0.0}.
+   *
+   * @throws NullPointerException if {@code table} has a null key
+   * @throws IllegalArgumentException if the provided table is empty
+   */
+  public static <R, C> DoubleArrayTable<R, C> create(
+      Table<R, C, ? extends Number> table) {
+    DoubleArrayTable<R, C> result =
+        create(table.rowKeySet(), table.columnKeySet());
+    for (Table.Cell<R, C, ? extends Number> cell : table.cellSet()) {
+      result.values[result.index(
+          result.rowKeyToIndex.get(cell.getRowKey()),
+          result.columnKeyToIndex.get(cell.getColumnKey()))] =
+          cell.getValue().doubleValue();
+    }
+    return result;
+  }
+
+  /**
+   * Creates a {@code DoubleArrayTable} with the same keys and values as the
+   * provided table. The copy is made with a single array copy.
+   */
+  public static <R, C> DoubleArrayTable<R, C> create(
+      DoubleArrayTable<R, C> table) {
+    return new DoubleArrayTable<R, C>(table);
+  }
+
+  private final double[] values;
+
+  private DoubleArrayTable(
+      Iterable<? extends R> rowKeys, Iterable<? extends C> columnKeys) {
+    super(rowKeys, columnKeys);
+    this.values = new double[size()];
+  }
+
+  private DoubleArrayTable(DoubleArrayTable<R, C> table) {
+    super(table);
+    this.values = table.values.clone();
+  }
+
+  /**
+   * Returns the value at the specified row and column indices.
+   *
+   * @throws IndexOutOfBoundsException if either index is negative, {@code
+   *     rowIndex} is greater than or equal to the number of row keys, or
+   *     {@code columnIndex} is greater than or equal to the number of column
+   *     keys
+   */
+  public double at(int rowIndex, int columnIndex) {
+    return values[index(rowIndex, columnIndex)];
+  }
+
+  /**
+   * Stores {@code value} at the specified row and column indices, and returns
+   * the previous value.
+   *
+   * @throws IndexOutOfBoundsException if either index is negative, {@code
+   *     rowIndex} is greater than or equal to the number of row keys, or
+   *     {@code columnIndex} is greater than or equal to the number of column
+   *     keys
+   */
+  public double set(int rowIndex, int columnIndex, double value) {
+    int index = index(rowIndex, columnIndex);
+    double oldValue = values[index];
+    values[index] = value;
+    return oldValue;
+  }
+
+  /**
+   * Returns the value with the specified keys.
+   *
+   * @throws NullPointerException if either key is null
+   * @throws IllegalArgumentException if {@code rowKey} is not in {@link
+   *     #rowKeyList} or {@code columnKey} is not in {@link #columnKeyList}
+   */
+  public double get(Object rowKey, Object columnKey) {
+    return values[index(rowIndex(rowKey), columnIndex(columnKey))];
+  }
+
+  /**
+   * Stores {@code value} with the specified keys, and returns the previous
+   * value.
+   *
+   * @throws NullPointerException if either key is null
+   * @throws IllegalArgumentException if {@code rowKey} is not in {@link
+   *     #rowKeyList} or {@code columnKey} is not in {@link #columnKeyList}
+   */
+  public double put(R rowKey, C columnKey, double value) {
+    return set(rowIndex(rowKey), columnIndex(columnKey), value);
+  }
+
+  /** Sets every cell of the table to {@code value}. */
+  public void fill(double value) {
+    Arrays.fill(values, value);
+  }
+
+  /**
+   * Sets every cell of the row at {@code rowIndex} to {@code value}.
+   *
+   * @throws IndexOutOfBoundsException if {@code rowIndex} is negative or
+   *     greater than or equal to the number of row keys
+   */
+  public void fillRow(int rowIndex, double value) {
+    int from = index(rowIndex, 0);
+    Arrays.fill(values, from, from + columnList.size(), value);
+  }
+
+  /**
+   * Sets every cell of the column at {@code columnIndex} to {@code value}.
+   *
+   * @throws IndexOutOfBoundsException if {@code columnIndex} is negative or
+   *     greater than or equal to the number of column keys
+   */
+  public void fillColumn(int columnIndex, double value) {
+    checkElementIndex(columnIndex, columnList.size());
+    for (int i = columnIndex; i < values.length; i += columnList.size()) {
+      values[i] = value;
+    }
+  }
+
+  /**
+   * Replaces the values of this table with those of {@code table}, which must
+   * have the same row and column keys in the same order.
+   *
+   * @throws IllegalArgumentException if {@code table} has different row or
+   *     column keys
+   */
+  public void copyFrom(DoubleArrayTable<?, ?> table) {
+    checkArgument(rowList.equals(table.rowList)
+        && columnList.equals(table.columnList),
+        "tables have different keys");
+    System.arraycopy(table.values, 0, values, 0, values.length);
+  }
+
+  /**
+   * Returns the sum of the values in the row at {@code rowIndex}.
+   *
+   * @throws IndexOutOfBoundsException if {@code rowIndex} is negative or
+   *     greater than or equal to the number of row keys
+   */
+  public double rowSum(int rowIndex) {
+    int from = index(rowIndex, 0);
+    int to = from + columnList.size();
+    double sum = 0;
+    for (int i = from; i < to; i++) {
+      sum += values[i];
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the sum of the values in the column at {@code columnIndex}.
+   *
+   * @throws IndexOutOfBoundsException if {@code columnIndex} is negative or
+   *     greater than or equal to the number of column keys
+   */
+  public double columnSum(int columnIndex) {
+    checkElementIndex(columnIndex, columnList.size());
+    double sum = 0;
+    for (int i = columnIndex; i < values.length; i += columnList.size()) {
+      sum += values[i];
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the sums of the values in each row, indexed like {@link
+   * #rowKeyList}.
+   */
+  public double[] rowSums() {
+    double[] sums = new double[rowList.size()];
+    int columns = columnList.size();
+    for (int r = 0, i = 0; r < sums.length; r++) {
+      double sum = 0;
+      for (int end = i + columns; i < end; i++) {
+        sum += values[i];
+      }
+      sums[r] = sum;
+    }
+    return sums;
+  }
+
+  /**
+   * Returns the sums of the values in each column, indexed like {@link
+   * #columnKeyList}. The cells are visited in row-major order, so that the
+   * whole table is read sequentially rather than one column at a time.
+   */
+  public double[] columnSums() {
+    double[] sums = new double[columnList.size()];
+    for (int i = 0; i < values.length; ) {
+      for (int c = 0; c < sums.length; c++, i++) {
+        sums[c] += values[i];
+      }
+    }
+    return sums;
+  }
+
+  /**
+   * Returns a two-dimensional array with the table contents, indexed like
+   * {@link #rowKeyList} and {@link #columnKeyList}. Subsequent table changes
+   * will not modify the array, and vice versa.
+   */
+  public double[][] toArray() {
+    int columns = columnList.size();
+    double[][] result = new double[rowList.size()][];
+    for (int r = 0; r < result.length; r++) {
+      result[r] = Arrays.copyOfRange(values, r * columns, (r + 1) * columns);
+    }
+    return result;
+  }
+
+  @Override Double getBoxed(int index) {
+    return values[index];
+  }
+
+  @Override Double setBoxed(int index, Double value) {
+    double oldValue = values[index];
+    values[index] = value;
+    return oldValue;
+  }
+
+  /**
+   * Returns {@code true} if {@code obj} is a {@code DoubleArrayTable} with the
+   * same row keys and column keys, in the same order, and the same values, as
+   * compared by {@link Arrays#equals(double[], double[])}.
+   */
+  @Override public boolean equals(@Nullable Object obj) {
+    if (obj instanceof DoubleArrayTable) {
+      DoubleArrayTable<?, ?> other = (DoubleArrayTable<?, ?>) obj;
+      return rowList.equals(other.rowList)
+          && columnList.equals(other.columnList)
+          && Arrays.equals(values, other.values);
+    }
+    return false;
+  }
+
+  @Override public int hashCode() {
+    return (rowList.hashCode() * 31 + columnList.hashCode()) * 31
+        + Arrays.hashCode(values);
+  }
+
+  private static final long serialVersionUID = 0;
+}
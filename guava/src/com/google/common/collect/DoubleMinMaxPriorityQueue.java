@@ -0,0 +1,438 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.math.IntMath;
+import com.google.common.primitives.Doubles;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A double-ended priority queue of {@code int} values, each ordered by a
+ * {@code double} key. This is the primitive counterpart of {@link
+ * MinMaxPriorityQueue}: keys and values are held in two parallel arrays, so
+ * that no object is allocated per entry and comparisons neither unbox nor call
+ * a comparator. The value is typically the index of an object in some other
+ * array or list.
+ *
+ * <p>Keys are compared as by {@link Double#compare}, so {@code -0.0} is less
+ * than {@code 0.0}, and {@code NaN} is greater than every other key.
+ *
+ * <p>A queue may be configured with a maximum size. If so, when an entry is
+ * offered to a full queue, the entry with the greatest key is discarded, which
+ * might be the entry that was offered. This makes it easy to find the entries
+ * with the least {@code k} keys among many.
+ *
+ * <p>The heap is the min-max heap of Atkinson, et al.: {@link #offer} and the
+ * {@code remove} methods take {@code O(log n)} time, and the {@code peek}
+ * methods constant time.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+public final class DoubleMinMaxPriorityQueue {
+  private static final int DEFAULT_CAPACITY = 11;
+
+  /**
+   * Creates a new, empty queue with no maximum size.
+   */
+  public static DoubleMinMaxPriorityQueue create() {
+    return new DoubleMinMaxPriorityQueue(DEFAULT_CAPACITY, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a new, empty queue with no maximum size, sized appropriately to
+   * hold {@code expectedSize} entries.
+   *
+   * @throws IllegalArgumentException if {@code expectedSize} is negative
+   */
+  public static DoubleMinMaxPriorityQueue createWithExpectedSize(
+      int expectedSize) {
+    checkArgument(expectedSize >= 0, "expectedSize (%s) must be >= 0",
+        expectedSize);
+    return new DoubleMinMaxPriorityQueue(expectedSize, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates a new, empty queue that holds at most {@code maximumSize}
+   * entries. When an entry is offered to a full queue, the entry with the
+   * greatest key is discarded.
+   *
+   * @throws IllegalArgumentException if {@code maximumSize} is not positive
+   */
+  public static DoubleMinMaxPriorityQueue createWithMaximumSize(
+      int maximumSize) {
+    checkArgument(maximumSize > 0, "maximumSize (%s) must be positive",
+        maximumSize);
+    return new DoubleMinMaxPriorityQueue(
+        Math.min(DEFAULT_CAPACITY, maximumSize), maximumSize);
+  }
+
+  private final int maximumSize;
+  private double[] keys;
+  private int[] values;
+  private int size;
+
+  private DoubleMinMaxPriorityQueue(int capacity, int maximumSize) {
+    this.maximumSize = maximumSize;
+    this.keys = new double[capacity];
+    this.values = new int[capacity];
+  }
+
+  /** Returns the number of entries in this queue. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns {@code true} if this queue contains no entries. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the maximum number of entries this queue holds, or {@link
+   * Integer#MAX_VALUE} if it has no maximum size.
+   */
+  public int maximumSize() {
+    return maximumSize;
+  }
+
+  /** Removes all of the entries of this queue. */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Adds an entry with the given key and value to this queue. If the queue is
+   * full, the entry with the greatest key is discarded; ties are resolved in
+   * favor of the entries already in the queue.
+   *
+   * @return {@code false} if the offered entry was discarded
+   */
+  public boolean offer(double key, int value) {
+    if (size == maximumSize) {
+      int lastIndex = lastIndex();
+      if (Doubles.compare(key, keys[lastIndex]) >= 0) {
+        return false;
+      }
+      removeAt(lastIndex);
+    } else if (size == keys.length) {
+      grow();
+    }
+    int index = size++;
+    keys[index] = key;
+    values[index] = value;
+    bubbleUp(index);
+    return true;
+  }
+
+  /**
+   * Returns the least key in this queue.
+   *
+   * @throws NoSuchElementException if the queue is empty
+   */
+  public double peekFirstKey() {
+    checkNotEmpty();
+    return keys[0];
+  }
+
+  /**
+   * Returns the value of the entry with the least key in this queue.
+   *
+   * @throws NoSuchElementException if the queue is empty
+   */
+  public int peekFirstValue() {
+    checkNotEmpty();
+    return values[0];
+  }
+
+  /**
+   * Returns the greatest key in this queue.
+   *
+   * @throws NoSuchElementException if the queue is empty
+   */
+  public double peekLastKey() {
+    checkNotEmpty();
+    return keys[lastIndex()];
+  }
+
+  /**
+   * Returns the value of the entry with the greatest key in this queue.
+   *
+   * @throws NoSuchElementException if the queue is empty
+   */
+  public int peekLastValue() {
+    checkNotEmpty();
+    return values[lastIndex()];
+  }
+
+  /**
+   * Removes the entry with the least key from this queue, and returns its
+   * value.
+   *
+   * @throws NoSuchElementException if the queue is empty
+   */
+  public int removeFirst() {
+    checkNotEmpty();
+    int value = values[0];
+    removeAt(0);
+    return value;
+  }
+
+  /**
+   * Removes the entry with the greatest key from this queue, and returns its
+   * value.
+   *
+   * @throws NoSuchElementException if the queue is empty
+   */
+  public int removeLast() {
+    checkNotEmpty();
+    int lastIndex = lastIndex();
+    int value = values[lastIndex];
+    removeAt(lastIndex);
+    return value;
+  }
+
+  /**
+   * Removes the entries with the least keys from this queue, storing their
+   * keys and values in ascending order of key at the start of {@code
+   * keysOut} and {@code valuesOut}, and returns the number of entries removed.
+   * At most {@code keysOut.length} entries are removed.
+   *
+   * <p>If the arrays can hold every entry, the entries are copied out in one
+   * pass and merge sorted, leaving the queue empty; otherwise each entry is
+   * removed from the heap in turn, in {@code O(log n)} time.
+   *
+   * @throws IllegalArgumentException if {@code keysOut} and {@code valuesOut}
+   *     have different lengths
+   */
+  public int drainTo(double[] keysOut, int[] valuesOut) {
+    checkArgument(keysOut.length == valuesOut.length,
+        "arrays have different lengths: %s, %s",
+        keysOut.length, valuesOut.length);
+    int count = Math.min(size, keysOut.length);
+    if (count == size) {
+      System.arraycopy(keys, 0, keysOut, 0, count);
+      System.arraycopy(values, 0, valuesOut, 0, count);
+      // the heap arrays hold the same entries, and serve as scratch space
+      mergeSort(keys, values, keysOut, valuesOut, 0, count);
+      size = 0;
+      return count;
+    }
+    for (int i = 0; i < count; i++) {
+      keysOut[i] = keys[0];
+      valuesOut[i] = values[0];
+      removeAt(0);
+    }
+    return count;
+  }
+
+  /**
+   * Sorts the entries of {@code destKeys} and {@code destValues} in the range
+   * from {@code low} to {@code high} by key. The same range of {@code srcKeys}
+   * and {@code srcValues} must hold the same entries, in any order, and is
+   * overwritten.
+   */
+  private static void mergeSort(double[] srcKeys, int[] srcValues,
+      double[] destKeys, int[] destValues, int low, int high) {
+    if (high - low < 8) {
+      for (int i = low + 1; i < high; i++) {
+        double key = destKeys[i];
+        int value = destValues[i];
+        int j = i;
+        for (; j > low && Doubles.compare(destKeys[j - 1], key) > 0; j--) {
+          destKeys[j] = destKeys[j - 1];
+          destValues[j] = destValues[j - 1];
+        }
+        destKeys[j] = key;
+        destValues[j] = value;
+      }
+      return;
+    }
+    int mid = (low + high) >>> 1;
+    // sort each half of src, using dest as scratch, then merge them into dest
+    mergeSort(destKeys, destValues, srcKeys, srcValues, low, mid);
+    mergeSort(destKeys, destValues, srcKeys, srcValues, mid, high);
+    for (int i = low, p = low, q = mid; i < high; i++) {
+      if (q >= high
+          || (p < mid && Doubles.compare(srcKeys[p], srcKeys[q]) <= 0)) {
+        destKeys[i] = srcKeys[p];
+        destValues[i] = srcValues[p++];
+      } else {
+        destKeys[i] = srcKeys[q];
+        destValues[i] = srcValues[q++];
+      }
+    }
+  }
+
+  private void checkNotEmpty() {
+    if (size == 0) {
+      throw new NoSuchElementException();
+    }
+  }
+
+  /** Returns the index of the entry with the greatest key. */
+  private int lastIndex() {
+    switch (size) {
+      case 1:
+        return 0;
+      case 2:
+        return 1;
+      default:
+        return less(1, 2) ? 2 : 1;
+    }
+  }
+
+  private void grow() {
+    int oldCapacity = keys.length;
+    int newCapacity = (oldCapacity < 64)
+        ? (oldCapacity + 1) * 2
+        : IntMath.checkedMultiply(oldCapacity / 2, 3);
+    newCapacity = Math.min(newCapacity, maximumSize);
+    keys = Arrays.copyOf(keys, newCapacity);
+    values = Arrays.copyOf(values, newCapacity);
+  }
+
+  private boolean less(int a, int b) {
+    return Doubles.compare(keys[a], keys[b]) < 0;
+  }
+
+  /**
+   * Returns whether the entry at {@code a} must be nearer the root than the
+   * entry at {@code b}, on a min level if {@code min} and a max level
+   * otherwise.
+   */
+  private boolean precedes(int a, int b, boolean min) {
+    return min ? less(a, b) : less(b, a);
+  }
+
+  private void swap(int a, int b) {
+    double key = keys[a];
+    keys[a] = keys[b];
+    keys[b] = key;
+    int value = values[a];
+    values[a] = values[b];
+    values[b] = value;
+  }
+
+  /** Returns whether {@code index} is on a min level (an even level). */
+  private static boolean isMinLevel(int index) {
+    return (Integer.numberOfLeadingZeros(index + 1) & 1) == 1;
+  }
+
+  /**
+   * Removes the entry at {@code index}, which must be the root or one of its
+   * children, by moving the last entry into its place.
+   */
+  private void removeAt(int index) {
+    int last = --size;
+    if (index != last) {
+      keys[index] = keys[last];
+      values[index] = values[last];
+      trickleDown(index);
+    }
+  }
+
+  private void bubbleUp(int index) {
+    if (index == 0) {
+      return;
+    }
+    int parent = (index - 1) >>> 1;
+    boolean min = isMinLevel(index);
+    if (precedes(parent, index, min)) {
+      // The entry belongs on the parent's levels.
+      swap(index, parent);
+      bubbleUpAlternatingLevels(parent, !min);
+    } else {
+      bubbleUpAlternatingLevels(index, min);
+    }
+  }
+
+  private void bubbleUpAlternatingLevels(int index, boolean min) {
+    while (index > 2) {
+      int grandparent = (index - 3) >>> 2;
+      if (!precedes(index, grandparent, min)) {
+        break;
+      }
+      swap(index, grandparent);
+      index = grandparent;
+    }
+  }
+
+  /**
+   * Moves the entry at {@code index} down until the heap invariant holds at
+   * {@code index}, assuming that it already holds in the subtrees below it.
+   */
+  private void trickleDown(int index) {
+    boolean min = isMinLevel(index);
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        return;
+      }
+      int best = child;
+      if (child + 1 < size && precedes(child + 1, best, min)) {
+        best = child + 1;
+      }
+      int grandchild = 2 * child + 1;
+      for (int i = grandchild, end = Math.min(grandchild + 4, size);
+          i < end; i++) {
+        if (precedes(i, best, min)) {
+          best = i;
+        }
+      }
+      if (!precedes(best, index, min)) {
+        return;
+      }
+      swap(best, index);
+      if (best < grandchild) {
+        return;
+      }
+      int parent = (best - 1) >>> 1;
+      if (precedes(parent, best, min)) {
+        swap(best, parent);
+      }
+      index = best;
+    }
+  }
+
+  /**
+   * Returns {@code true} if the min-max heap invariant holds. Only used in
+   * testing.
+   */
+  @VisibleForTesting boolean isIntact() {
+    for (int i = 1; i < size; i++) {
+      int parent = (i - 1) >>> 1;
+      boolean min = isMinLevel(i);
+      if (precedes(parent, i, min)) {
+        return false;
+      }
+      if (i > 2 && precedes(i, (i - 3) >>> 2, min)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
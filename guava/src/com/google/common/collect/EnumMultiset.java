@@ -22,11 +22,14 @@ import com.google.common.annotations.GwtIncompatible;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.EnumMap;
 import java.util.Iterator;
 
+import javax.annotation.Nullable;
+
 /**
- * Multiset implementation backed by an {@link EnumMap}.
+ * Multiset implementation that stores the count of each constant of the enum
+ * type in an {@code int[]} indexed by ordinal. Elements are iterated in
+ * ordinal order.
  * 
  * <p>See the Guava User Guide article on <a href=
  * "http://code.google.com/p/guava-libraries/wiki/NewCollectionTypesExplained#Multiset">
@@ -36,7 +39,7 @@ import java.util.Iterator;
  * @since 2.0 (imported from Google Collections Library)
  */
 @GwtCompatible(emulated = true)
-public final class EnumMultiset<E extends Enum<E>> extends AbstractMapBasedMultiset<E> {
+public final class EnumMultiset<E extends Enum<E>> extends AbstractArrayBasedMultiset<E> {
   /** Creates an empty {@code EnumMultiset}. */
   public static <E extends Enum<E>> EnumMultiset<E> create(Class<E> type) {
     return new EnumMultiset<E>(type);
@@ -60,11 +63,43 @@ public final class EnumMultiset<E extends Enum<E>> extends AbstractMapBasedMulti
   }
 
   private transient Class<E> type;
+  private transient E[] enumConstants;
 
   /** Creates an empty {@code EnumMultiset}. */
   private EnumMultiset(Class<E> type) {
-    super(WellBehavedMap.wrap(new EnumMap<E, Count>(type)));
+    init(type);
+  }
+
+  private void init(Class<E> type) {
     this.type = type;
+    this.enumConstants = type.getEnumConstants();
+    this.counts = new int[enumConstants.length];
+  }
+
+  @Override int slotOf(@Nullable Object element) {
+    if (element instanceof Enum) {
+      Enum<?> e = (Enum<?>) element;
+      int ordinal = e.ordinal();
+      if (ordinal < enumConstants.length && enumConstants[ordinal] == e
+          && counts[ordinal] > 0) {
+        return ordinal;
+      }
+    }
+    return -1;
+  }
+
+  @Override int findOrAssignSlot(@Nullable E element) {
+    // like EnumMap.put, reject nulls and, for raw callers, foreign enums
+    int ordinal = element.ordinal();
+    if (ordinal >= enumConstants.length || enumConstants[ordinal] != element) {
+      throw new ClassCastException(
+          element.getClass() + " != " + type);
+    }
+    return ordinal;
+  }
+
+  @Override E elementAt(int slot) {
+    return enumConstants[slot];
   }
 
   @GwtIncompatible("java.io.ObjectOutputStream")
@@ -84,8 +119,7 @@ public final class EnumMultiset<E extends Enum<E>> extends AbstractMapBasedMulti
     stream.defaultReadObject();
     @SuppressWarnings("unchecked") // reading data stored by writeObject
     Class<E> localType = (Class<E>) stream.readObject();
-    type = localType;
-    setBackingMap(WellBehavedMap.wrap(new EnumMap<E, Count>(type)));
+    init(localType);
     Serialization.populateMultiset(this, stream);
   }
 
@@ -222,6 +222,27 @@ public abstract class FluentIterable<E> implements Iterable<E> {
     return from(Iterables.concat(transform(function)));
   }
 
+  /**
+   * Returns a pipeline over the elements of this fluent iterable that processes them
+   * {@code batchSize} at a time. Transformations and filters applied to the returned {@link
+   * BatchedIterable} are run over whole arrays of elements, rather than through a chain of
+   * iterators, and can be run in parallel on an executor: <pre>   {@code
+   *
+   *   ImmutableList<Result> results = FluentIterable.from(requests)
+   *       .batched(1024)
+   *       .filter(isValid())
+   *       .transform(toResult())
+   *       .parallel(executor)
+   *       .toList();}</pre>
+   *
+   * @throws IllegalArgumentException if {@code batchSize} is not positive
+   * @since 14.0
+   */
+  @GwtIncompatible("BatchedIterable")
+  public final BatchedIterable<E> batched(int batchSize) {
+    return new BatchedIterable<E>(iterable, batchSize);
+  }
+
   /**
    * Returns an {@link Optional} containing the first element in this fluent iterable.
    * If the iterable is empty, {@code Optional.absent()} is returned.
@@ -17,13 +17,19 @@
 package com.google.common.collect;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
 import com.google.common.base.Supplier;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 
@@ -39,7 +45,8 @@ import javax.annotation.Nullable;
  * the data is stored in a {@code Map<R, Map<C, V>>}. A method call like {@code
  * column(columnKey).get(rowKey)} still runs quickly, since the row key is
  * provided. However, {@code column(columnKey).size()} takes longer, since an
- * iteration across all row keys occurs.
+ * iteration across all row keys occurs, unless the table was created by
+ * {@link #createWithColumnIndex}.
  *
  * <p>Note that this implementation is not synchronized. If multiple threads
  * access this table concurrently and one of the threads modifies the table, it
@@ -108,6 +115,25 @@ public class HashBasedTable<R, C, V> extends StandardTable<R, C, V> {
     return result;
   }
 
+  /**
+   * Creates an empty {@code HashBasedTable} that also keeps an index from each
+   * column key to the row keys of its cells. The index makes {@link #column},
+   * {@link #containsColumn}, {@link #columnKeySet} and {@link #columnMap} take
+   * time proportional to the number of cells in the column, or to the number
+   * of columns, instead of to the number of rows; in exchange, each cell takes
+   * more memory, and each put or removal of a cell updates the index.
+   *
+   * <p>The maps returned by {@code column} and the set returned by {@code
+   * columnKeySet} have iterators that traverse a snapshot of the column or of
+   * the column keys, and that support {@code remove()}.
+   *
+   * @since 14.0
+   */
+  @Beta
+  public static <R, C, V> HashBasedTable<R, C, V> createWithColumnIndex() {
+    return new ColumnIndexedTable<R, C, V>(new HashMap<C, Set<R>>());
+  }
+
   HashBasedTable(Map<R, Map<C, V>> backingMap, Factory<C, V> factory) {
     super(backingMap, factory);
   }
@@ -144,5 +170,388 @@ public class HashBasedTable<R, C, V> extends StandardTable<R, C, V> {
     return super.remove(rowKey, columnKey);
   }
 
+  /**
+   * A {@code HashBasedTable} with an index from each column key to the row keys
+   * of its cells. The index is maintained by wrapping the backing map and each
+   * row map, so that every change to the table, through whichever view, is
+   * observed.
+   */
+  private static final class ColumnIndexedTable<R, C, V>
+      extends HashBasedTable<R, C, V> {
+    final Map<C, Set<R>> columnIndex;
+
+    ColumnIndexedTable(Map<C, Set<R>> columnIndex) {
+      super(new IndexedBackingMap<R, C, V>(
+          new HashMap<R, Map<C, V>>(), columnIndex), new Factory<C, V>(0));
+      this.columnIndex = columnIndex;
+    }
+
+    @Override Map<C, V> createRowMap(R rowKey) {
+      return new IndexedRowMap<R, C, V>(
+          super.createRowMap(rowKey), rowKey, columnIndex);
+    }
+
+    @Override public boolean containsColumn(@Nullable Object columnKey) {
+      return columnKey != null
+          && Maps.safeContainsKey(columnIndex, columnKey);
+    }
+
+    @Override Map<R, V> removeColumn(Object columnKey) {
+      Map<R, V> output = new LinkedHashMap<R, V>();
+      for (R rowKey : rowKeys(columnKey)) {
+        output.put(rowKey, remove(rowKey, columnKey));
+      }
+      return output;
+    }
+
+    /** Returns a snapshot of the row keys of the cells in a column. */
+    ImmutableList<R> rowKeys(Object columnKey) {
+      Set<R> rowKeys = Maps.safeGet(columnIndex, columnKey);
+      return (rowKeys == null)
+          ? ImmutableList.<R>of() : ImmutableList.copyOf(rowKeys);
+    }
+
+    @Override public Map<R, V> column(C columnKey) {
+      return new IndexedColumn(checkNotNull(columnKey));
+    }
+
+    private final class IndexedColumn extends Maps.ImprovedAbstractMap<R, V> {
+      final C columnKey;
+
+      IndexedColumn(C columnKey) {
+        this.columnKey = columnKey;
+      }
+
+      @Override public V get(Object rowKey) {
+        return ColumnIndexedTable.this.get(rowKey, columnKey);
+      }
+
+      @Override public boolean containsKey(Object rowKey) {
+        return contains(rowKey, columnKey);
+      }
+
+      @Override public V put(R rowKey, V value) {
+        return ColumnIndexedTable.this.put(rowKey, columnKey, value);
+      }
+
+      @Override public V remove(Object rowKey) {
+        return ColumnIndexedTable.this.remove(rowKey, columnKey);
+      }
+
+      @Override public int size() {
+        Set<R> rowKeys = columnIndex.get(columnKey);
+        return (rowKeys == null) ? 0 : rowKeys.size();
+      }
+
+      @Override public boolean isEmpty() {
+        return !containsColumn(columnKey);
+      }
+
+      @Override public void clear() {
+        removeColumn(columnKey);
+      }
+
+      @Override protected Set<Entry<R, V>> createEntrySet() {
+        return new Maps.EntrySet<R, V>() {
+          @Override Map<R, V> map() {
+            return IndexedColumn.this;
+          }
+
+          @Override public Iterator<Entry<R, V>> iterator() {
+            final Iterator<R> rowKeyIterator = rowKeys(columnKey).iterator();
+            return new Iterator<Entry<R, V>>() {
+              R rowKey;
+
+              @Override
+              public boolean hasNext() {
+                return rowKeyIterator.hasNext();
+              }
+
+              @Override
+              public Entry<R, V> next() {
+                final R entryRowKey = rowKey = rowKeyIterator.next();
+                return new AbstractMapEntry<R, V>() {
+                  @Override public R getKey() {
+                    return entryRowKey;
+                  }
+
+                  @Override public V getValue() {
+                    return get(entryRowKey);
+                  }
+
+                  @Override public V setValue(V value) {
+                    return put(entryRowKey, checkNotNull(value));
+                  }
+                };
+              }
+
+              @Override
+              public void remove() {
+                Iterators.checkRemove(rowKey != null);
+                IndexedColumn.this.remove(rowKey);
+                rowKey = null;
+              }
+            };
+          }
+        };
+      }
+    }
+
+    private transient Set<C> columnKeySet;
+
+    @Override public Set<C> columnKeySet() {
+      Set<C> result = columnKeySet;
+      return (result == null) ? columnKeySet = new IndexedColumnKeySet() : result;
+    }
+
+    private final class IndexedColumnKeySet extends Sets.ImprovedAbstractSet<C> {
+      @Override public Iterator<C> iterator() {
+        final Iterator<C> iterator =
+            ImmutableList.copyOf(columnIndex.keySet()).iterator();
+        return new Iterator<C>() {
+          C columnKey;
+
+          @Override
+          public boolean hasNext() {
+            return iterator.hasNext();
+          }
+
+          @Override
+          public C next() {
+            return columnKey = iterator.next();
+          }
+
+          @Override
+          public void remove() {
+            Iterators.checkRemove(columnKey != null);
+            removeColumn(columnKey);
+            columnKey = null;
+          }
+        };
+      }
+
+      @Override public int size() {
+        return columnIndex.size();
+      }
+
+      @Override public boolean isEmpty() {
+        return columnIndex.isEmpty();
+      }
+
+      @Override public boolean contains(@Nullable Object columnKey) {
+        return containsColumn(columnKey);
+      }
+
+      @Override public boolean remove(@Nullable Object columnKey) {
+        return containsColumn(columnKey) && !removeColumn(columnKey).isEmpty();
+      }
+
+      @Override public void clear() {
+        ColumnIndexedTable.this.clear();
+      }
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  static <R, C> void addToIndex(Map<C, Set<R>> columnIndex, C columnKey,
+      R rowKey) {
+    Set<R> rowKeys = columnIndex.get(columnKey);
+    if (rowKeys == null) {
+      rowKeys = Sets.newHashSet();
+      columnIndex.put(columnKey, rowKeys);
+    }
+    rowKeys.add(rowKey);
+  }
+
+  static <R, C> void removeFromIndex(Map<C, Set<R>> columnIndex,
+      Object columnKey, Object rowKey) {
+    Set<R> rowKeys = columnIndex.get(columnKey);
+    if (rowKeys != null && rowKeys.remove(rowKey) && rowKeys.isEmpty()) {
+      columnIndex.remove(columnKey);
+    }
+  }
+
+  /**
+   * A row map that records in the column index each column key it gains or
+   * loses. Every removal, including those through the map's views, funnels
+   * through {@link #remove} or the entry set iterator.
+   */
+  private static final class IndexedRowMap<R, C, V>
+      extends ForwardingMap<C, V> implements Serializable {
+    final Map<C, V> delegate;
+    final R rowKey;
+    final Map<C, Set<R>> columnIndex;
+
+    IndexedRowMap(Map<C, V> delegate, R rowKey, Map<C, Set<R>> columnIndex) {
+      this.delegate = delegate;
+      this.rowKey = rowKey;
+      this.columnIndex = columnIndex;
+    }
+
+    @Override protected Map<C, V> delegate() {
+      return delegate;
+    }
+
+    @Override public V put(C columnKey, V value) {
+      V oldValue = delegate.put(columnKey, value);
+      if (oldValue == null) {
+        addToIndex(columnIndex, columnKey, rowKey);
+      }
+      return oldValue;
+    }
+
+    @Override public void putAll(Map<? extends C, ? extends V> map) {
+      standardPutAll(map);
+    }
+
+    @Override public V remove(Object columnKey) {
+      V oldValue = delegate.remove(columnKey);
+      if (oldValue != null) {
+        removeFromIndex(columnIndex, columnKey, rowKey);
+      }
+      return oldValue;
+    }
+
+    @Override public void clear() {
+      for (C columnKey : delegate.keySet()) {
+        removeFromIndex(columnIndex, columnKey, rowKey);
+      }
+      delegate.clear();
+    }
+
+    @Override public Set<C> keySet() {
+      return new Maps.KeySet<C, V>() {
+        @Override Map<C, V> map() {
+          return IndexedRowMap.this;
+        }
+      };
+    }
+
+    @Override public Collection<V> values() {
+      return new Maps.Values<C, V>() {
+        @Override Map<C, V> map() {
+          return IndexedRowMap.this;
+        }
+      };
+    }
+
+    @Override public Set<Entry<C, V>> entrySet() {
+      return new Maps.EntrySet<C, V>() {
+        @Override Map<C, V> map() {
+          return IndexedRowMap.this;
+        }
+
+        @Override public Iterator<Entry<C, V>> iterator() {
+          final Iterator<Entry<C, V>> iterator = delegate.entrySet().iterator();
+          return new ForwardingIterator<Entry<C, V>>() {
+            Entry<C, V> last;
+
+            @Override protected Iterator<Entry<C, V>> delegate() {
+              return iterator;
+            }
+
+            @Override public Entry<C, V> next() {
+              return last = iterator.next();
+            }
+
+            @Override public void remove() {
+              iterator.remove();
+              removeFromIndex(columnIndex, last.getKey(), rowKey);
+            }
+          };
+        }
+      };
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  /**
+   * A backing map that removes from the column index the cells of each row it
+   * loses.
+   */
+  private static final class IndexedBackingMap<R, C, V>
+      extends ForwardingMap<R, Map<C, V>> implements Serializable {
+    final Map<R, Map<C, V>> delegate;
+    final Map<C, Set<R>> columnIndex;
+
+    IndexedBackingMap(
+        Map<R, Map<C, V>> delegate, Map<C, Set<R>> columnIndex) {
+      this.delegate = delegate;
+      this.columnIndex = columnIndex;
+    }
+
+    @Override protected Map<R, Map<C, V>> delegate() {
+      return delegate;
+    }
+
+    void removeRowFromIndex(Object rowKey, Map<C, V> row) {
+      for (C columnKey : row.keySet()) {
+        removeFromIndex(columnIndex, columnKey, rowKey);
+      }
+    }
+
+    @Override public Map<C, V> remove(Object rowKey) {
+      Map<C, V> row = delegate.remove(rowKey);
+      if (row != null) {
+        removeRowFromIndex(rowKey, row);
+      }
+      return row;
+    }
+
+    @Override public void clear() {
+      delegate.clear();
+      columnIndex.clear();
+    }
+
+    @Override public Set<R> keySet() {
+      return new Maps.KeySet<R, Map<C, V>>() {
+        @Override Map<R, Map<C, V>> map() {
+          return IndexedBackingMap.this;
+        }
+      };
+    }
+
+    @Override public Collection<Map<C, V>> values() {
+      return new Maps.Values<R, Map<C, V>>() {
+        @Override Map<R, Map<C, V>> map() {
+          return IndexedBackingMap.this;
+        }
+      };
+    }
+
+    @Override public Set<Entry<R, Map<C, V>>> entrySet() {
+      return new Maps.EntrySet<R, Map<C, V>>() {
+        @Override Map<R, Map<C, V>> map() {
+          return IndexedBackingMap.this;
+        }
+
+        @Override public Iterator<Entry<R, Map<C, V>>> iterator() {
+          final Iterator<Entry<R, Map<C, V>>> iterator =
+              delegate.entrySet().iterator();
+          return new ForwardingIterator<Entry<R, Map<C, V>>>() {
+            Entry<R, Map<C, V>> last;
+
+            @Override protected Iterator<Entry<R, Map<C, V>>> delegate() {
+              return iterator;
+            }
+
+            @Override public Entry<R, Map<C, V>> next() {
+              return last = iterator.next();
+            }
+
+            @Override public void remove() {
+              iterator.remove();
+              removeRowFromIndex(last.getKey(), last.getValue());
+            }
+          };
+        }
+      };
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
   private static final long serialVersionUID = 0;
 }
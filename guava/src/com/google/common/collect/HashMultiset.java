@@ -22,17 +22,31 @@ import com.google.common.annotations.GwtIncompatible;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.HashMap;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
 
 /**
- * Multiset implementation backed by a {@link HashMap}.
+ * Multiset implementation backed by a hash table.
+ *
+ * <p>The elements are kept in an open-addressed table, probed linearly, with
+ * their counts in a parallel {@code int[]}; unlike a {@code HashMap<E, Count>},
+ * this allocates no objects per element. Iteration order is unspecified.
  *
  * @author Kevin Bourrillion
  * @author Jared Levy
  * @since 2.0 (imported from Google Collections Library)
  */
 @GwtCompatible(serializable = true, emulated = true)
-public final class HashMultiset<E> extends AbstractMapBasedMultiset<E> {
+public final class HashMultiset<E> extends AbstractArrayBasedMultiset<E> {
+  /** The maximum ratio of occupied and deleted slots to table size. */
+  private static final double LOAD_FACTOR = 0.7;
+
+  /** Stands in for a null element, since null marks a never-used slot. */
+  private static final Object NULL_ELEMENT = new Object();
+
+  /** Marks a slot whose element was removed, so that probing continues. */
+  private static final Object DELETED = new Object();
 
   /**
    * Creates a new, empty {@code HashMultiset} using the default initial
@@ -68,12 +82,117 @@ public final class HashMultiset<E> extends AbstractMapBasedMultiset<E> {
     return multiset;
   }
 
+  /**
+   * The elements, with null replaced by {@link #NULL_ELEMENT}. Each slot is
+   * either null (never used), {@link #DELETED}, or holds an element whose
+   * count is in the same slot of {@link #counts}.
+   */
+  private transient Object[] table;
+
+  /** The number of {@link #DELETED} slots. */
+  private transient int deletedSlots;
+
   private HashMultiset() {
-    super(new HashMap<E, Count>());
+    init(0);
   }
 
   private HashMultiset(int distinctElements) {
-    super(Maps.<E, Count>newHashMapWithExpectedSize(distinctElements));
+    Multisets.checkNonnegative(distinctElements, "distinctElements");
+    init(distinctElements);
+  }
+
+  private void init(int expectedDistinctElements) {
+    int tableSize = ImmutableSet.chooseTableSize(
+        Math.max(expectedDistinctElements, 2));
+    table = new Object[tableSize];
+    counts = new int[tableSize];
+    deletedSlots = 0;
+  }
+
+  @Override int slotOf(@Nullable Object element) {
+    Object target = (element == null) ? NULL_ELEMENT : element;
+    Object[] table = this.table;
+    int mask = table.length - 1;
+    for (int i = Hashing.smear(target.hashCode()); ; i++) {
+      Object candidate = table[i & mask];
+      if (candidate == null) {
+        return -1;
+      } else if (candidate != DELETED
+          && (candidate == target || target.equals(candidate))) {
+        return i & mask;
+      }
+    }
+  }
+
+  @Override int findOrAssignSlot(@Nullable E element) {
+    Object target = (element == null) ? NULL_ELEMENT : element;
+    Object[] table = this.table;
+    int mask = table.length - 1;
+    int firstDeleted = -1;
+    for (int i = Hashing.smear(target.hashCode()); ; i++) {
+      int slot = i & mask;
+      Object candidate = table[slot];
+      if (candidate == null) {
+        if (firstDeleted != -1) {
+          slot = firstDeleted;
+          deletedSlots--;
+        } else if (distinctElements + deletedSlots + 1
+            > LOAD_FACTOR * table.length) {
+          rehash();
+          return findOrAssignSlot(element);
+        }
+        table[slot] = target;
+        return slot;
+      } else if (candidate == DELETED) {
+        if (firstDeleted == -1) {
+          firstDeleted = slot;
+        }
+      } else if (candidate == target || target.equals(candidate)) {
+        return slot;
+      }
+    }
+  }
+
+  /**
+   * Moves the elements into a fresh table, discarding deleted slots, with
+   * room for the multiset to double its number of distinct elements.
+   */
+  private void rehash() {
+    Object[] oldTable = table;
+    int[] oldCounts = counts;
+    init(2 * (distinctElements + 1));
+    Object[] table = this.table;
+    int[] counts = this.counts;
+    int mask = table.length - 1;
+    for (int oldSlot = 0; oldSlot < oldTable.length; oldSlot++) {
+      if (oldCounts[oldSlot] > 0) {
+        Object element = oldTable[oldSlot];
+        int i = Hashing.smear(element.hashCode());
+        while (table[i & mask] != null) {
+          i++;
+        }
+        table[i & mask] = element;
+        counts[i & mask] = oldCounts[oldSlot];
+      }
+    }
+    modCount++;
+  }
+
+  @SuppressWarnings("unchecked") // only elements of type E are stored
+  @Override E elementAt(int slot) {
+    Object element = table[slot];
+    return (element == NULL_ELEMENT) ? null : (E) element;
+  }
+
+  @Override void releaseSlot(int slot) {
+    table[slot] = DELETED;
+    deletedSlots++;
+  }
+
+  @Override public void clear() {
+    Arrays.fill(table, null);
+    deletedSlots = 0;
+    super.clear();
   }
 
   /**
@@ -91,8 +210,7 @@ public final class HashMultiset<E> extends AbstractMapBasedMultiset<E> {
       throws IOException, ClassNotFoundException {
     stream.defaultReadObject();
     int distinctElements = Serialization.readCount(stream);
-    setBackingMap(
-        Maps.<E, Count>newHashMapWithExpectedSize(distinctElements));
+    init(distinctElements);
     Serialization.populateMultiset(this, stream, distinctElements);
   }
 
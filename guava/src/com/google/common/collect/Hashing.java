@@ -17,6 +17,7 @@
 package com.google.common.collect;
 
 import com.google.common.annotations.GwtCompatible;
+import com.google.common.primitives.Ints;
 
 /**
  * Static methods for implementing hash-based collections.
@@ -40,4 +41,33 @@ final class Hashing {
     hashCode ^= (hashCode >>> 20) ^ (hashCode >>> 12);
     return hashCode ^ (hashCode >>> 7) ^ (hashCode >>> 4);
   }
+
+  private static final int MAX_TABLE_SIZE = Ints.MAX_POWER_OF_TWO;
+
+  /**
+   * Returns a power-of-two table size for a closed-addressing (chained) hash
+   * table that is to hold {@code expectedEntries} entries without exceeding
+   * {@code loadFactor}.
+   */
+  static int closedTableSize(int expectedEntries, double loadFactor) {
+    // Get the recommended table size.
+    // Round down to the nearest power of 2.
+    expectedEntries = Math.max(expectedEntries, 2);
+    int tableSize = Integer.highestOneBit(expectedEntries);
+    // Check to make sure that we will not exceed the maximum load factor.
+    if (expectedEntries > (int) (loadFactor * tableSize)) {
+      tableSize <<= 1;
+      return (tableSize > 0) ? tableSize : MAX_TABLE_SIZE;
+    }
+    return tableSize;
+  }
+
+  /**
+   * Returns whether a closed-addressing table of {@code tableSize} buckets
+   * holding {@code size} entries has exceeded {@code loadFactor} and may still
+   * grow.
+   */
+  static boolean needsResizing(int size, int tableSize, double loadFactor) {
+    return size > loadFactor * tableSize && tableSize < MAX_TABLE_SIZE;
+  }
 }
@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.primitives.Ints;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tracks the most frequent elements of a stream of unbounded length in a fixed
+ * amount of memory, using the Space-Saving algorithm of Metwally, Agrawal and
+ * El Abbadi.
+ *
+ * <p>At most {@link #capacity} elements are monitored at a time, each with an
+ * estimated count. When an element that is not monitored is offered and all
+ * the slots are in use, it replaces the monitored element with the lowest
+ * estimate, and inherits that estimate as its possible overestimate. This
+ * gives the following guarantees, where {@code N} is {@link #totalCount}:
+ *
+ * <ul>
+ * <li>The estimated count of a monitored element is never less than its true
+ *     count, and exceeds it by at most {@link #maxOverestimate}, which is
+ *     itself at most {@code N / capacity}. {@link #lowerBound} and {@link
+ *     #upperBound} give tighter bounds for each element.
+ * <li>Every element that occurred more than {@code N / capacity} times is
+ *     monitored.
+ * </ul>
+ *
+ * <p>If no more than {@code capacity} distinct elements are offered, every
+ * count is exact.
+ *
+ * <p>The estimates can be read through {@link #asMultiset}; for example, the
+ * {@code k} elements with the highest estimated counts are {@code
+ * Multisets.copyHighestCountFirst(heavyHitters.asMultiset(), k)}.
+ *
+ * <p>Null elements are not supported. This class is not thread-safe.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+@GwtCompatible
+public final class HeavyHitters<E> {
+  /**
+   * Creates a new {@code HeavyHitters} that monitors at most {@code capacity}
+   * elements at a time.
+   *
+   * @throws IllegalArgumentException if {@code capacity} is not positive
+   */
+  public static <E> HeavyHitters<E> create(int capacity) {
+    return new HeavyHitters<E>(capacity);
+  }
+
+  /**
+   * A monitored element. Nodes are reused when their element is evicted, so
+   * that no allocation happens once every slot is in use.
+   */
+  private static final class Node<E> {
+    E element;
+    long count;
+    // the count the element inherited when it replaced another element
+    long error;
+    // the position of this node in the heap
+    int index;
+
+    Node(E element, long count, int index) {
+      this.element = element;
+      this.count = count;
+      this.index = index;
+    }
+  }
+
+  // min-heap of the monitored elements by count
+  private final Node<E>[] heap;
+  private int size;
+  private final Map<E, Node<E>> nodes;
+  private long totalCount;
+  // whether any element has been replaced, so that counts may be inexact
+  private boolean evicted;
+
+  private HeavyHitters(int capacity) {
+    checkArgument(capacity > 0, "capacity (%s) must be positive", capacity);
+    @SuppressWarnings("unchecked") // generic array creation
+    Node<E>[] heap = new Node[capacity];
+    this.heap = heap;
+    this.nodes = Maps.newHashMapWithExpectedSize(capacity);
+  }
+
+  /**
+   * Returns the maximum number of elements monitored at a time.
+   */
+  public int capacity() {
+    return heap.length;
+  }
+
+  /**
+   * Returns the total number of occurrences offered so far.
+   */
+  public long totalCount() {
+    return totalCount;
+  }
+
+  /**
+   * Records one occurrence of {@code element}.
+   *
+   * @throws NullPointerException if {@code element} is null
+   */
+  public void offer(E element) {
+    offer(element, 1);
+  }
+
+  /**
+   * Records {@code occurrences} occurrences of {@code element}.
+   *
+   * @throws NullPointerException if {@code element} is null
+   * @throws IllegalArgumentException if {@code occurrences} is negative
+   */
+  public void offer(E element, int occurrences) {
+    checkNotNull(element);
+    Multisets.checkNonnegative(occurrences, "occurrences");
+    if (occurrences == 0) {
+      return;
+    }
+    totalCount += occurrences;
+    Node<E> node = nodes.get(element);
+    if (node != null) {
+      node.count += occurrences;
+      siftDown(node.index);
+    } else if (size < heap.length) {
+      node = new Node<E>(element, occurrences, size);
+      heap[size++] = node;
+      nodes.put(element, node);
+      siftUp(node.index);
+    } else {
+      // replace the monitored element with the least count
+      node = heap[0];
+      evicted = true;
+      nodes.remove(node.element);
+      node.element = element;
+      node.error = node.count;
+      node.count += occurrences;
+      nodes.put(element, node);
+      siftDown(0);
+    }
+  }
+
+  /**
+   * Returns an upper bound on the number of occurrences of {@code element}
+   * offered so far. For a monitored element, this is its estimated count.
+   */
+  public long upperBound(@Nullable Object element) {
+    Node<E> node = nodes.get(element);
+    return (node == null) ? maxOverestimate() : node.count;
+  }
+
+  /**
+   * Returns a lower bound on the number of occurrences of {@code element}
+   * offered so far, which is zero unless the element is monitored.
+   */
+  public long lowerBound(@Nullable Object element) {
+    Node<E> node = nodes.get(element);
+    return (node == null) ? 0 : node.count - node.error;
+  }
+
+  /**
+   * Returns the largest amount by which any estimated count can currently
+   * exceed the true count, which is never more than {@code totalCount() /
+   * capacity()}. This is zero until more than {@code capacity()} distinct
+   * elements have been offered.
+   */
+  public long maxOverestimate() {
+    return evicted ? heap[0].count : 0;
+  }
+
+  /**
+   * Returns a read-only view of the monitored elements as a multiset, whose
+   * counts are their estimated counts, saturated to {@code
+   * Integer.MAX_VALUE}. Elements that are not monitored have a count of zero.
+   * The view iterates over the monitored elements in no particular order,
+   * and reflects later calls to {@link #offer}; it must not be iterated
+   * while elements are offered.
+   */
+  public Multiset<E> asMultiset() {
+    Multiset<E> result = multisetView;
+    return (result == null) ? multisetView = new MultisetView() : result;
+  }
+
+  private Multiset<E> multisetView;
+
+  private final class MultisetView extends AbstractMultiset<E> {
+    @Override public int count(@Nullable Object element) {
+      Node<E> node = nodes.get(element);
+      return (node == null) ? 0 : Ints.saturatedCast(node.count);
+    }
+
+    @Override int distinctElements() {
+      return size;
+    }
+
+    @Override Iterator<Entry<E>> entryIterator() {
+      return new UnmodifiableIterator<Entry<E>>() {
+        int index = 0;
+
+        @Override public boolean hasNext() {
+          return index < size;
+        }
+
+        @Override public Entry<E> next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          Node<E> node = heap[index++];
+          return Multisets.immutableEntry(
+              node.element, Ints.saturatedCast(node.count));
+        }
+      };
+    }
+
+    @Override public void clear() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @Override public String toString() {
+    return asMultiset().toString();
+  }
+
+  private void siftUp(int index) {
+    Node<E> node = heap[index];
+    while (index > 0) {
+      int parentIndex = (index - 1) >>> 1;
+      Node<E> parent = heap[parentIndex];
+      if (parent.count <= node.count) {
+        break;
+      }
+      heap[index] = parent;
+      parent.index = index;
+      index = parentIndex;
+    }
+    heap[index] = node;
+    node.index = index;
+  }
+
+  private void siftDown(int index) {
+    Node<E> node = heap[index];
+    while (true) {
+      int childIndex = 2 * index + 1;
+      if (childIndex >= size) {
+        break;
+      }
+      Node<E> child = heap[childIndex];
+      if (childIndex + 1 < size && heap[childIndex + 1].count < child.count) {
+        child = heap[++childIndex];
+      }
+      if (node.count <= child.count) {
+        break;
+      }
+      heap[index] = child;
+      child.index = index;
+      index = childIndex;
+    }
+    heap[index] = node;
+    node.index = index;
+  }
+}
@@ -111,6 +111,18 @@ public abstract class ImmutableBiMap<K, V> extends ImmutableMap<K, V>
     return new Builder<K, V>();
   }
 
+  /**
+   * Not supported. Use {@link #builder}, which also rejects duplicate values,
+   * instead. This method exists only to hide {@link
+   * ImmutableMap#streamingBuilder} from consumers of {@code ImmutableBiMap}.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Use {@link #builder}.
+   */
+  @Deprecated public static <K, V> Builder<K, V> streamingBuilder() {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * A builder for creating immutable bimap instances, especially {@code public
    * static final} bimaps ("constant bimaps"). Example: <pre>   {@code
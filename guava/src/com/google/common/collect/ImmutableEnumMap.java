@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.GwtCompatible;
+
+import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+/**
+ * Implementation of {@link ImmutableMap} with keys of an enum type, which
+ * stores its values in an array indexed by the {@linkplain Enum#ordinal
+ * ordinals} of their keys. A lookup is an array access, and the map holds no
+ * entry objects; entries are created as they are iterated. The map is never
+ * empty.
+ *
+ * @author Louis Wasserman
+ */
+@GwtCompatible(serializable = true, emulated = true)
+@SuppressWarnings("serial") // we're overriding default serialization
+final class ImmutableEnumMap<K extends Enum<K>, V> extends ImmutableMap<K, V> {
+  /** All the constants of the key type, in ordinal order. */
+  private final transient K[] keyUniverse;
+
+  /** The value of each key, indexed by ordinal, or null if it is absent. */
+  private final transient Object[] values;
+
+  private final transient int size;
+
+  /**
+   * Creates a map with the entries of {@code map}, which must be nonempty and
+   * have no null values.
+   */
+  ImmutableEnumMap(EnumMap<K, ? extends V> map) {
+    this.keyUniverse =
+        map.keySet().iterator().next().getDeclaringClass().getEnumConstants();
+    this.values = new Object[keyUniverse.length];
+    for (Entry<K, ? extends V> entry : map.entrySet()) {
+      values[entry.getKey().ordinal()] = entry.getValue();
+    }
+    this.size = map.size();
+  }
+
+  @SuppressWarnings("unchecked") // only V's are stored in values
+  @Override public V get(@Nullable Object key) {
+    if (key instanceof Enum) {
+      int ordinal = ((Enum<?>) key).ordinal();
+      // an enum constant of another type may have the same ordinal
+      if (ordinal < keyUniverse.length && keyUniverse[ordinal] == key) {
+        return (V) values[ordinal];
+      }
+    }
+    return null;
+  }
+
+  @Override public boolean containsKey(@Nullable Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override public boolean isEmpty() {
+    return false;
+  }
+
+  @Override boolean isPartialView() {
+    return false;
+  }
+
+  @SuppressWarnings("unchecked") // only V's are stored in values
+  private V valueAt(int ordinal) {
+    return (V) values[ordinal];
+  }
+
+  /**
+   * Returns the ordinal of the first key at or after {@code ordinal}, or the
+   * number of constants of the key type if there is none.
+   */
+  private int nextOrdinal(int ordinal) {
+    while (ordinal < values.length && values[ordinal] == null) {
+      ordinal++;
+    }
+    return ordinal;
+  }
+
+  @Override ImmutableSet<Entry<K, V>> createEntrySet() {
+    return new ImmutableMapEntrySet<K, V>() {
+      @Override ImmutableMap<K, V> map() {
+        return ImmutableEnumMap.this;
+      }
+
+      @Override public UnmodifiableIterator<Entry<K, V>> iterator() {
+        return new OrdinalIterator<Entry<K, V>>() {
+          @Override Entry<K, V> get(int ordinal) {
+            return Maps.immutableEntry(keyUniverse[ordinal], valueAt(ordinal));
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Returns the keys of this map, as an immutable enum set, so that set
+   * operations on them are bitwise.
+   */
+  @Override ImmutableSet<K> createKeySet() {
+    EnumSet<K> keys = EnumSet.noneOf(keyUniverse[0].getDeclaringClass());
+    for (int ordinal = 0; ordinal < values.length; ordinal++) {
+      if (values[ordinal] != null) {
+        keys.add(keyUniverse[ordinal]);
+      }
+    }
+    return new ImmutableEnumSet<K>(keys);
+  }
+
+  @Override ImmutableCollection<V> createValues() {
+    return new ImmutableMapValues<K, V>() {
+      @Override ImmutableMap<K, V> map() {
+        return ImmutableEnumMap.this;
+      }
+
+      @Override public UnmodifiableIterator<V> iterator() {
+        return new OrdinalIterator<V>() {
+          @Override V get(int ordinal) {
+            return valueAt(ordinal);
+          }
+        };
+      }
+    };
+  }
+
+  /** Iterates over the ordinals of the keys, in increasing order. */
+  private abstract class OrdinalIterator<T> extends UnmodifiableIterator<T> {
+    private int next = nextOrdinal(0);
+
+    abstract T get(int ordinal);
+
+    @Override public boolean hasNext() {
+      return next < values.length;
+    }
+
+    @Override public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      T result = get(next);
+      next = nextOrdinal(next + 1);
+      return result;
+    }
+  }
+
+  @Override public int hashCode() {
+    int hashCode = 0;
+    for (int ordinal = 0; ordinal < values.length; ordinal++) {
+      if (values[ordinal] != null) {
+        hashCode +=
+            keyUniverse[ordinal].hashCode() ^ values[ordinal].hashCode();
+      }
+    }
+    return hashCode;
+  }
+
+  @Override Object writeReplace() {
+    EnumMap<K, V> map = new EnumMap<K, V>(keyUniverse[0].getDeclaringClass());
+    for (int ordinal = 0; ordinal < values.length; ordinal++) {
+      if (values[ordinal] != null) {
+        map.put(keyUniverse[ordinal], valueAt(ordinal));
+      }
+    }
+    return new EnumSerializedForm<K, V>(map);
+  }
+
+  /*
+   * This class is used to serialize ImmutableEnumMap instances.
+   */
+  private static class EnumSerializedForm<K extends Enum<K>, V>
+      implements Serializable {
+    final EnumMap<K, V> delegate;
+    EnumSerializedForm(EnumMap<K, V> delegate) {
+      this.delegate = delegate;
+    }
+    Object readResolve() {
+      return new ImmutableEnumMap<K, V>(delegate);
+    }
+    private static final long serialVersionUID = 0;
+  }
+}
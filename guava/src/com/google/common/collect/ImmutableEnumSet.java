@@ -63,6 +63,10 @@ final class ImmutableEnumSet<E extends Enum<E>> extends ImmutableSet<E> {
   }
 
   @Override public boolean containsAll(Collection<?> collection) {
+    if (collection instanceof ImmutableEnumSet) {
+      // bitwise, rather than one lookup per element
+      collection = ((ImmutableEnumSet<?>) collection).delegate;
+    }
     return delegate.containsAll(collection);
   }
 
@@ -79,7 +83,12 @@ final class ImmutableEnumSet<E extends Enum<E>> extends ImmutableSet<E> {
   }
 
   @Override public boolean equals(Object object) {
-    return object == this || delegate.equals(object);
+    if (object == this) {
+      return true;
+    } else if (object instanceof ImmutableEnumSet) {
+      object = ((ImmutableEnumSet<?>) object).delegate;
+    }
+    return delegate.equals(object);
   }
 
   private transient int hashCode;
@@ -93,6 +102,14 @@ final class ImmutableEnumSet<E extends Enum<E>> extends ImmutableSet<E> {
     return delegate.toString();
   }
 
+  /**
+   * Returns a new, mutable {@code EnumSet} with the elements of this set, which
+   * {@link Sets} combines with other enum sets bitwise.
+   */
+  EnumSet<E> toEnumSet() {
+    return delegate.clone();
+  }
+
   // All callers of the constructor are restricted to <E extends Enum<E>>.
   @Override Object writeReplace() {
     return new EnumSerializedForm<E>(delegate);
@@ -24,8 +24,9 @@ import java.io.IOException;
 import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map.Entry;
 
 import javax.annotation.Nullable;
@@ -254,19 +255,9 @@ public class ImmutableListMultimap<K, V>
       }
     }
 
-    ImmutableMap.Builder<K, ImmutableList<V>> builder = ImmutableMap.builder();
-    int size = 0;
-
-    for (Entry<? extends K, ? extends Collection<? extends V>> entry
-        : multimap.asMap().entrySet()) {
-      ImmutableList<V> list = ImmutableList.copyOf(entry.getValue());
-      if (!list.isEmpty()) {
-        builder.put(entry.getKey(), list);
-        size += list.size();
-      }
-    }
-
-    return new ImmutableListMultimap<K, V>(builder.build(), size);
+    CompressedRowImmutableMap<K, V, ImmutableList<V>> map =
+        CompressedRowImmutableMap.forLists(multimap.asMap().entrySet());
+    return new ImmutableListMultimap<K, V>(map, map.valueCount());
   }
 
   ImmutableListMultimap(ImmutableMap<K, ImmutableList<V>> map, int size) {
@@ -355,8 +346,7 @@ public class ImmutableListMultimap<K, V>
     if (keyCount < 0) {
       throw new InvalidObjectException("Invalid key count " + keyCount);
     }
-    ImmutableMap.Builder<Object, ImmutableList<Object>> builder
-        = ImmutableMap.builder();
+    List<Entry<Object, List<Object>>> rows = Lists.newArrayList();
     int tmpSize = 0;
 
     for (int i = 0; i < keyCount; i++) {
@@ -370,13 +360,13 @@ public class ImmutableListMultimap<K, V>
       for (int j = 0; j < valueCount; j++) {
         array[j] = stream.readObject();
       }
-      builder.put(key, ImmutableList.copyOf(array));
+      rows.add(Maps.immutableEntry(key, Arrays.asList(array)));
       tmpSize += valueCount;
     }
 
     ImmutableMap<Object, ImmutableList<Object>> tmpMap;
     try {
-      tmpMap = builder.build();
+      tmpMap = CompressedRowImmutableMap.forLists(rows);
     } catch (IllegalArgumentException e) {
       throw (InvalidObjectException)
           new InvalidObjectException(e.getMessage()).initCause(e);
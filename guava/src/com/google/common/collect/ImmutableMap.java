@@ -16,13 +16,16 @@
 
 package com.google.common.collect;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Iterables.getOnlyElement;
 
+import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -133,6 +136,25 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
     return new Builder<K, V>();
   }
 
+  /**
+   * Returns a new builder that hashes each key as it is added, rather than when
+   * {@link Builder#build} is called.
+   *
+   * <p>The returned builder keeps its keys and values in a single array, and
+   * their positions in a growing open-addressed table, without creating an
+   * entry object for each mapping. A duplicate key is rejected by the {@code
+   * put} call that adds it, rather than by a later call to {@code build()}, and
+   * each call to {@code build()} reuses the table, without rehashing the keys.
+   *
+   * <p>Otherwise, the returned builder behaves exactly like {@link #builder}.
+   *
+   * @since 14.0
+   */
+  @Beta
+  public static <K, V> Builder<K, V> streamingBuilder() {
+    return new StreamingBuilder<K, V>();
+  }
+
   /**
    * Verifies that {@code key} and {@code value} are non-null, and returns a new
    * immutable entry with those values.
@@ -252,6 +274,140 @@ public abstract class ImmutableMap<K, V> implements Map<K, V>, Serializable {
     }
   }
 
+  /**
+   * A builder that stores its mappings in the layout of {@link
+   * RegularImmutableMap}, detecting duplicate keys as they are added, so that
+   * {@link #build} can wrap its arrays directly.
+   */
+  private static final class StreamingBuilder<K, V> extends Builder<K, V> {
+    // key0, value0, key1, value1, ... in insertion order
+    private Object[] alternatingKeysAndValues
+        = new Object[2 * ImmutableCollection.Builder.DEFAULT_INITIAL_CAPACITY];
+    // entry indices in hashed positions, or ABSENT; null if there are none
+    private int[] table;
+    // whether table is used by a built map, and must be copied before writes
+    private boolean tableShared;
+    private int size;
+    private int keySetHashCode;
+
+    /**
+     * Associates {@code key} with {@code value} in the built map.
+     *
+     * @throws IllegalArgumentException if {@code key} was already added
+     */
+    @Override public Builder<K, V> put(K key, V value) {
+      checkNotNull(key, "null key in entry: null=%s", value);
+      checkNotNull(value, "null value in entry: %s=null", key);
+      int hash = key.hashCode();
+      if (table != null) {
+        int index = probe(table, key, hash);
+        checkArgument(table[index] == RegularImmutableMap.ABSENT,
+            "duplicate key: %s", key);
+        if (!tableShared
+            && ImmutableSet.chooseTableSize(size + 1) <= table.length) {
+          table[index] = size;
+          append(key, value, hash);
+          return this;
+        }
+      }
+      rehash(size + 1);
+      table[probe(table, key, hash)] = size;
+      append(key, value, hash);
+      return this;
+    }
+
+    private void append(Object key, Object value, int hash) {
+      if (alternatingKeysAndValues.length < 2 * (size + 1)) {
+        alternatingKeysAndValues = ObjectArrays.arraysCopyOf(
+            alternatingKeysAndValues,
+            2 * ImmutableCollection.Builder.expandedCapacity(
+                alternatingKeysAndValues.length / 2, size + 1));
+      }
+      alternatingKeysAndValues[2 * size] = key;
+      alternatingKeysAndValues[2 * size + 1] = value;
+      size++;
+      keySetHashCode += hash;
+    }
+
+    /**
+     * Replaces the table with an unshared one large enough for {@code
+     * expectedSize} entries, containing the entries added so far.
+     */
+    private void rehash(int expectedSize) {
+      int tableSize = ImmutableSet.chooseTableSize(Math.max(expectedSize, 2));
+      if (table != null && tableSize == table.length) {
+        table = table.clone();
+      } else {
+        int[] newTable = new int[tableSize];
+        Arrays.fill(newTable, RegularImmutableMap.ABSENT);
+        for (int entryIndex = 0; entryIndex < size; entryIndex++) {
+          Object key = alternatingKeysAndValues[2 * entryIndex];
+          newTable[probe(newTable, key, key.hashCode())] = entryIndex;
+        }
+        table = newTable;
+      }
+      tableShared = false;
+    }
+
+    /**
+     * Returns the index in {@code table} of the entry with key {@code key}, or
+     * of the empty slot where it belongs if there is no such entry.
+     */
+    private int probe(int[] table, Object key, int hash) {
+      int mask = table.length - 1;
+      for (int i = Hashing.smear(hash); ; i++) {
+        int index = i & mask;
+        int entryIndex = table[index];
+        if (entryIndex == RegularImmutableMap.ABSENT
+            || key.equals(alternatingKeysAndValues[2 * entryIndex])) {
+          return index;
+        }
+      }
+    }
+
+    /**
+     * Adds the given {@code entry} to the map.
+     *
+     * @throws IllegalArgumentException if the key of {@code entry} was already
+     *     added
+     */
+    @Override public Builder<K, V> put(
+        Entry<? extends K, ? extends V> entry) {
+      return put(entry.getKey(), entry.getValue());
+    }
+
+    /**
+     * Associates all of the given map's keys and values in the built map.
+     *
+     * @throws IllegalArgumentException if any key in {@code map} was already
+     *     added
+     */
+    @Override public Builder<K, V> putAll(Map<? extends K, ? extends V> map) {
+      for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+        put(entry.getKey(), entry.getValue());
+      }
+      return this;
+    }
+
+    @SuppressWarnings("unchecked") // we only put K's and V's in the array
+    @Override public ImmutableMap<K, V> build() {
+      switch (size) {
+        case 0:
+          return of();
+        case 1:
+          return new SingletonImmutableMap<K, V>(
+              (K) alternatingKeysAndValues[0], (V) alternatingKeysAndValues[1]);
+        default:
+          Object[] keysAndValues = (2 * size < alternatingKeysAndValues.length)
+              ? ObjectArrays.arraysCopyOf(alternatingKeysAndValues, 2 * size)
+              : alternatingKeysAndValues;
+          tableShared = true;
+          return new RegularImmutableMap<K, V>(
+              keysAndValues, table, keySetHashCode);
+      }
+    }
+  }
+
   /**
    * Returns an immutable map containing the same entries as {@code map}. If
    * {@code map} somehow contains entries with duplicate keys (for example, if
@@ -19,6 +19,7 @@ package com.google.common.collect;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.primitives.Ints;
@@ -499,6 +500,28 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E>
     return new Builder<E>();
   }
 
+  /**
+   * Returns a new builder that deduplicates elements as they are added, rather
+   * than when {@link Builder#build} is called.
+   *
+   * <p>The returned builder hashes each element into a growing open-addressed
+   * table as soon as it is added, so its memory use is proportional to the
+   * number of <i>distinct</i> elements added, rather than to the total number
+   * of elements added as with {@link #builder}. This makes it preferable when
+   * building a set from a long stream of elements with many duplicates. Each
+   * call to {@code build()} reuses the table, without rehashing the elements.
+   *
+   * <p>Apart from its memory use, the returned builder behaves exactly like
+   * {@link #builder}: the first occurrence of each element is retained, in
+   * order, and it can be reused to build multiple sets in series.
+   *
+   * @since 14.0
+   */
+  @Beta
+  public static <E> Builder<E> streamingBuilder() {
+    return new StreamingBuilder<E>();
+  }
+
   /**
    * A builder for creating immutable set instances, especially {@code public
    * static final} sets ("constant sets"). Example: <pre>   {@code
@@ -623,4 +646,110 @@ public abstract class ImmutableSet<E> extends ImmutableCollection<E>
       return result;
     }
   }
+
+  /**
+   * A builder that keeps only the distinct elements in {@code contents}, and
+   * hashes them into {@code table} as they are added, so that {@link #build}
+   * can wrap both arrays in a {@link RegularImmutableSet} directly.
+   */
+  private static final class StreamingBuilder<E> extends Builder<E> {
+    // the distinct elements in hashed positions (plus nulls), or null if none
+    private Object[] table;
+    // whether table is used by a built set, and must be copied before writes
+    private boolean tableShared;
+    private int hashCode;
+
+    @Override public Builder<E> add(E element) {
+      int hash = checkNotNull(element).hashCode();
+      if (table != null) {
+        int index = probe(table, element, hash);
+        if (table[index] != null) {
+          return this;
+        }
+        if (!tableShared && chooseTableSize(size + 1) <= table.length) {
+          table[index] = element;
+          append(element, hash);
+          return this;
+        }
+      }
+      rehash(size + 1);
+      table[probe(table, element, hash)] = element;
+      append(element, hash);
+      return this;
+    }
+
+    private void append(Object element, int hash) {
+      expandFor(1);
+      contents[size++] = element;
+      hashCode += hash;
+    }
+
+    /**
+     * Replaces the table with an unshared one large enough for {@code
+     * expectedSize} elements, containing the elements added so far.
+     */
+    private void rehash(int expectedSize) {
+      int tableSize = chooseTableSize(Math.max(expectedSize, 2));
+      if (table != null && tableSize == table.length) {
+        table = table.clone();
+      } else {
+        Object[] newTable = new Object[tableSize];
+        for (int i = 0; i < size; i++) {
+          Object element = contents[i];
+          newTable[probe(newTable, element, element.hashCode())] = element;
+        }
+        table = newTable;
+      }
+      tableShared = false;
+    }
+
+    /**
+     * Returns the index in {@code table} of {@code element}, or of the empty
+     * slot where it belongs if {@code table} does not contain it.
+     */
+    private static int probe(Object[] table, Object element, int hash) {
+      int mask = table.length - 1;
+      for (int i = Hashing.smear(hash); ; i++) {
+        int index = i & mask;
+        Object candidate = table[index];
+        if (candidate == null || candidate.equals(element)) {
+          return index;
+        }
+      }
+    }
+
+    @Override public Builder<E> add(E... elements) {
+      for (E element : elements) {
+        add(element);
+      }
+      return this;
+    }
+
+    @Override public Builder<E> addAll(Iterable<? extends E> elements) {
+      // don't presize contents, which only holds distinct elements
+      for (E element : elements) {
+        add(element);
+      }
+      return this;
+    }
+
+    @Override public ImmutableSet<E> build() {
+      switch (size) {
+        case 0:
+          return of();
+        case 1: {
+          @SuppressWarnings("unchecked") // we only put E's in contents
+          E element = (E) contents[0];
+          return new SingletonImmutableSet<E>(element, hashCode);
+        }
+        default:
+          Object[] elements = (size < contents.length)
+              ? ObjectArrays.arraysCopyOf(contents, size)
+              : contents;
+          tableShared = true;
+          return new RegularImmutableSet<E>(
+              elements, hashCode, table, table.length - 1);
+      }
+    }
+  }
 }
@@ -339,6 +339,12 @@ public class ImmutableSetMultimap<K, V>
       }
     }
 
+    if (valueComparator == null) {
+      CompressedRowImmutableMap<K, V, ImmutableSet<V>> map =
+          CompressedRowImmutableMap.forSets(multimap.asMap().entrySet());
+      return new ImmutableSetMultimap<K, V>(map, map.valueCount(), null);
+    }
+
     ImmutableMap.Builder<K, ImmutableSet<V>> builder = ImmutableMap.builder();
     int size = 0;
 
@@ -346,9 +352,7 @@ public class ImmutableSetMultimap<K, V>
         : multimap.asMap().entrySet()) {
       K key = entry.getKey();
       Collection<? extends V> values = entry.getValue();
-      ImmutableSet<V> set = (valueComparator == null)
-          ? ImmutableSet.copyOf(values)
-          : ImmutableSortedSet.copyOf(valueComparator, values);
+      ImmutableSet<V> set = ImmutableSortedSet.copyOf(valueComparator, values);
       if (!set.isEmpty()) {
         builder.put(key, set);
         size += set.size();
@@ -471,8 +475,7 @@ public class ImmutableSetMultimap<K, V>
     if (keyCount < 0) {
       throw new InvalidObjectException("Invalid key count " + keyCount);
     }
-    ImmutableMap.Builder<Object, ImmutableSet<Object>> builder
-        = ImmutableMap.builder();
+    List<Entry<Object, List<Object>>> rows = Lists.newArrayList();
     int tmpSize = 0;
 
     for (int i = 0; i < keyCount; i++) {
@@ -486,22 +489,27 @@ public class ImmutableSetMultimap<K, V>
       for (int j = 0; j < valueCount; j++) {
         array[j] = stream.readObject();
       }
-      ImmutableSet<Object> valueSet = ImmutableSet.copyOf(array);
-      if (valueSet.size() != array.length) {
-        throw new InvalidObjectException(
-            "Duplicate key-value pairs exist for key " + key);
-      }
-      builder.put(key, valueSet);
+      rows.add(Maps.immutableEntry(key, Arrays.asList(array)));
       tmpSize += valueCount;
     }
 
-    ImmutableMap<Object, ImmutableSet<Object>> tmpMap;
+    CompressedRowImmutableMap<Object, Object, ImmutableSet<Object>> tmpMap;
     try {
-      tmpMap = builder.build();
+      tmpMap = CompressedRowImmutableMap.forSets(rows);
     } catch (IllegalArgumentException e) {
       throw (InvalidObjectException)
           new InvalidObjectException(e.getMessage()).initCause(e);
     }
+    if (tmpMap.valueCount() != tmpSize) {
+      // some row lost a duplicate value; find it
+      for (int i = 0; i < keyCount; i++) {
+        Entry<Object, List<Object>> row = rows.get(i);
+        if (tmpMap.rowSize(i) != row.getValue().size()) {
+          throw new InvalidObjectException(
+              "Duplicate key-value pairs exist for key " + row.getKey());
+        }
+      }
+    }
 
     FieldSettersHolder.MAP_FIELD_SETTER.set(this, tmpMap);
     FieldSettersHolder.SIZE_FIELD_SETTER.set(this, tmpSize);
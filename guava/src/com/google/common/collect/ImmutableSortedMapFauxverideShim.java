@@ -41,6 +41,21 @@ abstract class ImmutableSortedMapFauxverideShim<K, V>
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Not supported. Use {@link ImmutableSortedMap#naturalOrder}, which offers
+   * better type-safety, instead. This method exists only to hide
+   * {@link ImmutableMap#streamingBuilder} from consumers of {@code
+   * ImmutableSortedMap}.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Use {@link ImmutableSortedMap#naturalOrder}, which offers
+   *     better type-safety.
+   */
+  @Deprecated
+  public static <K, V> ImmutableSortedMap.Builder<K, V> streamingBuilder() {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * Not supported. <b>You are attempting to create a map that may contain a
    * non-{@code Comparable} key.</b> Proper calls will resolve to the version in
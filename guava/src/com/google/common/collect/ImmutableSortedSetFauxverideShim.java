@@ -49,6 +49,21 @@ abstract class ImmutableSortedSetFauxverideShim<E> extends ImmutableSet<E> {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Not supported. Use {@link ImmutableSortedSet#naturalOrder}, which offers
+   * better type-safety, instead. This method exists only to hide
+   * {@link ImmutableSet#streamingBuilder} from consumers of {@code
+   * ImmutableSortedSet}.
+   *
+   * @throws UnsupportedOperationException always
+   * @deprecated Use {@link ImmutableSortedSet#naturalOrder}, which offers
+   *     better type-safety.
+   */
+  @Deprecated
+  public static <E> ImmutableSortedSet.Builder<E> streamingBuilder() {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * Not supported. <b>You are attempting to create a set that may contain a
    * non-{@code Comparable} element.</b> Proper calls will resolve to the
@@ -40,8 +40,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.NoSuchElementException;
-import java.util.PriorityQueue;
-import java.util.Queue;
 
 import javax.annotation.Nullable;
 
@@ -1327,71 +1325,79 @@ public final class Iterators {
    * <p>Callers must ensure that the source {@code iterators} are in
    * non-descending order as this method does not sort its input.
    *
-   * <p>For any equivalent elements across all {@code iterators}, it is
-   * undefined which element is returned first.
+   * <p>The merge is stable: equivalent elements are returned in the order of
+   * the iterators they come from, earlier iterators first, and elements of a
+   * single iterator keep their relative order.
    *
-   * @since 11.0
+   * <p>Retrieving a single element takes approximately log<sub>2</sub>(M)
+   * comparisons, where M is the number of iterators; see {@link
+   * MergingIterator}.
+   *
+   * @since 11.0 (return type changed from {@link UnmodifiableIterator} in 14.0)
    */
   @Beta
-  public static <T> UnmodifiableIterator<T> mergeSorted(
+  public static <T> MergingIterator<T> mergeSorted(
       Iterable<? extends Iterator<? extends T>> iterators,
       Comparator<? super T> comparator) {
     checkNotNull(iterators, "iterators");
     checkNotNull(comparator, "comparator");
 
-    return new MergingIterator<T>(iterators, comparator);
+    return new MergingIterator<T>(iterators, comparator, null);
   }
 
   /**
-   * An iterator that performs a lazy N-way merge, calculating the next value
-   * each time the iterator is polled. This amortizes the sorting cost over the
-   * iteration and requires less memory than sorting all elements at once.
+   * Returns an iterator over the merged contents of all given {@code
+   * iterators}, in which each run of elements that {@code comparator}
+   * considers equivalent is replaced by a single element, computed by folding
+   * {@code combiner} over the run from left to right. The elements of a run
+   * are combined in the order of their iterators in {@code iterators}, and
+   * elements of a single iterator in iteration order.
+   *
+   * <p>Callers must ensure that the source {@code iterators} are in
+   * non-descending order as this method does not sort its input.
    *
-   * <p>Retrieving a single element takes approximately O(log(M)) time, where M
-   * is the number of iterators. (Retrieving all elements takes approximately
-   * O(N*log(M)) time, where N is the total number of elements.)
+   * @since 14.0
    */
-  private static class MergingIterator<T> extends AbstractIterator<T> {
-    final Queue<PeekingIterator<T>> queue;
-    final Comparator<? super T> comparator;
-
-    public MergingIterator(Iterable<? extends Iterator<? extends T>> iterators,
-        Comparator<? super T> itemComparator) {
-      this.comparator = itemComparator;
-
-      // A comparator that's used by the heap, allowing the heap
-      // to be sorted based on the top of each iterator.
-      Comparator<PeekingIterator<T>> heapComparator =
-          new Comparator<PeekingIterator<T>>() {
-            @Override
-            public int compare(PeekingIterator<T> o1, PeekingIterator<T> o2) {
-              return comparator.compare(o1.peek(), o2.peek());
-            }
-          };
-
-      queue = new PriorityQueue<PeekingIterator<T>>(2, heapComparator);
-
-      for (Iterator<? extends T> iterator : iterators) {
-        if (iterator.hasNext()) {
-          queue.add(Iterators.peekingIterator(iterator));
-        }
-      }
-    }
+  @Beta
+  public static <T> MergingIterator<T> mergeSorted(
+      Iterable<? extends Iterator<? extends T>> iterators,
+      Comparator<? super T> comparator, MergingIterator.Combiner<T> combiner) {
+    checkNotNull(iterators, "iterators");
+    checkNotNull(comparator, "comparator");
+    checkNotNull(combiner, "combiner");
 
-    @Override
-    protected T computeNext() {
-      if (queue.isEmpty()) {
-        return endOfData();
-      }
+    return new MergingIterator<T>(iterators, comparator, combiner);
+  }
 
-      PeekingIterator<T> nextIter = queue.poll();
-      T next = nextIter.next();
+  /**
+   * Returns an iterator over the merged contents of all given {@code
+   * iterators} that returns only the first of each run of elements that
+   * {@code comparator} considers equivalent, where the elements of a run are
+   * ordered as their iterators are in {@code iterators}.
+   *
+   * <p>Callers must ensure that the source {@code iterators} are in
+   * non-descending order as this method does not sort its input.
+   *
+   * @since 14.0
+   */
+  @Beta
+  public static <T> MergingIterator<T> mergeSortedDistinct(
+      Iterable<? extends Iterator<? extends T>> iterators,
+      Comparator<? super T> comparator) {
+    return mergeSorted(iterators, comparator, Iterators.<T>keepFirst());
+  }
 
-      if (nextIter.hasNext()) {
-        queue.add(nextIter);
-      }
+  @SuppressWarnings("unchecked") // works for any T
+  private static <T> MergingIterator.Combiner<T> keepFirst() {
+    return (MergingIterator.Combiner<T>) KeepFirstCombiner.INSTANCE;
+  }
 
-      return next;
+  private enum KeepFirstCombiner implements MergingIterator.Combiner<Object> {
+    INSTANCE;
+
+    @Override
+    public Object combine(Object first, Object second) {
+      return first;
     }
   }
 
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtCompatible;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+/**
+ * An iterator that lazily merges several sorted iterators, as returned by
+ * {@link Iterators#mergeSorted}.
+ *
+ * <p>The merge is driven by a <i>loser tree</i>: a tournament tree over the
+ * source iterators in which each internal node remembers the loser of the
+ * match played there, and the overall winner is the source holding the
+ * least element. The head element of each source is cached, so that after an
+ * element is returned, only the matches on the path from its source to the
+ * root are replayed. Retrieving a single element therefore takes about
+ * log<sub>2</sub>(M) comparisons, where M is the number of nonempty source
+ * iterators, and retrieving all elements takes about N log<sub>2</sub>(M),
+ * where N is the total number of elements.
+ *
+ * <p>Equivalent elements from different source iterators are returned in the
+ * order of those iterators in the input, and equivalent elements of a single
+ * source iterator in the order it returns them. Each source iterator is
+ * advanced only when its previous element has been consumed; the first element
+ * of every source is read when the merging iterator is created.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+@GwtCompatible
+public final class MergingIterator<T> extends UnmodifiableIterator<T> {
+  /**
+   * A function combining two equivalent elements of a merge into one. See
+   * {@link Iterators#mergeSorted(Iterable, Comparator, Combiner)}.
+   *
+   * @since 14.0
+   */
+  @Beta
+  public interface Combiner<T> {
+    /**
+     * Returns the combination of {@code first} and {@code second}, which the
+     * comparator of the merge considers equivalent. {@code first} precedes
+     * {@code second} in the merge, and may itself be the result of previous
+     * combinations.
+     */
+    T combine(@Nullable T first, @Nullable T second);
+  }
+
+  private final Comparator<? super T> comparator;
+  @Nullable private final Combiner<T> combiner;
+  private final Iterator<? extends T>[] sources;
+
+  /** The cached head element of each source. */
+  private final T[] heads;
+
+  /** Whether each source has run out of elements. */
+  private final boolean[] exhausted;
+
+  /**
+   * The loser tree. {@code tree[0]} is the index of the source with the least
+   * head; for {@code 0 < node < M}, {@code tree[node]} is the index of the
+   * source that lost the match at that node. The leaf of source {@code i} is
+   * the implicit node {@code M + i}, so the parent of node {@code n} is {@code
+   * n / 2}.
+   */
+  private final int[] tree;
+
+  MergingIterator(Iterable<? extends Iterator<? extends T>> iterators,
+      Comparator<? super T> comparator, @Nullable Combiner<T> combiner) {
+    this.comparator = checkNotNull(comparator);
+    this.combiner = combiner;
+
+    List<Iterator<? extends T>> nonEmpty = Lists.newArrayList();
+    for (Iterator<? extends T> iterator : iterators) {
+      if (iterator.hasNext()) {
+        nonEmpty.add(iterator);
+      }
+    }
+    int size = nonEmpty.size();
+    @SuppressWarnings("unchecked") // only contains Iterator<? extends T>s
+    Iterator<? extends T>[] sources = new Iterator[size];
+    this.sources = nonEmpty.toArray(sources);
+    @SuppressWarnings("unchecked") // only contains Ts
+    T[] heads = (T[]) new Object[size];
+    this.heads = heads;
+    this.exhausted = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      heads[i] = this.sources[i].next();
+    }
+
+    this.tree = new int[Math.max(size, 1)];
+    if (size == 0) {
+      // A single, permanently exhausted pseudo-source simplifies hasNext().
+      tree[0] = -1;
+      return;
+    }
+    // Play the initial tournament bottom-up, recording winners in a scratch
+    // array indexed like the implicit tree.
+    int[] winners = new int[2 * size];
+    for (int i = 0; i < size; i++) {
+      winners[size + i] = i;
+    }
+    for (int node = size - 1; node > 0; node--) {
+      int left = winners[2 * node];
+      int right = winners[2 * node + 1];
+      if (beats(right, left)) {
+        winners[node] = right;
+        tree[node] = left;
+      } else {
+        winners[node] = left;
+        tree[node] = right;
+      }
+    }
+    tree[0] = winners[1];
+  }
+
+  /**
+   * Returns whether source {@code a} must be merged before source {@code b}:
+   * exhausted sources lose to all others, and ties are broken in favor of the
+   * earlier source.
+   */
+  private boolean beats(int a, int b) {
+    if (exhausted[a]) {
+      return false;
+    } else if (exhausted[b]) {
+      return true;
+    }
+    int cmp = comparator.compare(heads[a], heads[b]);
+    return cmp < 0 || (cmp == 0 && a < b);
+  }
+
+  @Override
+  public boolean hasNext() {
+    int winner = tree[0];
+    return winner >= 0 && !exhausted[winner];
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    T first = pop();
+    if (combiner == null) {
+      return first;
+    }
+    // Compare against the first element of the run, not the combination, which
+    // need not be equivalent to it.
+    T result = first;
+    while (hasNext() && comparator.compare(first, heads[tree[0]]) == 0) {
+      result = combiner.combine(result, pop());
+    }
+    return result;
+  }
+
+  /**
+   * Removes and returns the head of the winning source, advances that source,
+   * and replays its path to the root.
+   */
+  private T pop() {
+    int source = tree[0];
+    T result = heads[source];
+    Iterator<? extends T> iterator = sources[source];
+    if (iterator.hasNext()) {
+      heads[source] = iterator.next();
+    } else {
+      heads[source] = null;
+      exhausted[source] = true;
+    }
+    int winner = source;
+    for (int node = (source + sources.length) >> 1; node > 0; node >>= 1) {
+      int loser = tree[node];
+      if (beats(loser, winner)) {
+        tree[node] = winner;
+        winner = loser;
+      }
+    }
+    tree[0] = winner;
+    return result;
+  }
+
+  /**
+   * Removes at most {@code maxElements} elements from this iterator and adds
+   * them to {@code collection}, returning the number of elements transferred.
+   * This is equivalent to, but faster than, calling {@code next()} in a loop
+   * until either {@code maxElements} elements have been transferred or the
+   * iterator is exhausted.
+   *
+   * @throws IllegalArgumentException if {@code maxElements} is negative
+   */
+  public int drainTo(Collection<? super T> collection, int maxElements) {
+    checkNotNull(collection);
+    checkArgument(maxElements >= 0, "maxElements (%s) must be >= 0",
+        maxElements);
+    int count = 0;
+    if (combiner == null) {
+      for (; count < maxElements && hasNext(); count++) {
+        collection.add(pop());
+      }
+    } else {
+      for (; count < maxElements && hasNext(); count++) {
+        collection.add(next());
+      }
+    }
+    return count;
+  }
+}
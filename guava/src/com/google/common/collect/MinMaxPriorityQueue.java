@@ -28,6 +28,7 @@ import com.google.common.math.IntMath;
 import java.util.AbstractQueue;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -76,6 +77,9 @@ import java.util.Queue;
  *     O(log n) time}
  * <li>The {@link #remove(Object)} and {@link #contains} operations require
  *     linear ({@code O(n)}) time
+ * <li>Creating a queue from a collection, and {@link #addAll adding} at least
+ *     as many elements as the queue already contains, take linear time in the
+ *     final size of the queue
  * <li>If you only access one end of the queue, and don't use a maximum size,
  *     this class is functionally equivalent to {@link PriorityQueue}, but
  *     significantly slower.
@@ -198,14 +202,20 @@ public final class MinMaxPriorityQueue<E> extends AbstractQueue<E> {
 
     /**
      * Builds a new min-max priority queue using the previously specified
-     * options, and having the given initial elements.
+     * options, and having the given initial elements. If {@code
+     * initialContents} is a {@link Collection}, the queue is built in linear
+     * time.
      */
     public <T extends B> MinMaxPriorityQueue<T> create(
         Iterable<? extends T> initialContents) {
       MinMaxPriorityQueue<T> queue = new MinMaxPriorityQueue<T>(
           this, initialQueueSize(expectedSize, maximumSize, initialContents));
-      for (T element : initialContents) {
-        queue.offer(element);
+      if (initialContents instanceof Collection) {
+        queue.addAll((Collection<? extends T>) initialContents);
+      } else {
+        for (T element : initialContents) {
+          queue.offer(element);
+        }
       }
       return queue;
     }
@@ -252,13 +262,67 @@ public final class MinMaxPriorityQueue<E> extends AbstractQueue<E> {
     return true;
   }
 
+  /**
+   * Adds all of the given elements to this queue. If this queue has a maximum
+   * size, only the least elements of the queue and {@code newElements} are
+   * retained, as if each element had been added in turn.
+   *
+   * <p>If there are at least as many new elements as elements already in the
+   * queue, the heap is rebuilt bottom-up in linear time, rather than by adding
+   * the elements one at a time, which takes {@code O(n log n)} time.
+   *
+   * @return {@code true} if {@code newElements} is nonempty
+   */
   @Override public boolean addAll(Collection<? extends E> newElements) {
-    boolean modified = false;
-    for (E element : newElements) {
-      offer(element);
-      modified = true;
+    if (newElements.size() < size) {
+      boolean modified = false;
+      for (E element : newElements) {
+        offer(element);
+        modified = true;
+      }
+      return modified;
+    }
+    Object[] added = newElements.toArray();
+    if (added.length == 0) {
+      return false;
+    }
+    for (Object element : added) {
+      checkNotNull(element);
+    }
+    modCount++;
+    if (added.length > maximumSize - size) {
+      // Only the maximumSize least elements would survive the evictions.
+      @SuppressWarnings("unchecked") // we only allow Es to get in
+      Iterator<E> all = (Iterator<E>) Iterators.concat(
+          Iterators.limit(Iterators.forArray(queue), size),
+          Iterators.forArray(added));
+      List<E> least = minHeap.ordering.leastOf(all, maximumSize);
+      queue = least.toArray(new Object[
+          capAtMaximumSize(Math.max(queue.length, least.size()), maximumSize)]);
+      size = least.size();
+    } else {
+      int newSize = size + added.length;
+      if (newSize > queue.length) {
+        Object[] newQueue = new Object[newSize];
+        System.arraycopy(queue, 0, newQueue, 0, size);
+        queue = newQueue;
+      }
+      System.arraycopy(added, 0, queue, size, added.length);
+      size = newSize;
+    }
+    heapify();
+    return true;
+  }
+
+  /**
+   * Restores the heap invariant over the whole array in linear time, by
+   * trickling down each element with children, from the last one to the root.
+   * This is the min-max analogue of Floyd's heap construction.
+   */
+  private void heapify() {
+    for (int i = (size - 2) / 2; i >= 0; i--) {
+      heapForIndex(i).trickleDown(i);
     }
-    return modified;
   }
 
   /**
@@ -309,6 +373,55 @@ public final class MinMaxPriorityQueue<E> extends AbstractQueue<E> {
     }
   }
 
+  /**
+   * Removes all of the elements of this queue and adds them to {@code
+   * collection} in ascending order, returning the number of elements
+   * transferred. The elements are sorted in a single pass, rather than polled
+   * one at a time.
+   *
+   * @throws IllegalArgumentException if {@code collection} is this queue
+   */
+  public int drainTo(Collection<? super E> collection) {
+    return drainTo(collection, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Removes at most {@code maxElements} of the least elements of this queue and
+   * adds them to {@code collection} in ascending order, returning the number of
+   * elements transferred.
+   *
+   * <p>When at least half of the queue is drained, its elements are sorted in a
+   * single pass and the remaining ones are rebuilt into a heap in linear time;
+   * otherwise the elements are polled one at a time.
+   *
+   * @throws IllegalArgumentException if {@code collection} is this queue, or
+   *     if {@code maxElements} is negative
+   */
+  public int drainTo(Collection<? super E> collection, int maxElements) {
+    checkNotNull(collection);
+    checkArgument(collection != this, "cannot drain a queue into itself");
+    checkArgument(maxElements >= 0, "maxElements (%s) must be >= 0",
+        maxElements);
+    if (maxElements < size / 2) {
+      for (int i = 0; i < maxElements; i++) {
+        collection.add(removeAndGet(0));
+      }
+      return maxElements;
+    }
+    @SuppressWarnings("unchecked") // we only allow Es to get in
+    E[] sorted = (E[]) toArray();
+    Arrays.sort(sorted, minHeap.ordering);
+    int count = Math.min(maxElements, size);
+    collection.addAll(Arrays.asList(sorted).subList(0, count));
+    modCount++;
+    int remaining = size - count;
+    System.arraycopy(sorted, count, queue, 0, remaining);
+    Arrays.fill(queue, remaining, size, null);
+    size = remaining;
+    heapify();
+    return count;
+  }
+
   /**
    * Removes and returns the least element of this queue, or returns {@code
    * null} if the queue is empty.
@@ -701,6 +814,46 @@ public final class MinMaxPriorityQueue<E> extends AbstractQueue<E> {
       return index;
     }
 
+    /**
+     * Moves the element at {@code index} down the levels of this heap until
+     * the heap invariant holds at {@code index}, assuming that it already
+     * holds in the subtrees below it. This is the TrickleDown operation of
+     * Atkinson, et al.
+     */
+    void trickleDown(int index) {
+      while (true) {
+        int minChildIndex = findMinChild(index);
+        if (minChildIndex < 0) {
+          return;
+        }
+        int minGrandchildIndex = findMinGrandChild(index);
+        if (minGrandchildIndex < 0
+            || compareElements(minChildIndex, minGrandchildIndex) <= 0) {
+          // The least descendant is a child, on the other heap's level, so it
+          // has no descendants of its own that could be out of order.
+          if (compareElements(minChildIndex, index) < 0) {
+            swap(index, minChildIndex);
+          }
+          return;
+        }
+        if (compareElements(minGrandchildIndex, index) >= 0) {
+          return;
+        }
+        swap(index, minGrandchildIndex);
+        int parentIndex = getParentIndex(minGrandchildIndex);
+        if (compareElements(minGrandchildIndex, parentIndex) > 0) {
+          swap(minGrandchildIndex, parentIndex);
+        }
+        index = minGrandchildIndex;
+      }
+    }
+
+    private void swap(int a, int b) {
+      Object tmp = queue[a];
+      queue[a] = queue[b];
+      queue[b] = tmp;
+    }
+
     private boolean verifyIndex(int i) {
       if ((getLeftChildIndex(i) < size)
           && (compareElements(i, getLeftChildIndex(i)) > 0)) {
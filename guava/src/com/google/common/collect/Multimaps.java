@@ -20,6 +20,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
+import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
 import com.google.common.annotations.GwtIncompatible;
 import com.google.common.base.Function;
@@ -48,6 +49,7 @@ import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.locks.ReadWriteLock;
 
 import javax.annotation.Nullable;
 
@@ -449,6 +451,96 @@ public final class Multimaps {
     return Synchronized.multimap(multimap, null);
   }
 
+  /**
+   * Returns a thread-safe multimap backed by the specified multimap, whose
+   * query methods hold the read lock of {@code lock} and whose mutators hold
+   * its write lock. Unlike a {@linkplain #synchronizedMultimap synchronized}
+   * multimap, any number of threads may query the returned multimap at once,
+   * so it scales far better when reads greatly outnumber writes. In order to
+   * guarantee serial access, it is critical that <b>all</b> access to the
+   * backing multimap is accomplished through the returned multimap, and that
+   * the query methods of the backing multimap may safely run concurrently, as
+   * those of the multimaps in this package may.
+   *
+   * <p>It is imperative that the user manually hold the read lock when
+   * iterating over any of the returned multimap's collection views, or the
+   * write lock if elements will be removed through the iterator: <pre>   {@code
+   *
+   *   ReadWriteLock lock = new ReentrantReadWriteLock();
+   *   Multimap<K, V> multimap = Multimaps.readWriteLockedMultimap(
+   *       HashMultimap.<K, V>create(), lock);
+   *   ...
+   *   Collection<V> values = multimap.get(key);  // Needn't hold the lock
+   *   ...
+   *   lock.readLock().lock();
+   *   try {
+   *     for (V value : values) { // Must hold the lock
+   *       foo(value);
+   *     }
+   *   } finally {
+   *     lock.readLock().unlock();
+   *   }}</pre>
+   *
+   * Failure to follow this advice may result in non-deterministic behavior.
+   * Since {@code ReentrantReadWriteLock} does not let a thread that holds its
+   * read lock acquire its write lock, a thread must not modify the multimap
+   * while it holds the read lock.
+   *
+   * <p>Note that the generated multimap's {@link Multimap#removeAll} and
+   * {@link Multimap#replaceValues} methods return collections that aren't
+   * locked.
+   *
+   * <p>The returned multimap will be serializable if the specified multimap
+   * and lock are serializable.
+   *
+   * @param multimap the multimap to be wrapped
+   * @param lock the lock guarding the returned multimap and its views
+   * @return a view of the specified multimap guarded by {@code lock}
+   * @since 14.0
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.locks")
+  public static <K, V> Multimap<K, V> readWriteLockedMultimap(
+      Multimap<K, V> multimap, ReadWriteLock lock) {
+    return ReadWriteLocked.multimap(
+        multimap, new ReadWriteLocked.Guard(lock));
+  }
+
+  /**
+   * Returns a thread-safe multimap backed by the specified multimap, guarded
+   * by {@code lock} as described in {@link #readWriteLockedMultimap}, but
+   * whose point queries usually take no lock at all.
+   *
+   * <p>The returned multimap keeps a version number that each of its writes
+   * advances. Its {@code size}, {@code isEmpty}, {@code containsKey}, {@code
+   * containsEntry} and {@code get} methods, and the {@code size}, {@code
+   * isEmpty} and {@code contains} methods of its collection views, first run
+   * without the lock, and keep their result only if no write overlapped them;
+   * otherwise they run again under the read lock. When writes are rare,
+   * readers then never contend for the lock itself. The backing multimap's
+   * point queries must be safe to run while another thread modifies it, in
+   * that they must terminate; the result of such a run, or any exception it
+   * throws, is discarded. In practice, the point queries of the hash- and
+   * tree-based multimaps of this package are safe in this sense.
+   *
+   * <p>You must follow the warnings described in {@link
+   * #readWriteLockedMultimap}. In addition, the backing multimap may only be
+   * modified through the returned multimap and its views, including their
+   * iterators, and not while holding {@code lock} directly.
+   *
+   * @param multimap the multimap to be wrapped
+   * @param lock the lock guarding the returned multimap and its views
+   * @return a view of the specified multimap guarded by {@code lock}
+   * @since 14.0
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.locks")
+  public static <K, V> Multimap<K, V> optimisticReadWriteLockedMultimap(
+      Multimap<K, V> multimap, ReadWriteLock lock) {
+    return ReadWriteLocked.multimap(
+        multimap, new ReadWriteLocked.OptimisticGuard(lock));
+  }
+
   /**
    * Returns an unmodifiable view of the specified multimap. Query operations on
    * the returned multimap "read through" to the specified multimap, and
@@ -743,6 +835,48 @@ public final class Multimaps {
     return Synchronized.setMultimap(multimap, null);
   }
 
+  /**
+   * Returns a thread-safe {@code SetMultimap} backed by the specified
+   * multimap, guarded by {@code lock}.
+   *
+   * <p>You must follow the warnings described in {@link
+   * #readWriteLockedMultimap}.
+   *
+   * @param multimap the multimap to be wrapped
+   * @param lock the lock guarding the returned multimap and its views
+   * @return a view of the specified multimap guarded by {@code lock}
+   * @since 14.0
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.locks")
+  public static <K, V> SetMultimap<K, V> readWriteLockedSetMultimap(
+      SetMultimap<K, V> multimap, ReadWriteLock lock) {
+    return ReadWriteLocked.setMultimap(
+        multimap, new ReadWriteLocked.Guard(lock));
+  }
+
+  /**
+   * Returns a thread-safe {@code SetMultimap} backed by the specified
+   * multimap, guarded by {@code lock}, whose point queries usually take no
+   * lock at all.
+   *
+   * <p>You must follow the warnings described in {@link
+   * #optimisticReadWriteLockedMultimap}.
+   *
+   * @param multimap the multimap to be wrapped
+   * @param lock the lock guarding the returned multimap and its views
+   * @return a view of the specified multimap guarded by {@code lock}
+   * @since 14.0
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.locks")
+  public static <K, V> SetMultimap<K, V>
+      optimisticReadWriteLockedSetMultimap(
+          SetMultimap<K, V> multimap, ReadWriteLock lock) {
+    return ReadWriteLocked.setMultimap(
+        multimap, new ReadWriteLocked.OptimisticGuard(lock));
+  }
+
   /**
    * Returns an unmodifiable view of the specified {@code SetMultimap}. Query
    * operations on the returned multimap "read through" to the specified
@@ -824,6 +958,49 @@ public final class Multimaps {
     return new UnmodifiableSortedSetMultimap<K, V>(delegate);
   }
 
+  /**
+   * Returns a thread-safe {@code SortedSetMultimap} backed by the specified
+   * multimap, guarded by {@code lock}.
+   *
+   * <p>You must follow the warnings described in {@link
+   * #readWriteLockedMultimap}.
+   *
+   * @param multimap the multimap to be wrapped
+   * @param lock the lock guarding the returned multimap and its views
+   * @return a view of the specified multimap guarded by {@code lock}
+   * @since 14.0
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.locks")
+  public static <K, V> SortedSetMultimap<K, V>
+      readWriteLockedSortedSetMultimap(
+          SortedSetMultimap<K, V> multimap, ReadWriteLock lock) {
+    return ReadWriteLocked.sortedSetMultimap(
+        multimap, new ReadWriteLocked.Guard(lock));
+  }
+
+  /**
+   * Returns a thread-safe {@code SortedSetMultimap} backed by the specified
+   * multimap, guarded by {@code lock}, whose point queries usually take no
+   * lock at all.
+   *
+   * <p>You must follow the warnings described in {@link
+   * #optimisticReadWriteLockedMultimap}.
+   *
+   * @param multimap the multimap to be wrapped
+   * @param lock the lock guarding the returned multimap and its views
+   * @return a view of the specified multimap guarded by {@code lock}
+   * @since 14.0
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.locks")
+  public static <K, V> SortedSetMultimap<K, V>
+      optimisticReadWriteLockedSortedSetMultimap(
+          SortedSetMultimap<K, V> multimap, ReadWriteLock lock) {
+    return ReadWriteLocked.sortedSetMultimap(
+        multimap, new ReadWriteLocked.OptimisticGuard(lock));
+  }
+
   /**
    * Returns a synchronized (thread-safe) {@code ListMultimap} backed by the
    * specified multimap.
@@ -838,6 +1015,48 @@ public final class Multimaps {
     return Synchronized.listMultimap(multimap, null);
   }
 
+  /**
+   * Returns a thread-safe {@code ListMultimap} backed by the specified
+   * multimap, guarded by {@code lock}.
+   *
+   * <p>You must follow the warnings described in {@link
+   * #readWriteLockedMultimap}.
+   *
+   * @param multimap the multimap to be wrapped
+   * @param lock the lock guarding the returned multimap and its views
+   * @return a view of the specified multimap guarded by {@code lock}
+   * @since 14.0
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.locks")
+  public static <K, V> ListMultimap<K, V> readWriteLockedListMultimap(
+      ListMultimap<K, V> multimap, ReadWriteLock lock) {
+    return ReadWriteLocked.listMultimap(
+        multimap, new ReadWriteLocked.Guard(lock));
+  }
+
+  /**
+   * Returns a thread-safe {@code ListMultimap} backed by the specified
+   * multimap, guarded by {@code lock}, whose point queries usually take no
+   * lock at all.
+   *
+   * <p>You must follow the warnings described in {@link
+   * #optimisticReadWriteLockedMultimap}.
+   *
+   * @param multimap the multimap to be wrapped
+   * @param lock the lock guarding the returned multimap and its views
+   * @return a view of the specified multimap guarded by {@code lock}
+   * @since 14.0
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent.locks")
+  public static <K, V> ListMultimap<K, V>
+      optimisticReadWriteLockedListMultimap(
+          ListMultimap<K, V> multimap, ReadWriteLock lock) {
+    return ReadWriteLocked.listMultimap(
+        multimap, new ReadWriteLocked.OptimisticGuard(lock));
+  }
+
   /**
    * Returns an unmodifiable view of the specified {@code ListMultimap}. Query
    * operations on the returned multimap "read through" to the specified
@@ -21,6 +21,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
+import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.collect.Multiset.Entry;
 import com.google.common.primitives.Ints;
@@ -969,4 +970,57 @@ public final class Multisets {
         Multisets.DECREASING_COUNT_ORDERING.sortedCopy(multiset.entrySet());
     return ImmutableMultiset.copyFromEntries(sortedEntries);
   }
+
+  /**
+   * Returns a copy of the {@code k} entries of {@code multiset} with the highest counts, as an
+   * {@link ImmutableMultiset} whose iteration order is highest count first. Ties are broken by the
+   * iteration order of the original multiset, both in choosing which entries to keep and in
+   * ordering them. If {@code multiset} has at most {@code k} distinct elements, this is equivalent
+   * to {@link #copyHighestCountFirst(Multiset)}.
+   *
+   * <p>Rather than sorting every entry, this makes two passes over {@code multiset.entrySet()}: one
+   * to select the {@code k}th highest count in O(k) memory, and one to collect the entries with at
+   * least that count, which are then sorted. This takes O(n + k log k) time for a multiset with
+   * {@code n} distinct elements.
+   *
+   * @throws IllegalArgumentException if {@code k} is negative
+   * @since 14.0
+   */
+  @Beta
+  public static <E> ImmutableMultiset<E> copyHighestCountFirst(Multiset<E> multiset, int k) {
+    checkNonnegative(k, "k");
+    Set<Entry<E>> entries = multiset.entrySet();
+    if (k == 0) {
+      return ImmutableMultiset.of();
+    } else if (entries.size() <= k) {
+      return copyHighestCountFirst(multiset);
+    }
+    List<Integer> greatestCounts = Ordering.natural().greatestOf(
+        Iterators.transform(entries.iterator(), new Function<Entry<E>, Integer>() {
+          @Override
+          public Integer apply(Entry<E> entry) {
+            return entry.getCount();
+          }
+        }), k);
+    int threshold = greatestCounts.get(k - 1);
+    // the number of entries with count == threshold that are among the top k
+    int tiesToKeep = 0;
+    for (int count : greatestCounts) {
+      if (count == threshold) {
+        tiesToKeep++;
+      }
+    }
+    List<Entry<E>> topEntries = Lists.newArrayListWithCapacity(k);
+    for (Entry<E> entry : entries) {
+      int count = entry.getCount();
+      if (count > threshold) {
+        topEntries.add(entry);
+      } else if (count == threshold && tiesToKeep > 0) {
+        topEntries.add(entry);
+        tiesToKeep--;
+      }
+    }
+    // sortedCopy is stable, so ties keep the iteration order of the original multiset
+    return ImmutableMultiset.copyFromEntries(DECREASING_COUNT_ORDERING.sortedCopy(topEntries));
+  }
 }
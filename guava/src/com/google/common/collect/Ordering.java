@@ -21,10 +21,15 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.annotations.Beta;
 import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.GwtIncompatible;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
@@ -32,9 +37,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nullable;
@@ -69,7 +79,7 @@ import javax.annotation.Nullable;
  * @author Kevin Bourrillion
  * @since 2.0 (imported from Google Collections Library)
  */
-@GwtCompatible
+@GwtCompatible(emulated = true)
 public abstract class Ordering<T> implements Comparator<T> {
   // Natural order
 
@@ -590,29 +600,135 @@ public abstract class Ordering<T> implements Comparator<T> {
    */
   @Beta
   public <E extends T> List<E> leastOf(Iterable<E> iterable, int k) {
-    checkArgument(k >= 0, "%d is negative", k);
-
-    // values is not an E[], but we use it as such for readability. Hack.
-    @SuppressWarnings("unchecked")
-    E[] values = (E[]) Iterables.toArray(iterable);
-
-    // TODO(nshupe): also sort whole list if k is *near* values.length?
-    // TODO(kevinb): benchmark this impl against hand-coded heap
-    E[] resultArray;
-    if (values.length <= k) {
-      Arrays.sort(values, this);
-      resultArray = values;
-    } else {
-      quicksortLeastK(values, 0, values.length - 1, k);
+    if (iterable instanceof Collection) {
+      Collection<E> collection = (Collection<E>) iterable;
+      if (collection.size() <= 2L * k) {
+        // In this case, just dumping the collection to an array and sorting is
+        // faster than using the implementation for Iterator, which is
+        // specialized for k much smaller than n.
+
+        @SuppressWarnings("unchecked") // c only contains E's and doesn't escape
+        E[] array = (E[]) collection.toArray();
+        Arrays.sort(array, this);
+        if (array.length > k) {
+          array = ObjectArrays.arraysCopyOf(array, k);
+        }
+        return Collections.unmodifiableList(Arrays.asList(array));
+      }
+    }
+    return leastOf(iterable.iterator(), k);
+  }
+
+  /**
+   * Returns the {@code k} least elements from the given iterator according to
+   * this ordering, in order from least to greatest.  If there are fewer than
+   * {@code k} elements present, all will be included.
+   *
+   * <p>The implementation does not necessarily use a <i>stable</i> sorting
+   * algorithm; when multiple elements are equivalent, it is undefined which
+   * will come first.
+   *
+   * <p>Only {@code 2k} elements are held in memory at a time, so this method
+   * is suitable for selecting from streams of any length. It runs in expected
+   * O(n + k log k) time, where n is the number of elements.
+   *
+   * @return an immutable {@code RandomAccess} list of the {@code k} least
+   *     elements in ascending order
+   * @throws IllegalArgumentException if {@code k} is negative
+   * @since 14.0
+   */
+  @Beta
+  public <E extends T> List<E> leastOf(Iterator<E> elements, int k) {
+    checkNotNull(elements);
+    checkArgument(k >= 0, "k (%s) must be nonnegative", k);
+
+    if (k == 0 || !elements.hasNext()) {
+      return ImmutableList.of();
+    } else if (k >= Integer.MAX_VALUE / 2) {
+      // k is really large; just do a straightforward sorted-copy-and-sublist
+      ArrayList<E> list = Lists.newArrayList(elements);
+      Collections.sort(list, this);
+      if (list.size() > k) {
+        list.subList(k, list.size()).clear();
+      }
+      list.trimToSize();
+      return Collections.unmodifiableList(list);
+    }
+
+    /*
+     * Our goal is an O(n) algorithm using only one pass and O(k) additional
+     * memory.
+     *
+     * We use the following algorithm: maintain a buffer of size 2*k. Every
+     * time the buffer gets full, find the median and partition around it,
+     * keeping only the lowest k elements. This requires n/k find-median-and-
+     * partition steps, each of which take O(k) time with a traditional
+     * quickselect.
+     *
+     * After sorting the output, the whole algorithm is O(n + k log k). It
+     * degrades gracefully for worst-case input (descending order), performs
+     * competitively or wins outright for randomly ordered input, and doesn't
+     * require the whole collection to fit into memory.
+     */
+    int bufferCap = k * 2;
+    @SuppressWarnings("unchecked") // we'll only put E's in
+    E[] buffer = (E[]) new Object[bufferCap];
+    E threshold = elements.next();
+    buffer[0] = threshold;
+    int bufferSize = 1;
+    // threshold is the kth smallest element seen so far.  Once bufferSize >= k,
+    // anything larger than threshold can be ignored immediately.
+
+    while (bufferSize < k && elements.hasNext()) {
+      E e = elements.next();
+      buffer[bufferSize++] = e;
+      threshold = max(threshold, e);
+    }
+
+    while (elements.hasNext()) {
+      E e = elements.next();
+      if (compare(e, threshold) >= 0) {
+        continue;
+      }
+
+      buffer[bufferSize++] = e;
+      if (bufferSize == bufferCap) {
+        // We apply the quickselect algorithm to partition about the median,
+        // and then ignore the last k elements.
+        int left = 0;
+        int right = bufferCap - 1;
+
+        int minThresholdPosition = 0;
+        // The leftmost position at which the greatest of the k lower elements
+        // -- the new value of threshold -- might be found.
+
+        while (left < right) {
+          int pivotIndex = (left + right + 1) >>> 1;
+          int pivotNewIndex = partition(buffer, left, right, pivotIndex);
+          if (pivotNewIndex > k) {
+            right = pivotNewIndex - 1;
+          } else if (pivotNewIndex < k) {
+            left = Math.max(pivotNewIndex, left + 1);
+            minThresholdPosition = pivotNewIndex;
+          } else {
+            break;
+          }
+        }
+        bufferSize = k;
 
-      // this is not an E[], but we use it as such for readability. Hack.
-      @SuppressWarnings("unchecked")
-      E[] tmp = (E[]) new Object[k];
-      resultArray = tmp;
-      System.arraycopy(values, 0, resultArray, 0, k);
+        threshold = buffer[minThresholdPosition];
+        for (int i = minThresholdPosition + 1; i < bufferSize; i++) {
+          threshold = max(threshold, buffer[i]);
+        }
+      }
     }
 
-    return Collections.unmodifiableList(Arrays.asList(resultArray));
+    Arrays.sort(buffer, 0, bufferSize, this);
+
+    bufferSize = Math.min(bufferSize, k);
+    return Collections.unmodifiableList(
+        Arrays.asList(ObjectArrays.arraysCopyOf(buffer, bufferSize)));
+    // We can't use ImmutableList; we have to be null-friendly!
   }
 
   /**
@@ -636,15 +752,147 @@ public abstract class Ordering<T> implements Comparator<T> {
     return reverse().leastOf(iterable, k);
   }
 
-  private <E extends T> void quicksortLeastK(
-      E[] values, int left, int right, int k) {
-    if (right > left) {
-      int pivotIndex = (left + right) >>> 1; // left + ((right - left) / 2)
-      int pivotNewIndex = partition(values, left, right, pivotIndex);
-      quicksortLeastK(values, left, pivotNewIndex - 1, k);
-      if (pivotNewIndex < k) {
-        quicksortLeastK(values, pivotNewIndex + 1, right, k);
-      }
+  /**
+   * Returns the {@code k} greatest elements from the given iterator according
+   * to this ordering, in order from greatest to least. If there are fewer than
+   * {@code k} elements present, all will be included. As with {@link
+   * #leastOf(Iterator, int)}, only {@code 2k} elements are held in memory at a
+   * time.
+   *
+   * <p>The implementation does not necessarily use a <i>stable</i> sorting
+   * algorithm; when multiple elements are equivalent, it is undefined which
+   * will come first.
+   *
+   * @return an immutable {@code RandomAccess} list of the {@code k} greatest
+   *     elements in <i>descending order</i>
+   * @throws IllegalArgumentException if {@code k} is negative
+   * @since 14.0
+   */
+  @Beta
+  public <E extends T> List<E> greatestOf(Iterator<E> iterator, int k) {
+    return reverse().leastOf(iterator, k);
+  }
+
+  /**
+   * Returns the {@code k} least elements of the given iterable according to
+   * this ordering, in order from least to greatest, like {@link
+   * #leastOf(Iterable, int)}. The elements are split into {@code parallelism}
+   * contiguous chunks, whose least elements are selected by tasks submitted to
+   * {@code executor}; the candidates from all chunks are then reduced to the
+   * result in the calling thread.
+   *
+   * <p>If {@code iterable} is a {@link RandomAccess} list, the chunks are views
+   * of it; otherwise, its elements are first copied to an array.
+   *
+   * @return an immutable {@code RandomAccess} list of the {@code k} least
+   *     elements in ascending order
+   * @throws IllegalArgumentException if {@code k} is negative or {@code
+   *     parallelism} is not positive
+   * @since 14.0
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent")
+  public <E extends T> List<E> parallelLeastOf(Iterable<E> iterable,
+      final int k, ExecutorService executor, int parallelism) {
+    checkNotNull(iterable);
+    checkNotNull(executor);
+    checkArgument(k >= 0, "k (%s) must be nonnegative", k);
+    List<List<E>> chunks = chunks(iterable, parallelism);
+    List<Future<List<E>>> futures = Lists.newArrayListWithCapacity(
+        chunks.size());
+    for (final List<E> chunk : chunks) {
+      futures.add(executor.submit(new Callable<List<E>>() {
+        @Override
+        public List<E> call() {
+          return leastOf(chunk.iterator(), k);
+        }
+      }));
+    }
+    List<E> candidates = Lists.newArrayList();
+    for (Future<List<E>> future : futures) {
+      candidates.addAll(getDone(future));
+    }
+    return leastOf(candidates, k);
+  }
+
+  /**
+   * Returns a copy of the given iterable sorted by this ordering, like {@link
+   * #sortedCopy}. The elements are split into {@code parallelism} contiguous
+   * chunks, which are sorted by tasks submitted to {@code executor}; the
+   * sorted chunks are then merged in the calling thread. The sort performed is
+   * <i>stable</i>.
+   *
+   * @param iterable the elements to be copied and sorted
+   * @param executor the executor that sorts the chunks
+   * @param parallelism the number of chunks to sort concurrently
+   * @return a new list containing the given elements in sorted order
+   * @throws IllegalArgumentException if {@code parallelism} is not positive
+   * @since 14.0
+   */
+  @Beta
+  @GwtIncompatible("java.util.concurrent")
+  public <E extends T> List<E> parallelSortedCopy(Iterable<E> iterable,
+      ExecutorService executor, int parallelism) {
+    checkNotNull(iterable);
+    checkNotNull(executor);
+    checkArgument(parallelism > 0, "parallelism (%s) must be positive",
+        parallelism);
+    @SuppressWarnings("unchecked") // does not escape, and contains only E's
+    final E[] array = (E[]) Iterables.toArray(iterable);
+    int chunkSize = chunkSize(array.length, parallelism);
+    List<Future<?>> futures = Lists.newArrayList();
+    List<Iterator<E>> sortedChunks = Lists.newArrayList();
+    for (int from = 0; from < array.length; from += chunkSize) {
+      final int start = from;
+      final int end = Math.min(array.length, from + chunkSize);
+      futures.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          Arrays.sort(array, start, end, Ordering.this);
+        }
+      }));
+      sortedChunks.add(Arrays.asList(array).subList(start, end).iterator());
+    }
+    for (Future<?> future : futures) {
+      getDone(future);
+    }
+    // mergeSorted favors earlier chunks on ties, which keeps the sort stable.
+    return Lists.newArrayList(Iterators.mergeSorted(sortedChunks, this));
+  }
+
+  @GwtIncompatible("java.util.concurrent")
+  private static int chunkSize(int size, int parallelism) {
+    return Math.max(1, (size + parallelism - 1) / parallelism);
+  }
+
+  @GwtIncompatible("java.util.concurrent")
+  private static <E> List<List<E>> chunks(
+      Iterable<E> iterable, int parallelism) {
+    checkArgument(parallelism > 0, "parallelism (%s) must be positive",
+        parallelism);
+    List<E> list;
+    if (iterable instanceof List && iterable instanceof RandomAccess) {
+      list = (List<E>) iterable;
+    } else {
+      @SuppressWarnings("unchecked") // only contains E's
+      E[] array = (E[]) Iterables.toArray(iterable);
+      list = Arrays.asList(array);
+    }
+    return (list.isEmpty())
+        ? ImmutableList.<List<E>>of()
+        : Lists.partition(list, chunkSize(list.size(), parallelism));
+  }
+
+  /**
+   * Waits for {@code future}, rethrowing any unchecked exception or error
+   * thrown by its task.
+   */
+  @GwtIncompatible("java.util.concurrent")
+  private static <V> V getDone(Future<V> future) {
+    try {
+      return Uninterruptibles.getUninterruptibly(future);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
     }
   }
 
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Function;
+import com.google.common.collect.PackedRangeSet.Endpoints;
+import com.google.common.primitives.Longs;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable mapping from disjoint ranges of {@code Integer} or {@code Long} keys to values,
+ * which stores the bounds of its ranges in two sorted primitive arrays. This is the read-only,
+ * array-backed counterpart of {@link RangeMap}: {@link #get(long)} takes a single binary search
+ * over a {@code long[]}, and neither allocates nor compares {@link Cut} objects.
+ *
+ * <p>Each range is held in its {@linkplain Range#canonical canonical} form, which is also the form
+ * returned by {@link #getEntry} and {@link #asMapOfRanges}. Null values are not permitted.
+ *
+ * @author Louis Wasserman
+ */
+final class PackedRangeMap<K extends Comparable, V> implements Function<K, V> {
+  /**
+   * Returns a range map associating each range in {@code ranges} with its value. The ranges may be
+   * given in any order, but must not overlap; empty ranges are ignored. This takes <i>O(n log
+   * n)</i> time.
+   *
+   * @throws IllegalArgumentException if two of the ranges overlap
+   * @throws NullPointerException if any value is null
+   */
+  public static <V> PackedRangeMap<Integer, V> copyOfIntegers(
+      Map<Range<Integer>, ? extends V> ranges) {
+    return copyOf(Endpoints.INTEGERS, ranges);
+  }
+
+  /**
+   * Returns a range map associating each range in {@code ranges} with its value. The ranges may be
+   * given in any order, but must not overlap; empty ranges are ignored. This takes <i>O(n log
+   * n)</i> time.
+   *
+   * @throws IllegalArgumentException if two of the ranges overlap
+   * @throws NullPointerException if any value is null
+   */
+  public static <V> PackedRangeMap<Long, V> copyOfLongs(Map<Range<Long>, ? extends V> ranges) {
+    return copyOf(Endpoints.LONGS, ranges);
+  }
+
+  private static <K extends Comparable, V> PackedRangeMap<K, V> copyOf(
+      Endpoints<K> endpoints, Map<Range<K>, ? extends V> ranges) {
+    int count = 0;
+    final long[] lowers = new long[ranges.size()];
+    long[] uppers = new long[ranges.size()];
+    Object[] values = new Object[ranges.size()];
+    for (Entry<Range<K>, ? extends V> entry : ranges.entrySet()) {
+      Range<K> canonical = entry.getKey().canonical(endpoints.domain);
+      V value = checkNotNull(entry.getValue());
+      if (!canonical.isEmpty()) {
+        lowers[count] = endpoints.lowest(canonical);
+        uppers[count] = endpoints.highest(canonical);
+        values[count] = value;
+        count++;
+      }
+    }
+
+    Integer[] order = new Integer[count];
+    for (int i = 0; i < count; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return Longs.compare(lowers[a], lowers[b]);
+      }
+    });
+
+    long[] sortedLowers = new long[count];
+    long[] sortedUppers = new long[count];
+    Object[] sortedValues = new Object[count];
+    for (int i = 0; i < count; i++) {
+      int index = order[i];
+      sortedLowers[i] = lowers[index];
+      sortedUppers[i] = uppers[index];
+      sortedValues[i] = values[index];
+      if (i > 0 && sortedUppers[i - 1] >= sortedLowers[i]) {
+        throw new IllegalArgumentException("Overlapping ranges: "
+            + endpoints.toRange(sortedLowers[i - 1], sortedUppers[i - 1]) + " and "
+            + endpoints.toRange(sortedLowers[i], sortedUppers[i]));
+      }
+    }
+    return new PackedRangeMap<K, V>(endpoints, sortedLowers, sortedUppers, sortedValues);
+  }
+
+  private final Endpoints<K> endpoints;
+
+  /** The least key of each range, in increasing order. */
+  private final long[] lowers;
+
+  /** The greatest key of each range, in increasing order. */
+  private final long[] uppers;
+
+  private final Object[] values;
+
+  private PackedRangeMap(Endpoints<K> endpoints, long[] lowers, long[] uppers, Object[] values) {
+    this.endpoints = endpoints;
+    this.lowers = lowers;
+    this.uppers = uppers;
+    this.values = values;
+  }
+
+  /**
+   * Equivalent to {@link #get(Comparable) get(K)}, provided only to satisfy the {@link Function}
+   * interface. When using a reference of type {@code PackedRangeMap}, always invoke
+   * {@link #get(Comparable) get(K)} directly instead.
+   */
+  @Override
+  public V apply(K input) {
+    return get(input);
+  }
+
+  /**
+   * Returns the value associated with {@code key}, or {@code null} if there is no such value.
+   */
+  @Nullable
+  public V get(K key) {
+    return get(endpoints.toLong(key));
+  }
+
+  /**
+   * Returns the value associated with {@code key}, or {@code null} if there is no such value,
+   * without boxing {@code key}.
+   */
+  @Nullable
+  public V get(long key) {
+    int index = indexOf(key);
+    return (index < 0) ? null : value(index);
+  }
+
+  /**
+   * Returns the range containing {@code key} and its associated value, or {@code null} if there is
+   * no such range.
+   */
+  @Nullable
+  public Entry<Range<K>, V> getEntry(K key) {
+    int index = indexOf(endpoints.toLong(key));
+    return (index < 0) ? null : Maps.immutableEntry(range(index), value(index));
+  }
+
+  /**
+   * Returns {@code true} if this range map contains no ranges.
+   */
+  public boolean isEmpty() {
+    return lowers.length == 0;
+  }
+
+  private int indexOf(long key) {
+    int index = PackedRangeSet.floorIndex(lowers, key);
+    return (index >= 0 && key <= uppers[index]) ? index : -1;
+  }
+
+  private Range<K> range(int index) {
+    return endpoints.toRange(lowers[index], uppers[index]);
+  }
+
+  @SuppressWarnings("unchecked") // only Vs get in
+  private V value(int index) {
+    return (V) values[index];
+  }
+
+  private transient ImmutableMap<Range<K>, V> asMapOfRanges;
+
+  /**
+   * Returns a map from the ranges of this range map to their values, in increasing order of
+   * range.
+   */
+  public ImmutableMap<Range<K>, V> asMapOfRanges() {
+    ImmutableMap<Range<K>, V> result = asMapOfRanges;
+    if (result == null) {
+      ImmutableMap.Builder<Range<K>, V> builder = ImmutableMap.builder();
+      for (int i = 0; i < lowers.length; i++) {
+        builder.put(range(i), value(i));
+      }
+      result = asMapOfRanges = builder.build();
+    }
+    return result;
+  }
+
+  /**
+   * Returns {@code true} if {@code o} is a {@code PackedRangeMap} with equal ranges, associated
+   * with equal values.
+   */
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (o instanceof PackedRangeMap) {
+      PackedRangeMap<?, ?> other = (PackedRangeMap<?, ?>) o;
+      return endpoints == other.endpoints
+          && Arrays.equals(lowers, other.lowers)
+          && Arrays.equals(uppers, other.uppers)
+          && Arrays.equals(values, other.values);
+    }
+    return false;
+  }
+
+  @Override
+  public int hashCode() {
+    return asMapOfRanges().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return asMapOfRanges().toString();
+  }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable {@link RangeSet} of {@code Integer} or {@code Long} values, which stores the bounds
+ * of its ranges in two sorted primitive arrays. Lookups neither allocate nor compare {@link Cut}
+ * objects: {@link #contains(long)}, {@link #rangeContaining} and {@link #encloses} each take a
+ * single binary search over a {@code long[]}.
+ *
+ * <p>Since the values are discrete, each range is held in its {@linkplain
+ * Range#canonical canonical} form, and ranges with no value between them are coalesced: a set
+ * built from {@code [1‥3]} and {@code [4‥6]} has the single range {@code [1‥7)}. The ranges of
+ * {@link #asRanges} are likewise in canonical form.
+ *
+ * @author Louis Wasserman
+ */
+final class PackedRangeSet<C extends Comparable> extends RangeSet<C> {
+  /**
+   * Returns a range set containing the union of {@code ranges}, which may be given in any order
+   * and may overlap. This takes <i>O(n log n)</i> time.
+   */
+  public static PackedRangeSet<Integer> copyOfIntegers(Iterable<Range<Integer>> ranges) {
+    return copyOf(Endpoints.INTEGERS, ranges);
+  }
+
+  /**
+   * Returns a range set containing the union of {@code ranges}, which may be given in any order
+   * and may overlap. This takes <i>O(n log n)</i> time.
+   */
+  public static PackedRangeSet<Long> copyOfLongs(Iterable<Range<Long>> ranges) {
+    return copyOf(Endpoints.LONGS, ranges);
+  }
+
+  private static <C extends Comparable> PackedRangeSet<C> copyOf(
+      Endpoints<C> endpoints, Iterable<Range<C>> ranges) {
+    ImmutableList<Range<C>> rangeList = ImmutableList.copyOf(ranges);
+    long[] lowers = new long[rangeList.size()];
+    long[] uppers = new long[rangeList.size()];
+    int count = 0;
+    for (Range<C> range : rangeList) {
+      Range<C> canonical = range.canonical(endpoints.domain);
+      if (!canonical.isEmpty()) {
+        lowers[count] = endpoints.lowest(canonical);
+        uppers[count] = endpoints.highest(canonical);
+        count++;
+      }
+    }
+
+    /*
+     * The union can be found from the lower bounds and the upper bounds sorted independently:
+     * if the (i+1)-th least lower bound exceeds the i-th least upper bound plus one, then the
+     * i + 1 ranges with the least upper bounds are exactly the i + 1 ranges with the least lower
+     * bounds, and no range covers the value just after the i-th upper bound.
+     */
+    Arrays.sort(lowers, 0, count);
+    Arrays.sort(uppers, 0, count);
+    int size = 0;
+    if (count > 0) {
+      long start = lowers[0];
+      for (int i = 0; i < count; i++) {
+        if (i == count - 1
+            || (uppers[i] != endpoints.max && lowers[i + 1] > uppers[i] + 1)) {
+          long end = uppers[i];
+          long nextStart = (i == count - 1) ? 0 : lowers[i + 1];
+          lowers[size] = start;
+          uppers[size] = end;
+          size++;
+          start = nextStart;
+        }
+      }
+    }
+    return new PackedRangeSet<C>(
+        endpoints, Arrays.copyOf(lowers, size), Arrays.copyOf(uppers, size), null);
+  }
+
+  private final Endpoints<C> endpoints;
+
+  /** The least value of each range, in increasing order. */
+  private final long[] lowers;
+
+  /** The greatest value of each range, in increasing order. */
+  private final long[] uppers;
+
+  private transient PackedRangeSet<C> complement;
+
+  private PackedRangeSet(Endpoints<C> endpoints, long[] lowers, long[] uppers,
+      @Nullable PackedRangeSet<C> complement) {
+    this.endpoints = endpoints;
+    this.lowers = lowers;
+    this.uppers = uppers;
+    this.complement = complement;
+  }
+
+  @Override
+  public boolean contains(C value) {
+    return contains(endpoints.toLong(value));
+  }
+
+  /**
+   * Determines whether any of this range set's member ranges contains {@code value}, without
+   * boxing it.
+   */
+  public boolean contains(long value) {
+    int index = floorIndex(lowers, value);
+    return index >= 0 && value <= uppers[index];
+  }
+
+  @Override
+  @Nullable
+  public Range<C> rangeContaining(C value) {
+    long longValue = endpoints.toLong(value);
+    int index = floorIndex(lowers, longValue);
+    return (index >= 0 && longValue <= uppers[index]) ? range(index) : null;
+  }
+
+  @Override
+  public boolean encloses(Range<C> otherRange) {
+    Range<C> canonical = otherRange.canonical(endpoints.domain);
+    if (canonical.isEmpty()) {
+      return super.encloses(otherRange);
+    }
+    int index = floorIndex(lowers, endpoints.lowest(canonical));
+    return index >= 0 && endpoints.highest(canonical) <= uppers[index];
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return lowers.length == 0;
+  }
+
+  private Range<C> range(int index) {
+    return endpoints.toRange(lowers[index], uppers[index]);
+  }
+
+  private transient Set<Range<C>> asRanges;
+
+  @Override
+  public Set<Range<C>> asRanges() {
+    Set<Range<C>> result = asRanges;
+    return (result == null) ? asRanges = new AsRanges() : result;
+  }
+
+  private final class AsRanges extends AbstractSet<Range<C>> {
+    @Override
+    public Iterator<Range<C>> iterator() {
+      return new AbstractIndexedListIterator<Range<C>>(size()) {
+        @Override
+        protected Range<C> get(int index) {
+          return range(index);
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return lowers.length;
+    }
+
+    @Override
+    public boolean contains(@Nullable Object o) {
+      if (o instanceof Range) {
+        Range<?> range = (Range<?>) o;
+        if (range.hasLowerBound() && endpoints.type.isInstance(range.lowerEndpoint())) {
+          @SuppressWarnings("unchecked") // checked the type of the lower endpoint
+          C lowerEndpoint = (C) range.lowerEndpoint();
+          return range.equals(rangeContaining(lowerEndpoint));
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Returns the complement of this range set, which is also a {@code PackedRangeSet}. It is
+   * computed on first use, in linear time.
+   */
+  @Override
+  public PackedRangeSet<C> complement() {
+    PackedRangeSet<C> result = complement;
+    return (result == null) ? complement = createComplement() : result;
+  }
+
+  private PackedRangeSet<C> createComplement() {
+    int size = lowers.length;
+    if (size == 0) {
+      return new PackedRangeSet<C>(endpoints, new long[] {endpoints.min},
+          new long[] {endpoints.max}, this);
+    }
+    boolean belowFirst = lowers[0] != endpoints.min;
+    boolean aboveLast = uppers[size - 1] != endpoints.max;
+    int gaps = size - 1 + (belowFirst ? 1 : 0) + (aboveLast ? 1 : 0);
+    long[] gapLowers = new long[gaps];
+    long[] gapUppers = new long[gaps];
+    int gap = 0;
+    if (belowFirst) {
+      gapLowers[gap] = endpoints.min;
+      gapUppers[gap] = lowers[0] - 1;
+      gap++;
+    }
+    for (int i = 0; i + 1 < size; i++, gap++) {
+      gapLowers[gap] = uppers[i] + 1;
+      gapUppers[gap] = lowers[i + 1] - 1;
+    }
+    if (aboveLast) {
+      gapLowers[gap] = uppers[size - 1] + 1;
+      gapUppers[gap] = endpoints.max;
+    }
+    return new PackedRangeSet<C>(endpoints, gapLowers, gapUppers, this);
+  }
+
+  /**
+   * Returns the index of the greatest element of {@code sorted} that is less than or equal to
+   * {@code value}, or {@code -1} if there is none.
+   *
+   * <p>The search narrows the candidates by a conditional move rather than a conditional branch,
+   * and always takes the same number of steps for a given array length, so that its branches are
+   * perfectly predictable.
+   */
+  static int floorIndex(long[] sorted, long value) {
+    int length = sorted.length;
+    if (length == 0) {
+      return -1;
+    }
+    int base = 0;
+    while (length > 1) {
+      int half = length >>> 1;
+      base = (sorted[base + half] <= value) ? base + half : base;
+      length -= half;
+    }
+    return (sorted[base] <= value) ? base : base - 1;
+  }
+
+  /**
+   * Converts between the values of a discrete type and the {@code long}s that store them.
+   */
+  abstract static class Endpoints<C extends Comparable> {
+    static final Endpoints<Integer> INTEGERS = new Endpoints<Integer>(
+        Integer.class, DiscreteDomains.integers(), Integer.MIN_VALUE, Integer.MAX_VALUE) {
+      @Override
+      Integer fromLong(long value) {
+        return (int) value;
+      }
+    };
+
+    static final Endpoints<Long> LONGS = new Endpoints<Long>(
+        Long.class, DiscreteDomains.longs(), Long.MIN_VALUE, Long.MAX_VALUE) {
+      @Override
+      Long fromLong(long value) {
+        return value;
+      }
+    };
+
+    final Class<C> type;
+    final DiscreteDomain<C> domain;
+    final long min;
+    final long max;
+
+    Endpoints(Class<C> type, DiscreteDomain<C> domain, long min, long max) {
+      this.type = type;
+      this.domain = domain;
+      this.min = min;
+      this.max = max;
+    }
+
+    abstract C fromLong(long value);
+
+    long toLong(C value) {
+      return ((Number) checkNotNull(value)).longValue();
+    }
+
+    /**
+     * Returns the least value of a nonempty {@linkplain Range#canonical canonical} range. Such a
+     * range always has a closed lower bound.
+     */
+    long lowest(Range<C> canonical) {
+      return toLong(canonical.lowerEndpoint());
+    }
+
+    /**
+     * Returns the greatest value of a nonempty {@linkplain Range#canonical canonical} range. Such
+     * a range has an open upper bound, or none at all.
+     */
+    long highest(Range<C> canonical) {
+      return canonical.hasUpperBound() ? toLong(canonical.upperEndpoint()) - 1 : max;
+    }
+
+    /**
+     * Returns the canonical range of the values from {@code lowest} to {@code highest},
+     * inclusive.
+     */
+    Range<C> toRange(long lowest, long highest) {
+      return (highest == max)
+          ? Ranges.atLeast(fromLong(lowest))
+          : Ranges.closedOpen(fromLong(lowest), fromLong(highest + 1));
+    }
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * An {@link ImmutableList} that can be updated cheaply: {@link #with} and
+ * {@link #append} return a new list in O(log<sub>32</sub> n) time, sharing
+ * all but a handful of nodes with the original, which is left unchanged.
+ *
+ * <p>The list is a radix-balanced trie of 32-element arrays, in which the
+ * element at index {@code i} is found by consuming five bits of {@code i} per
+ * level. The last (up to) 32 elements are kept in a separate "tail" array, so
+ * that most appends copy only that array. {@link #get} is somewhat slower than
+ * in an array-backed {@code ImmutableList}.
+ *
+ * <p>Like every {@code ImmutableList}, it does not permit null elements. Note
+ * that the factory methods {@code ImmutableList.of(e1, ...)}, though callable
+ * through this class, return ordinary immutable lists; start from {@link
+ * #of()} or {@link #copyOf} instead.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+@GwtIncompatible("not needed in emulated source")
+public final class PersistentImmutableList<E> extends ImmutableList<E> {
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+
+  private static final PersistentImmutableList<Object> EMPTY =
+      new PersistentImmutableList<Object>(
+          0, BITS, new Object[WIDTH], new Object[0]);
+
+  /** Returns the empty persistent list. */
+  @SuppressWarnings("unchecked") // the empty list holds no E's
+  public static <E> PersistentImmutableList<E> of() {
+    return (PersistentImmutableList<E>) EMPTY;
+  }
+
+  /**
+   * Returns a persistent list containing the given elements, in order.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  public static <E> PersistentImmutableList<E> copyOf(E[] elements) {
+    return copyOf(Arrays.asList(elements));
+  }
+
+  /**
+   * Returns a persistent list containing the given elements, in order.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  public static <E> PersistentImmutableList<E> copyOf(
+      Iterable<? extends E> elements) {
+    return copyOf(elements.iterator());
+  }
+
+  /**
+   * Returns a persistent list containing the given elements, in order.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  public static <E> PersistentImmutableList<E> copyOf(
+      Collection<? extends E> elements) {
+    if (elements instanceof PersistentImmutableList) {
+      @SuppressWarnings("unchecked") // safe since the list is not writable
+      PersistentImmutableList<E> list = (PersistentImmutableList<E>) elements;
+      return list;
+    }
+    return copyOf(elements.iterator());
+  }
+
+  /**
+   * Returns a persistent list containing the given elements, in order.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  public static <E> PersistentImmutableList<E> copyOf(
+      Iterator<? extends E> elements) {
+    PersistentImmutableList<E> result = of();
+    while (elements.hasNext()) {
+      result = result.append(elements.next());
+    }
+    return result;
+  }
+
+  private final transient int size;
+  // the number of index bits consumed above the leaves
+  private final transient int shift;
+  private final transient Object[] root;
+  private final transient Object[] tail;
+
+  private PersistentImmutableList(
+      int size, int shift, Object[] root, Object[] tail) {
+    this.size = size;
+    this.shift = shift;
+    this.root = root;
+    this.tail = tail;
+  }
+
+  /** Returns the index of the first element in the tail. */
+  private int tailOffset() {
+    return (size < WIDTH) ? 0 : ((size - 1) >>> BITS) << BITS;
+  }
+
+  @Override
+  public E get(int index) {
+    checkElementIndex(index, size);
+    return elementAt(index);
+  }
+
+  @SuppressWarnings("unchecked") // only E's are stored in leaves
+  private E elementAt(int index) {
+    if (index >= tailOffset()) {
+      return (E) tail[index & MASK];
+    }
+    Object[] node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Object[]) node[(index >>> level) & MASK];
+    }
+    return (E) node[index & MASK];
+  }
+
+  /**
+   * Returns a list with the elements of this list, except that the element
+   * at {@code index} is replaced by {@code element}. Returns this list if that
+   * element is already {@code element}.
+   *
+   * @throws IndexOutOfBoundsException if {@code index} is negative or not
+   *     less than {@link #size}
+   * @throws NullPointerException if {@code element} is null
+   */
+  public PersistentImmutableList<E> with(int index, E element) {
+    checkElementIndex(index, size);
+    checkNotNull(element);
+    if (elementAt(index) == element) {
+      return this;
+    }
+    if (index >= tailOffset()) {
+      Object[] newTail = tail.clone();
+      newTail[index & MASK] = element;
+      return new PersistentImmutableList<E>(size, shift, root, newTail);
+    }
+    return new PersistentImmutableList<E>(
+        size, shift, withLeaf(shift, root, index, element), tail);
+  }
+
+  private static Object[] withLeaf(
+      int level, Object[] node, int index, Object element) {
+    Object[] result = node.clone();
+    if (level == 0) {
+      result[index & MASK] = element;
+    } else {
+      int childIndex = (index >>> level) & MASK;
+      result[childIndex] = withLeaf(
+          level - BITS, (Object[]) node[childIndex], index, element);
+    }
+    return result;
+  }
+
+  /**
+   * Returns a list with the elements of this list followed by {@code
+   * element}.
+   *
+   * @throws NullPointerException if {@code element} is null
+   */
+  public PersistentImmutableList<E> append(E element) {
+    checkNotNull(element);
+    if (size - tailOffset() < WIDTH) {
+      Object[] newTail = ObjectArrays.arraysCopyOf(tail, tail.length + 1);
+      newTail[tail.length] = element;
+      return new PersistentImmutableList<E>(size + 1, shift, root, newTail);
+    }
+    // the tail is full: move it into the trie
+    Object[] newRoot;
+    int newShift = shift;
+    if ((size >>> BITS) > (1 << shift)) {
+      // the trie is full too: add a level
+      newRoot = new Object[WIDTH];
+      newRoot[0] = root;
+      newRoot[1] = newPath(shift, tail);
+      newShift += BITS;
+    } else {
+      newRoot = pushTail(shift, root, tail);
+    }
+    return new PersistentImmutableList<E>(
+        size + 1, newShift, newRoot, new Object[] {element});
+  }
+
+  private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+    int childIndex = ((size - 1) >>> level) & MASK;
+    Object[] result = parent.clone();
+    if (level == BITS) {
+      result[childIndex] = tailNode;
+    } else {
+      Object[] child = (Object[]) parent[childIndex];
+      result[childIndex] = (child == null)
+          ? newPath(level - BITS, tailNode)
+          : pushTail(level - BITS, child, tailNode);
+    }
+    return result;
+  }
+
+  /** Returns a chain of nodes leading down to {@code leaf}. */
+  private static Object[] newPath(int level, Object[] leaf) {
+    Object[] node = leaf;
+    for (; level > 0; level -= BITS) {
+      Object[] parent = new Object[WIDTH];
+      parent[0] = node;
+      node = parent;
+    }
+    return node;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override boolean isPartialView() {
+    return false;
+  }
+
+  @Override Object writeReplace() {
+    return new SerializedForm(toArray());
+  }
+
+  private static class SerializedForm implements Serializable {
+    final Object[] elements;
+
+    SerializedForm(Object[] elements) {
+      this.elements = elements;
+    }
+
+    Object readResolve() {
+      return copyOf(elements);
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+}
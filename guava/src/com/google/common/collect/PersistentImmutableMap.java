@@ -0,0 +1,463 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+/**
+ * An {@link ImmutableMap} that can be updated cheaply: {@link #with} and
+ * {@link #without} return a new map in O(log<sub>32</sub> n) time, sharing
+ * all but a handful of nodes with the original, which is left unchanged.
+ * This suits maps that are republished after every small change, which would
+ * otherwise be copied in full each time.
+ *
+ * <p>The map is a hash array mapped trie: each level of the trie consumes five
+ * bits of the (smeared) hash code of a key, and each node stores only the
+ * slots it uses, located through a 32-bit bitmap. Lookups are somewhat slower
+ * than in a plain {@link ImmutableMap}, and the iteration order is
+ * unspecified.
+ *
+ * <p>Like every {@code ImmutableMap}, it does not permit null keys or values.
+ * Note that the factory methods {@code ImmutableMap.of(k1, v1, ...)}, though
+ * callable through this class, return ordinary immutable maps; start from
+ * {@link #of()} or {@link #copyOf} instead.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+@GwtIncompatible("not needed in emulated source")
+public final class PersistentImmutableMap<K, V> extends ImmutableMap<K, V> {
+  private static final PersistentImmutableMap<Object, Object> EMPTY =
+      new PersistentImmutableMap<Object, Object>(null, 0);
+
+  /** Returns the empty persistent map. */
+  @SuppressWarnings("unchecked") // the empty map holds no K's or V's
+  public static <K, V> PersistentImmutableMap<K, V> of() {
+    return (PersistentImmutableMap<K, V>) EMPTY;
+  }
+
+  /**
+   * Returns a persistent map containing the same entries as {@code map}.
+   *
+   * @throws NullPointerException if any key or value in {@code map} is null
+   */
+  public static <K, V> PersistentImmutableMap<K, V> copyOf(
+      Map<? extends K, ? extends V> map) {
+    if (map instanceof PersistentImmutableMap) {
+      @SuppressWarnings("unchecked") // safe since map is not writable
+      PersistentImmutableMap<K, V> persistentMap =
+          (PersistentImmutableMap<K, V>) map;
+      return persistentMap;
+    }
+    PersistentImmutableMap<K, V> result = of();
+    for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+      result = result.with(entry.getKey(), entry.getValue());
+    }
+    return result;
+  }
+
+  @Nullable private final transient Node root;
+  private final transient int size;
+
+  private PersistentImmutableMap(@Nullable Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  /**
+   * Returns a map with the entries of this map, except that {@code key} is
+   * mapped to {@code value}. Returns this map if it already maps {@code key}
+   * to that same {@code value} instance.
+   *
+   * @throws NullPointerException if {@code key} or {@code value} is null
+   */
+  public PersistentImmutableMap<K, V> with(K key, V value) {
+    checkNotNull(key);
+    checkNotNull(value);
+    int hash = Hashing.smear(key.hashCode());
+    if (root == null) {
+      return new PersistentImmutableMap<K, V>(
+          new Node(new Object[] {key, value}, 1 << (hash & MASK)), 1);
+    }
+    boolean[] added = new boolean[1];
+    Node newRoot = root.with(0, hash, key, value, added);
+    return (newRoot == root)
+        ? this
+        : new PersistentImmutableMap<K, V>(newRoot, added[0] ? size + 1 : size);
+  }
+
+  /**
+   * Returns a map with the entries of this map, except for any entry with
+   * key {@code key}. Returns this map if it has no such entry.
+   */
+  public PersistentImmutableMap<K, V> without(@Nullable Object key) {
+    if (key == null || root == null) {
+      return this;
+    }
+    Node newRoot = root.without(0, Hashing.smear(key.hashCode()), key);
+    if (newRoot == root) {
+      return this;
+    }
+    return (newRoot == null) ? PersistentImmutableMap.<K, V>of()
+        : new PersistentImmutableMap<K, V>(newRoot, size - 1);
+  }
+
+  @Override public V get(@Nullable Object key) {
+    if (key == null || root == null) {
+      return null;
+    }
+    @SuppressWarnings("unchecked") // only V's are stored as values
+    V value = (V) root.get(0, Hashing.smear(key.hashCode()), key);
+    return value;
+  }
+
+  @Override public boolean containsKey(@Nullable Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override boolean isPartialView() {
+    return false;
+  }
+
+  @Override ImmutableSet<Entry<K, V>> createEntrySet() {
+    return new ImmutableMapEntrySet<K, V>() {
+      @Override ImmutableMap<K, V> map() {
+        return PersistentImmutableMap.this;
+      }
+
+      @Override public UnmodifiableIterator<Entry<K, V>> iterator() {
+        return new TrieIterator<Entry<K, V>>(root) {
+          @SuppressWarnings("unchecked") // only K's and V's are stored
+          @Override Entry<K, V> output(Object key, Object value) {
+            return Maps.immutableEntry((K) key, (V) value);
+          }
+        };
+      }
+    };
+  }
+
+  @Override ImmutableSet<K> createKeySet() {
+    return new ImmutableMapKeySet<K, V>(entrySet()) {
+      @Override ImmutableMap<K, V> map() {
+        return PersistentImmutableMap.this;
+      }
+
+      @Override public boolean isEmpty() {
+        return size == 0;
+      }
+
+      @Override public UnmodifiableIterator<K> iterator() {
+        return keyIterator();
+      }
+    };
+  }
+
+  UnmodifiableIterator<K> keyIterator() {
+    return new TrieIterator<K>(root) {
+      @SuppressWarnings("unchecked") // only K's are stored as keys
+      @Override K output(Object key, Object value) {
+        return (K) key;
+      }
+    };
+  }
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  /**
+   * A node of the trie. Its array holds a key and a value for each slot in
+   * use, in slot order; a null key means that the "value" is the child node
+   * for that slot. The slots in use are the set bits of {@code bitmap}.
+   *
+   * <p>Keys whose full hash codes collide are kept in a collision node, whose
+   * bitmap is 0 and whose array holds only keys and values, in no order.
+   */
+  private static final class Node {
+    final Object[] array;
+    final int bitmap;
+
+    Node(Object[] array, int bitmap) {
+      this.array = array;
+      this.bitmap = bitmap;
+    }
+
+    boolean isCollision() {
+      return bitmap == 0;
+    }
+
+    @Nullable Object get(int shift, int hash, Object key) {
+      Node node = this;
+      while (!node.isCollision()) {
+        int bit = 1 << ((hash >>> shift) & MASK);
+        if ((node.bitmap & bit) == 0) {
+          return null;
+        }
+        int index = 2 * Integer.bitCount(node.bitmap & (bit - 1));
+        Object k = node.array[index];
+        Object v = node.array[index + 1];
+        if (k == null) {
+          node = (Node) v;
+          shift += BITS;
+        } else {
+          return key.equals(k) ? v : null;
+        }
+      }
+      Object[] array = node.array;
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return array[i + 1];
+        }
+      }
+      return null;
+    }
+
+    /**
+     * Returns a node with {@code key} mapped to {@code value}, or this node
+     * if it already has that exact mapping. Sets {@code added[0]} if the key
+     * was not already present.
+     */
+    Node with(int shift, int hash, Object key, Object value, boolean[] added) {
+      if (isCollision()) {
+        return collisionWith(shift, hash, key, value, added);
+      }
+      int bit = 1 << ((hash >>> shift) & MASK);
+      int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+      if ((bitmap & bit) == 0) {
+        added[0] = true;
+        Object[] newArray = new Object[array.length + 2];
+        System.arraycopy(array, 0, newArray, 0, index);
+        newArray[index] = key;
+        newArray[index + 1] = value;
+        System.arraycopy(
+            array, index, newArray, index + 2, array.length - index);
+        return new Node(newArray, bitmap | bit);
+      }
+      Object k = array[index];
+      Object v = array[index + 1];
+      if (k == null) {
+        Node child = (Node) v;
+        Node newChild = child.with(shift + BITS, hash, key, value, added);
+        return (newChild == child) ? this : withSlot(index, null, newChild);
+      } else if (key.equals(k)) {
+        return (value == v) ? this : withSlot(index, k, value);
+      } else {
+        added[0] = true;
+        return withSlot(index, null, pair(shift + BITS,
+            Hashing.smear(k.hashCode()), k, v, hash, key, value));
+      }
+    }
+
+    private Node collisionWith(
+        int shift, int hash, Object key, Object value, boolean[] added) {
+      int collisionHash = Hashing.smear(array[0].hashCode());
+      if (hash != collisionHash) {
+        // push this node down a level, beside the new key
+        int bit = 1 << ((collisionHash >>> shift) & MASK);
+        return new Node(new Object[] {null, this}, bit)
+            .with(shift, hash, key, value, added);
+      }
+      for (int i = 0; i < array.length; i += 2) {
+        if (key.equals(array[i])) {
+          return (value == array[i + 1]) ? this : withSlot(i, array[i], value);
+        }
+      }
+      added[0] = true;
+      Object[] newArray = ObjectArrays.arraysCopyOf(array, array.length + 2);
+      newArray[array.length] = key;
+      newArray[array.length + 1] = value;
+      return new Node(newArray, 0);
+    }
+
+    /** Returns a copy of this node with a different key and value at index. */
+    private Node withSlot(int index, Object key, Object value) {
+      Object[] newArray = array.clone();
+      newArray[index] = key;
+      newArray[index + 1] = value;
+      return new Node(newArray, bitmap);
+    }
+
+    /** Returns a node holding two entries with distinct keys. */
+    private static Node pair(int shift, int hash1, Object key1, Object value1,
+        int hash2, Object key2, Object value2) {
+      if (hash1 == hash2) {
+        return new Node(new Object[] {key1, value1, key2, value2}, 0);
+      }
+      int slot1 = (hash1 >>> shift) & MASK;
+      int slot2 = (hash2 >>> shift) & MASK;
+      int bit1 = 1 << slot1;
+      int bit2 = 1 << slot2;
+      if (slot1 == slot2) {
+        return new Node(new Object[] {null,
+            pair(shift + BITS, hash1, key1, value1, hash2, key2, value2)},
+            bit1);
+      }
+      return (slot1 < slot2)
+          ? new Node(new Object[] {key1, value1, key2, value2}, bit1 | bit2)
+          : new Node(new Object[] {key2, value2, key1, value1}, bit1 | bit2);
+    }
+
+    /**
+     * Returns a node without {@code key}, this node if it does not contain
+     * {@code key}, or null if the node would be empty.
+     */
+    @Nullable Node without(int shift, int hash, Object key) {
+      if (isCollision()) {
+        for (int i = 0; i < array.length; i += 2) {
+          if (key.equals(array[i])) {
+            return (array.length == 2)
+                ? null : new Node(withoutPair(array, i), 0);
+          }
+        }
+        return this;
+      }
+      int bit = 1 << ((hash >>> shift) & MASK);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+      int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+      Object k = array[index];
+      if (k == null) {
+        Node child = (Node) array[index + 1];
+        Node newChild = child.without(shift + BITS, hash, key);
+        if (newChild == child) {
+          return this;
+        } else if (newChild != null) {
+          return withSlot(index, null, newChild);
+        }
+      } else if (!key.equals(k)) {
+        return this;
+      }
+      return (bitmap == bit)
+          ? null : new Node(withoutPair(array, index), bitmap ^ bit);
+    }
+
+    private static Object[] withoutPair(Object[] array, int index) {
+      Object[] newArray = new Object[array.length - 2];
+      System.arraycopy(array, 0, newArray, 0, index);
+      System.arraycopy(
+          array, index + 2, newArray, index, newArray.length - index);
+      return newArray;
+    }
+  }
+
+  /** Visits the entries of a trie depth-first, in slot order. */
+  private abstract static class TrieIterator<T>
+      extends UnmodifiableIterator<T> {
+    // the trie is at most 7 levels deep, plus a level of collision nodes
+    private final Object[][] arrays = new Object[8][];
+    private final int[] indices = new int[8];
+    private int depth;
+
+    TrieIterator(@Nullable Node root) {
+      if (root == null) {
+        depth = -1;
+      } else {
+        arrays[0] = root.array;
+        advance();
+      }
+    }
+
+    abstract T output(Object key, Object value);
+
+    /** Moves to the next key, or sets depth to -1 if there is none. */
+    private void advance() {
+      while (depth >= 0) {
+        Object[] array = arrays[depth];
+        int index = indices[depth];
+        if (index == array.length) {
+          depth--;
+        } else if (array[index] == null) {
+          indices[depth] += 2;
+          depth++;
+          arrays[depth] = ((Node) array[index + 1]).array;
+          indices[depth] = 0;
+        } else {
+          return;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return depth >= 0;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Object[] array = arrays[depth];
+      int index = indices[depth];
+      indices[depth] = index + 2;
+      T result = output(array[index], array[index + 1]);
+      advance();
+      return result;
+    }
+  }
+
+  @Override Object writeReplace() {
+    return new SerializedForm(this);
+  }
+
+  private static class SerializedForm implements Serializable {
+    private final Object[] keys;
+    private final Object[] values;
+
+    SerializedForm(PersistentImmutableMap<?, ?> map) {
+      keys = new Object[map.size()];
+      values = new Object[map.size()];
+      int i = 0;
+      for (Entry<?, ?> entry : map.entrySet()) {
+        keys[i] = entry.getKey();
+        values[i] = entry.getValue();
+        i++;
+      }
+    }
+
+    Object readResolve() {
+      PersistentImmutableMap<Object, Object> map = of();
+      for (int i = 0; i < keys.length; i++) {
+        map = map.with(keys[i], values[i]);
+      }
+      return map;
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static final long serialVersionUID = 0;
+}
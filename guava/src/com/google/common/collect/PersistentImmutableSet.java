@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtIncompatible;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+import javax.annotation.Nullable;
+
+/**
+ * An {@link ImmutableSet} that can be updated cheaply: {@link #with} and
+ * {@link #without} return a new set in O(log<sub>32</sub> n) time, sharing
+ * most of its structure with the original, which is left unchanged. The set
+ * is backed by a {@link PersistentImmutableMap}; see that class for details.
+ * The iteration order is unspecified.
+ *
+ * <p>Like every {@code ImmutableSet}, it does not permit null elements. Note
+ * that the factory methods {@code ImmutableSet.of(e1, ...)}, though callable
+ * through this class, return ordinary immutable sets; start from {@link #of()}
+ * or {@link #copyOf} instead.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+@GwtIncompatible("not needed in emulated source")
+public final class PersistentImmutableSet<E> extends ImmutableSet<E> {
+  private static final PersistentImmutableSet<Object> EMPTY =
+      new PersistentImmutableSet<Object>(
+          PersistentImmutableMap.<Object, Boolean>of());
+
+  /** Returns the empty persistent set. */
+  @SuppressWarnings("unchecked") // the empty set holds no E's
+  public static <E> PersistentImmutableSet<E> of() {
+    return (PersistentImmutableSet<E>) EMPTY;
+  }
+
+  /**
+   * Returns a persistent set containing the given elements, without
+   * duplicates.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  public static <E> PersistentImmutableSet<E> copyOf(E[] elements) {
+    return copyOf(Arrays.asList(elements));
+  }
+
+  /**
+   * Returns a persistent set containing the given elements, without
+   * duplicates.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  public static <E> PersistentImmutableSet<E> copyOf(
+      Iterable<? extends E> elements) {
+    return copyOf(elements.iterator());
+  }
+
+  /**
+   * Returns a persistent set containing the given elements, without
+   * duplicates.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  public static <E> PersistentImmutableSet<E> copyOf(
+      Collection<? extends E> elements) {
+    if (elements instanceof PersistentImmutableSet) {
+      @SuppressWarnings("unchecked") // safe since the set is not writable
+      PersistentImmutableSet<E> set = (PersistentImmutableSet<E>) elements;
+      return set;
+    }
+    return copyOf(elements.iterator());
+  }
+
+  /**
+   * Returns a persistent set containing the given elements, without
+   * duplicates.
+   *
+   * @throws NullPointerException if any of {@code elements} is null
+   */
+  public static <E> PersistentImmutableSet<E> copyOf(
+      Iterator<? extends E> elements) {
+    PersistentImmutableSet<E> result = of();
+    while (elements.hasNext()) {
+      result = result.with(elements.next());
+    }
+    return result;
+  }
+
+  private final transient PersistentImmutableMap<E, Boolean> map;
+
+  private PersistentImmutableSet(PersistentImmutableMap<E, Boolean> map) {
+    this.map = map;
+  }
+
+  /**
+   * Returns a set with the elements of this set and {@code element}. Returns
+   * this set if it already contains {@code element}.
+   *
+   * @throws NullPointerException if {@code element} is null
+   */
+  public PersistentImmutableSet<E> with(E element) {
+    PersistentImmutableMap<E, Boolean> newMap = map.with(element, true);
+    return (newMap == map) ? this : new PersistentImmutableSet<E>(newMap);
+  }
+
+  /**
+   * Returns a set with the elements of this set except {@code element}.
+   * Returns this set if it does not contain {@code element}.
+   */
+  public PersistentImmutableSet<E> without(@Nullable Object element) {
+    PersistentImmutableMap<E, Boolean> newMap = map.without(element);
+    if (newMap == map) {
+      return this;
+    }
+    return newMap.isEmpty() ? PersistentImmutableSet.<E>of()
+        : new PersistentImmutableSet<E>(newMap);
+  }
+
+  @Override public boolean contains(@Nullable Object target) {
+    return map.containsKey(target);
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  @Override public UnmodifiableIterator<E> iterator() {
+    return map.keyIterator();
+  }
+
+  @Override boolean isPartialView() {
+    return false;
+  }
+
+  @Override Object writeReplace() {
+    return new SerializedForm(toArray());
+  }
+
+  private static class SerializedForm implements Serializable {
+    final Object[] elements;
+
+    SerializedForm(Object[] elements) {
+      this.elements = elements;
+    }
+
+    Object readResolve() {
+      return copyOf(elements);
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+}
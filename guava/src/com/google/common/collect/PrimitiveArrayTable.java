@@ -0,0 +1,492 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * Skeleton of a fixed-size table of primitive values, stored in row-major
+ * order in a single flat array. Subclasses hold the array and box its
+ * elements as {@code V} for the {@link Table} view returned by {@link
+ * #asTable}.
+ *
+ * @author Louis Wasserman
+ */
+abstract class PrimitiveArrayTable<R, C, V> implements Serializable {
+  final ImmutableList<R> rowList;
+  final ImmutableList<C> columnList;
+  final ImmutableMap<R, Integer> rowKeyToIndex;
+  final ImmutableMap<C, Integer> columnKeyToIndex;
+
+  PrimitiveArrayTable(
+      Iterable<? extends R> rowKeys, Iterable<? extends C> columnKeys) {
+    this.rowList = ImmutableList.copyOf(rowKeys);
+    this.columnList = ImmutableList.copyOf(columnKeys);
+    checkArgument(!rowList.isEmpty());
+    checkArgument(!columnList.isEmpty());
+    // the cells must fit in a single array
+    checkArgument(
+        (long) rowList.size() * columnList.size() <= Integer.MAX_VALUE,
+        "too many cells: %s rows and %s columns",
+        rowList.size(), columnList.size());
+    this.rowKeyToIndex = index(rowList);
+    this.columnKeyToIndex = index(columnList);
+  }
+
+  PrimitiveArrayTable(PrimitiveArrayTable<R, C, ?> table) {
+    this.rowList = table.rowList;
+    this.columnList = table.columnList;
+    this.rowKeyToIndex = table.rowKeyToIndex;
+    this.columnKeyToIndex = table.columnKeyToIndex;
+  }
+
+  private static <E> ImmutableMap<E, Integer> index(List<E> list) {
+    ImmutableMap.Builder<E, Integer> builder = ImmutableMap.builder();
+    for (int i = 0; i < list.size(); i++) {
+      builder.put(list.get(i), i);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns, as an immutable list, the row keys provided when the table was
+   * constructed.
+   */
+  public ImmutableList<R> rowKeyList() {
+    return rowList;
+  }
+
+  /**
+   * Returns, as an immutable list, the column keys provided when the table was
+   * constructed.
+   */
+  public ImmutableList<C> columnKeyList() {
+    return columnList;
+  }
+
+  /**
+   * Returns an immutable map from each row key to its position in {@link
+   * #rowKeyList}, suitable as the {@code rowIndex} argument of the
+   * index-based methods of this table.
+   */
+  public ImmutableMap<R, Integer> rowKeyToIndex() {
+    return rowKeyToIndex;
+  }
+
+  /**
+   * Returns an immutable map from each column key to its position in {@link
+   * #columnKeyList}, suitable as the {@code columnIndex} argument of the
+   * index-based methods of this table.
+   */
+  public ImmutableMap<C, Integer> columnKeyToIndex() {
+    return columnKeyToIndex;
+  }
+
+  /**
+   * Returns the number of cells in the table: the product of the number of
+   * row keys and the number of column keys.
+   */
+  public int size() {
+    return rowList.size() * columnList.size();
+  }
+
+  /**
+   * Returns the position in the flat array of the cell at the specified row
+   * and column indices.
+   */
+  final int index(int rowIndex, int columnIndex) {
+    checkElementIndex(rowIndex, rowList.size());
+    checkElementIndex(columnIndex, columnList.size());
+    return rowIndex * columnList.size() + columnIndex;
+  }
+
+  final int rowIndex(Object rowKey) {
+    Integer rowIndex = rowKeyToIndex.get(checkNotNull(rowKey));
+    checkArgument(rowIndex != null, "Row %s not in %s", rowKey, rowList);
+    return rowIndex;
+  }
+
+  final int columnIndex(Object columnKey) {
+    Integer columnIndex = columnKeyToIndex.get(checkNotNull(columnKey));
+    checkArgument(columnIndex != null,
+        "Column %s not in %s", columnKey, columnList);
+    return columnIndex;
+  }
+
+  /** Returns the boxed value at the specified position of the flat array. */
+  abstract V getBoxed(int index);
+
+  /**
+   * Stores the unboxed {@code value} at the specified position of the flat
+   * array, and returns the boxed previous value.
+   */
+  abstract V setBoxed(int index, V value);
+
+  private transient Table<R, C, V> asTable;
+
+  /**
+   * Returns a {@link Table} view of this table, whose values are the boxed
+   * values of the cells. Changes to the view write through to this table, and
+   * vice versa. The view is fixed-size, in the manner of {@link ArrayTable}:
+   * it contains a cell for every row key and column key, and {@code remove}
+   * and {@code clear} are not supported by it or its views. Null values are
+   * not permitted.
+   *
+   * <p>Each read through the view boxes the value of a cell; prefer the
+   * index-based methods of this table when performance matters.
+   */
+  public Table<R, C, V> asTable() {
+    Table<R, C, V> result = asTable;
+    return (result == null) ? asTable = new TableView() : result;
+  }
+
+  /**
+   * Returns the string representation {@code asTable().toString()}.
+   */
+  @Override public String toString() {
+    return asTable().toString();
+  }
+
+  private abstract static class ArrayMap<K, V>
+      extends Maps.ImprovedAbstractMap<K, V> {
+    private final ImmutableMap<K, Integer> keyIndex;
+
+    ArrayMap(ImmutableMap<K, Integer> keyIndex) {
+      this.keyIndex = keyIndex;
+    }
+
+    abstract String getKeyRole();
+
+    abstract V getValue(int index);
+
+    abstract V setValue(int index, V newValue);
+
+    @Override public Set<K> keySet() {
+      return keyIndex.keySet();
+    }
+
+    @Override public int size() {
+      return keyIndex.size();
+    }
+
+    @Override public boolean isEmpty() {
+      return keyIndex.isEmpty();
+    }
+
+    @Override public boolean containsKey(@Nullable Object key) {
+      return keyIndex.containsKey(key);
+    }
+
+    @Override public V get(@Nullable Object key) {
+      Integer index = keyIndex.get(key);
+      return (index == null) ? null : getValue(index);
+    }
+
+    @Override public V put(K key, V value) {
+      Integer index = keyIndex.get(key);
+      if (index == null) {
+        throw new IllegalArgumentException(
+            getKeyRole() + " " + key + " not in " + keyIndex.keySet());
+      }
+      return setValue(index, value);
+    }
+
+    @Override public V remove(Object key) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public void clear() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override protected Set<Entry<K, V>> createEntrySet() {
+      return new Maps.EntrySet<K, V>() {
+        @Override Map<K, V> map() {
+          return ArrayMap.this;
+        }
+
+        @Override public Iterator<Entry<K, V>> iterator() {
+          return new AbstractIndexedListIterator<Entry<K, V>>(size()) {
+            @Override protected Entry<K, V> get(final int index) {
+              return new AbstractMapEntry<K, V>() {
+                @Override public K getKey() {
+                  return keyIndex.keySet().asList().get(index);
+                }
+
+                @Override public V getValue() {
+                  return ArrayMap.this.getValue(index);
+                }
+
+                @Override public V setValue(V value) {
+                  return ArrayMap.this.setValue(index, value);
+                }
+              };
+            }
+          };
+        }
+      };
+    }
+  }
+
+  private final class TableView implements Table<R, C, V> {
+    @Override public boolean contains(
+        @Nullable Object rowKey, @Nullable Object columnKey) {
+      return containsRow(rowKey) && containsColumn(columnKey);
+    }
+
+    @Override public boolean containsRow(@Nullable Object rowKey) {
+      return rowKeyToIndex.containsKey(rowKey);
+    }
+
+    @Override public boolean containsColumn(@Nullable Object columnKey) {
+      return columnKeyToIndex.containsKey(columnKey);
+    }
+
+    @Override public boolean containsValue(@Nullable Object value) {
+      if (value == null) {
+        return false;
+      }
+      for (int i = 0; i < size(); i++) {
+        if (value.equals(getBoxed(i))) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override public V get(
+        @Nullable Object rowKey, @Nullable Object columnKey) {
+      Integer rowIndex = rowKeyToIndex.get(rowKey);
+      Integer columnIndex = columnKeyToIndex.get(columnKey);
+      return (rowIndex == null || columnIndex == null)
+          ? null : getBoxed(index(rowIndex, columnIndex));
+    }
+
+    @Override public boolean isEmpty() {
+      return false;
+    }
+
+    @Override public int size() {
+      return PrimitiveArrayTable.this.size();
+    }
+
+    @Override public void clear() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public V put(R rowKey, C columnKey, V value) {
+      checkNotNull(value);
+      return setBoxed(index(rowIndex(rowKey), columnIndex(columnKey)), value);
+    }
+
+    @Override public void putAll(
+        Table<? extends R, ? extends C, ? extends V> table) {
+      for (Cell<? extends R, ? extends C, ? extends V> cell
+          : table.cellSet()) {
+        put(cell.getRowKey(), cell.getColumnKey(), cell.getValue());
+      }
+    }
+
+    @Override public V remove(
+        @Nullable Object rowKey, @Nullable Object columnKey) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public Map<C, V> row(R rowKey) {
+      checkNotNull(rowKey);
+      Integer rowIndex = rowKeyToIndex.get(rowKey);
+      return (rowIndex == null) ? ImmutableMap.<C, V>of() : new Row(rowIndex);
+    }
+
+    @Override public Map<R, V> column(C columnKey) {
+      checkNotNull(columnKey);
+      Integer columnIndex = columnKeyToIndex.get(columnKey);
+      return (columnIndex == null)
+          ? ImmutableMap.<R, V>of() : new Column(columnIndex);
+    }
+
+    @Override public ImmutableSet<R> rowKeySet() {
+      return rowKeyToIndex.keySet();
+    }
+
+    @Override public ImmutableSet<C> columnKeySet() {
+      return columnKeyToIndex.keySet();
+    }
+
+    @Override public Set<Cell<R, C, V>> cellSet() {
+      return new CellSet();
+    }
+
+    @Override public Collection<V> values() {
+      return new AbstractCollection<V>() {
+        @Override public Iterator<V> iterator() {
+          return new AbstractIndexedListIterator<V>(size()) {
+            @Override protected V get(int index) {
+              return getBoxed(index);
+            }
+          };
+        }
+
+        @Override public int size() {
+          return PrimitiveArrayTable.this.size();
+        }
+      };
+    }
+
+    @Override public Map<R, Map<C, V>> rowMap() {
+      return new ArrayMap<R, Map<C, V>>(rowKeyToIndex) {
+        @Override String getKeyRole() {
+          return "Row";
+        }
+
+        @Override Map<C, V> getValue(int index) {
+          return new Row(index);
+        }
+
+        @Override Map<C, V> setValue(int index, Map<C, V> newValue) {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override public Map<C, Map<R, V>> columnMap() {
+      return new ArrayMap<C, Map<R, V>>(columnKeyToIndex) {
+        @Override String getKeyRole() {
+          return "Column";
+        }
+
+        @Override Map<R, V> getValue(int index) {
+          return new Column(index);
+        }
+
+        @Override Map<R, V> setValue(int index, Map<R, V> newValue) {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    @Override public boolean equals(@Nullable Object obj) {
+      if (obj instanceof Table) {
+        Table<?, ?, ?> other = (Table<?, ?, ?>) obj;
+        return cellSet().equals(other.cellSet());
+      }
+      return false;
+    }
+
+    @Override public int hashCode() {
+      return cellSet().hashCode();
+    }
+
+    @Override public String toString() {
+      return rowMap().toString();
+    }
+  }
+
+  private final class CellSet extends AbstractSet<Table.Cell<R, C, V>> {
+    @Override public Iterator<Table.Cell<R, C, V>> iterator() {
+      return new AbstractIndexedListIterator<Table.Cell<R, C, V>>(size()) {
+        @Override protected Table.Cell<R, C, V> get(final int index) {
+          return new Tables.AbstractCell<R, C, V>() {
+            @Override public R getRowKey() {
+              return rowList.get(index / columnList.size());
+            }
+
+            @Override public C getColumnKey() {
+              return columnList.get(index % columnList.size());
+            }
+
+            @Override public V getValue() {
+              return getBoxed(index);
+            }
+          };
+        }
+      };
+    }
+
+    @Override public int size() {
+      return PrimitiveArrayTable.this.size();
+    }
+
+    @Override public boolean contains(@Nullable Object obj) {
+      if (obj instanceof Table.Cell) {
+        Table.Cell<?, ?, ?> cell = (Table.Cell<?, ?, ?>) obj;
+        Integer rowIndex = rowKeyToIndex.get(cell.getRowKey());
+        Integer columnIndex = columnKeyToIndex.get(cell.getColumnKey());
+        return rowIndex != null && columnIndex != null
+            && getBoxed(index(rowIndex, columnIndex)).equals(cell.getValue());
+      }
+      return false;
+    }
+  }
+
+  private final class Row extends ArrayMap<C, V> {
+    final int rowIndex;
+
+    Row(int rowIndex) {
+      super(columnKeyToIndex);
+      this.rowIndex = rowIndex;
+    }
+
+    @Override String getKeyRole() {
+      return "Column";
+    }
+
+    @Override V getValue(int index) {
+      return getBoxed(index(rowIndex, index));
+    }
+
+    @Override V setValue(int index, V newValue) {
+      return setBoxed(index(rowIndex, index), checkNotNull(newValue));
+    }
+  }
+
+  private final class Column extends ArrayMap<R, V> {
+    final int columnIndex;
+
+    Column(int columnIndex) {
+      super(rowKeyToIndex);
+      this.columnIndex = columnIndex;
+    }
+
+    @Override String getKeyRole() {
+      return "Row";
+    }
+
+    @Override V getValue(int index) {
+      return getBoxed(index(index, columnIndex));
+    }
+
+    @Override V setValue(int index, V newValue) {
+      return setBoxed(index(index, columnIndex), checkNotNull(newValue));
+    }
+  }
+
+  private static final long serialVersionUID = 0;
+}
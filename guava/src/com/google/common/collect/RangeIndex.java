@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.annotations.GwtCompatible;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable collection of possibly overlapping {@linkplain Range ranges}, each associated with a
+ * value, that efficiently finds the ranges containing a point or overlapping a range. Unlike a
+ * {@code RangeSet}, a {@code RangeIndex} keeps each of its ranges distinct: it answers <i>which</i>
+ * of the stored ranges match a query, not merely whether any of them do. The same range may be
+ * stored several times, with the same or different values.
+ *
+ * <p>The index is a static <i>interval tree</i>: the entries are sorted by lower bound into an
+ * array, which is treated as an implicit balanced binary search tree in which each node also
+ * records the greatest upper bound in its subtree. A query visits only the subtrees that may
+ * contain a match, so that finding {@code m} matches among {@code n} ranges takes
+ * <i>O(min(n, (m + 1) log n))</i> time, rather than the <i>O(n)</i> of a linear scan. Building the
+ * index takes <i>O(n log n)</i> time.
+ *
+ * <p>Query results are returned in increasing order of the lower bounds of their ranges. Empty
+ * ranges may be stored, but never match a query.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+@GwtCompatible
+@SuppressWarnings("rawtypes")
+public final class RangeIndex<C extends Comparable, V> {
+  /**
+   * Returns a new builder for a {@code RangeIndex}.
+   */
+  public static <C extends Comparable<?>, V> Builder<C, V> builder() {
+    return new Builder<C, V>();
+  }
+
+  /**
+   * Returns an index of the entries of {@code multimap}.
+   *
+   * @throws NullPointerException if any range or value in {@code multimap} is null
+   */
+  public static <C extends Comparable<?>, V> RangeIndex<C, V> copyOf(
+      Multimap<Range<C>, ? extends V> multimap) {
+    return RangeIndex.<C, V>builder().putAll(multimap).build();
+  }
+
+  /**
+   * A builder for a {@link RangeIndex}. Entries may be added in any order.
+   *
+   * @since 14.0
+   */
+  @Beta
+  public static final class Builder<C extends Comparable, V> {
+    private final List<Entry<Range<C>, V>> entries = Lists.newArrayList();
+
+    Builder() {}
+
+    /**
+     * Adds an entry associating {@code range} with {@code value}.
+     */
+    public Builder<C, V> put(Range<C> range, V value) {
+      entries.add(Maps.immutableEntry(checkNotNull(range), checkNotNull(value)));
+      return this;
+    }
+
+    /**
+     * Adds each of the entries of {@code multimap}.
+     */
+    public Builder<C, V> putAll(Multimap<Range<C>, ? extends V> multimap) {
+      for (Entry<Range<C>, ? extends V> entry : multimap.entries()) {
+        put(entry.getKey(), entry.getValue());
+      }
+      return this;
+    }
+
+    /**
+     * Returns a newly-created index of the entries added to this builder.
+     */
+    public RangeIndex<C, V> build() {
+      return new RangeIndex<C, V>(entries);
+    }
+  }
+
+  private static final Comparator<Entry<Range<?>, ?>> LOWER_BOUND_ORDER =
+      new Comparator<Entry<Range<?>, ?>>() {
+        @SuppressWarnings("unchecked") // bounds of the ranges of one index are mutually comparable
+        @Override
+        public int compare(Entry<Range<?>, ?> a, Entry<Range<?>, ?> b) {
+          return ((Cut) a.getKey().lowerBound).compareTo(b.getKey().lowerBound);
+        }
+      };
+
+  /** The nonempty entries, sorted by lower bound, followed by the empty ones. */
+  private final ImmutableList<Entry<Range<C>, V>> entries;
+
+  /** The number of nonempty entries, which make up the tree. */
+  private final int treeSize;
+
+  private final Cut<C>[] lowerBounds;
+  private final Cut<C>[] upperBounds;
+
+  /**
+   * The greatest upper bound in the subtree rooted at each node. The subtree of the index range
+   * {@code [from, to)} is rooted at {@code (from + to) >>> 1}, with the subtrees of {@code [from,
+   * root)} and {@code [root + 1, to)} as its children.
+   */
+  private final Cut<C>[] maxUpperBounds;
+
+  @SuppressWarnings("unchecked") // arrays of Cut<C>, which is erased to Cut
+  private RangeIndex(List<Entry<Range<C>, V>> unsorted) {
+    List<Entry<Range<C>, V>> nonEmpty = Lists.newArrayListWithCapacity(unsorted.size());
+    List<Entry<Range<C>, V>> empty = Lists.newArrayList();
+    for (Entry<Range<C>, V> entry : unsorted) {
+      (entry.getKey().isEmpty() ? empty : nonEmpty).add(entry);
+    }
+    Collections.sort(nonEmpty, (Comparator) LOWER_BOUND_ORDER);
+    treeSize = nonEmpty.size();
+    lowerBounds = new Cut[treeSize];
+    upperBounds = new Cut[treeSize];
+    maxUpperBounds = new Cut[treeSize];
+    for (int i = 0; i < treeSize; i++) {
+      Range<C> range = nonEmpty.get(i).getKey();
+      lowerBounds[i] = range.lowerBound;
+      upperBounds[i] = range.upperBound;
+    }
+    computeMaxUpperBounds(0, treeSize);
+    nonEmpty.addAll(empty);
+    entries = ImmutableList.copyOf(nonEmpty);
+  }
+
+  /**
+   * Fills in {@link #maxUpperBounds} for the subtree of {@code [from, to)}, and returns the
+   * greatest upper bound in it, or {@code null} if it is empty.
+   */
+  private Cut<C> computeMaxUpperBounds(int from, int to) {
+    if (from >= to) {
+      return null;
+    }
+    int root = (from + to) >>> 1;
+    Cut<C> max = upperBounds[root];
+    Cut<C> left = computeMaxUpperBounds(from, root);
+    if (left != null && left.compareTo(max) > 0) {
+      max = left;
+    }
+    Cut<C> right = computeMaxUpperBounds(root + 1, to);
+    if (right != null && right.compareTo(max) > 0) {
+      max = right;
+    }
+    maxUpperBounds[root] = max;
+    return max;
+  }
+
+  /**
+   * Returns the number of entries in this index.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Returns {@code true} if this index contains no entries.
+   */
+  public boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  /**
+   * Returns all of the entries of this index. The entries with nonempty ranges come first, in
+   * increasing order of lower bound.
+   */
+  public ImmutableList<Entry<Range<C>, V>> entries() {
+    return entries;
+  }
+
+  /**
+   * Returns the entries whose ranges {@linkplain Range#contains contain} {@code value}.
+   */
+  public ImmutableList<Entry<Range<C>, V>> entriesContaining(C value) {
+    return entriesOverlapping(Ranges.singleton(value));
+  }
+
+  /**
+   * Returns the values of the entries whose ranges {@linkplain Range#contains contain} {@code
+   * value}.
+   */
+  public ImmutableList<V> valuesContaining(C value) {
+    return valuesOverlapping(Ranges.singleton(value));
+  }
+
+  /**
+   * Returns the entries whose ranges overlap {@code range}: that is, whose intersections with
+   * {@code range} are {@linkplain Range#isConnected defined} and nonempty.
+   */
+  public ImmutableList<Entry<Range<C>, V>> entriesOverlapping(Range<C> range) {
+    ImmutableList.Builder<Entry<Range<C>, V>> builder = ImmutableList.builder();
+    if (!range.isEmpty()) {
+      collectOverlapping(0, treeSize, range.lowerBound, range.upperBound, builder, true);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Returns the values of the entries whose ranges overlap {@code range}: that is, whose
+   * intersections with {@code range} are {@linkplain Range#isConnected defined} and nonempty.
+   */
+  public ImmutableList<V> valuesOverlapping(Range<C> range) {
+    ImmutableList.Builder<V> builder = ImmutableList.builder();
+    if (!range.isEmpty()) {
+      collectOverlapping(0, treeSize, range.lowerBound, range.upperBound, builder, false);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Adds to {@code builder} the entries, or their values, of the subtree of {@code [from, to)}
+   * whose ranges overlap {@code [lower, upper)}: that is, those with a lower bound below {@code
+   * upper} and an upper bound above {@code lower}.
+   */
+  @SuppressWarnings("unchecked") // builder accepts entries or values, as selected
+  private void collectOverlapping(int from, int to, Cut<C> lower, Cut<C> upper,
+      ImmutableList.Builder builder, boolean addEntries) {
+    while (from < to) {
+      int root = (from + to) >>> 1;
+      if (maxUpperBounds[root].compareTo(lower) <= 0) {
+        // No range in this subtree reaches past lower.
+        return;
+      }
+      collectOverlapping(from, root, lower, upper, builder, addEntries);
+      if (lowerBounds[root].compareTo(upper) >= 0) {
+        // Neither this range nor any to its right starts below upper.
+        return;
+      }
+      if (upperBounds[root].compareTo(lower) > 0) {
+        Entry<Range<C>, V> entry = entries.get(root);
+        builder.add(addEntries ? entry : entry.getValue());
+      }
+      from = root + 1;
+    }
+  }
+
+  /**
+   * Returns {@code true} if {@code object} is a {@code RangeIndex} with equal {@linkplain
+   * #entries entries} in the same order.
+   */
+  @Override
+  public boolean equals(@Nullable Object object) {
+    return object instanceof RangeIndex && entries.equals(((RangeIndex<?, ?>) object).entries);
+  }
+
+  @Override
+  public int hashCode() {
+    return entries.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return entries.toString();
+  }
+}
@@ -0,0 +1,1596 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.GwtIncompatible;
+import com.google.common.base.Supplier;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Collection views guarded by a {@link ReadWriteLock}: the counterparts of
+ * {@link Synchronized} for data that is read far more often than it is
+ * written. Query methods hold the read lock, so that any number of them may
+ * run at once, and mutators hold the write lock. The returned views are
+ * serializable if the backing collection and the lock are serializable.
+ *
+ * <p>Each view is guarded by a {@link Guard}. An {@link OptimisticGuard} also
+ * lets the cheapest queries run without taking the lock at all: it keeps a
+ * version number, which every write advances, and a query that sees the same
+ * even version before and after it ran is known not to have overlapped a
+ * write. Otherwise, including when the query throws an exception, it is run
+ * again under the read lock. The version is checked after the query with a
+ * compare-and-set rather than a volatile read, so that the reads of the query
+ * cannot be reordered after the check: a result that is kept saw no part of
+ * any write. Only point queries are attempted optimistically, since they read
+ * little of the backing collection.
+ *
+ * <p>This class should be used by other collection classes only.
+ *
+ * @author Louis Wasserman
+ */
+@GwtIncompatible("java.util.concurrent.locks")
+final class ReadWriteLocked {
+  private ReadWriteLocked() {}
+
+  /**
+   * Returned by {@link Guard#tryOptimisticRead} when a query must take the
+   * read lock.
+   */
+  static final long NO_STAMP = -1;
+
+  /** Controls access to a collection and all of its views. */
+  static class Guard implements Serializable {
+    final ReadWriteLock lock;
+
+    Guard(ReadWriteLock lock) {
+      this.lock = checkNotNull(lock);
+    }
+
+    final void lockRead() {
+      lock.readLock().lock();
+    }
+
+    final void unlockRead() {
+      lock.readLock().unlock();
+    }
+
+    void lockWrite() {
+      lock.writeLock().lock();
+    }
+
+    void unlockWrite() {
+      lock.writeLock().unlock();
+    }
+
+    /**
+     * Returns a stamp with which to {@linkplain #validate validate} a query
+     * run without the lock, or {@link #NO_STAMP} if the query must take it.
+     */
+    long tryOptimisticRead() {
+      return NO_STAMP;
+    }
+
+    /**
+     * Returns {@code true} if no write has begun since {@code stamp} was
+     * issued.
+     */
+    boolean validate(long stamp) {
+      return false;
+    }
+
+    /**
+     * Returns the result of {@code query}, which may only read the guarded
+     * collection. The query is first run without the lock, if this guard
+     * allows it, and is run again under the read lock if that attempt
+     * overlapped a write or threw an exception. Queries that return a
+     * primitive inline these steps instead, so that they neither allocate a
+     * supplier nor box their result.
+     */
+    final <T> T read(Supplier<T> query) {
+      long stamp = tryOptimisticRead();
+      if (stamp != NO_STAMP) {
+        try {
+          T result = query.get();
+          if (validate(stamp)) {
+            return result;
+          }
+        } catch (RuntimeException raced) {
+          // retry under the lock, which rethrows if the exception was genuine
+        }
+      }
+      lockRead();
+      try {
+        return query.get();
+      } finally {
+        unlockRead();
+      }
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  /**
+   * A guard that lets point queries run without the lock, and validates them
+   * against a version number instead.
+   */
+  static final class OptimisticGuard extends Guard {
+    /*
+     * The version is odd while a write is in progress. It is advanced with
+     * atomic increments, rather than volatile writes, so that the writes to
+     * the collection cannot become visible before the version turns odd.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    // The number of nested write locks held; guarded by the write lock.
+    private transient int writeDepth;
+
+    OptimisticGuard(ReadWriteLock lock) {
+      super(lock);
+    }
+
+    @Override void lockWrite() {
+      super.lockWrite();
+      if (writeDepth++ == 0) {
+        version.incrementAndGet();
+      }
+    }
+
+    @Override void unlockWrite() {
+      if (--writeDepth == 0) {
+        version.incrementAndGet();
+      }
+      super.unlockWrite();
+    }
+
+    @Override long tryOptimisticRead() {
+      long stamp = version.get();
+      return ((stamp & 1) == 0) ? stamp : NO_STAMP;
+    }
+
+    /*
+     * Unlike a volatile read, a compare-and-set is also a volatile write, so
+     * that the reads of the query happen-before any write that starts after
+     * it. If it succeeds, every write to the collection either finished
+     * before the stamp was read or starts after the query, and the query saw
+     * a consistent state.
+     */
+    @Override boolean validate(long stamp) {
+      return version.compareAndSet(stamp, stamp);
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  static class LockedObject implements Serializable {
+    final Object delegate;
+    final Guard guard;
+
+    LockedObject(Object delegate, Guard guard) {
+      this.delegate = checkNotNull(delegate);
+      this.guard = checkNotNull(guard);
+    }
+
+    Object delegate() {
+      return delegate;
+    }
+
+    // No equals and hashCode; see ForwardingObject for details.
+
+    @Override public String toString() {
+      guard.lockRead();
+      try {
+        return delegate.toString();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    private void writeObject(ObjectOutputStream stream) throws IOException {
+      guard.lockRead();
+      try {
+        stream.defaultWriteObject();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  /**
+   * An iterator that must be used while holding the read lock, or the write
+   * lock if elements are removed through it, and whose {@code remove} method
+   * advances the version of an optimistic guard.
+   */
+  private static class LockedIterator<E> extends ForwardingIterator<E> {
+    final Iterator<E> delegate;
+    final Guard guard;
+
+    LockedIterator(Iterator<E> delegate, Guard guard) {
+      this.delegate = delegate;
+      this.guard = guard;
+    }
+
+    @Override protected Iterator<E> delegate() {
+      return delegate;
+    }
+
+    @Override public void remove() {
+      guard.lockWrite();
+      try {
+        delegate.remove();
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+  }
+
+  private static class LockedListIterator<E> extends ForwardingListIterator<E> {
+    final ListIterator<E> delegate;
+    final Guard guard;
+
+    LockedListIterator(ListIterator<E> delegate, Guard guard) {
+      this.delegate = delegate;
+      this.guard = guard;
+    }
+
+    @Override protected ListIterator<E> delegate() {
+      return delegate;
+    }
+
+    @Override public void add(E element) {
+      guard.lockWrite();
+      try {
+        delegate.add(element);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override public void remove() {
+      guard.lockWrite();
+      try {
+        delegate.remove();
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override public void set(E element) {
+      guard.lockWrite();
+      try {
+        delegate.set(element);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+  }
+
+  private static <E> Collection<E> collection(
+      Collection<E> collection, Guard guard) {
+    return new LockedCollection<E>(collection, guard);
+  }
+
+  static class LockedCollection<E>
+      extends LockedObject implements Collection<E> {
+    LockedCollection(Collection<E> delegate, Guard guard) {
+      super(delegate, guard);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override Collection<E> delegate() {
+      return (Collection<E>) super.delegate();
+    }
+
+    @Override
+    public boolean add(E e) {
+      guard.lockWrite();
+      try {
+        return delegate().add(e);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+      guard.lockWrite();
+      try {
+        return delegate().addAll(c);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public void clear() {
+      guard.lockWrite();
+      try {
+        delegate().clear();
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      long stamp = guard.tryOptimisticRead();
+      if (stamp != NO_STAMP) {
+        try {
+          boolean result = delegate().contains(o);
+          if (guard.validate(stamp)) {
+            return result;
+          }
+        } catch (RuntimeException raced) {
+          // retry under the lock, which rethrows if the exception was genuine
+        }
+      }
+      guard.lockRead();
+      try {
+        return delegate().contains(o);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+      guard.lockRead();
+      try {
+        return delegate().containsAll(c);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public boolean isEmpty() {
+      long stamp = guard.tryOptimisticRead();
+      if (stamp != NO_STAMP) {
+        try {
+          boolean result = delegate().isEmpty();
+          if (guard.validate(stamp)) {
+            return result;
+          }
+        } catch (RuntimeException raced) {
+          // retry under the lock, which rethrows if the exception was genuine
+        }
+      }
+      guard.lockRead();
+      try {
+        return delegate().isEmpty();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+      // manually locked
+      return new LockedIterator<E>(delegate().iterator(), guard);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      guard.lockWrite();
+      try {
+        return delegate().remove(o);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+      guard.lockWrite();
+      try {
+        return delegate().removeAll(c);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+      guard.lockWrite();
+      try {
+        return delegate().retainAll(c);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public int size() {
+      long stamp = guard.tryOptimisticRead();
+      if (stamp != NO_STAMP) {
+        try {
+          int result = delegate().size();
+          if (guard.validate(stamp)) {
+            return result;
+          }
+        } catch (RuntimeException raced) {
+          // retry under the lock, which rethrows if the exception was genuine
+        }
+      }
+      guard.lockRead();
+      try {
+        return delegate().size();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public Object[] toArray() {
+      guard.lockRead();
+      try {
+        return delegate().toArray();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+      guard.lockRead();
+      try {
+        return delegate().toArray(a);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static <E> Set<E> set(Set<E> set, Guard guard) {
+    return new LockedSet<E>(set, guard);
+  }
+
+  static class LockedSet<E> extends LockedCollection<E> implements Set<E> {
+    LockedSet(Set<E> delegate, Guard guard) {
+      super(delegate, guard);
+    }
+
+    @Override Set<E> delegate() {
+      return (Set<E>) super.delegate();
+    }
+
+    @Override public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      guard.lockRead();
+      try {
+        return delegate().equals(o);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override public int hashCode() {
+      guard.lockRead();
+      try {
+        return delegate().hashCode();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static <E> SortedSet<E> sortedSet(SortedSet<E> set, Guard guard) {
+    return new LockedSortedSet<E>(set, guard);
+  }
+
+  static class LockedSortedSet<E> extends LockedSet<E>
+      implements SortedSet<E> {
+    LockedSortedSet(SortedSet<E> delegate, Guard guard) {
+      super(delegate, guard);
+    }
+
+    @Override SortedSet<E> delegate() {
+      return (SortedSet<E>) super.delegate();
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+      guard.lockRead();
+      try {
+        return delegate().comparator();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement) {
+      guard.lockRead();
+      try {
+        return sortedSet(delegate().subSet(fromElement, toElement), guard);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement) {
+      guard.lockRead();
+      try {
+        return sortedSet(delegate().headSet(toElement), guard);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement) {
+      guard.lockRead();
+      try {
+        return sortedSet(delegate().tailSet(fromElement), guard);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public E first() {
+      guard.lockRead();
+      try {
+        return delegate().first();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public E last() {
+      guard.lockRead();
+      try {
+        return delegate().last();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static <E> List<E> list(List<E> list, Guard guard) {
+    return (list instanceof RandomAccess)
+        ? new LockedRandomAccessList<E>(list, guard)
+        : new LockedList<E>(list, guard);
+  }
+
+  private static class LockedList<E> extends LockedCollection<E>
+      implements List<E> {
+    LockedList(List<E> delegate, Guard guard) {
+      super(delegate, guard);
+    }
+
+    @Override List<E> delegate() {
+      return (List<E>) super.delegate();
+    }
+
+    @Override
+    public void add(int index, E element) {
+      guard.lockWrite();
+      try {
+        delegate().add(index, element);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends E> c) {
+      guard.lockWrite();
+      try {
+        return delegate().addAll(index, c);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public E get(int index) {
+      guard.lockRead();
+      try {
+        return delegate().get(index);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public int indexOf(Object o) {
+      guard.lockRead();
+      try {
+        return delegate().indexOf(o);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+      guard.lockRead();
+      try {
+        return delegate().lastIndexOf(o);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public ListIterator<E> listIterator() {
+      // manually locked
+      return new LockedListIterator<E>(delegate().listIterator(), guard);
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+      // manually locked
+      return new LockedListIterator<E>(delegate().listIterator(index), guard);
+    }
+
+    @Override
+    public E remove(int index) {
+      guard.lockWrite();
+      try {
+        return delegate().remove(index);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public E set(int index, E element) {
+      guard.lockWrite();
+      try {
+        return delegate().set(index, element);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public List<E> subList(int fromIndex, int toIndex) {
+      guard.lockRead();
+      try {
+        return list(delegate().subList(fromIndex, toIndex), guard);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      guard.lockRead();
+      try {
+        return delegate().equals(o);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override public int hashCode() {
+      guard.lockRead();
+      try {
+        return delegate().hashCode();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static class LockedRandomAccessList<E>
+      extends LockedList<E> implements RandomAccess {
+    LockedRandomAccessList(List<E> list, Guard guard) {
+      super(list, guard);
+    }
+    private static final long serialVersionUID = 0;
+  }
+
+  private static class LockedMultiset<E> extends LockedCollection<E>
+      implements Multiset<E> {
+    transient Set<E> elementSet;
+    transient Set<Multiset.Entry<E>> entrySet;
+
+    LockedMultiset(Multiset<E> delegate, Guard guard) {
+      super(delegate, guard);
+    }
+
+    @Override Multiset<E> delegate() {
+      return (Multiset<E>) super.delegate();
+    }
+
+    @Override
+    public int count(Object o) {
+      guard.lockRead();
+      try {
+        return delegate().count(o);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public int add(E e, int n) {
+      guard.lockWrite();
+      try {
+        return delegate().add(e, n);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public int remove(Object o, int n) {
+      guard.lockWrite();
+      try {
+        return delegate().remove(o, n);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public int setCount(E element, int count) {
+      guard.lockWrite();
+      try {
+        return delegate().setCount(element, count);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public boolean setCount(E element, int oldCount, int newCount) {
+      guard.lockWrite();
+      try {
+        return delegate().setCount(element, oldCount, newCount);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public Set<E> elementSet() {
+      guard.lockRead();
+      try {
+        if (elementSet == null) {
+          elementSet = set(delegate().elementSet(), guard);
+        }
+        return elementSet;
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public Set<Multiset.Entry<E>> entrySet() {
+      guard.lockRead();
+      try {
+        if (entrySet == null) {
+          entrySet = set(delegate().entrySet(), guard);
+        }
+        return entrySet;
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      guard.lockRead();
+      try {
+        return delegate().equals(o);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override public int hashCode() {
+      guard.lockRead();
+      try {
+        return delegate().hashCode();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  static <K, V> Multimap<K, V> multimap(
+      Multimap<K, V> multimap, Guard guard) {
+    if (multimap instanceof ImmutableMultimap) {
+      return multimap;
+    }
+    return new LockedMultimap<K, V>(multimap, guard);
+  }
+
+  private static class LockedMultimap<K, V> extends LockedObject
+      implements Multimap<K, V> {
+    transient Set<K> keySet;
+    transient Collection<V> valuesCollection;
+    transient Collection<Map.Entry<K, V>> entries;
+    transient Map<K, Collection<V>> asMap;
+    transient Multiset<K> keys;
+
+    @SuppressWarnings("unchecked")
+    @Override Multimap<K, V> delegate() {
+      return (Multimap<K, V>) super.delegate();
+    }
+
+    LockedMultimap(Multimap<K, V> delegate, Guard guard) {
+      super(delegate, guard);
+    }
+
+    @Override
+    public int size() {
+      long stamp = guard.tryOptimisticRead();
+      if (stamp != NO_STAMP) {
+        try {
+          int result = delegate().size();
+          if (guard.validate(stamp)) {
+            return result;
+          }
+        } catch (RuntimeException raced) {
+          // retry under the lock, which rethrows if the exception was genuine
+        }
+      }
+      guard.lockRead();
+      try {
+        return delegate().size();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public boolean isEmpty() {
+      long stamp = guard.tryOptimisticRead();
+      if (stamp != NO_STAMP) {
+        try {
+          boolean result = delegate().isEmpty();
+          if (guard.validate(stamp)) {
+            return result;
+          }
+        } catch (RuntimeException raced) {
+          // retry under the lock, which rethrows if the exception was genuine
+        }
+      }
+      guard.lockRead();
+      try {
+        return delegate().isEmpty();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      long stamp = guard.tryOptimisticRead();
+      if (stamp != NO_STAMP) {
+        try {
+          boolean result = delegate().containsKey(key);
+          if (guard.validate(stamp)) {
+            return result;
+          }
+        } catch (RuntimeException raced) {
+          // retry under the lock, which rethrows if the exception was genuine
+        }
+      }
+      guard.lockRead();
+      try {
+        return delegate().containsKey(key);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+      guard.lockRead();
+      try {
+        return delegate().containsValue(value);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public boolean containsEntry(Object key, Object value) {
+      long stamp = guard.tryOptimisticRead();
+      if (stamp != NO_STAMP) {
+        try {
+          boolean result = delegate().containsEntry(key, value);
+          if (guard.validate(stamp)) {
+            return result;
+          }
+        } catch (RuntimeException raced) {
+          // retry under the lock, which rethrows if the exception was genuine
+        }
+      }
+      guard.lockRead();
+      try {
+        return delegate().containsEntry(key, value);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    /** Wraps a collection returned by the backing multimap's {@code get}. */
+    Collection<V> wrap(Collection<V> values) {
+      return typePreservingCollection(values, guard);
+    }
+
+    @Override
+    public Collection<V> get(final K key) {
+      return wrap(guard.read(new Supplier<Collection<V>>() {
+        @Override public Collection<V> get() {
+          return delegate().get(key);
+        }
+      }));
+    }
+
+    @Override
+    public boolean put(K key, V value) {
+      guard.lockWrite();
+      try {
+        return delegate().put(key, value);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public boolean putAll(K key, Iterable<? extends V> values) {
+      guard.lockWrite();
+      try {
+        return delegate().putAll(key, values);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public boolean putAll(Multimap<? extends K, ? extends V> multimap) {
+      guard.lockWrite();
+      try {
+        return delegate().putAll(multimap);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public Collection<V> replaceValues(K key, Iterable<? extends V> values) {
+      guard.lockWrite();
+      try {
+        return delegate().replaceValues(key, values); // copy not locked
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+      guard.lockWrite();
+      try {
+        return delegate().remove(key, value);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public Collection<V> removeAll(Object key) {
+      guard.lockWrite();
+      try {
+        return delegate().removeAll(key); // copy not locked
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public void clear() {
+      guard.lockWrite();
+      try {
+        delegate().clear();
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public Set<K> keySet() {
+      guard.lockRead();
+      try {
+        if (keySet == null) {
+          keySet = set(delegate().keySet(), guard);
+        }
+        return keySet;
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public Collection<V> values() {
+      guard.lockRead();
+      try {
+        if (valuesCollection == null) {
+          valuesCollection = collection(delegate().values(), guard);
+        }
+        return valuesCollection;
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public Collection<Map.Entry<K, V>> entries() {
+      guard.lockRead();
+      try {
+        if (entries == null) {
+          entries = typePreservingCollection(delegate().entries(), guard);
+        }
+        return entries;
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public Map<K, Collection<V>> asMap() {
+      guard.lockRead();
+      try {
+        if (asMap == null) {
+          asMap = new LockedAsMap<K, V>(delegate().asMap(), guard);
+        }
+        return asMap;
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public Multiset<K> keys() {
+      guard.lockRead();
+      try {
+        if (keys == null) {
+          keys = new LockedMultiset<K>(delegate().keys(), guard);
+        }
+        return keys;
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      guard.lockRead();
+      try {
+        return delegate().equals(o);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override public int hashCode() {
+      guard.lockRead();
+      try {
+        return delegate().hashCode();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  static <K, V> ListMultimap<K, V> listMultimap(
+      ListMultimap<K, V> multimap, Guard guard) {
+    if (multimap instanceof ImmutableListMultimap) {
+      return multimap;
+    }
+    return new LockedListMultimap<K, V>(multimap, guard);
+  }
+
+  private static class LockedListMultimap<K, V>
+      extends LockedMultimap<K, V> implements ListMultimap<K, V> {
+    LockedListMultimap(ListMultimap<K, V> delegate, Guard guard) {
+      super(delegate, guard);
+    }
+    @Override ListMultimap<K, V> delegate() {
+      return (ListMultimap<K, V>) super.delegate();
+    }
+    @Override List<V> wrap(Collection<V> values) {
+      return list((List<V>) values, guard);
+    }
+    @Override public List<V> get(K key) {
+      return (List<V>) super.get(key);
+    }
+    @Override public List<V> removeAll(Object key) {
+      return (List<V>) super.removeAll(key);
+    }
+    @Override public List<V> replaceValues(
+        K key, Iterable<? extends V> values) {
+      return (List<V>) super.replaceValues(key, values);
+    }
+    private static final long serialVersionUID = 0;
+  }
+
+  static <K, V> SetMultimap<K, V> setMultimap(
+      SetMultimap<K, V> multimap, Guard guard) {
+    if (multimap instanceof ImmutableSetMultimap) {
+      return multimap;
+    }
+    return new LockedSetMultimap<K, V>(multimap, guard);
+  }
+
+  private static class LockedSetMultimap<K, V>
+      extends LockedMultimap<K, V> implements SetMultimap<K, V> {
+    transient Set<Map.Entry<K, V>> entrySet;
+
+    LockedSetMultimap(SetMultimap<K, V> delegate, Guard guard) {
+      super(delegate, guard);
+    }
+    @Override SetMultimap<K, V> delegate() {
+      return (SetMultimap<K, V>) super.delegate();
+    }
+    @Override Set<V> wrap(Collection<V> values) {
+      return set((Set<V>) values, guard);
+    }
+    @Override public Set<V> get(K key) {
+      return (Set<V>) super.get(key);
+    }
+    @Override public Set<V> removeAll(Object key) {
+      return (Set<V>) super.removeAll(key);
+    }
+    @Override public Set<V> replaceValues(
+        K key, Iterable<? extends V> values) {
+      return (Set<V>) super.replaceValues(key, values);
+    }
+    @Override public Set<Map.Entry<K, V>> entries() {
+      guard.lockRead();
+      try {
+        if (entrySet == null) {
+          entrySet = set(delegate().entries(), guard);
+        }
+        return entrySet;
+      } finally {
+        guard.unlockRead();
+      }
+    }
+    private static final long serialVersionUID = 0;
+  }
+
+  static <K, V> SortedSetMultimap<K, V> sortedSetMultimap(
+      SortedSetMultimap<K, V> multimap, Guard guard) {
+    return new LockedSortedSetMultimap<K, V>(multimap, guard);
+  }
+
+  private static class LockedSortedSetMultimap<K, V>
+      extends LockedSetMultimap<K, V> implements SortedSetMultimap<K, V> {
+    LockedSortedSetMultimap(SortedSetMultimap<K, V> delegate, Guard guard) {
+      super(delegate, guard);
+    }
+    @Override SortedSetMultimap<K, V> delegate() {
+      return (SortedSetMultimap<K, V>) super.delegate();
+    }
+    @Override SortedSet<V> wrap(Collection<V> values) {
+      return sortedSet((SortedSet<V>) values, guard);
+    }
+    @Override public SortedSet<V> get(K key) {
+      return (SortedSet<V>) super.get(key);
+    }
+    @Override public SortedSet<V> removeAll(Object key) {
+      return (SortedSet<V>) super.removeAll(key);
+    }
+    @Override public SortedSet<V> replaceValues(
+        K key, Iterable<? extends V> values) {
+      return (SortedSet<V>) super.replaceValues(key, values);
+    }
+    @Override
+    public Comparator<? super V> valueComparator() {
+      guard.lockRead();
+      try {
+        return delegate().valueComparator();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+    private static final long serialVersionUID = 0;
+  }
+
+  private static <E> Collection<E> typePreservingCollection(
+      Collection<E> collection, Guard guard) {
+    if (collection instanceof SortedSet) {
+      return sortedSet((SortedSet<E>) collection, guard);
+    }
+    if (collection instanceof Set) {
+      return set((Set<E>) collection, guard);
+    }
+    if (collection instanceof List) {
+      return list((List<E>) collection, guard);
+    }
+    return collection(collection, guard);
+  }
+
+  private static class LockedMap<K, V> extends LockedObject
+      implements Map<K, V> {
+    transient Set<K> keySet;
+    transient Collection<V> values;
+    transient Set<Map.Entry<K, V>> entrySet;
+
+    LockedMap(Map<K, V> delegate, Guard guard) {
+      super(delegate, guard);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override Map<K, V> delegate() {
+      return (Map<K, V>) super.delegate();
+    }
+
+    @Override
+    public void clear() {
+      guard.lockWrite();
+      try {
+        delegate().clear();
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      guard.lockRead();
+      try {
+        return delegate().containsKey(key);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+      guard.lockRead();
+      try {
+        return delegate().containsValue(value);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+      guard.lockRead();
+      try {
+        if (entrySet == null) {
+          entrySet = set(delegate().entrySet(), guard);
+        }
+        return entrySet;
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public V get(Object key) {
+      guard.lockRead();
+      try {
+        return delegate().get(key);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public boolean isEmpty() {
+      guard.lockRead();
+      try {
+        return delegate().isEmpty();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public Set<K> keySet() {
+      guard.lockRead();
+      try {
+        if (keySet == null) {
+          keySet = set(delegate().keySet(), guard);
+        }
+        return keySet;
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public V put(K key, V value) {
+      guard.lockWrite();
+      try {
+        return delegate().put(key, value);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+      guard.lockWrite();
+      try {
+        delegate().putAll(map);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public V remove(Object key) {
+      guard.lockWrite();
+      try {
+        return delegate().remove(key);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    @Override
+    public int size() {
+      guard.lockRead();
+      try {
+        return delegate().size();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override
+    public Collection<V> values() {
+      guard.lockRead();
+      try {
+        if (values == null) {
+          values = collection(delegate().values(), guard);
+        }
+        return values;
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      guard.lockRead();
+      try {
+        return delegate().equals(o);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override public int hashCode() {
+      guard.lockRead();
+      try {
+        return delegate().hashCode();
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static class LockedAsMap<K, V>
+      extends LockedMap<K, Collection<V>> {
+    transient Set<Map.Entry<K, Collection<V>>> asMapEntrySet;
+    transient Collection<Collection<V>> asMapValues;
+
+    LockedAsMap(Map<K, Collection<V>> delegate, Guard guard) {
+      super(delegate, guard);
+    }
+
+    @Override public Collection<V> get(Object key) {
+      Collection<V> collection = super.get(key);
+      return (collection == null) ? null
+          : typePreservingCollection(collection, guard);
+    }
+
+    @Override public Set<Map.Entry<K, Collection<V>>> entrySet() {
+      guard.lockRead();
+      try {
+        if (asMapEntrySet == null) {
+          asMapEntrySet =
+              new LockedAsMapEntries<K, V>(delegate().entrySet(), guard);
+        }
+        return asMapEntrySet;
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override public Collection<Collection<V>> values() {
+      guard.lockRead();
+      try {
+        if (asMapValues == null) {
+          asMapValues = new LockedAsMapValues<V>(delegate().values(), guard);
+        }
+        return asMapValues;
+      } finally {
+        guard.unlockRead();
+      }
+    }
+
+    @Override public boolean containsValue(Object o) {
+      // values() and its contains() method are both locked.
+      return values().contains(o);
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static class LockedAsMapEntries<K, V>
+      extends LockedSet<Map.Entry<K, Collection<V>>> {
+    LockedAsMapEntries(
+        Set<Map.Entry<K, Collection<V>>> delegate, Guard guard) {
+      super(delegate, guard);
+    }
+
+    @Override public Iterator<Map.Entry<K, Collection<V>>> iterator() {
+      // Must be manually locked.
+      return new LockedIterator<Map.Entry<K, Collection<V>>>(
+          delegate().iterator(), guard) {
+        @Override public Map.Entry<K, Collection<V>> next() {
+          final Map.Entry<K, Collection<V>> entry = super.next();
+          return new ForwardingMapEntry<K, Collection<V>>() {
+            @Override protected Map.Entry<K, Collection<V>> delegate() {
+              return entry;
+            }
+            @Override public Collection<V> getValue() {
+              return typePreservingCollection(entry.getValue(), guard);
+            }
+          };
+        }
+      };
+    }
+
+    // See Collections.CheckedMap.CheckedEntrySet for details on attacks.
+
+    @Override public Object[] toArray() {
+      guard.lockRead();
+      try {
+        return ObjectArrays.toArrayImpl(delegate());
+      } finally {
+        guard.unlockRead();
+      }
+    }
+    @Override public <T> T[] toArray(T[] array) {
+      guard.lockRead();
+      try {
+        return ObjectArrays.toArrayImpl(delegate(), array);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+    @Override public boolean contains(Object o) {
+      guard.lockRead();
+      try {
+        return Maps.containsEntryImpl(delegate(), o);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+    @Override public boolean containsAll(Collection<?> c) {
+      guard.lockRead();
+      try {
+        return Collections2.containsAllImpl(delegate(), c);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+    @Override public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      guard.lockRead();
+      try {
+        return Sets.equalsImpl(delegate(), o);
+      } finally {
+        guard.unlockRead();
+      }
+    }
+    @Override public boolean remove(Object o) {
+      guard.lockWrite();
+      try {
+        return Maps.removeEntryImpl(delegate(), o);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+    @Override public boolean removeAll(Collection<?> c) {
+      guard.lockWrite();
+      try {
+        return Iterators.removeAll(delegate().iterator(), c);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+    @Override public boolean retainAll(Collection<?> c) {
+      guard.lockWrite();
+      try {
+        return Iterators.retainAll(delegate().iterator(), c);
+      } finally {
+        guard.unlockWrite();
+      }
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+
+  private static class LockedAsMapValues<V>
+      extends LockedCollection<Collection<V>> {
+    LockedAsMapValues(Collection<Collection<V>> delegate, Guard guard) {
+      super(delegate, guard);
+    }
+
+    @Override public Iterator<Collection<V>> iterator() {
+      // Must be manually locked.
+      return new LockedIterator<Collection<V>>(delegate().iterator(), guard) {
+        @Override public Collection<V> next() {
+          return typePreservingCollection(super.next(), guard);
+        }
+      };
+    }
+
+    private static final long serialVersionUID = 0;
+  }
+}
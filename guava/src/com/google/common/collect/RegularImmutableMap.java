@@ -17,15 +17,22 @@
 package com.google.common.collect;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
 
 import com.google.common.annotations.GwtCompatible;
 
+import java.util.Arrays;
+
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.Immutable;
 
 /**
  * Implementation of {@link ImmutableMap} with two or more entries.
  *
+ * <p>Keys and values are stored in a single array, alternating, in insertion
+ * order. Lookups go through an open-addressed table of indices into that
+ * array, probed linearly. No per-entry objects are retained; the entries seen
+ * by {@link #entrySet} are created as they are requested.
+ *
  * @author Jesse Wilson
  * @author Kevin Bourrillion
  * @author Gregory Kick
@@ -33,136 +40,81 @@ import javax.annotation.concurrent.Immutable;
 @GwtCompatible(serializable = true, emulated = true)
 final class RegularImmutableMap<K, V> extends ImmutableMap<K, V> {
 
-  // entries in insertion order
-  private final transient LinkedEntry<K, V>[] entries;
-  // array of linked lists of entries
-  private final transient LinkedEntry<K, V>[] table;
+  // key0, value0, key1, value1, ... in insertion order
+  private final transient Object[] alternatingKeysAndValues;
+  // entry indices in hashed positions, or ABSENT
+  private final transient int[] table;
   // 'and' with an int to get a table index
   private final transient int mask;
   private final transient int keySetHashCode;
 
+  static final int ABSENT = -1;
+
   // TODO(gak): investigate avoiding the creation of ImmutableEntries since we
   // re-copy them anyway.
   RegularImmutableMap(Entry<?, ?>... immutableEntries) {
     int size = immutableEntries.length;
-    entries = createEntryArray(size);
+    alternatingKeysAndValues = new Object[2 * size];
 
-    int tableSize = chooseTableSize(size);
-    table = createEntryArray(tableSize);
+    int tableSize = ImmutableSet.chooseTableSize(size);
+    table = new int[tableSize];
+    Arrays.fill(table, ABSENT);
     mask = tableSize - 1;
 
     int keySetHashCodeMutable = 0;
     for (int entryIndex = 0; entryIndex < size; entryIndex++) {
       // each of our 6 callers carefully put only Entry<K, V>s into the array!
-      @SuppressWarnings("unchecked")
-      Entry<K, V> entry = (Entry<K, V>) immutableEntries[entryIndex];
-      K key = entry.getKey();
+      Entry<?, ?> entry = immutableEntries[entryIndex];
+      Object key = entry.getKey();
       int keyHashCode = key.hashCode();
       keySetHashCodeMutable += keyHashCode;
-      int tableIndex = Hashing.smear(keyHashCode) & mask;
-      @Nullable LinkedEntry<K, V> existing = table[tableIndex];
-      // prepend, not append, so the entries can be immutable
-      LinkedEntry<K, V> linkedEntry =
-          newLinkedEntry(key, entry.getValue(), existing);
-      table[tableIndex] = linkedEntry;
-      entries[entryIndex] = linkedEntry;
-      while (existing != null) {
-        checkArgument(!key.equals(existing.getKey()), "duplicate key: %s", key);
-        existing = existing.next();
+      for (int i = Hashing.smear(keyHashCode); ; i++) {
+        int tableIndex = i & mask;
+        int existing = table[tableIndex];
+        if (existing == ABSENT) {
+          table[tableIndex] = entryIndex;
+          break;
+        }
+        checkArgument(!key.equals(alternatingKeysAndValues[2 * existing]),
+            "duplicate key: %s", key);
       }
+      alternatingKeysAndValues[2 * entryIndex] = key;
+      alternatingKeysAndValues[2 * entryIndex + 1] = entry.getValue();
     }
     keySetHashCode = keySetHashCodeMutable;
   }
 
   /**
-   * Closed addressing tends to perform well even with high load factors.
-   * Being conservative here ensures that the table is still likely to be
-   * relatively sparse (hence it misses fast) while saving space.
-   */
-  private static final double MAX_LOAD_FACTOR = 1.2;
-
-  /**
-   * Give a good hash table size for the given number of keys.
-   *
-   * @param size The number of keys to be inserted. Must be greater than or equal to 2.
-   */
-  private static int chooseTableSize(int size) {
-    // Get the recommended table size.
-    // Round down to the nearest power of 2.
-    int tableSize = Integer.highestOneBit(size);
-    // Check to make sure that we will not exceed the maximum load factor.
-    if ((double) size / tableSize > MAX_LOAD_FACTOR) {
-      tableSize <<= 1;
-      checkArgument(tableSize > 0, "table too large: %s", size);
-    }
-    return tableSize;
-  }
-
-  /**
-   * Creates a {@link LinkedEntry} array to hold parameterized entries. The
-   * result must never be upcast back to LinkedEntry[] (or Object[], etc.), or
-   * allowed to escape the class.
+   * Creates a map from entries already laid out and hashed by {@link
+   * ImmutableMap#streamingBuilder}. Neither array may be modified afterwards.
    */
-  @SuppressWarnings("unchecked") // Safe as long as the javadocs are followed
-  private LinkedEntry<K, V>[] createEntryArray(int size) {
-    return new LinkedEntry[size];
+  RegularImmutableMap(
+      Object[] alternatingKeysAndValues, int[] table, int keySetHashCode) {
+    this.alternatingKeysAndValues = alternatingKeysAndValues;
+    this.table = table;
+    this.mask = table.length - 1;
+    this.keySetHashCode = keySetHashCode;
   }
 
-  private static <K, V> LinkedEntry<K, V> newLinkedEntry(K key, V value,
-      @Nullable LinkedEntry<K, V> next) {
-    return (next == null)
-        ? new TerminalEntry<K, V>(key, value)
-        : new NonTerminalEntry<K, V>(key, value, next);
+  @SuppressWarnings("unchecked") // only K's are stored at even indices
+  K keyAt(int entryIndex) {
+    return (K) alternatingKeysAndValues[2 * entryIndex];
   }
 
-  private interface LinkedEntry<K, V> extends Entry<K, V> {
-    /** Returns the next entry in the list or {@code null} if none exists. */
-    @Nullable LinkedEntry<K, V> next();
-  }
-
-  /** {@code LinkedEntry} implementation that has a next value. */
-  @Immutable
-  @SuppressWarnings("serial") // this class is never serialized
-  private static final class NonTerminalEntry<K, V>
-      extends ImmutableEntry<K, V> implements LinkedEntry<K, V> {
-    final LinkedEntry<K, V> next;
-
-    NonTerminalEntry(K key, V value, LinkedEntry<K, V> next) {
-      super(key, value);
-      this.next = next;
-    }
-
-    @Override public LinkedEntry<K, V> next() {
-      return next;
-    }
-  }
-
-  /**
-   * {@code LinkedEntry} implementation that serves as the last entry in the
-   * list.  I.e. no next entry
-   */
-  @Immutable
-  @SuppressWarnings("serial") // this class is never serialized
-  private static final class TerminalEntry<K, V> extends ImmutableEntry<K, V>
-      implements LinkedEntry<K, V> {
-    TerminalEntry(K key, V value) {
-      super(key, value);
-    }
-
-    @Nullable @Override public LinkedEntry<K, V> next() {
-      return null;
-    }
+  @SuppressWarnings("unchecked") // only V's are stored at odd indices
+  V valueAt(int entryIndex) {
+    return (V) alternatingKeysAndValues[2 * entryIndex + 1];
   }
 
   @Override public V get(@Nullable Object key) {
     if (key == null) {
       return null;
     }
-    int index = Hashing.smear(key.hashCode()) & mask;
-    for (LinkedEntry<K, V> entry = table[index];
-        entry != null;
-        entry = entry.next()) {
-      K candidateKey = entry.getKey();
+    for (int i = Hashing.smear(key.hashCode()); ; i++) {
+      int entryIndex = table[i & mask];
+      if (entryIndex == ABSENT) {
+        return null;
+      }
 
       /*
        * Assume that equals uses the == optimization when appropriate, and that
@@ -170,16 +122,15 @@ final class RegularImmutableMap<K, V> extends ImmutableMap<K, V> {
        * did these things, it would just make things worse for the most
        * performance-conscious users.
        */
-      if (key.equals(candidateKey)) {
-        return entry.getValue();
+      if (key.equals(alternatingKeysAndValues[2 * entryIndex])) {
+        return valueAt(entryIndex);
       }
     }
-    return null;
   }
 
   @Override
   public int size() {
-    return entries.length;
+    return alternatingKeysAndValues.length / 2;
   }
 
   @Override public boolean isEmpty() {
@@ -190,8 +141,8 @@ final class RegularImmutableMap<K, V> extends ImmutableMap<K, V> {
     if (value == null) {
       return false;
     }
-    for (Entry<K, V> entry : entries) {
-      if (entry.getValue().equals(value)) {
+    for (int i = 1; i < alternatingKeysAndValues.length; i += 2) {
+      if (alternatingKeysAndValues[i].equals(value)) {
         return true;
       }
     }
@@ -220,7 +171,18 @@ final class RegularImmutableMap<K, V> extends ImmutableMap<K, V> {
 
     @Override
     ImmutableList<Entry<K, V>> createAsList() {
-      return new RegularImmutableAsList<Entry<K, V>>(this, entries);
+      return new ImmutableAsList<Entry<K, V>>() {
+        @Override
+        public Entry<K, V> get(int index) {
+          checkElementIndex(index, size());
+          return Maps.immutableEntry(keyAt(index), valueAt(index));
+        }
+
+        @Override
+        ImmutableCollection<Entry<K, V>> delegateCollection() {
+          return EntrySet.this;
+        }
+      };
     }
   }
 
@@ -230,13 +192,68 @@ final class RegularImmutableMap<K, V> extends ImmutableMap<K, V> {
       @Override ImmutableMap<K, V> map() {
         return RegularImmutableMap.this;
       }
+
+      @Override public UnmodifiableIterator<K> iterator() {
+        return asList().iterator();
+      }
+
+      @Override ImmutableList<K> createAsList() {
+        final ImmutableSet<K> keySet = this;
+        return new ImmutableAsList<K>() {
+          @Override
+          public K get(int index) {
+            checkElementIndex(index, size());
+            return keyAt(index);
+          }
+
+          @Override
+          ImmutableCollection<K> delegateCollection() {
+            return keySet;
+          }
+        };
+      }
+    };
+  }
+
+  @Override
+  ImmutableCollection<V> createValues() {
+    return new ImmutableMapValues<K, V>() {
+      @Override ImmutableMap<K, V> map() {
+        return RegularImmutableMap.this;
+      }
+
+      @Override public UnmodifiableIterator<V> iterator() {
+        return asList().iterator();
+      }
+
+      @Override ImmutableList<V> createAsList() {
+        final ImmutableCollection<V> values = this;
+        return new ImmutableAsList<V>() {
+          @Override
+          public V get(int index) {
+            checkElementIndex(index, size());
+            return valueAt(index);
+          }
+
+          @Override
+          ImmutableCollection<V> delegateCollection() {
+            return values;
+          }
+        };
+      }
     };
   }
 
   @Override public String toString() {
     StringBuilder result
         = Collections2.newStringBuilderForCollection(size()).append('{');
-    Collections2.STANDARD_JOINER.appendTo(result, entries);
+    for (int i = 0; i < alternatingKeysAndValues.length; i += 2) {
+      if (i > 0) {
+        result.append(", ");
+      }
+      result.append(alternatingKeysAndValues[i])
+          .append('=').append(alternatingKeysAndValues[i + 1]);
+    }
     return result.append('}').toString();
   }
 
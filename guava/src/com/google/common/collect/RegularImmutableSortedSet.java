@@ -48,6 +48,9 @@ final class RegularImmutableSortedSet<E> extends ImmutableSortedSet<E> {
 
   private transient final ImmutableList<E> elements;
 
+  // built on the first lookup into a large set; see lookupIndex()
+  @Nullable private transient SortedLookupIndex lookupIndex;
+
   RegularImmutableSortedSet(
       ImmutableList<E> elements, Comparator<? super E> comparator) {
     super(comparator);
@@ -126,9 +129,29 @@ final class RegularImmutableSortedSet<E> extends ImmutableSortedSet<E> {
   }
 
   private int unsafeBinarySearch(Object key) throws ClassCastException {
+    SortedLookupIndex index = lookupIndex();
+    if (index != null) {
+      return index.indexOf(key);
+    }
     return Collections.binarySearch(elements, key, unsafeComparator());
   }
 
+  /**
+   * Returns a cache-friendly search index over the elements, or {@code null}
+   * if lookups should binary search {@code elements} directly. Only large sets
+   * that own their backing array are indexed; subsets and other views are
+   * not, so that they don't each duplicate the elements.
+   */
+  @Nullable private SortedLookupIndex lookupIndex() {
+    SortedLookupIndex result = lookupIndex;
+    if (result == null && SortedLookupIndex.shouldIndex(elements.size())
+        && !elements.isPartialView()) {
+      // racy single-check: the index is immutable, so duplicates are harmless
+      lookupIndex = result = SortedLookupIndex.create(elements, comparator);
+    }
+    return result;
+  }
+
   @Override boolean isPartialView() {
     return elements.isPartialView();
   }
@@ -242,8 +265,11 @@ final class RegularImmutableSortedSet<E> extends ImmutableSortedSet<E> {
     }
     int position;
     try {
-      position = SortedLists.binarySearch(elements, target, unsafeComparator(),
-          ANY_PRESENT, INVERTED_INSERTION_INDEX);
+      SortedLookupIndex index = lookupIndex();
+      position = (index != null)
+          ? index.indexOf(target)
+          : SortedLists.binarySearch(elements, target, unsafeComparator(),
+              ANY_PRESENT, INVERTED_INSERTION_INDEX);
     } catch (ClassCastException e) {
       return -1;
     }
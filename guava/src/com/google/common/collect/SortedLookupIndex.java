@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.collect;
+
+import com.google.common.annotations.GwtCompatible;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A read-only search index over a sorted, duplicate-free list, used to speed
+ * up point lookups in large immutable sorted collections.
+ *
+ * <p>The elements are copied into an array in Eytzinger (breadth-first binary
+ * tree) order: the children of slot {@code k} are slots {@code 2k} and
+ * {@code 2k + 1}. A search walks down the tree touching slots that are
+ * adjacent in memory for the first few levels, rather than jumping across the
+ * whole array as a binary search over the sorted list does, and its loop has
+ * no data-dependent branch. For {@link Long}, {@link Integer} and
+ * {@link String} elements in their natural order the keys are stored
+ * unboxed or compared without going through the comparator.
+ *
+ * @author Louis Wasserman
+ */
+@GwtCompatible
+abstract class SortedLookupIndex {
+  /**
+   * Sorted collections smaller than this are searched directly; their
+   * backing arrays fit comfortably in cache.
+   */
+  static final int MIN_INDEXED_SIZE = 1024;
+
+  /**
+   * Slot arithmetic must not overflow, so larger collections are searched
+   * directly.
+   */
+  private static final int MAX_INDEXED_SIZE = 1 << 29;
+
+  /** Returns whether a sorted list of the given size is worth indexing. */
+  static boolean shouldIndex(int size) {
+    return size >= MIN_INDEXED_SIZE && size <= MAX_INDEXED_SIZE;
+  }
+
+  /**
+   * Maps each tree slot (starting at 1) to the position of its element in the
+   * sorted list.
+   */
+  final int[] positions;
+
+  SortedLookupIndex(int size) {
+    this.positions = new int[size + 1];
+  }
+
+  /**
+   * Returns the position in the sorted list of an element that compares as
+   * equal to {@code key}, or -1 if there is none.
+   *
+   * @throws ClassCastException if {@code key} cannot be compared with the
+   *     elements
+   */
+  abstract int indexOf(Object key);
+
+  /**
+   * Creates an index over {@code elements}, which must be sorted with
+   * respect to {@code comparator}, contain no null elements, and contain no
+   * two elements that compare as equal.
+   */
+  static SortedLookupIndex create(
+      List<?> elements, Comparator<?> comparator) {
+    if (comparator == Ordering.natural()) {
+      if (allInstancesOf(elements, Long.class)) {
+        return new LongIndex(elements);
+      } else if (allInstancesOf(elements, Integer.class)) {
+        return new IntIndex(elements);
+      } else if (allInstancesOf(elements, String.class)) {
+        return new StringIndex(elements);
+      }
+    }
+    @SuppressWarnings("unchecked") // may throw CCE, as documented by indexOf
+    Comparator<Object> unsafeComparator = (Comparator<Object>) comparator;
+    return new ComparatorIndex(elements, unsafeComparator);
+  }
+
+  private static boolean allInstancesOf(List<?> elements, Class<?> type) {
+    for (Object element : elements) {
+      if (element.getClass() != type) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Fills {@code positions} with the sorted position that belongs in each tree
+   * slot. Element {@code positions[k]} of the sorted list is subsequently
+   * copied into slot {@code k} by the subclasses.
+   */
+  final void layOut() {
+    int size = positions.length - 1;
+    // Visit the slots in sorted order: an in-order traversal of the implicit
+    // tree, done iteratively since the tree may be quite deep.
+    int slot = leftmostDescendant(1, size);
+    for (int position = 0; position < size; position++) {
+      positions[slot] = position;
+      if (2 * slot + 1 <= size) {
+        slot = leftmostDescendant(2 * slot + 1, size);
+      } else {
+        // climb past every ancestor of which we are in the right subtree
+        while ((slot & 1) == 1) {
+          slot >>>= 1;
+        }
+        slot >>>= 1;
+      }
+    }
+  }
+
+  private static int leftmostDescendant(int slot, int size) {
+    while (2 * slot <= size) {
+      slot *= 2;
+    }
+    return slot;
+  }
+
+  /**
+   * Converts the slot at which a tree search ended (having gone right at
+   * every slot whose element was less than the key) into the slot of the
+   * least element not less than the key, or 0 if there is none.
+   */
+  @VisibleForTesting static int lowerBoundSlot(int endSlot) {
+    return endSlot >>> (Integer.numberOfTrailingZeros(~endSlot) + 1);
+  }
+
+  private static final class LongIndex extends SortedLookupIndex {
+    private final long[] tree;
+
+    LongIndex(List<?> elements) {
+      super(elements.size());
+      layOut();
+      tree = new long[positions.length];
+      for (int k = 1; k < tree.length; k++) {
+        tree[k] = (Long) elements.get(positions[k]);
+      }
+    }
+
+    @Override int indexOf(Object key) {
+      if (!(key instanceof Long)) {
+        return -1;
+      }
+      long target = (Long) key;
+      long[] tree = this.tree;
+      int k = 1;
+      while (k < tree.length) {
+        k = 2 * k + ((tree[k] < target) ? 1 : 0);
+      }
+      k = lowerBoundSlot(k);
+      return (k != 0 && tree[k] == target) ? positions[k] : -1;
+    }
+  }
+
+  private static final class IntIndex extends SortedLookupIndex {
+    private final int[] tree;
+
+    IntIndex(List<?> elements) {
+      super(elements.size());
+      layOut();
+      tree = new int[positions.length];
+      for (int k = 1; k < tree.length; k++) {
+        tree[k] = (Integer) elements.get(positions[k]);
+      }
+    }
+
+    @Override int indexOf(Object key) {
+      if (!(key instanceof Integer)) {
+        return -1;
+      }
+      int target = (Integer) key;
+      int[] tree = this.tree;
+      int k = 1;
+      while (k < tree.length) {
+        k = 2 * k + ((tree[k] < target) ? 1 : 0);
+      }
+      k = lowerBoundSlot(k);
+      return (k != 0 && tree[k] == target) ? positions[k] : -1;
+    }
+  }
+
+  private static final class StringIndex extends SortedLookupIndex {
+    private final String[] tree;
+
+    StringIndex(List<?> elements) {
+      super(elements.size());
+      layOut();
+      tree = new String[positions.length];
+      for (int k = 1; k < tree.length; k++) {
+        tree[k] = (String) elements.get(positions[k]);
+      }
+    }
+
+    @Override int indexOf(Object key) {
+      if (!(key instanceof String)) {
+        return -1;
+      }
+      String target = (String) key;
+      String[] tree = this.tree;
+      int k = 1;
+      while (k < tree.length) {
+        k = 2 * k + ((tree[k].compareTo(target) < 0) ? 1 : 0);
+      }
+      k = lowerBoundSlot(k);
+      return (k != 0 && tree[k].equals(target)) ? positions[k] : -1;
+    }
+  }
+
+  private static final class ComparatorIndex extends SortedLookupIndex {
+    private final Object[] tree;
+    private final Comparator<Object> comparator;
+
+    ComparatorIndex(List<?> elements, Comparator<Object> comparator) {
+      super(elements.size());
+      layOut();
+      this.comparator = comparator;
+      tree = new Object[positions.length];
+      for (int k = 1; k < tree.length; k++) {
+        tree[k] = elements.get(positions[k]);
+      }
+    }
+
+    @Override int indexOf(Object key) {
+      Object[] tree = this.tree;
+      Comparator<Object> comparator = this.comparator;
+      int k = 1;
+      while (k < tree.length) {
+        k = 2 * k + ((comparator.compare(tree[k], key) < 0) ? 1 : 0);
+      }
+      k = lowerBoundSlot(k);
+      return (k != 0 && comparator.compare(tree[k], key) == 0)
+          ? positions[k] : -1;
+    }
+  }
+}
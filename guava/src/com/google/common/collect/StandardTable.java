@@ -158,10 +158,18 @@ class StandardTable<R, C, V> implements Table<R, C, V>, Serializable {
     backingMap.clear();
   }
 
+  /**
+   * Creates the map that will hold the cells of the row {@code rowKey}.
+   * Subclasses may override this to observe changes to each row.
+   */
+  Map<C, V> createRowMap(R rowKey) {
+    return factory.get();
+  }
+
   private Map<C, V> getOrCreate(R rowKey) {
     Map<C, V> map = backingMap.get(rowKey);
     if (map == null) {
-      map = factory.get();
+      map = createRowMap(rowKey);
       backingMap.put(rowKey, map);
     }
     return map;
@@ -197,7 +205,7 @@ class StandardTable<R, C, V> implements Table<R, C, V>, Serializable {
     return value;
   }
 
-  private Map<R, V> removeColumn(Object column) {
+  Map<R, V> removeColumn(Object column) {
     Map<R, V> output = new LinkedHashMap<R, V>();
     Iterator<Entry<R, Map<C, V>>> iterator
         = backingMap.entrySet().iterator();
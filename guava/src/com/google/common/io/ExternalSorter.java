@@ -0,0 +1,483 @@
+/*
+ * Copyright (C) 2012 The Guava Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.common.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.UnmodifiableIterator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+/**
+ * Sorts inputs too large to fit in memory, according to an {@link Ordering}.
+ *
+ * <p>The input is read in runs of at most {@linkplain #withRunSize a fixed
+ * number} of elements. Each run is sorted in memory and written, using the
+ * supplied {@link ElementSerializer}, to a {@link FileBackedOutputStream}
+ * that spills it to a temporary file. The sorted runs are then merged lazily
+ * by a k-way merge as the result is iterated. If the whole input fits in a
+ * single run, it is sorted in memory and nothing is written.
+ *
+ * <p>At most {@linkplain #withMaxFanIn a fixed number} of temporary files are
+ * read at once, 128 by default. If there are more runs than that, consecutive
+ * groups of runs are first merged into longer runs, in as many passes as
+ * needed, each of which reads and writes every element once more.
+ *
+ * <p>Runs may be sorted and written {@linkplain #withExecutor concurrently},
+ * while the input continues to be read.
+ *
+ * <p>The sort is stable: elements that the ordering considers equivalent are
+ * returned in the order in which they appeared in the input.
+ *
+ * <p>Instances of this class are immutable; the {@code with*} methods return
+ * new sorters. A sorter may be used for any number of sorts, concurrently.
+ *
+ * @author Louis Wasserman
+ * @since 14.0
+ */
+@Beta
+public final class ExternalSorter<T> {
+  /**
+   * Writes elements to, and reads them back from, the temporary files of an
+   * {@link ExternalSorter}.
+   *
+   * @since 14.0
+   */
+  @Beta
+  public interface ElementSerializer<T> {
+    /**
+     * Writes {@code element} to {@code output}, in a form that {@link #read}
+     * can read back.
+     */
+    void write(T element, DataOutput output) throws IOException;
+
+    /**
+     * Reads an element written by {@link #write} from {@code input}.
+     */
+    T read(DataInput input) throws IOException;
+  }
+
+  private static final int DEFAULT_RUN_SIZE = 1 << 20;
+  private static final int DEFAULT_MAX_FAN_IN = 128;
+
+  /**
+   * Creates a sorter that sorts by {@code ordering} and stores elements with
+   * {@code serializer}, sorting runs of about a million elements in the
+   * calling thread.
+   */
+  public static <T> ExternalSorter<T> create(
+      Ordering<? super T> ordering, ElementSerializer<T> serializer) {
+    return new ExternalSorter<T>(checkNotNull(ordering),
+        checkNotNull(serializer), DEFAULT_RUN_SIZE, DEFAULT_MAX_FAN_IN, null,
+        0);
+  }
+
+  private final Ordering<? super T> ordering;
+  private final ElementSerializer<T> serializer;
+  private final int runSize;
+  private final int maxFanIn;
+  @Nullable private final ExecutorService executor;
+  private final int maxConcurrentRuns;
+
+  private ExternalSorter(Ordering<? super T> ordering,
+      ElementSerializer<T> serializer, int runSize, int maxFanIn,
+      @Nullable ExecutorService executor, int maxConcurrentRuns) {
+    this.ordering = ordering;
+    this.serializer = serializer;
+    this.runSize = runSize;
+    this.maxFanIn = maxFanIn;
+    this.executor = executor;
+    this.maxConcurrentRuns = maxConcurrentRuns;
+  }
+
+  /**
+   * Returns a sorter like this one that holds at most {@code runSize}
+   * elements of each run in memory.
+   *
+   * @throws IllegalArgumentException if {@code runSize} is not positive
+   */
+  public ExternalSorter<T> withRunSize(int runSize) {
+    checkArgument(runSize > 0, "runSize (%s) must be positive", runSize);
+    return new ExternalSorter<T>(ordering, serializer, runSize, maxFanIn,
+        executor, maxConcurrentRuns);
+  }
+
+  /**
+   * Returns a sorter like this one that reads at most {@code maxFanIn}
+   * temporary files at once, merging runs in intermediate passes when there
+   * are more of them.
+   *
+   * @throws IllegalArgumentException if {@code maxFanIn} is less than 2
+   */
+  public ExternalSorter<T> withMaxFanIn(int maxFanIn) {
+    checkArgument(maxFanIn >= 2, "maxFanIn (%s) must be at least 2", maxFanIn);
+    return new ExternalSorter<T>(ordering, serializer, runSize, maxFanIn,
+        executor, maxConcurrentRuns);
+  }
+
+  /**
+   * Returns a sorter like this one that sorts and writes runs as tasks of
+   * {@code executor}, with at most {@code maxConcurrentRuns} runs pending at
+   * once. The calling thread reads the next run from the input while earlier
+   * runs are sorted and written. At most {@code maxConcurrentRuns + 1} runs are
+   * held in memory at any time.
+   *
+   * @throws IllegalArgumentException if {@code maxConcurrentRuns} is not
+   *     positive
+   */
+  public ExternalSorter<T> withExecutor(
+      ExecutorService executor, int maxConcurrentRuns) {
+    checkNotNull(executor);
+    checkArgument(maxConcurrentRuns > 0,
+        "maxConcurrentRuns (%s) must be positive", maxConcurrentRuns);
+    return new ExternalSorter<T>(ordering, serializer, runSize, maxFanIn,
+        executor, maxConcurrentRuns);
+  }
+
+  /**
+   * Sorts the elements of {@code input}, returning an iterator over the
+   * elements in sorted order. All of {@code input} is consumed before this
+   * method returns.
+   *
+   * <p>The returned iterator deletes the temporary files of the sort when it is
+   * exhausted or {@linkplain SortedIterator#close closed}; callers that may
+   * abandon it early should close it in a {@code finally} block.
+   *
+   * @throws IOException if an I/O error occurs while writing a run
+   */
+  public SortedIterator<T> sort(Iterator<? extends T> input)
+      throws IOException {
+    checkNotNull(input);
+    List<T> firstRun = readRun(input);
+    if (!input.hasNext()) {
+      sortRun(firstRun);
+      return new SortedIterator<T>(
+          Collections.unmodifiableList(firstRun).iterator(),
+          Collections.<Run<T>>emptyList());
+    }
+
+    List<Run<T>> runs = Lists.newArrayList();
+    boolean succeeded = false;
+    try {
+      if (executor == null) {
+        runs.add(writeRun(firstRun));
+        while (input.hasNext()) {
+          runs.add(writeRun(readRun(input)));
+        }
+      } else {
+        writeRunsConcurrently(firstRun, input, runs);
+      }
+      while (runs.size() > maxFanIn) {
+        mergePass(runs);
+      }
+      List<Iterator<T>> runIterators = Lists.newArrayList();
+      for (Run<T> run : runs) {
+        runIterators.add(run.open());
+      }
+      SortedIterator<T> result = new SortedIterator<T>(
+          Iterators.mergeSorted(runIterators, ordering), runs);
+      succeeded = true;
+      return result;
+    } finally {
+      if (!succeeded) {
+        closeAll(runs, true);
+      }
+    }
+  }
+
+  private List<T> readRun(Iterator<? extends T> input) {
+    List<T> run = Lists.newArrayListWithCapacity(Math.min(runSize, 1024));
+    for (int i = 0; i < runSize && input.hasNext(); i++) {
+      run.add(input.next());
+    }
+    return run;
+  }
+
+  private void sortRun(List<T> run) {
+    // Collections.sort is a stable merge sort.
+    Collections.sort(run, ordering);
+  }
+
+  private void writeRunsConcurrently(List<T> firstRun,
+      Iterator<? extends T> input, List<Run<T>> runs) throws IOException {
+    Deque<Future<Run<T>>> pending = new ArrayDeque<Future<Run<T>>>();
+    try {
+      List<T> next = firstRun;
+      while (true) {
+        if (pending.size() == maxConcurrentRuns) {
+          runs.add(getRun(pending.removeFirst()));
+        }
+        final List<T> run = next;
+        pending.addLast(executor.submit(new Callable<Run<T>>() {
+          @Override public Run<T> call() throws IOException {
+            return writeRun(run);
+          }
+        }));
+        if (!input.hasNext()) {
+          break;
+        }
+        next = readRun(input);
+      }
+      while (!pending.isEmpty()) {
+        runs.add(getRun(pending.removeFirst()));
+      }
+    } finally {
+      // Only reached with pending tasks if something failed; clean up after
+      // them as they finish.
+      for (Future<Run<T>> future : pending) {
+        try {
+          runs.add(getRun(future));
+        } catch (IOException ignored) {
+        } catch (RuntimeException ignored) {
+        }
+      }
+    }
+  }
+
+  private static <T> Run<T> getRun(Future<Run<T>> future) throws IOException {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return future.get();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          Throwables.propagateIfPossible(e.getCause(), IOException.class);
+          throw new RuntimeException(e.getCause());
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private Run<T> writeRun(List<T> elements) throws IOException {
+    sortRun(elements);
+    return writeSorted(elements.iterator());
+  }
+
+  private Run<T> writeSorted(Iterator<T> elements) throws IOException {
+    FileBackedOutputStream buffer = new FileBackedOutputStream(0);
+    long size = 0;
+    boolean threw = true;
+    try {
+      DataOutputStream output =
+          new DataOutputStream(new BufferedOutputStream(buffer));
+      while (elements.hasNext()) {
+        serializer.write(elements.next(), output);
+        size++;
+      }
+      output.close();
+      threw = false;
+    } finally {
+      if (threw) {
+        buffer.reset();
+      }
+    }
+    return new Run<T>(buffer, size, serializer);
+  }
+
+  /**
+   * Replaces the contents of {@code runs} with the results of merging each
+   * group of {@code maxFanIn} consecutive runs. Merging consecutive runs keeps
+   * the sort stable. Each group is deleted as soon as it has been merged; if
+   * the pass fails, the runs it has written are deleted, and the caller
+   * remains responsible for the rest.
+   */
+  private void mergePass(List<Run<T>> runs) throws IOException {
+    List<Run<T>> merged = Lists.newArrayList();
+    boolean succeeded = false;
+    try {
+      for (List<Run<T>> group : Lists.partition(runs, maxFanIn)) {
+        List<Iterator<T>> iterators = Lists.newArrayList();
+        for (Run<T> run : group) {
+          iterators.add(run.open());
+        }
+        try {
+          merged.add(writeSorted(Iterators.mergeSorted(iterators, ordering)));
+        } catch (RuntimeException e) {
+          // a read of one of the group's files failed
+          Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+          throw e;
+        }
+        closeAll(group, false);
+      }
+      succeeded = true;
+    } finally {
+      if (!succeeded) {
+        closeAll(merged, true);
+      }
+    }
+    runs.clear();
+    runs.addAll(merged);
+  }
+
+  /**
+   * Closes each of {@code closeables}, and then rethrows the first exception
+   * thrown, unless {@code swallowIOException} is true.
+   */
+  private static void closeAll(List<? extends Closeable> closeables,
+      boolean swallowIOException) throws IOException {
+    IOException thrown = null;
+    for (Closeable closeable : closeables) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        if (thrown == null) {
+          thrown = e;
+        }
+      }
+    }
+    if (thrown != null && !swallowIOException) {
+      throw thrown;
+    }
+  }
+
+  /**
+   * A sorted run, stored by a {@link FileBackedOutputStream}, which may be
+   * read back once.
+   */
+  private static final class Run<T> implements Closeable {
+    final FileBackedOutputStream buffer;
+    final long size;
+    final ElementSerializer<T> serializer;
+    DataInputStream input;
+
+    Run(FileBackedOutputStream buffer, long size,
+        ElementSerializer<T> serializer) {
+      this.buffer = buffer;
+      this.size = size;
+      this.serializer = serializer;
+    }
+
+    Iterator<T> open() throws IOException {
+      input = new DataInputStream(
+          new BufferedInputStream(buffer.getSupplier().getInput()));
+      return new AbstractIterator<T>() {
+        long remaining = size;
+
+        @Override protected T computeNext() {
+          if (remaining == 0) {
+            return endOfData();
+          }
+          remaining--;
+          try {
+            return serializer.read(input);
+          } catch (IOException e) {
+            throw Throwables.propagate(e);
+          }
+        }
+      };
+    }
+
+    @Override public void close() throws IOException {
+      try {
+        Closeables.close(input, false);
+      } finally {
+        buffer.reset();
+      }
+    }
+  }
+
+  /**
+   * An iterator over the result of an external sort, which deletes the
+   * temporary files of the sort when closed. It is closed automatically once
+   * exhausted.
+   *
+   * <p>If an I/O error occurs while reading a temporary file, {@link #next}
+   * throws a {@link RuntimeException} whose cause is the {@link IOException}.
+   *
+   * @since 14.0
+   */
+  @Beta
+  public static final class SortedIterator<T> extends UnmodifiableIterator<T>
+      implements Closeable {
+    private final Iterator<T> merged;
+    private final List<Run<T>> runs;
+    private boolean closed;
+
+    private SortedIterator(Iterator<T> merged, List<Run<T>> runs) {
+      this.merged = merged;
+      this.runs = runs;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (closed) {
+        return false;
+      }
+      if (merged.hasNext()) {
+        return true;
+      }
+      try {
+        close();
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+      return false;
+    }
+
+    @Override
+    public T next() {
+      if (closed) {
+        throw new NoSuchElementException();
+      }
+      return merged.next();
+    }
+
+    /**
+     * Deletes the temporary files of the sort. Subsequently, this iterator has
+     * no more elements. Closing an iterator more than once has no effect.
+     */
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        closeAll(runs, false);
+      }
+    }
+  }
+}